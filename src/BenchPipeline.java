@@ -0,0 +1,323 @@
+import IR.CompilationContext;
+import IR.IRModule;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.optimizer.OptimizerFactory;
+import antlr.SysYLexer;
+import antlr.SysYParser;
+import backend.MemoryRegisterAlloc;
+import backend.RISCVBuilder;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * 编译流水线各阶段的基准测试，与TestIR/TestRISCV一样直接运行main
+ * 阶段：词法+语法分析、IRVisitor生成IR、OptimizerFactory流水线的每一步(按流水线中的顺序)、MemoryRegisterAlloc.allocate、
+ * RISCVBuilder.generateASM(含寄存器分配、翻译、后端优化和输出)、完整流水线
+ * 测试程序为内置生成的small/medium/large三个程序，也可以在参数中给出.sy文件或目录
+ * 每个阶段先预热若干次再测量若干次，每次都在新的CompilationContext中从头准备该阶段的输入，只对该阶段计时
+ * 用法：BenchPipeline [-warmup 3] [-iterations 5] [-stage 名字] [-size small|medium|large] [文件或目录...]
+ */
+public class BenchPipeline {
+    private static final String[] sizes = {"small", "medium", "large"};
+
+    private static volatile Object sink;/*保存每次的结果，防止被JIT优化掉*/
+
+    private record Program(String name, String source) {
+        int lines() {
+            return (int) source.chars().filter(c -> c == '\n').count();
+        }
+    }
+
+    private interface Stage {
+        long run(Program program) throws IOException;/*执行一次，返回被测部分的耗时(纳秒)*/
+    }
+
+    public static void main(String[] args) throws IOException {
+        int warmup = 3;
+        int iterations = 5;
+        String stageFilter = null;
+        String sizeFilter = null;
+        List<Program> programs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-warmup") && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-iterations") && i + 1 < args.length) {
+                iterations = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-stage") && i + 1 < args.length) {
+                stageFilter = args[++i];
+            } else if (args[i].equals("-size") && i + 1 < args.length) {
+                sizeFilter = args[++i];
+            } else {
+                addPrograms(new File(args[i]), programs);
+            }
+        }
+        if (programs.isEmpty()) {
+            for (String size : sizes) {
+                if (sizeFilter == null || sizeFilter.equals(size)) {
+                    programs.add(new Program(size, generateProgram(size)));
+                }
+            }
+        }
+
+        List<String> stageNames = new ArrayList<>();
+        List<Stage> stages = new ArrayList<>();
+        stageNames.add("parse");
+        stages.add(BenchPipeline::benchParse);
+        stageNames.add("IRVisitor");
+        stages.add(BenchPipeline::benchIRVisitor);
+        OptimizerFactory optimizerFactory = new OptimizerFactory();
+        for (int i = 0; i < optimizerFactory.getStepCount(); i++) {
+            int stepIndex = i;
+            stageNames.add(optimizerFactory.getStepName(i));
+            stages.add(program -> benchIRPass(program, stepIndex));
+        }
+        stageNames.add("MemoryRegisterAlloc.allocate");
+        stages.add(BenchPipeline::benchRegisterAlloc);
+        stageNames.add("RISCVBuilder.generateASM");
+        stages.add(BenchPipeline::benchGenerateASM);
+        stageNames.add("pipeline");
+        stages.add(BenchPipeline::benchPipeline);
+
+        System.out.printf(Locale.ROOT, "%-10s %7s  %-30s %10s %10s %10s %12s%n",
+                "Program", "Lines", "Stage", "Mean(ms)", "Error(ms)", "Min(ms)", "Lines/s");
+        for (Program program : programs) {
+            for (int s = 0; s < stages.size(); s++) {
+                if (stageFilter != null && !stageNames.get(s).equals(stageFilter)) {
+                    continue;
+                }
+                for (int i = 0; i < warmup; i++) {
+                    stages.get(s).run(program);
+                }
+                long[] samples = new long[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    samples[i] = stages.get(s).run(program);
+                }
+                printResult(program, stageNames.get(s), samples);
+            }
+        }
+    }
+
+    private static void printResult(Program program, String stage, long[] samples) {
+        double mean = Arrays.stream(samples).average().orElse(0);
+        double variance = 0;
+        for (long sample : samples) {
+            variance += (sample - mean) * (sample - mean);
+        }
+        double stddev = samples.length > 1 ? Math.sqrt(variance / (samples.length - 1)) : 0;
+        long min = Arrays.stream(samples).min().orElse(0);
+        System.out.printf(Locale.ROOT, "%-10s %7d  %-30s %10.3f %10.3f %10.3f %12.0f%n",
+                program.name(), program.lines(), stage, mean / 1e6, stddev / 1e6, min / 1e6,
+                mean == 0 ? 0 : program.lines() / (mean / 1e9));
+    }
+
+    private static void addPrograms(File file, List<Program> programs) throws IOException {
+        if (file.isDirectory()) {
+            File[] files = Objects.requireNonNull(file.listFiles());
+            Arrays.sort(files, Comparator.comparing(File::getName));
+            for (File f : files) {
+                if (f.isFile() && f.getName().endsWith(".sy")) {
+                    addPrograms(f, programs);
+                }
+            }
+            return;
+        }
+        String name = file.getName().substring(0, file.getName().length() - 3);
+        programs.add(new Program(name, Files.readString(file.toPath(), StandardCharsets.UTF_8)));
+    }
+
+    //-------- 各阶段 --------
+
+    private static ParseTree parse(Program program) {
+        SysYLexer lexer = new SysYLexer(CharStreams.fromString(program.source(), program.name()));
+        SysYParser parser = new SysYParser(new CommonTokenStream(lexer));
+        return parser.program();
+    }
+
+    private static IRModule generateIR(Program program, ParseTree parseTree) {
+        IRVisitor irVisitor = new IRVisitor(program.name() + ".sy");
+        irVisitor.visit(parseTree);
+        return irVisitor.getModule();
+    }
+
+    private static long benchParse(Program program) {
+        long start = System.nanoTime();
+        sink = parse(program);
+        return System.nanoTime() - start;
+    }
+
+    @SuppressWarnings("try")
+    private static long benchIRVisitor(Program program) {
+        ParseTree parseTree = parse(program);
+        try (CompilationContext.Activation ignored = new CompilationContext().activate()) {
+            long start = System.nanoTime();
+            sink = generateIR(program, parseTree);
+            return System.nanoTime() - start;
+        }
+    }
+
+    /*
+     * 先执行stepIndex之前的流水线步骤(不计时)，再对所有函数执行第stepIndex步
+     * 通过OptimizerFactory.optimizeStep执行，与编译时一样准备分析并在函数被修改后让分析失效
+     * 直接调用Optimize会让后面的优化拿到过时的支配树和循环信息
+     */
+    @SuppressWarnings("try")
+    private static long benchIRPass(Program program, int stepIndex) {
+        ParseTree parseTree = parse(program);
+        try (CompilationContext.Activation ignored = new CompilationContext().activate()) {
+            IRModule module = generateIR(program, parseTree);
+            OptimizerFactory optimizerFactory = new OptimizerFactory();
+            for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+                for (int i = 0; i < stepIndex; i++) {
+                    optimizerFactory.optimizeStep(function, i);
+                }
+            }
+            long start = System.nanoTime();
+            for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+                optimizerFactory.optimizeStep(function, stepIndex);
+            }
+            long elapsed = System.nanoTime() - start;
+            sink = module;
+            return elapsed;
+        }
+    }
+
+    private static IRModule optimizedIR(Program program) {
+        IRModule module = generateIR(program, parse(program));
+        OptimizerFactory optimizerFactory = new OptimizerFactory();
+        for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+            optimizerFactory.optimize(function);
+        }
+        return module;
+    }
+
+    @SuppressWarnings("try")
+    private static long benchRegisterAlloc(Program program) {
+        try (CompilationContext.Activation ignored = new CompilationContext().activate()) {
+            IRModule module = optimizedIR(program);
+            MemoryRegisterAlloc registerAlloc = new MemoryRegisterAlloc();
+            long elapsed = 0;
+            for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+                registerAlloc.setFunction(function);
+                registerAlloc.setModule(module);
+                long start = System.nanoTime();
+                sink = registerAlloc.allocate();
+                elapsed += System.nanoTime() - start;
+            }
+            return elapsed;
+        }
+    }
+
+    @SuppressWarnings("try")
+    private static long benchGenerateASM(Program program) throws IOException {
+        Path output = Files.createTempFile("bench", ".s");
+        try (CompilationContext.Activation ignored = new CompilationContext().activate()) {
+            IRModule module = optimizedIR(program);
+            long start = System.nanoTime();
+            new RISCVBuilder(module, new MemoryRegisterAlloc()).generateASM(output.toString());
+            return System.nanoTime() - start;
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private static long benchPipeline(Program program) throws IOException {
+        Path output = Files.createTempFile("bench", ".s");
+        try (CompilationContext.Activation ignored = new CompilationContext().activate()) {
+            long start = System.nanoTime();
+            IRModule module = optimizedIR(program);
+            new RISCVBuilder(module, new MemoryRegisterAlloc()).generateASM(output.toString());
+            return System.nanoTime() - start;
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    //-------- 生成测试程序 --------
+
+    /*
+     * small：几十行，一个递归函数和一个循环
+     * medium：几十个函数，包含循环、数组、浮点和短路条件
+     * large：一个有数千个分支的大函数加上一百多个函数，用于观察寄存器分配等随规模增长的开销
+     */
+    static String generateProgram(String size) {
+        Random random = new Random(2024);
+        StringBuilder sb = new StringBuilder();
+        sb.append("int g[256];\nfloat fg = 1.5;\n");
+        switch (size) {
+            case "small" -> {
+                sb.append("int fib(int n) {\n  if (n < 2) return n;\n  return fib(n - 1) + fib(n - 2);\n}\n");
+                sb.append("int main() {\n  int i = 0;\n  int s = 0;\n");
+                sb.append("  while (i < 10) {\n    s = s + fib(i);\n    g[i] = s;\n    i = i + 1;\n  }\n");
+                sb.append("  putint(s);\n  return 0;\n}\n");
+            }
+            case "medium" -> {
+                for (int f = 0; f < 30; f++) {
+                    appendFunction(sb, random, f, 12);
+                }
+                appendMain(sb, 30, false);
+            }
+            case "large" -> {
+                for (int f = 0; f < 120; f++) {
+                    appendFunction(sb, random, f, 30);
+                }
+                sb.append("int big(int n) {\n  int a = n;\n  int b = 0;\n  int i = 0;\n");
+                for (int k = 0; k < 3000; k++) {
+                    sb.append("  if (a % ").append(2 + random.nextInt(7)).append(" == ").append(random.nextInt(2))
+                            .append(") { b = (b + a * ").append(k % 13 + 1).append(") % 10007; } else { a = (a + b + ")
+                            .append(k).append(") % 1013; }\n");
+                }
+                sb.append("  return a + b;\n}\n");
+                appendMain(sb, 120, true);
+            }
+            default -> throw new IllegalArgumentException("unknown size " + size);
+        }
+        return sb.toString();
+    }
+
+    private static void appendFunction(StringBuilder sb, Random random, int index, int statements) {
+        sb.append("int f").append(index).append("(int n, int acc) {\n");
+        sb.append("  int a = n;\n  int b = acc;\n  int i = 0;\n  int arr[16];\n  float x = 0.5;\n");
+        sb.append("  while (i < 16) {\n    arr[i] = i * n;\n    i = i + 1;\n  }\n  i = 0;\n");
+        sb.append("  while (i < 20) {\n");
+        for (int k = 0; k < statements; k++) {
+            int mod = 2 + random.nextInt(7);
+            switch (random.nextInt(4)) {
+                case 0 -> sb.append("    if (a % ").append(mod).append(" == 0 && b > ").append(k)
+                        .append(") { b = b - a % 97; } else { a = (a + b + ").append(k).append(") % 1013; }\n");
+                //a、b可能为负数，取余后再加16取余，下标总在[0, 16)中
+                case 1 -> sb.append("    arr[((a + ").append(k).append(") % 16 + 16) % 16] = arr[(b % 16 + 16) % 16] + a;\n");
+                case 2 -> sb.append("    x = x * 0.5 + fg;\n    if (x > 100.0 || a < 0) { x = 1.0; }\n");
+                default -> sb.append("    b = (b * ").append(mod).append(" + arr[").append(k % 16).append("]) % 10007;\n");
+            }
+        }
+        sb.append("    g[i] = g[i] + a - b;\n    i = i + 1;\n  }\n");
+        sb.append("  if (n <= 0) return (a + b) % 256;\n");
+        sb.append("  return f").append(index).append("(n - 1, (acc + a) % 1000);\n}\n");
+    }
+
+    private static void appendMain(StringBuilder sb, int functions, boolean callBig) {
+        sb.append("int main() {\n  int s = 0;\n");
+        for (int f = 0; f < functions; f++) {
+            sb.append("  s = (s + f").append(f).append("(").append(f % 5).append(", ").append(f).append(")) % 256;\n");
+        }
+        if (callBig) {
+            sb.append("  s = (s + big(s)) % 256;\n");
+        }
+        sb.append("  putint(s);\n  return s;\n}\n");
+    }
+}
@@ -1,4 +1,9 @@
+import IR.BlockProfile;
+import IR.CompilationContext;
 import IR.IRModule;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.PassTimer;
+import IR.optimizer.OptimizerFactory;
 import antlr.SysYLexer;
 import antlr.SysYParser;
 import backend.MemoryRegisterAlloc;
@@ -7,6 +12,16 @@ import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -14,14 +29,131 @@ import org.antlr.v4.runtime.tree.ParseTree;
 public class Compiler {
     public static void main(String[] args) throws IOException{
         //    功能测试：compiler -S -o testcase.s testcase.sy
-        //    性能测试：compiler -S -o testcase.s testcase.sy -O1
+        //    性能测试：compiler -S -o testcase.s testcase.sy -O1 (优化级别-O0/-O1/-O2，默认为-O1)
+        //    输出IR：compiler -S -o testcase.s testcase.sy -emit-ir testcase.ll
+        //    按函数并行：compiler -S -o testcase.s testcase.sy -j 4
+        //    批量编译：compiler -batch outputDir testcase1.sy testcaseDir ... -workers 8 -O2
+        //    各阶段耗时：compiler -S -o testcase.s testcase.sy -time-passes (或-time-passes=json)，报告输出到标准错误
+        //    剖析：compiler -S -o testcase.s testcase.sy -fprofile-generate，用RISCVSimulator的-profile-data得到剖析文件，
+        //          再compiler -S -o testcase.s testcase.sy -fprofile-use=testcase.profile，两次的优化级别要相同
+        //    计时探针：compiler -S -o testcase.s testcase.sy -ftiming-probes=functions (或=loops)，
+        //          在每个函数体(或每个最外层while循环)前后插入_sysy_starttime/_sysy_stoptime，各区间的耗时由sylib输出到标准错误
         if (args.length < 1) {
             System.err.println("input path is required");
             return;
         }
+        if (args[0].equals("-batch")) {
+            batchMain(args);
+            return;
+        }
         String source = args[3];//源文件路径
         String Dest = args[2];//目标文件路径
+        String irDest = null;//IR输出路径，默认不输出
+        int threads = 1;//按函数并行优化和生成代码的线程数，1为串行
+        String timePasses = null;//统计各阶段耗时，"text"或"json"
+        int optLevel = OptimizerFactory.DEFAULT_LEVEL;//IR优化级别
+        boolean profileGenerate = false;//插入基本块计数器
+        BlockProfile profileUse = null;//读入的基本块执行次数
+        IRVisitor.TimingProbes timingProbes = IRVisitor.TimingProbes.NONE;//自动插入的计时探针
+        for (int i = 4; i < args.length; i++) {
+            if (OptimizerFactory.parseLevel(args[i]) >= 0) {
+                optLevel = OptimizerFactory.parseLevel(args[i]);
+            } else if (args[i].equals("-emit-ir") && i + 1 < args.length) {
+                irDest = args[++i];
+            } else if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].startsWith("-time-passes")) {
+                timePasses = parseTimePasses(args[i]);
+            } else if (args[i].equals("-fprofile-generate")) {
+                profileGenerate = true;
+            } else if (args[i].startsWith("-fprofile-use=")) {
+                try {
+                    profileUse = BlockProfile.read(Path.of(args[i].substring("-fprofile-use=".length())));
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Warning: cannot read profile: " + e.getMessage());
+                }
+            } else if (args[i].startsWith("-ftiming-probes=")) {
+                String mode = args[i].substring("-ftiming-probes=".length());
+                if (mode.equals("functions")) {
+                    timingProbes = IRVisitor.TimingProbes.FUNCTIONS;
+                } else if (mode.equals("loops")) {
+                    timingProbes = IRVisitor.TimingProbes.LOOPS;
+                } else {
+                    System.err.println("Warning: unknown timing probes " + mode + ", expected functions or loops");
+                }
+            }
+        }
+        PassTimer timer = timePasses == null ? PassTimer.disabled() : PassTimer.create();
+        compile(source, Dest, irDest, threads, optLevel, timer, profileGenerate, profileUse, timingProbes);
+        printTimePasses(timer, timePasses);
+    }
+
+    public static void compile(String source, String dest, String irDest, int threads) throws IOException {
+        compile(source, dest, irDest, threads, OptimizerFactory.DEFAULT_LEVEL, PassTimer.disabled());
+    }
+
+    /*
+     * 编译一个源文件，每次编译使用新的CompilationContext，同一个JVM中先后或同时编译多个文件时互不影响
+     * irDest为null时不输出IR，threads>1时按函数并行优化和生成代码，optLevel为IR优化级别，各阶段的耗时记录到timer中
+     */
+    public static void compile(String source, String dest, String irDest, int threads, int optLevel, PassTimer timer) throws IOException {
+        compile(source, dest, irDest, threads, optLevel, timer, false, null, IRVisitor.TimingProbes.NONE);
+    }
 
+    /*
+     * profileGenerate为true时在IR优化之后插入基本块计数器(-fprofile-generate)
+     * profileUse不为null时在IR优化之后把其中的执行次数记到各基本块上，供后端安排基本块顺序和选择溢出变量(-fprofile-use)
+     * 两者都需要整个模块优化完后的控制流图，此时忽略threads，串行编译
+     * timingProbes为生成IR时自动插入的计时探针
+     */
+    @SuppressWarnings("try")
+    public static void compile(String source, String dest, String irDest, int threads, int optLevel, PassTimer timer,
+                               boolean profileGenerate, BlockProfile profileUse, IRVisitor.TimingProbes timingProbes) throws IOException {
+        try (CompilationContext.Activation ignored = new CompilationContext(timer).activate()) {
+            IRVisitor irVisitor = generateIR(source, timer, timingProbes);
+            if (threads > 1 && !profileGenerate && profileUse == null) {
+                //每个函数的IR优化、寄存器分配和翻译作为一个任务并行执行
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    RISCVBuilder riscvBuilder = new RISCVBuilder(irVisitor.getModule(), new MemoryRegisterAlloc());
+                    riscvBuilder.generateASM(dest, pool, MemoryRegisterAlloc::new,
+                            function -> IRVisitor.optimizeFunction(function, optLevel));
+                } finally {
+                    pool.shutdown();
+                }
+                if (irDest != null) {
+                    IRModule.IRPrintModuleToFile(irVisitor.getModule(), irDest);
+                }
+                return;
+            }
+            //IR优化
+            irVisitor.optimizeModule(optLevel);
+            if (profileUse != null) {
+                profileUse.apply(irVisitor.getModule());
+            }
+            if (profileGenerate) {
+                BlockProfile.instrument(irVisitor.getModule());
+            }
+            //需要时将生成的中间代码写入文件
+            if (irDest != null) {
+                IRModule.IRPrintModuleToFile(irVisitor.getModule(), irDest);
+            }
+            //生成汇编代码
+            MemoryRegisterAlloc registerAlloc = new MemoryRegisterAlloc();
+            RISCVBuilder riscvBuilder = new RISCVBuilder(irVisitor.getModule(), registerAlloc);
+            riscvBuilder.generateASM(dest);
+        }
+    }
+
+    /*
+     * 词法分析、语法分析并生成中间代码，不做优化，模块通过返回的IRVisitor的getModule取得
+     * 需要在调用者激活的CompilationContext中调用
+     */
+    static IRVisitor generateIR(String source, PassTimer timer) throws IOException {
+        return generateIR(source, timer, IRVisitor.TimingProbes.NONE);
+    }
+
+    static IRVisitor generateIR(String source, PassTimer timer, IRVisitor.TimingProbes timingProbes) throws IOException {
         //获得输入
         CharStream input = CharStreams.fromFileName(source);
         //词法分析
@@ -29,15 +161,123 @@ public class Compiler {
         CommonTokenStream tokens_input = new CommonTokenStream(sysYLexer);
         //语法分析+语义分析
         SysYParser sysYParser = new SysYParser(tokens_input);
-        ParseTree parseTree = sysYParser.program();
+        ParseTree parseTree = timer.call("parse", null, null, sysYParser::program);
         //生成中间代码
         IRVisitor irVisitor = new IRVisitor(source);
-        irVisitor.visit(parseTree);
-        //将生成的中间代码写入文件
-        IRModule.IRPrintModuleToFile(irVisitor.getModule(), "./tests/test1.ll");
-        //生成汇编代码
-        MemoryRegisterAlloc registerAlloc = new MemoryRegisterAlloc();
-        RISCVBuilder riscvBuilder = new RISCVBuilder(irVisitor.getModule(), registerAlloc);
-        riscvBuilder.generateASM(Dest);
-    }
-}
\ No newline at end of file
+        irVisitor.setTimingProbes(timingProbes);
+        IRModule module = irVisitor.getModule();
+        timer.run("IRVisitor", () -> countInstructions(module), () -> countBlocks(module), () -> irVisitor.visit(parseTree));
+        return irVisitor;
+    }
+
+    private static int countInstructions(IRModule module) {
+        int count = 0;
+        for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+            count += function.getInstructionCount();
+        }
+        return count;
+    }
+
+    private static int countBlocks(IRModule module) {
+        int count = 0;
+        for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+            count += function.getBaseBlocks().size();
+        }
+        return count;
+    }
+
+    private static String parseTimePasses(String option) {
+        return option.equals("-time-passes=json") ? "json" : "text";
+    }
+
+    private static void printTimePasses(PassTimer timer, String format) {
+        if (format == null) {
+            return;
+        }
+        if (format.equals("json")) {
+            timer.printJson(System.err);
+        } else {
+            timer.printReport(System.err);
+        }
+    }
+
+    /*
+     * 批量编译：compiler -batch <输出目录> <源文件或目录>... [-workers n] [-j n] [-O0|-O1|-O2] [-time-passes]
+     * 目录展开为其中所有的.sy文件，每个文件输出到 输出目录/<文件名>.s
+     * 所有文件在同一个JVM中由workers个线程同时编译，共享ANTLR的DFA缓存和JIT的结果，默认线程数为CPU核数
+     * -time-passes时输出所有文件累加的各阶段耗时
+     */
+    private static void batchMain(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: compiler -batch <outputDir> <input.sy|inputDir>... [-workers n] [-j n] [-O0|-O1|-O2] [-time-passes]");
+            return;
+        }
+        Path outputDir = Path.of(args[1]);
+        int workers = Runtime.getRuntime().availableProcessors();
+        int threads = 1;
+        String timePasses = null;
+        int optLevel = OptimizerFactory.DEFAULT_LEVEL;
+        List<Path> sources = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            if (OptimizerFactory.parseLevel(args[i]) >= 0) {
+                optLevel = OptimizerFactory.parseLevel(args[i]);
+            } else if (args[i].equals("-workers") && i + 1 < args.length) {
+                workers = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].startsWith("-time-passes")) {
+                timePasses = parseTimePasses(args[i]);
+            } else {
+                Path path = Path.of(args[i]);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> files = Files.list(path)) {
+                        files.filter(f -> f.getFileName().toString().endsWith(".sy")).sorted().forEach(sources::add);
+                    }
+                } else {
+                    sources.add(path);
+                }
+            }
+        }
+        Files.createDirectories(outputDir);
+        PassTimer timer = timePasses == null ? PassTimer.disabled() : PassTimer.create();
+        int failed = compileBatch(sources, outputDir, workers, threads, optLevel, timer);
+        System.out.println("compiled " + (sources.size() - failed) + "/" + sources.size() + " files");
+        printTimePasses(timer, timePasses);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /*
+     * 用workers个线程编译sources中的所有文件，返回失败的文件数，失败的原因输出到标准错误
+     */
+    public static int compileBatch(List<Path> sources, Path outputDir, int workers, int threads, int optLevel, PassTimer timer) {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> results = new ArrayList<>();
+        for (Path source : sources) {
+            String name = source.getFileName().toString();
+            String dest = outputDir.resolve(name.substring(0, name.length() - 3) + ".s").toString();
+            results.add(pool.submit(() -> {
+                compile(source.toString(), dest, null, threads, optLevel, timer);
+                return null;
+            }));
+        }
+        int failed = 0;
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    System.err.println("ERROR：Failed to compile " + sources.get(i) + ": " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed = results.size();
+        } finally {
+            pool.shutdownNow();
+        }
+        return failed;
+    }
+}
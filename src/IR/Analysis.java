@@ -0,0 +1,22 @@
+package IR;
+
+/**
+ * 由AnalysisManager缓存的分析结果
+ * 优化通过OptForIR.getRequiredAnalyses/getPreservedAnalyses声明需要和保持的分析，
+ * 优化修改了函数后，没有被它保持的分析结果都视为失效；依赖于失效分析的结果也一起失效
+ */
+public enum Analysis {
+    CFG("ControlFlowGraph"),/*基本块之间的前驱后继关系*/
+    DOMINATORS("DomAnalysis"),/*支配树和支配边界，依赖CFG*/
+    LOOPS("LoopInfo");/*自然循环及其嵌套关系，依赖DOMINATORS*/
+
+    private final String className;/*保存该分析结果的类，也作为-time-passes中的阶段名*/
+
+    Analysis(String className) {
+        this.className = className;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+}
@@ -0,0 +1,102 @@
+package IR;
+
+import IR.IRValueRef.IRFunctionBlockRef;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按函数缓存分析结果(ControlFlowGraph、DomAnalysis、LoopInfo)，同一次编译中的优化和后端共享，不再各自重新计算
+ * 每个CompilationContext持有一个AnalysisManager，通过CompilationContext.current().getAnalysisManager()取得
+ * 修改了函数的优化执行后由OptimizerFactory调用invalidate，只保留该优化声明保持的分析；
+ * 不经过OptimizerFactory直接修改控制流的代码需要自行调用invalidate
+ * 不同函数可以在不同线程中同时查询，同一个函数的分析只在一个线程中使用
+ */
+public final class AnalysisManager {
+    private final Map<IRFunctionBlockRef, FunctionAnalyses> functionAnalyses = new ConcurrentHashMap<>();
+
+    //一个函数已经计算的分析，为null表示未计算或已失效
+    private static final class FunctionAnalyses {
+        private ControlFlowGraph controlFlowGraph;
+        private DomAnalysis domAnalysis;
+        private LoopInfo loopInfo;
+    }
+
+    private FunctionAnalyses analysesOf(IRFunctionBlockRef function) {
+        return functionAnalyses.computeIfAbsent(function, f -> new FunctionAnalyses());
+    }
+
+    public ControlFlowGraph getControlFlowGraph(IRFunctionBlockRef function) {
+        FunctionAnalyses analyses = analysesOf(function);
+        if (analyses.controlFlowGraph == null) {
+            analyses.controlFlowGraph = new ControlFlowGraph(function);
+        }
+        return analyses.controlFlowGraph;
+    }
+
+    public DomAnalysis getDomAnalysis(IRFunctionBlockRef function) {
+        FunctionAnalyses analyses = analysesOf(function);
+        if (analyses.domAnalysis == null) {
+            analyses.domAnalysis = new DomAnalysis(function);
+        }
+        return analyses.domAnalysis;
+    }
+
+    public LoopInfo getLoopInfo(IRFunctionBlockRef function) {
+        FunctionAnalyses analyses = analysesOf(function);
+        if (analyses.loopInfo == null) {
+            analyses.loopInfo = new LoopInfo(function, getDomAnalysis(function));
+        }
+        return analyses.loopInfo;
+    }
+
+    public boolean isCached(IRFunctionBlockRef function, Analysis analysis) {
+        FunctionAnalyses analyses = functionAnalyses.get(function);
+        if (analyses == null) {
+            return false;
+        }
+        return switch (analysis) {
+            case CFG -> analyses.controlFlowGraph != null;
+            case DOMINATORS -> analyses.domAnalysis != null;
+            case LOOPS -> analyses.loopInfo != null;
+        };
+    }
+
+    /*计算并缓存一项分析，已缓存时不做任何事*/
+    public void compute(IRFunctionBlockRef function, Analysis analysis) {
+        switch (analysis) {
+            case CFG -> getControlFlowGraph(function);
+            case DOMINATORS -> getDomAnalysis(function);
+            case LOOPS -> getLoopInfo(function);
+        }
+    }
+
+    /*
+     * 函数被修改后调用，preserved之外的分析失效；
+     * CFG失效时依赖它的支配树一起失效，支配树失效时循环信息一起失效
+     */
+    public void invalidate(IRFunctionBlockRef function, Set<Analysis> preserved) {
+        FunctionAnalyses analyses = functionAnalyses.get(function);
+        if (analyses == null) {
+            return;
+        }
+        boolean cfgValid = preserved.contains(Analysis.CFG);
+        boolean domValid = cfgValid && preserved.contains(Analysis.DOMINATORS);
+        boolean loopsValid = domValid && preserved.contains(Analysis.LOOPS);
+        if (!cfgValid) {
+            analyses.controlFlowGraph = null;
+        }
+        if (!domValid) {
+            analyses.domAnalysis = null;
+        }
+        if (!loopsValid) {
+            analyses.loopInfo = null;
+        }
+    }
+
+    /*函数不再需要分析时(已生成汇编)释放它的所有分析*/
+    public void release(IRFunctionBlockRef function) {
+        functionAnalyses.remove(function);
+    }
+}
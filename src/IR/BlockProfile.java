@@ -0,0 +1,184 @@
+package IR;
+
+import IR.IRInstruction.CalculateInstruction;
+import IR.IRInstruction.GetElementPointerInstruction;
+import IR.IRInstruction.IRInstruction;
+import IR.IRInstruction.LoadInstruction;
+import IR.IRInstruction.PhiInstruction;
+import IR.IRInstruction.StoreInstruction;
+import IR.IRType.IRArrayType;
+import IR.IRType.IRInt32Type;
+import IR.IRType.IRPointerType;
+import IR.IRType.IRType;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRConstIntRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRGlobalRegRef;
+import IR.IRValueRef.IRValueRef;
+import IR.IRValueRef.IRVirtualRegRef;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基本块剖析，对应-fprofile-generate和-fprofile-use
+ * -fprofile-generate：IR优化之后调用instrument，在每个基本块开头(phi之后)给全局数组COUNTERS中对应的计数器加1，
+ *   数组的前HEADER_SIZE项是校验和与计数器个数；RISCVSimulator和IRInterpreter在程序结束时(相当于sylib的after_main)
+ *   读出计数器得到BlockProfile，由它们的命令行写成剖析文件；res下预编译的sylib库不会写出计数器，
+ *   在qemu或开发板上运行插桩的程序得不到剖析文件
+ * -fprofile-use：IR优化之后读入剖析文件并调用apply，校验和与当前模块一致时把执行次数记到每个IRBaseBlockRef上，
+ *   后端据此安排基本块的顺序(BlockLayout)和选择溢出的变量(MemoryRegisterAlloc)
+ * 基本块按函数在模块中的顺序、基本块在函数中的顺序编号；校验和由函数名、基本块标签和控制流边计算，
+ * 源程序、优化级别或编译器的改变使控制流图不同时剖析数据作废
+ * 剖析文件是文本：第一行为"checksum 校验和(十六进制)"，之后每行一个基本块的执行次数
+ */
+public class BlockProfile {
+    public static final String COUNTERS = "__sysy_profile_counts";
+    //计数器数组开头的两项：校验和、计数器个数
+    public static final int HEADER_SIZE = 2;
+
+    private final int checksum;
+    private final long[] counts;
+
+    public BlockProfile(int checksum, long[] counts) {
+        this.checksum = checksum;
+        this.counts = counts.clone();
+    }
+
+    public int getChecksum() {
+        return checksum;
+    }
+
+    /*按编号排列的各基本块的执行次数*/
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    //按编号的顺序返回模块中的所有基本块
+    private static List<IRBaseBlockRef> numberBlocks(IRModule module) {
+        List<IRBaseBlockRef> blocks = new ArrayList<>();
+        for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+            blocks.addAll(function.getBaseBlocks());
+        }
+        return blocks;
+    }
+
+    /*模块控制流图的校验和(FNV-1a)*/
+    public static int checksum(IRModule module) {
+        int hash = 0x811c9dc5;
+        for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+            hash = mix(hash, function.getFunctionName());
+            Map<IRBaseBlockRef, Integer> index = new HashMap<>();
+            for (IRBaseBlockRef block : function.getBaseBlocks()) {
+                index.put(block, index.size());
+            }
+            for (IRBaseBlockRef block : function.getBaseBlocks()) {
+                hash = mix(hash, block.getLabel());
+                for (IRBaseBlockRef succ : block.getSuccList()) {
+                    hash = mix(hash, index.getOrDefault(succ, -1));
+                }
+                hash = mix(hash, -2);
+            }
+        }
+        return hash;
+    }
+
+    private static int mix(int hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash = mix(hash, s.charAt(i));
+        }
+        return hash;
+    }
+
+    private static int mix(int hash, int value) {
+        return (hash ^ value) * 0x01000193;
+    }
+
+    /*
+     * 插桩：新建计数器数组，在每个基本块的phi之后插入
+     *   %p = getelementptr [n x i32], [n x i32]* @COUNTERS, i32 0, i32 编号+HEADER_SIZE
+     *   %c = load i32, i32* %p
+     *   %c1 = add i32 %c, 1
+     *   store i32 %c1, i32* %p
+     * 插入的指令不改变控制流图，所以插桩后的校验和与插桩前相同
+     */
+    public static void instrument(IRModule module) {
+        IRType i32Type = IRInt32Type.IRInt32Type();
+        List<IRBaseBlockRef> blocks = numberBlocks(module);
+        IRArrayType arrayType = new IRArrayType(i32Type, HEADER_SIZE + blocks.size());
+        IRGlobalRegRef counters = (IRGlobalRegRef) IRModule.IRAddGlobal(module, arrayType, COUNTERS);
+        List<IRValueRef> initializer = new ArrayList<>();
+        initializer.add(new IRConstIntRef(checksum(module), i32Type));
+        initializer.add(new IRConstIntRef(blocks.size(), i32Type));
+        for (int i = 0; i < blocks.size(); i++) {
+            initializer.add(new IRConstIntRef(0, i32Type));
+        }
+        IRModule.IRSetInitializer(module, counters, initializer);
+        IRConstIntRef zero = new IRConstIntRef(0, i32Type);
+        IRConstIntRef one = new IRConstIntRef(1, i32Type);
+        for (int i = 0; i < blocks.size(); i++) {
+            IRBaseBlockRef block = blocks.get(i);
+            IRInstruction pos = IRBaseBlockRef.IRGetFirstInstruction(block);
+            while (pos instanceof PhiInstruction) {
+                pos = pos.getNext();
+            }
+            IRValueRef pointer = new IRVirtualRegRef("profile", new IRPointerType(i32Type));
+            IRValueRef count = new IRVirtualRegRef("profile", i32Type);
+            IRValueRef increased = new IRVirtualRegRef("profile", i32Type);
+            IRConstIntRef index = new IRConstIntRef(HEADER_SIZE + i, i32Type);
+            block.insertInstructionBefore(new GetElementPointerInstruction(List.of(pointer, counters, zero, index), block), pos);
+            block.insertInstructionBefore(new LoadInstruction(List.of(count, pointer), block), pos);
+            block.insertInstructionBefore(new CalculateInstruction(List.of(increased, count, one), block, "add"), pos);
+            IRValueRef dummy = new IRVirtualRegRef("temp", new IRPointerType(i32Type));
+            block.insertInstructionBefore(new StoreInstruction(List.of(dummy, increased, pointer), block), pos);
+        }
+    }
+
+    /*
+     * 把执行次数记到模块的每个基本块上，返回是否成功
+     * 校验和或基本块数与模块不一致时不修改模块，在标准错误中给出警告
+     */
+    public boolean apply(IRModule module) {
+        List<IRBaseBlockRef> blocks = numberBlocks(module);
+        if (checksum != checksum(module) || counts.length != blocks.size()) {
+            System.err.println("Warning: profile does not match the program (checksum or block count differs), ignored");
+            return false;
+        }
+        for (int i = 0; i < blocks.size(); i++) {
+            blocks.get(i).setProfileCount(counts[i]);
+        }
+        return true;
+    }
+
+    /*读取write写出的剖析文件，格式不对时抛出IllegalArgumentException*/
+    public static BlockProfile read(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.ISO_8859_1);
+        if (lines.isEmpty() || !lines.get(0).startsWith("checksum ")) {
+            throw new IllegalArgumentException(path + ": not a block profile");
+        }
+        try {
+            int checksum = Integer.parseUnsignedInt(lines.get(0).substring("checksum ".length()).trim(), 16);
+            long[] counts = lines.subList(1, lines.size()).stream().filter(line -> !line.isBlank())
+                    .mapToLong(line -> Long.parseLong(line.trim())).toArray();
+            return new BlockProfile(checksum, counts);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(path + ": bad block profile: " + e.getMessage());
+        }
+    }
+
+    public void write(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.ISO_8859_1)) {
+            writer.write("checksum " + Integer.toHexString(checksum) + "\n");
+            for (long count : counts) {
+                writer.write(count + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package IR;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次编译(一个源文件)的上下文，保存虚拟寄存器、全局变量和基本块的编号计数器
+ * 以前这些计数器是静态变量，同一个JVM中连续编译多个文件时编号会一直增长，编译结果与单独编译时不同，
+ * 也无法同时编译多个文件；现在每次编译使用一个新的上下文
+ * 当前线程的上下文保存在ThreadLocal中，IR中创建值时通过current()取得，没有激活任何上下文时使用全局默认上下文
+ * 类型对象(i32、float等)是不可变的单例，可以在多次编译之间共享，不放在这里
+ * 上下文还持有本次编译的PassTimer，各阶段通过它记录耗时；以及AnalysisManager，各个优化和后端通过它共享每个函数的分析结果
+ */
+public final class CompilationContext {
+    private static final CompilationContext defaultContext = new CompilationContext();
+    private static final ThreadLocal<CompilationContext> currentContext = new ThreadLocal<>();
+
+    //同一次编译的多个函数可能在不同线程中并行优化，所以计数器使用原子变量
+    private final AtomicInteger tempCounter = new AtomicInteger();/*虚拟寄存器名字的后缀*/
+    private final AtomicInteger globalCounter = new AtomicInteger();/*全局变量名字的后缀*/
+    private final AtomicInteger valueCounter = new AtomicInteger();/*虚拟寄存器和全局变量共用的编号*/
+    private final AtomicInteger baseBlockCounter = new AtomicInteger();/*基本块标签的后缀*/
+    private final PassTimer passTimer;
+    private final AnalysisManager analysisManager = new AnalysisManager();
+
+    public CompilationContext() {
+        this(PassTimer.disabled());
+    }
+
+    public CompilationContext(PassTimer passTimer) {
+        this.passTimer = passTimer;
+    }
+
+    public static CompilationContext current() {
+        CompilationContext context = currentContext.get();
+        return context == null ? defaultContext : context;
+    }
+
+    /**
+     * 在当前线程中激活该上下文，返回的Activation关闭时恢复之前的上下文
+     * 用法：try (CompilationContext.Activation ignored = context.activate()) { ... }
+     * ignored在代码块中不会用到，使用该写法的方法加@SuppressWarnings("try")，避免-Xlint:try的警告
+     */
+    public Activation activate() {
+        Activation activation = new Activation(currentContext.get());
+        currentContext.set(this);
+        return activation;
+    }
+
+    public int nextTempNumber() {
+        return tempCounter.getAndIncrement();
+    }
+
+    public int nextGlobalNumber() {
+        return globalCounter.getAndIncrement();
+    }
+
+    public int nextValueId() {
+        return valueCounter.getAndIncrement();
+    }
+
+    public int nextBaseBlockId() {
+        return baseBlockCounter.getAndIncrement();
+    }
+
+    public PassTimer getPassTimer() {
+        return passTimer;
+    }
+
+    public AnalysisManager getAnalysisManager() {
+        return analysisManager;
+    }
+
+    /*已分配的值编号数量，编号都小于该值*/
+    public int getValueCount() {
+        return valueCounter.get();
+    }
+
+    public static final class Activation implements AutoCloseable {
+        private final CompilationContext previous;
+
+        private Activation(CompilationContext previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                currentContext.remove();
+            } else {
+                currentContext.set(previous);
+            }
+        }
+    }
+}
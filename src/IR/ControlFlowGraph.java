@@ -0,0 +1,85 @@
+package IR;
+
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 函数控制流图的快照：基本块按函数中的顺序编号(即IRBaseBlockRef.getIndex)，
+ * 前驱、后继和后序都用编号数组表示，数据流分析(如寄存器分配时的活跃变量分析)可以直接用数组迭代
+ * 快照建立后不随IR修改，由AnalysisManager缓存，改变控制流的优化执行后失效
+ */
+public class ControlFlowGraph {
+    private final List<IRBaseBlockRef> blocks;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final int[] postOrder;/*从入口块出发的后序，不可达的基本块排在最后*/
+
+    public ControlFlowGraph(IRFunctionBlockRef functionBlock) {
+        this.blocks = new ArrayList<>(functionBlock.getBaseBlocks());
+        int blockNum = blocks.size();
+        successors = new int[blockNum][];
+        predecessors = new int[blockNum][];
+        for (int b = 0; b < blockNum; b++) {
+            successors[b] = blocks.get(b).getSuccList().stream().mapToInt(IRBaseBlockRef::getIndex).toArray();
+            predecessors[b] = blocks.get(b).getPredList().stream().mapToInt(IRBaseBlockRef::getIndex).toArray();
+        }
+        postOrder = computePostOrder();
+    }
+
+    //非递归DFS，避免基本块很多时栈溢出
+    private int[] computePostOrder() {
+        int blockNum = blocks.size();
+        int[] order = new int[blockNum];
+        int cnt = 0;
+        boolean[] visited = new boolean[blockNum];
+        int[] blockStack = new int[blockNum];
+        int[] succStack = new int[blockNum];//下一个要访问的后继下标
+        int top = 0;
+        if (blockNum > 0) {
+            visited[0] = true;
+            blockStack[top++] = 0;
+        }
+        while (top > 0) {
+            int b = blockStack[top - 1];
+            if (succStack[top - 1] < successors[b].length) {
+                int succ = successors[b][succStack[top - 1]++];
+                if (!visited[succ]) {
+                    visited[succ] = true;
+                    blockStack[top] = succ;
+                    succStack[top++] = 0;
+                }
+            } else {
+                order[cnt++] = b;
+                top--;
+            }
+        }
+        for (int b = 0; b < blockNum; b++) {
+            if (!visited[b]) order[cnt++] = b;
+        }
+        return order;
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    public IRBaseBlockRef getBlock(int index) {
+        return blocks.get(index);
+    }
+
+    /*以下返回的数组只用于读取*/
+    public int[] getSuccessors(int index) {
+        return successors[index];
+    }
+
+    public int[] getPredecessors(int index) {
+        return predecessors[index];
+    }
+
+    public int[] getPostOrder() {
+        return postOrder;
+    }
+}
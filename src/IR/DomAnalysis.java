@@ -2,169 +2,224 @@ package IR;
 
 import IR.IRValueRef.IRBaseBlockRef;
 import IR.IRValueRef.IRFunctionBlockRef;
-import backend.MemoryRegisterAlloc;
 
 import java.util.*;
 /**
- * 该类是用于求支配边界，使phi指令引入
+ * 该类是用于求支配树和支配边界，使phi指令引入
+ * 使用Cooper-Harvey-Kennedy算法：按逆后序(RPO)给基本块编号，用idom数组迭代求直接支配者，
+ * 再对支配树做一次DFS，记录进入/离开编号，O(1)判断支配关系
+ * https://www.cs.rice.edu/~keith/EMBED/dom.pdf
  */
 public class DomAnalysis {
     //支配：n1支配n2当且仅当所有从入口节点到n2的路径中都包含n1
     private final IRFunctionBlockRef functionBlock;
     private final List<IRBaseBlockRef> basicBlocks;
-    //支配关系
-    private final Map<IRBaseBlockRef, Set<IRBaseBlockRef>> dominators;
+    //逆后序遍历序列，入口块为0号，不可达的基本块不在其中
+    private final List<IRBaseBlockRef> reversePostOrder = new ArrayList<>();
+    //以基本块下标(IRBaseBlockRef.getIndex)为索引的逆后序编号，不可达为-1
+    private int[] rpoNumber;
+    //以逆后序编号为索引的直接支配者编号，入口块的直接支配者是自己
+    private int[] idom;
+    //支配树上DFS的进入/离开编号，以逆后序编号为索引
+    private int[] domTreeIn;
+    private int[] domTreeOut;
+    //支配树的孩子
+    private final Map<IRBaseBlockRef, List<IRBaseBlockRef>> domTreeChildren = new HashMap<>();
     //直接支配者
-    private final Map<IRBaseBlockRef, IRBaseBlockRef> immediateDominators;
+    private final Map<IRBaseBlockRef, IRBaseBlockRef> immediateDominators = new HashMap<>();
     //支配边界
-    private final Map<IRBaseBlockRef, Set<IRBaseBlockRef>> dominanceFrontiers;
-    //前驱后驱
-    MemoryRegisterAlloc memoryRegisterAlloc = new MemoryRegisterAlloc();
-    Map<IRBaseBlockRef, List<IRBaseBlockRef>> predecessors;
+    private final Map<IRBaseBlockRef, Set<IRBaseBlockRef>> dominanceFrontiers = new HashMap<>();
+    //支配关系，只在调用getDominators时生成
+    private Map<IRBaseBlockRef, Set<IRBaseBlockRef>> dominators;
+
     public DomAnalysis(IRFunctionBlockRef functionBlock) {
         this.functionBlock = functionBlock;
         this.basicBlocks = functionBlock.getBaseBlocks();
-        this.dominators = new HashMap<>();
-        this.immediateDominators = new HashMap<>();
-        this.dominanceFrontiers = new HashMap<>();
-        predecessors = computePredecessors(functionBlock);
-        //初始化每个块支配者为全部块
-        for (IRBaseBlockRef block : basicBlocks) {
-            dominators.put(block, new HashSet<>(basicBlocks));
-        }
         this.run();
     }
 
     public void run() {
-        computeDominators();
+        computeReversePostOrder();
         computeImmediateDominators();
+        computeDomTreeNumbering();
         computeDominanceFrontiers();
     }
 
-    //求支配关系，数据流迭代O(n^2)复杂度
-    private void computeDominators() {
-        //进入块
-        IRBaseBlockRef entryBlock = functionBlock.getBaseBlocks().get(0);
-        dominators.get(entryBlock).clear();
-        dominators.get(entryBlock).add(entryBlock);
+    //非递归DFS求后序，再反转得到逆后序，避免基本块很多时栈溢出
+    private void computeReversePostOrder() {
+        rpoNumber = new int[basicBlocks.size()];
+        Arrays.fill(rpoNumber, -1);
+        List<IRBaseBlockRef> postOrder = new ArrayList<>();
+        boolean[] visited = new boolean[basicBlocks.size()];
+        Deque<IRBaseBlockRef> blockStack = new ArrayDeque<>();
+        Deque<Iterator<IRBaseBlockRef>> succStack = new ArrayDeque<>();
+        IRBaseBlockRef entryBlock = basicBlocks.get(0);
+        visited[entryBlock.getIndex()] = true;
+        blockStack.push(entryBlock);
+        succStack.push(entryBlock.getSuccList().iterator());
+        while (!blockStack.isEmpty()) {
+            Iterator<IRBaseBlockRef> it = succStack.peek();
+            if (it.hasNext()) {
+                IRBaseBlockRef succ = it.next();
+                if (!visited[succ.getIndex()]) {
+                    visited[succ.getIndex()] = true;
+                    blockStack.push(succ);
+                    succStack.push(succ.getSuccList().iterator());
+                }
+            } else {
+                postOrder.add(blockStack.pop());
+                succStack.pop();
+            }
+        }
+        for (int i = postOrder.size() - 1; i >= 0; i--) {
+            IRBaseBlockRef block = postOrder.get(i);
+            rpoNumber[block.getIndex()] = reversePostOrder.size();
+            reversePostOrder.add(block);
+        }
+    }
 
+    //Cooper-Harvey-Kennedy迭代求直接支配者
+    private void computeImmediateDominators() {
+        int n = reversePostOrder.size();
+        idom = new int[n];
+        Arrays.fill(idom, -1);
+        idom[0] = 0;
         boolean changed;
         do {
             changed = false;
-            // 按照反向后序遍历处理所有节点
-            List<IRBaseBlockRef> reversePostOrder = getReversePostOrder(functionBlock);
-            for (IRBaseBlockRef block : reversePostOrder) {
-                if (block == entryBlock) continue;
-                // 计算新的支配者集合
-                Set<IRBaseBlockRef> newDominators = new HashSet<>(dominators.get(predecessors.get(block).get(0)));
-                for (IRBaseBlockRef predBlock : predecessors.get(block)) {
-                    newDominators = intersection(newDominators, dominators.get(predBlock));
+            for (int b = 1; b < n; b++) {
+                int newIdom = -1;
+                for (IRBaseBlockRef pred : reversePostOrder.get(b).getPredList()) {
+                    int p = rpoNumber[pred.getIndex()];
+                    if (p == -1 || idom[p] == -1) {
+                        //不可达或尚未处理的前驱
+                        continue;
+                    }
+                    newIdom = newIdom == -1 ? p : intersect(p, newIdom);
                 }
-                newDominators.add(block);
-
-                if (!newDominators.equals(dominators.get(block))) {
-                    dominators.put(block, newDominators);
+                if (idom[b] != newIdom) {
+                    idom[b] = newIdom;
                     changed = true;
                 }
             }
         } while (changed);
-    }
-
-    private Set<IRBaseBlockRef> intersection(Set<IRBaseBlockRef> set1, Set<IRBaseBlockRef> set2) {
-        Set<IRBaseBlockRef> result = new HashSet<>();
-        Map<IRBaseBlockRef, Boolean> map = new HashMap<>();
-        for (IRBaseBlockRef element : set2) {
-            map.put(element, true);
-        }
-        for (IRBaseBlockRef element : set1) {
-            if (map.containsKey(element)) {
-                result.add(element);
-            }
+        for (int b = 1; b < n; b++) {
+            immediateDominators.put(reversePostOrder.get(b), reversePostOrder.get(idom[b]));
         }
-        return result;
     }
 
-    private List<IRBaseBlockRef> getReversePostOrder(IRFunctionBlockRef functionBlock) {
-        List<IRBaseBlockRef> postOrder = new ArrayList<>();
-        Set<IRBaseBlockRef> visited = new HashSet<>();
-        IRBaseBlockRef entryBlock = functionBlock.getBaseBlocks().get(0);
-        // 使用递归DFS来进行后序遍历
-        dfs(entryBlock, visited, postOrder);
-        // 反转后序遍历结果，得到反向后序遍历
-        Collections.reverse(postOrder);
-        return postOrder;
-    }
-
-    private void dfs(IRBaseBlockRef block, Set<IRBaseBlockRef> visited, List<IRBaseBlockRef> postOrder) {
-        if (!visited.contains(block)) {
-            visited.add(block);
-            // 遍历所有后继节点
-            for (IRBaseBlockRef succ : memoryRegisterAlloc.getImmediateSuccessors(block)) {
-                dfs(succ, visited, postOrder);
+    //沿着支配树向上找到两个节点的最近公共祖先，逆后序编号越小越靠近入口
+    private int intersect(int b1, int b2) {
+        while (b1 != b2) {
+            while (b1 > b2) {
+                b1 = idom[b1];
+            }
+            while (b2 > b1) {
+                b2 = idom[b2];
             }
-            postOrder.add(block);
         }
+        return b1;
     }
 
-    // 计算直接支配者
-    private void computeImmediateDominators() {
-        for (IRBaseBlockRef block : basicBlocks) {
-            if (block == functionBlock.getBaseBlocks().get(0)) continue;
-            IRBaseBlockRef idom = null;
-            for (IRBaseBlockRef dom : dominators.get(block)) {
-                if (dom == block) continue;
-                HashSet<IRBaseBlockRef> tmpDomSet = new HashSet<>(dominators.get(block));
-                tmpDomSet.remove(block);
-                //tmpDomSet是去掉自己的所有支配者
-                //如果支配者A中，某支配者的所有支配者是A去掉自己的支配者集合，则最近？
-                if (idom == null && dominators.get(dom).equals(tmpDomSet)) {
-                    idom = dom;
-                }
+    //在支配树上DFS，记录进入和离开编号
+    private void computeDomTreeNumbering() {
+        int n = reversePostOrder.size();
+        for (IRBaseBlockRef block : reversePostOrder) {
+            domTreeChildren.put(block, new ArrayList<>());
+        }
+        for (int b = 1; b < n; b++) {
+            domTreeChildren.get(reversePostOrder.get(idom[b])).add(reversePostOrder.get(b));
+        }
+        domTreeIn = new int[n];
+        domTreeOut = new int[n];
+        int counter = 0;
+        Deque<IRBaseBlockRef> blockStack = new ArrayDeque<>();
+        Deque<Iterator<IRBaseBlockRef>> childStack = new ArrayDeque<>();
+        IRBaseBlockRef entryBlock = reversePostOrder.get(0);
+        domTreeIn[0] = counter++;
+        blockStack.push(entryBlock);
+        childStack.push(domTreeChildren.get(entryBlock).iterator());
+        while (!blockStack.isEmpty()) {
+            Iterator<IRBaseBlockRef> it = childStack.peek();
+            if (it.hasNext()) {
+                IRBaseBlockRef child = it.next();
+                domTreeIn[rpoNumber[child.getIndex()]] = counter++;
+                blockStack.push(child);
+                childStack.push(domTreeChildren.get(child).iterator());
+            } else {
+                domTreeOut[rpoNumber[blockStack.pop().getIndex()]] = counter++;
+                childStack.pop();
             }
-            immediateDominators.put(block, idom);
         }
     }
 
-
-    // 计算支配边界
+    // 计算支配边界：对每个有多个前驱的基本块，从前驱沿支配树向上走到其直接支配者为止
     private void computeDominanceFrontiers() {
         // 初始化每个基本块的支配边界集合
         for (IRBaseBlockRef block : basicBlocks) {
-            dominanceFrontiers.put(block, new HashSet<>());
+            dominanceFrontiers.put(block, new LinkedHashSet<>());
         }
-        // 遍历每个基本块
-        for (IRBaseBlockRef block : basicBlocks) {
-            for (IRBaseBlockRef runner : predecessors.get(block)) {
-                while (runner != null && !dominators.get(block).contains(runner)) {
-                    dominanceFrontiers.get(runner).add(block);
-                    runner = immediateDominators.get(runner);
+        for (IRBaseBlockRef block : reversePostOrder) {
+            List<IRBaseBlockRef> preds = block.getPredList();
+            if (preds.size() < 2) {
+                continue;
+            }
+            int b = rpoNumber[block.getIndex()];
+            for (IRBaseBlockRef pred : preds) {
+                int runner = rpoNumber[pred.getIndex()];
+                if (runner == -1) {
+                    continue;
+                }
+                while (runner != idom[b]) {
+                    dominanceFrontiers.get(reversePostOrder.get(runner)).add(block);
+                    runner = idom[runner];
                 }
             }
         }
     }
 
-    public Map<IRBaseBlockRef, List<IRBaseBlockRef>> computePredecessors(IRFunctionBlockRef functionBlock) {
-        Map<IRBaseBlockRef, List<IRBaseBlockRef>> predecessors = new HashMap<>();
-        // 初始化前驱列表
-        for (IRBaseBlockRef block : functionBlock.getBaseBlocks()) {
-            predecessors.put(block, new ArrayList<>());
-        }
-        // 遍历每个基本块，利用后继列表填充前驱列表
-        for (IRBaseBlockRef block : functionBlock.getBaseBlocks()) {
-            for (IRBaseBlockRef succ : memoryRegisterAlloc.getImmediateSuccessors(block)) {
-                predecessors.get(succ).add(block);
-            }
+    // 判断基本块是否从入口可达
+    public boolean isReachable(IRBaseBlockRef block) {
+        return rpoNumber[block.getIndex()] != -1;
+    }
+
+    // 判断x是否支配b，O(1)；不可达的基本块不被任何块支配
+    public boolean dominates(IRBaseBlockRef x, IRBaseBlockRef b) {
+        int rx = rpoNumber[x.getIndex()];
+        int rb = rpoNumber[b.getIndex()];
+        if (rx == -1 || rb == -1) {
+            return false;
         }
-        return predecessors;
+        return domTreeIn[rx] <= domTreeIn[rb] && domTreeOut[rb] <= domTreeOut[rx];
+    }
+
+    // 返回基本块的直接支配者，入口块和不可达块返回null
+    public IRBaseBlockRef getImmediateDominator(IRBaseBlockRef block) {
+        return immediateDominators.get(block);
+    }
+
+    // 返回支配树上的孩子，不可达块返回空列表
+    public List<IRBaseBlockRef> getDomTreeChildren(IRBaseBlockRef block) {
+        return domTreeChildren.getOrDefault(block, Collections.emptyList());
     }
 
-    // 判断x是否支配b
-    private boolean dominates(IRBaseBlockRef x, IRBaseBlockRef b) {
-        return dominators.get(b).contains(x);
+    // 返回逆后序遍历序列，只包含可达的基本块
+    public List<IRBaseBlockRef> getReversePostOrder() {
+        return reversePostOrder;
     }
 
-    // 返回该函数所有块的支配关系
+    // 返回该函数所有块的支配关系，需要沿支配树展开，仅用于调试
     public Map<IRBaseBlockRef, Set<IRBaseBlockRef>> getDominators() {
+        if (dominators == null) {
+            dominators = new HashMap<>();
+            for (IRBaseBlockRef block : reversePostOrder) {
+                Set<IRBaseBlockRef> doms = new HashSet<>();
+                for (IRBaseBlockRef runner = block; runner != null; runner = immediateDominators.get(runner)) {
+                    doms.add(runner);
+                }
+                dominators.put(block, doms);
+            }
+        }
         return dominators;
     }
 
@@ -177,4 +232,4 @@ public class DomAnalysis {
     public Map<IRBaseBlockRef, IRBaseBlockRef> getImmediateDominators() {
         return immediateDominators;
     }
-}
\ No newline at end of file
+}
@@ -31,19 +31,12 @@ public class IRBuilder {
 
     //提供给前端的接口方法
     public static void IRPositionBuilderAtEnd(IRBuilder builder, IRBaseBlockRef block) {
-        builder.currentBaseBlock.addSuccBaseBlock(block);//添加控制流,将当前基本块的后继基本块设置为block
-        block.addPredBaseBlock(builder.currentBaseBlock);//添加控制流,将block的前驱基本块设置为当前基本块
         builder.currentBaseBlock = block;
     }
 
     public static IRValueRef IRBuildRet(IRBuilder builder, IRValueRef valueRef) {
         builder.currentBaseBlock.appendInstr(new ReturnInstruction(wrapWithList(valueRef), builder.currentBaseBlock));
         builder.currentBaseBlock.getFunctionBlockRef().addRetBlock(builder.currentBaseBlock);
-        if (valueRef == null) {
-            builder.appendln("ret " + "void");
-        } else {
-            builder.appendln("ret " + valueRef.getType().getText() + " " + valueRef.getText());
-        }
         return null;
     }
 
@@ -53,7 +46,6 @@ public class IRBuilder {
         IRPointerType pointerType = new IRPointerType(type);
         resRegister = new IRVirtualRegRef(name, pointerType);
         builder.appendInstr(new AllocateInstruction(wrapWithList(resRegister), builder.currentBaseBlock));
-        builder.appendln(resRegister.getText() + " = alloca " + type.getText(), 4);
         return resRegister;
     }
 
@@ -61,8 +53,6 @@ public class IRBuilder {
         IRType baseType = ((IRPointerType) pointer.getType()).getBaseType();
         IRValueRef resRegister = new IRVirtualRegRef(varName, baseType);
         //构建一个load指令，过程是将一个load指令加入到当前基本块的指令列表中，返回一个变量的值
-        builder.appendln(resRegister.getText() + " = load " + baseType.getText() + ", "
-                + pointer.getType().getText() + " " + pointer.getText(), 4);
         List<IRValueRef> operands = new ArrayList<>();
         operands.add(resRegister);
         operands.add(pointer);
@@ -86,19 +76,14 @@ public class IRBuilder {
 
         IRValueRef resRegister = new IRVirtualRegRef(varName, resType);
 
-        StringBuilder indexStrBuilder = new StringBuilder();
         List<IRValueRef> operands = new ArrayList<>();
         operands.add(resRegister);
         operands.add(valueRef);
 
         for (IRValueRef i : index) {
             operands.add(i);
-            indexStrBuilder.append(", ").append(int32Type.getText())
-                    .append(" ").append(i.getText());
         }
         builder.appendInstr(new GetElementPointerInstruction(operands, builder.currentBaseBlock));
-        builder.appendln(resRegister.getText() + " = getelementptr " + baseType.getText() + ", "
-                + valueRef.getType().getText() + " " + valueRef.getText() + indexStrBuilder);
         return resRegister;
     }
 
@@ -118,8 +103,6 @@ public class IRBuilder {
         resRegister = new IRVirtualRegRef("temp", pointerType);
         //构建一个store指令，过程是将一个store指令加入到当前基本块的指令列表中，包括了存储的值和存储的地址
         builder.appendInstr(new StoreInstruction(wrapWithList(resRegister, valueRef, pointer), builder.currentBaseBlock));
-        builder.appendln("store " + valueRef.getType().getText() + " " + valueRef.getText() +
-                ", " + pointer.getType().getText() + " " + pointer.getText(), 4);
         return resRegister;
     }
 
@@ -147,10 +130,8 @@ public class IRBuilder {
             resRegister = new IRVirtualRegRef(name, value1.getType());
             if(value1.getType() == int32Type && value2.getType() == int32Type) {
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "add"));
-                builder.appendln(resRegister.getText() + " = add " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             }else{
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "fadd"));
-                builder.appendln(resRegister.getText() + " = fadd " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             }
             return resRegister;
         }
@@ -180,10 +161,8 @@ public class IRBuilder {
             resRegister = new IRVirtualRegRef(name, value1.getType());
             if(value1.getType() == int32Type && value2.getType() == int32Type) {
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "sub"));
-                builder.appendln(resRegister.getText() + " = sub " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             }else{
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "fsub"));
-                builder.appendln(resRegister.getText() + " = fsub " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             }
             return resRegister;
         }
@@ -213,10 +192,8 @@ public class IRBuilder {
             resRegister = new IRVirtualRegRef(name, value1.getType());
             if (value1.getType() == int32Type && value2.getType() == int32Type) {
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "mul"));
-                builder.appendln(resRegister.getText() + " = mul " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             } else {
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "fmul"));
-                builder.appendln(resRegister.getText() + " = fmul " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             }
             return resRegister;
         }
@@ -245,10 +222,8 @@ public class IRBuilder {
             resRegister = new IRVirtualRegRef(name, value1.getType());
             if(value1.getType() == int32Type && value2.getType() == int32Type) {
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "sdiv"));
-                builder.appendln(resRegister.getText() + " = sdiv " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             }else{
                 builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "fdiv"));
-                builder.appendln(resRegister.getText() + " = fdiv " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             }
             return resRegister;
         }
@@ -261,7 +236,6 @@ public class IRBuilder {
             IRValueRef resRegister;
             resRegister = new IRVirtualRegRef(name, value1.getType());
             builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, value1, value2), builder.currentBaseBlock, "srem"));
-            builder.appendln(resRegister.getText() + " = srem " + value1.getType().getText() + " " + value1.getText() + ", " + value2.getText());
             return resRegister;
         }
     }
@@ -276,9 +250,7 @@ public class IRBuilder {
         IRValueRef resRegister = new IRVirtualRegRef(text, int1Type);
         builder.appendInstr(new CompareInstruction(wrapWithList(resRegister, lhs, rhs), builder.currentBaseBlock, icmpType));
         if(lhs.getType() == int32Type && rhs.getType() == int32Type) {
-            builder.appendln(resRegister.getText() + " = icmp " + IRConst.compareTypes[icmpType] + " " + lhs.getType().getText() + " " + lhs.getText() + ", " + rhs.getText());
         }else {
-            builder.appendln(resRegister.getText() + " = fcmp " + IRConst.floatCompareTypes[icmpType] + " " + lhs.getType().getText() + " " + lhs.getText() + ", " + rhs.getText());
         }
         return resRegister;
     }
@@ -289,7 +261,6 @@ public class IRBuilder {
         }
         IRValueRef resRegister = new IRVirtualRegRef(name, rhs.getType());
         builder.appendInstr(new CalculateInstruction(wrapWithList(resRegister, lhs, rhs), builder.currentBaseBlock, "xor"));
-        builder.appendln(resRegister.getText() + " = xor " + rhs.getType().getText() + " " + lhs.getText() + ", true");
         return resRegister;
     }
     public static IRValueRef IRBuildZExt(IRBuilder builder, IRValueRef valueRef, IRType type, String name) {
@@ -302,7 +273,6 @@ public class IRBuilder {
         }
         IRValueRef resRegister = new IRVirtualRegRef(name, type);
         builder.appendInstr(new ZextInstruction(wrapWithList(resRegister, valueRef, new IRConstIntRef(0, type)), builder.currentBaseBlock));
-        builder.appendln(resRegister.getText() + " = zext " + valueRef.getType().getText() + " " + valueRef.getText() + " to " + type.getText());
         return resRegister;
     }
     public static IRValueRef IRBuildNeg(IRBuilder builder, IRValueRef valueRef, String name) {
@@ -325,40 +295,22 @@ public class IRBuilder {
     public static IRValueRef IRBuildCall(IRBuilder builder, IRFunctionBlockRef function, List<IRValueRef> args, int argc, String varName) {
         IRType retType = ((IRFunctionType) function.getType()).getReturnType();
         IRValueRef resRegister = new IRVirtualRegRef(varName + "_call", retType);
-        StringBuilder stringBuilder = new StringBuilder();
         List<IRValueRef> operands = new ArrayList<>();
         operands.add(resRegister);
         operands.add(function);
-        if (retType != voidType) {
-            stringBuilder.append(resRegister.getText()).append(" = ");
-        }
-        stringBuilder.append("call").append(" ").append(function.getRetType().getText())
-                .append(" ").append(function.getText()).append("(");
-        if (argc > 0) {
-            operands.add(args.get(0));
-            stringBuilder.append(args.get(0).getType().getText()).append(" ").append(args.get(0).getText());
-        }
-        for (int i = 1; i < argc; i++) {
+        for (int i = 0; i < argc; i++) {
             operands.add(args.get(i));
-            stringBuilder.append(", ")
-                    .append(args.get(i).getType().getText())
-                    .append(" ").append(args.get(i).getText());
         }
         builder.appendInstr(new CallInstruction(operands, builder.currentBaseBlock));
         //builder.currentBaseBlock.addSuccBaseBlock(function);
-        stringBuilder.append(")");
-        builder.appendln(stringBuilder.toString());
         return resRegister;
     }
     public static void IRBuildBr(IRBuilder builder, IRBaseBlockRef block) {
         builder.appendInstr(new BranchInstruction(wrapWithList(block), builder.currentBaseBlock));
-        builder.appendln( "br label %" + block.getLabel());
     }
 
     public static void IRBuildCondBr(IRBuilder builder, IRValueRef condition, IRBaseBlockRef ifTrue, IRBaseBlockRef ifFalse) {
         builder.appendInstr(new BranchInstruction(wrapWithList(condition, ifTrue, ifFalse), builder.currentBaseBlock));
-        builder.appendln( "br " + condition.getType().getText() + " " + condition.getText() + ", " +
-                "label %" + ifTrue.getLabel() + ", label %" + ifFalse.getLabel());
     }
 
 
@@ -389,24 +341,13 @@ public class IRBuilder {
         if (type == IRConst.FloatToInt) {
             resRegister = new IRVirtualRegRef("temp", int32Type);
             builder.appendInstr(new TypeTransferInstruction(wrapWithList(resRegister, valueRef), builder.currentBaseBlock, IRConst.FloatToInt));
-            builder.appendln(resRegister.getText() + " = fptosi " + valueRef.getType().getText() + " " + valueRef.getText() + " to " + int32Type.getText());
         } else {
             resRegister = new IRVirtualRegRef("temp", floatType);
             builder.appendInstr(new TypeTransferInstruction(wrapWithList(resRegister, valueRef), builder.currentBaseBlock, IRConst.IntToFloat));
-            builder.appendln(resRegister.getText() + " = sitofp " + valueRef.getType().getText() + " " + valueRef.getText() + " to " + floatType.getText());
         }
         return resRegister;
     }
 
-    private void appendln(String s) {
-        currentBaseBlock.appendln(s);
-    }
-
-    private void appendln(String s, int align) {
-        //align表示根据align对齐
-        currentBaseBlock.appendln(s, align);
-    }
-
     private void appendInstr(IRInstruction instr) {
         currentBaseBlock.appendInstr(instr);
     }
@@ -416,10 +357,10 @@ public class IRBuilder {
         return functionBlock.getBaseBlocks().get(0);
     }
     public static IRBaseBlockRef IRGetNextBasicBlock(IRBaseBlockRef baseBlock) {
-        return (IRBaseBlockRef) baseBlock.getSuccList().get(0);
+        return baseBlock.getSuccList().get(0);
     }
     public static IRBaseBlockRef IRGetPreviousBasicBlock(IRBaseBlockRef baseBlock) {
-        return (IRBaseBlockRef) baseBlock.getPredList().get(0);
+        return baseBlock.getPredList().get(0);
     }
     public static String IRGetBasicBlockName(IRBaseBlockRef baseBlock) {
         return baseBlock.getText();
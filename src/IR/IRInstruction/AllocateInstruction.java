@@ -1,5 +1,6 @@
 package IR.IRInstruction;
 
+import IR.IRType.IRPointerType;
 import IR.IRType.IRType;
 import IR.IRValueRef.IRBaseBlockRef;
 import IR.IRValueRef.IRValueRef;
@@ -19,7 +20,8 @@ public class AllocateInstruction extends IRInstruction{
     @Override
     public String toString() {
         IRValueRef resRegister = getOperands().get(0);
-        return resRegister.getText() + " = alloca " + resRegister.getType().getText();
+        IRType allocatedType = ((IRPointerType) resRegister.getType()).getBaseType();
+        return resRegister.getText() + " = alloca " + allocatedType.getText() + ", align 4";
     }
 
     public String getName(){
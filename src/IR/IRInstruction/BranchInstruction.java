@@ -9,26 +9,36 @@ public class BranchInstruction extends IRInstruction{
     public final static int SINGLE = 0;
     public final static int DOUBLE = 1;
     private int type;
-    private IRBaseBlockRef baseBlock1;
-    private IRBaseBlockRef baseBlock2;
     public BranchInstruction(List<IRValueRef> operands, IRBaseBlockRef basicBlock) {
         super(operands, basicBlock);
         if(operands.size()==1) {
-            this.baseBlock1 = (IRBaseBlockRef) operands.get(0);
             this.type = SINGLE;
         }else{
-            this.baseBlock1 = (IRBaseBlockRef) operands.get(1);
-            this.baseBlock2 = (IRBaseBlockRef) operands.get(2);
             this.type = DOUBLE;
         }
     }
 
+    @Override
+    protected int getFirstUseIndex() {
+        return 0;
+    }
+
+    /*修改跳转目标后同步更新所在基本块的后继*/
+    @Override
+    public void IRSetOperand(int index, IRValueRef newValue) {
+        super.IRSetOperand(index, newValue);
+        if (getParentList() != null) {
+            getBaseBlock().updateSuccessors();
+        }
+    }
+
+    /*跳转目标直接从操作数中读取，保证replaceAllUsesWith替换基本块后跳转目标同步更新*/
     public IRBaseBlockRef getBaseBlock1() {
-        return baseBlock1;
+        return (IRBaseBlockRef) IRGetOperand(this, type == SINGLE ? 0 : 1);
     }
 
     public IRBaseBlockRef getBaseBlock2() {
-        return baseBlock2;
+        return type == SINGLE ? null : (IRBaseBlockRef) IRGetOperand(this, 2);
     }
 
     public int getType(){
@@ -37,10 +47,10 @@ public class BranchInstruction extends IRInstruction{
     @Override
     public String toString() {
         if(type == SINGLE){//单一跳转
-            return "br label " + baseBlock1.getLabel();
+            return "br label %" + getBaseBlock1().getLabel();
         }else{//选择跳转
             IRValueRef register = getOperands().get(0);
-            return "br i1 "+ register.getText() + ", label " +baseBlock1.getLabel() + ", label " + baseBlock2.getLabel();
+            return "br i1 "+ register.getText() + ", label %" + getBaseBlock1().getLabel() + ", label %" + getBaseBlock2().getLabel();
         }
     }
 }
@@ -24,7 +24,7 @@ public class CalculateInstruction extends IRInstruction {
         IRValueRef rhsValRef = getOperands().get(2);
         switch (type) {
             case "add":
-                return resRegister.getText() + " =  add " + resRegister.getType().getText() + " " + lhsValRef.getText() + ", " + rhsValRef.getText();
+                return resRegister.getText() + " = add " + resRegister.getType().getText() + " " + lhsValRef.getText() + ", " + rhsValRef.getText();
             case "fadd":
                 return resRegister.getText() + " = fadd " + resRegister.getType().getText() + " " + lhsValRef.getText() + ", " + rhsValRef.getText();
             case "sub":
@@ -41,7 +41,7 @@ public class CalculateInstruction extends IRInstruction {
             case "fdiv":
                 return resRegister.getText() + " = fdiv " + resRegister.getType().getText() + " " + lhsValRef.getText() + ", " + rhsValRef.getText();
             case "srem":
-                return resRegister.getType() + " = srem " + resRegister.getType().getText() + " " + lhsValRef.getText() + ", " + rhsValRef.getText();
+                return resRegister.getText() + " = srem " + resRegister.getType().getText() + " " + lhsValRef.getText() + ", " + rhsValRef.getText();
             case "xor":
                 return resRegister.getText() + " = xor " + rhsValRef.getType().getText() + " " + lhsValRef.getText() + ", true";
         }
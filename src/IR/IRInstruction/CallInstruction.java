@@ -1,16 +1,15 @@
 package IR.IRInstruction;
 
+import IR.IRType.IRVoidType;
 import IR.IRValueRef.IRBaseBlockRef;
 import IR.IRValueRef.IRFunctionBlockRef;
 import IR.IRValueRef.IRValueRef;
 import com.sun.jdi.VoidType;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class CallInstruction extends IRInstruction{
     private IRFunctionBlockRef functionBlock;
-    private ArrayList<IRValueRef> params;
     public boolean isVoid(){
         return isVoid;
     }
@@ -27,35 +26,33 @@ public class CallInstruction extends IRInstruction{
         }else{
             isVoid = false;
         }
-        params = new ArrayList<IRValueRef>();
-        for(int i = 2; i < operands.size();i++) {
-            params.add(operands.get(i));
-        }
     }
 
-    public ArrayList<IRValueRef> getParams() {
-        return params;
+    /*参数是operands[2..]，这里直接从操作数中读取，保证与def-use链一致*/
+    public List<IRValueRef> getParams() {
+        List<IRValueRef> operands = getOperands();
+        return operands.subList(2, operands.size());
     }
 
     public void setParams(int i, IRValueRef newValue) {
-        params.set(i, newValue);
+        IRSetOperand(i + 2, newValue);
     }
 
     @Override
     public String toString() {
         IRValueRef resRegister = this.getOperands().get(0);
+        List<IRValueRef> params = getParams();
         StringBuilder stringBuilder = new StringBuilder();
-        if (!isVoid) {
+        if (!(functionBlock.getRetType() instanceof IRVoidType)) {
             stringBuilder.append(resRegister.getText()).append(" = ");
         }
         stringBuilder.append("call").append(" ").append(functionBlock.getRetType().getText())
                 .append(" ").append(functionBlock.getText()).append("(");
-        if (params.size() > 0) {
-            stringBuilder.append(params.get(0).getType().getText()).append(" ").append(params.get(0).getText());
-        }
         for (int i = 0; i < params.size(); i++) {
-            stringBuilder.append(", ")
-                    .append(params.get(i).getType().getText())
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(params.get(i).getType().getText())
                     .append(" ").append(params.get(i).getText());
         }
         stringBuilder.append(")");
@@ -1,6 +1,7 @@
 package IR.IRInstruction;
 
 import IR.IRConst;
+import IR.IRType.IRFloatType;
 import IR.IRValueRef.IRBaseBlockRef;
 import IR.IRValueRef.IRValueRef;
 
@@ -21,6 +22,10 @@ public class CompareInstruction extends IRInstruction{
         IRValueRef resRegister = getOperands().get(0);
         IRValueRef lhs = getOperands().get(1);
         IRValueRef rhs = getOperands().get(2);
+        if (lhs.getType() instanceof IRFloatType) {
+            return resRegister.getText() + " = fcmp " + IRConst.floatCompareTypes[compareType] + " "
+                    + lhs.getType().getText() + " " + lhs.getText() + ", " + rhs.getText();
+        }
         return resRegister.getText() + " = icmp " + IRConst.compareTypes[compareType] + " "
                 + lhs.getType().getText() + " " + lhs.getText() + ", " + rhs.getText();
     }
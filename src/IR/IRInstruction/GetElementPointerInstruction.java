@@ -1,6 +1,5 @@
 package IR.IRInstruction;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import IR.IRType.IRArrayType;
@@ -15,34 +14,30 @@ public class GetElementPointerInstruction extends IRInstruction {
     /*
      * 用于计算数组元素的地址
      */
-    private IRValueRef base;//数组的基本地址
-    private ArrayList<IRValueRef> index;
-
+    /*
+     * 数组的基本地址是operands[1]，下标是operands[2..]，均直接从操作数中读取
+     */
     public GetElementPointerInstruction(List<IRValueRef> operands, IRBaseBlockRef basicBlock) {
         super(operands, basicBlock);
-        this.base = operands.get(1);
-        this.index = new ArrayList<>();
-        for(int i = 2; i < operands.size();i++){
-            this.index.add(operands.get(i));
-        }
     }
 
     public IRValueRef getBase() {
-        return base;
+        return IRGetOperand(this, 1);
     }
 
-    public void setBase(IRValueRef irValueRef){this.base = irValueRef;}
+    public void setBase(IRValueRef irValueRef){IRSetOperand(1, irValueRef);}
 
     public IRValueRef getPointer() {
-        return getOperands().get(1);
+        return IRGetOperand(this, 1);
     }
 
-    public ArrayList<IRValueRef> getIndex() {
-        return index;
+    public List<IRValueRef> getIndex() {
+        List<IRValueRef> operands = getOperands();
+        return operands.subList(2, operands.size());
     }
 
     public void setIndex(int i, IRValueRef newValue) {
-        index.set(i, newValue);
+        IRSetOperand(i + 2, newValue);
     }
 
     public IRType getPointedType(IRValueRef pointer, int depth) {
@@ -68,6 +63,7 @@ public class GetElementPointerInstruction extends IRInstruction {
     @Override
     public String toString() {
         IRValueRef resRegister = getOperands().get(0);
+        IRValueRef base = getBase();
         IRType baseType = ((IRPointerType) base.getType()).getBaseType();
         IRType resType;
         if (baseType instanceof IRArrayType) {
@@ -76,7 +72,7 @@ public class GetElementPointerInstruction extends IRInstruction {
             resType = baseType;
         }
         StringBuilder indexStrBuilder = new StringBuilder();
-        for (IRValueRef index : index) {
+        for (IRValueRef index : getIndex()) {
             indexStrBuilder.append(", ").append(IRInt32Type().getText())
                     .append(" ").append(index.getText());
         }
@@ -1,4 +1,5 @@
 package IR.IRInstruction;
+import IR.IRLinkedList;
 import IR.IRType.IRFloatType;
 import IR.IRValueRef.IRBaseBlockRef;
 import IR.IRValueRef.IRValueRef;
@@ -7,15 +8,42 @@ import java.util.ArrayList;
 import java.util.List;
 
 
-public abstract class IRInstruction {
+public abstract class IRInstruction implements IRLinkedList.Node<IRInstruction> {
     /*
      * 该类是IR指令的抽象类，用于表示IR中的指令
      */
     private List<IRValueRef> operands; /*操作数*/
     private IRBaseBlockRef BaseBlock;/*指令所在的基本块*/
+    private IRInstruction prev;/*基本块中的上一条指令*/
+    private IRInstruction next;/*基本块中的下一条指令*/
+    private IRLinkedList<IRInstruction> parentList;
+    private int ordinal;/*在基本块中的序号*/
     public IRInstruction(List<IRValueRef> operands, IRBaseBlockRef BaseBlock) {
-        this.operands = operands;
+        this.operands = new ArrayList<>(operands);
         this.BaseBlock = BaseBlock;
+        for (int i = getFirstUseIndex(); i < this.operands.size(); i++) {
+            addUse(this.operands.get(i));
+        }
+    }
+
+    /**
+     * 第一个被"使用"的操作数下标，在它之前的操作数是该指令定义的结果寄存器
+     * 大部分指令的operands[0]是结果寄存器(store的operands[0]是占位寄存器)，br和ret没有结果
+     */
+    protected int getFirstUseIndex() {
+        return 1;
+    }
+
+    protected void addUse(IRValueRef value) {
+        if (value != null && value.getUseList() != null) {
+            value.getUseList().addUser(this);
+        }
+    }
+
+    protected void removeUse(IRValueRef value) {
+        if (value != null && value.getUseList() != null) {
+            value.getUseList().removeUser(this);
+        }
     }
 
     public List<IRValueRef> getOperands() {
@@ -30,13 +58,80 @@ public abstract class IRInstruction {
         BaseBlock = baseBlock;
     }
 
+    @Override
+    public IRInstruction getPrev() {
+        return prev;
+    }
+
+    @Override
+    public IRInstruction getNext() {
+        return next;
+    }
+
+    @Override
+    public void setPrev(IRInstruction prev) {
+        this.prev = prev;
+    }
+
+    @Override
+    public void setNext(IRInstruction next) {
+        this.next = next;
+    }
+
+    @Override
+    public IRLinkedList<IRInstruction> getParentList() {
+        return parentList;
+    }
+
+    @Override
+    public void setParentList(IRLinkedList<IRInstruction> parentList) {
+        this.parentList = parentList;
+    }
+
+    @Override
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    @Override
+    public void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * 将指令从所在基本块中摘下，但保留操作数的使用关系，用于移动指令
+     */
+    public void removeFromParent() {
+        if (parentList != null) {
+            parentList.unlink(this);
+        }
+    }
+
+    /**
+     * 将指令从所在基本块中删除，并从所有操作数的使用者列表中移除
+     */
+    public void eraseFromParent() {
+        removeFromParent();
+        dropAllReferences();
+    }
+
+    /**
+     * 判断该指令是否在同一基本块中的另一条指令之前
+     */
+    public boolean comesBefore(IRInstruction other) {
+        if (parentList == null || other.parentList != parentList) {
+            throw new IllegalArgumentException("instructions are not in the same block");
+        }
+        return parentList.comesBefore(this, other);
+    }
+
     /**
      * 获得操作数数量
      * @param instruction
      * @return
      */
     public static int IRGetOperandsNum(IRInstruction instruction) {
-        return instruction.getOperands().size();
+        return instruction.operands.size();
     }
 
     /**
@@ -46,11 +141,35 @@ public abstract class IRInstruction {
      * @return
      */
     public static IRValueRef IRGetOperand(IRInstruction instruction, int index) {
-        return instruction.getOperands().get(index);
+        return instruction.operands.get(index);
     }
 
     public void IRSetOperand(int index, IRValueRef newValue) {
-        operands.set(index, newValue);
+        IRValueRef oldValue = operands.set(index, newValue);
+        if (index >= getFirstUseIndex()) {
+            removeUse(oldValue);
+            addUse(newValue);
+        }
+    }
+
+    /**
+     * 将该指令中对oldValue的使用替换为newValue，供replaceAllUsesWith使用
+     */
+    public void replaceUsesOfWith(IRValueRef oldValue, IRValueRef newValue) {
+        for (int i = getFirstUseIndex(); i < operands.size(); i++) {
+            if (operands.get(i) == oldValue) {
+                IRSetOperand(i, newValue);
+            }
+        }
+    }
+
+    /**
+     * 指令被删除时调用，将该指令从所有操作数的使用者列表中移除
+     */
+    public void dropAllReferences() {
+        for (int i = getFirstUseIndex(); i < operands.size(); i++) {
+            removeUse(operands.get(i));
+        }
     }
 
     /**
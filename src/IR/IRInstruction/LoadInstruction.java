@@ -20,6 +20,6 @@ public class LoadInstruction extends IRInstruction{
         IRValueRef resRegister = getOperands().get(0);
         IRValueRef pointer = getOperands().get(1);
         return resRegister.getText() + " = load " + resRegister.getType().getText() + ", "
-                + pointer.getType().getText() + " " + pointer.getText();
+                + pointer.getType().getText() + " " + pointer.getText() + ", align 4";
     }
 }
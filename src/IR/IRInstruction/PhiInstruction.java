@@ -17,15 +17,54 @@ public class PhiInstruction extends IRInstruction {
     }
 
     public void addIncomingValue(IRValueRef value, IRBaseBlockRef block) {
-        this.incomingValues.put(block, value);
+        setIncomingValue(value, block);
     }
 
+    /*返回的map只用于读取，修改incoming value需要通过setIncomingValue以维护def-use链*/
     public LinkedHashMap<IRBaseBlockRef, IRValueRef> getIncomingValues() {
         return this.incomingValues;
     }
 
     public void setIncomingValue(IRValueRef value, IRBaseBlockRef block) {
-        this.incomingValues.put(block, value);
+        removeUse(this.incomingValues.put(block, value));
+        addUse(value);
+    }
+
+    /*前驱块block不再跳转到该块(如跳转被删除或前驱块被删除)时调用，删除它的incoming value*/
+    public void removeIncomingValue(IRBaseBlockRef block) {
+        removeUse(this.incomingValues.remove(block));
+    }
+
+    /*前驱块oldBlock被newBlock代替(如跳转被移动到新的基本块)时调用，保持incoming value的顺序*/
+    public void replaceIncomingBlock(IRBaseBlockRef oldBlock, IRBaseBlockRef newBlock) {
+        if (!incomingValues.containsKey(oldBlock)) {
+            return;
+        }
+        LinkedHashMap<IRBaseBlockRef, IRValueRef> values = new LinkedHashMap<>(incomingValues);
+        incomingValues.clear();
+        for (Map.Entry<IRBaseBlockRef, IRValueRef> entry : values.entrySet()) {
+            incomingValues.put(entry.getKey() == oldBlock ? newBlock : entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void replaceUsesOfWith(IRValueRef oldValue, IRValueRef newValue) {
+        super.replaceUsesOfWith(oldValue, newValue);
+        for (Map.Entry<IRBaseBlockRef, IRValueRef> entry : incomingValues.entrySet()) {
+            if (entry.getValue() == oldValue) {
+                removeUse(oldValue);
+                entry.setValue(newValue);
+                addUse(newValue);
+            }
+        }
+    }
+
+    @Override
+    public void dropAllReferences() {
+        super.dropAllReferences();
+        for (IRValueRef value : incomingValues.values()) {
+            removeUse(value);
+        }
     }
 
     @Override
@@ -38,7 +77,7 @@ public class PhiInstruction extends IRInstruction {
             if (!first) {
                 sb.append(", ");
             }
-            sb.append("[ ").append(entry.getValue().getText()).append(", ").append(entry.getKey().getText()).append(" ]");
+            sb.append("[ ").append(entry.getValue().getText()).append(", %").append(entry.getKey().getLabel()).append(" ]");
             first = false;
         }
         return sb.toString();
@@ -10,9 +10,13 @@ public class ReturnInstruction extends IRInstruction{
         super(operands,baseBlock);
     }
     @Override
+    protected int getFirstUseIndex() {
+        return 0;
+    }
+    @Override
     public String toString() {
         if (getOperands().get(0) == null) {
-            return "ret";
+            return "ret void";
         }
         return "ret " + getOperands().get(0).getType().getText() + " " + getOperands().get(0).getText();
     }
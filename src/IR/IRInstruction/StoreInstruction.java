@@ -23,6 +23,6 @@ public class StoreInstruction extends IRInstruction{
     public String toString() {
         return "store " + getOperands().get(1).getType().getText() + " " +
                 getOperands().get(1).getText() + ", " +
-                getOperands().get(2).getType().getText() + " " + getOperands().get(2).getText();
+                getOperands().get(2).getType().getText() + " " + getOperands().get(2).getText() + ", align 4";
     }
 }
@@ -7,13 +7,9 @@ import IR.IRValueRef.IRValueRef;
 import java.util.List;
 
 public class TypeTransferInstruction extends IRInstruction{
-    IRValueRef origin;
-    IRValueRef resRegister;
     int transferType;
     public TypeTransferInstruction (List<IRValueRef> operands, IRBaseBlockRef basicBlock, int transferType){
         super(operands, basicBlock);
-        this.origin = operands.get(1);
-        this.resRegister = operands.get(0);
         this.transferType = transferType;
     }
 
@@ -21,11 +17,13 @@ public class TypeTransferInstruction extends IRInstruction{
         return transferType;
     }
 
-    public void setResReg(IRValueRef newValue){resRegister = newValue;}
+    public void setResReg(IRValueRef newValue){IRSetOperand(0, newValue);}
 
-    public void setOrigin(IRValueRef newValue){origin = newValue;}
+    public void setOrigin(IRValueRef newValue){IRSetOperand(1, newValue);}
     @Override
     public String toString(){
+        IRValueRef resRegister = IRGetOperand(this, 0);
+        IRValueRef origin = IRGetOperand(this, 1);
         // transferType == 0 即为整数转浮点数
         if(transferType == IRConst.IntToFloat){
             return resRegister.getText() + " = sitofp i32 "
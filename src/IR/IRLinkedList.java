@@ -0,0 +1,315 @@
+package IR;
+
+import java.util.AbstractSequentialList;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+public class IRLinkedList<E extends IRLinkedList.Node<E>> extends AbstractSequentialList<E> {
+    /*
+     * 侵入式双向链表，前驱/后继指针直接保存在元素(指令、基本块、函数)中，类似于LLVM中的ilist
+     * 取下一个/上一个元素、在某个元素前后插入、删除元素都是O(1)
+     * 遍历时可以删除当前元素(无论通过迭代器还是直接调用remove)
+     * 每个元素还有一个连续的序号(0..size-1)，用于O(1)判断两个元素的先后顺序，也可以作为数组下标
+     * 在中间插入或删除元素后序号失效，下次查询时重新编号
+     */
+    public interface Node<E extends Node<E>> {
+        E getPrev();
+        E getNext();
+        /*以下方法仅供IRLinkedList维护链表使用*/
+        void setPrev(E prev);
+        void setNext(E next);
+        IRLinkedList<E> getParentList();
+        void setParentList(IRLinkedList<E> parentList);
+        int getOrdinal();
+        void setOrdinal(int ordinal);
+    }
+
+    private E head;
+    private E tail;
+    private int size;
+    private boolean ordinalValid = true;/*序号是否仍然保持顺序*/
+
+    public E getFirst() {
+        return head;
+    }
+
+    public E getLast() {
+        return tail;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 在pos之前插入element，pos为null时插入到末尾
+     */
+    public void insertBefore(E element, E pos) {
+        if (element.getParentList() != null) {
+            throw new IllegalStateException("element is already in a list");
+        }
+        if (pos != null && pos.getParentList() != this) {
+            throw new IllegalArgumentException("position is not in this list");
+        }
+        E prev = pos == null ? tail : pos.getPrev();
+        element.setPrev(prev);
+        element.setNext(pos);
+        if (prev == null) {
+            head = element;
+        } else {
+            prev.setNext(element);
+        }
+        if (pos == null) {
+            tail = element;
+        } else {
+            pos.setPrev(element);
+        }
+        element.setParentList(this);
+        size++;
+        modCount++;
+        if (pos == null && ordinalValid) {
+            //追加到末尾时序号依旧有序
+            element.setOrdinal(prev == null ? 0 : prev.getOrdinal() + 1);
+        } else {
+            ordinalValid = false;
+        }
+    }
+
+    /**
+     * 在pos之后插入element，pos为null时插入到开头
+     */
+    public void insertAfter(E element, E pos) {
+        insertBefore(element, pos == null ? head : pos.getNext());
+    }
+
+    public void addFirst(E element) {
+        insertBefore(element, head);
+    }
+
+    public void addLast(E element) {
+        insertBefore(element, null);
+    }
+
+    @Override
+    public boolean add(E element) {
+        addLast(element);
+        return true;
+    }
+
+    /**
+     * 将element从链表中摘下，element自身保留next指针，便于遍历时删除当前元素后继续向后遍历
+     */
+    public void unlink(E element) {
+        if (element.getParentList() != this) {
+            throw new IllegalArgumentException("element is not in this list");
+        }
+        E prev = element.getPrev();
+        E next = element.getNext();
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.setNext(next);
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.setPrev(prev);
+        }
+        element.setPrev(null);
+        element.setParentList(null);
+        size--;
+        modCount++;
+        if (next != null) {
+            //删除中间的元素后序号不再连续
+            ordinalValid = false;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Node<?> node) || node.getParentList() != this) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        E element = (E) o;
+        unlink(element);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Node<?> node && node.getParentList() == this;
+    }
+
+    @Override
+    public void clear() {
+        E node = head;
+        while (node != null) {
+            E next = node.getNext();
+            node.setPrev(null);
+            node.setNext(null);
+            node.setParentList(null);
+            node = next;
+        }
+        head = tail = null;
+        size = 0;
+        modCount++;
+        ordinalValid = true;
+    }
+
+    /**
+     * a是否在b之前，a和b必须都在该链表中
+     */
+    public boolean comesBefore(E a, E b) {
+        return getOrdinal(a) < getOrdinal(b);
+    }
+
+    /**
+     * 返回元素的序号，序号失效时先重新编号
+     */
+    public int getOrdinal(E element) {
+        if (element.getParentList() != this) {
+            throw new IllegalArgumentException("element is not in this list");
+        }
+        if (!ordinalValid) {
+            renumber();
+        }
+        return element.getOrdinal();
+    }
+
+    private void renumber() {
+        int ordinal = 0;
+        for (E node = head; node != null; node = node.getNext()) {
+            node.setOrdinal(ordinal++);
+        }
+        ordinalValid = true;
+    }
+
+    @Override
+    public E get(int index) {
+        if (index == 0 && head != null) {
+            return head;
+        }
+        if (index == size - 1 && tail != null) {
+            return tail;
+        }
+        return super.get(index);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new Itr(index);
+    }
+
+    private class Itr implements ListIterator<E> {
+        private E next;
+        private E lastReturned;
+        private int nextIndex;
+
+        Itr(int index) {
+            if (index == size) {
+                next = null;
+            } else if (index < size / 2) {
+                next = head;
+                for (int i = 0; i < index; i++) {
+                    next = next.getNext();
+                }
+            } else {
+                next = tail;
+                for (int i = size - 1; i > index; i--) {
+                    next = next.getPrev();
+                }
+            }
+            nextIndex = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.getNext();
+            nextIndex++;
+            return lastReturned;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next == null ? tail != null : next.getPrev() != null;
+        }
+
+        @Override
+        public E previous() {
+            E prev = next == null ? tail : next.getPrev();
+            if (prev == null) {
+                throw new NoSuchElementException();
+            }
+            next = lastReturned = prev;
+            nextIndex--;
+            return lastReturned;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (lastReturned.getParentList() != IRLinkedList.this) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == lastReturned) {
+                next = lastReturned.getNext();
+            } else {
+                nextIndex--;
+            }
+            unlink(lastReturned);
+            lastReturned = null;
+        }
+
+        @Override
+        public void set(E element) {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            insertBefore(element, lastReturned);
+            unlink(lastReturned);
+            if (next == lastReturned) {
+                next = element;
+            }
+            lastReturned = element;
+        }
+
+        @Override
+        public void add(E element) {
+            insertBefore(element, next);
+            nextIndex++;
+            lastReturned = null;
+        }
+    }
+}
@@ -6,9 +6,11 @@ import IR.IRType.IRPointerType;
 import IR.IRType.IRType;
 import IR.IRValueRef.*;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 import static IR.IRType.IRFloatType.IRFloatType;
@@ -16,7 +18,7 @@ import static IR.IRType.IRInt32Type.IRInt32Type;
 
 public class IRModule {
     private final String name; /*模块名*/
-    private final ArrayList<IRFunctionBlockRef> functionBlocks; /*模块中的函数，对应LLVM模块中的多个函数*/
+    private final IRLinkedList<IRFunctionBlockRef> functionBlocks; /*模块中的函数，对应LLVM模块中的多个函数*/
     private final LinkedHashMap<IRGlobalRegRef, IRValueRef> globalVariables; /*模块中的全局变量，对应LLVM模块中的全局变量*/
     private final StringBuilder stringBuilder; /*用于存储IR代码的字符串*/
     private static final IRType int32Type = IRInt32Type();
@@ -28,7 +30,7 @@ public class IRModule {
          * 职责是存储函数块和全局变量（函数块中存储了基本块，基本块中存储了指令）
          */
         /*模块名*/
-        this.functionBlocks = new ArrayList<>();
+        this.functionBlocks = new IRLinkedList<>();
         this.globalVariables = new LinkedHashMap<>();
         this.name = name;
         this.stringBuilder = new StringBuilder();
@@ -73,20 +75,41 @@ public class IRModule {
         return new IRModule(name);
     }
 
-    public static void IRPrintModuleToFile(IRModule module, String path) {
-        //输出模块到文件
+    /*
+     * 输出模块的IR代码，函数体由指令对象现场生成，不在构建IR时拼接字符串
+     * 模块头、函数声明和全局变量仍然保存在stringBuilder中
+     */
+    public static void IRPrintModule(IRModule module, Appendable out) throws IOException {
+        out.append(module.stringBuilder);
         for (IRFunctionBlockRef function : module.functionBlocks) {
-            module.stringBuilder.append(function.genIRCodes());
+            function.appendIRCode(out);
         }
-        try {
-            BufferedWriter out = new BufferedWriter(new FileWriter(path));
-            out.write(module.stringBuilder.toString());
-            out.close();
+    }
+
+    public static void IRPrintModuleToFile(IRModule module, String path) {
+        //输出模块到文件
+        try (Writer out = Files.newBufferedWriter(Path.of(path), StandardCharsets.UTF_8)) {
+            IRPrintModule(module, out);
         } catch (IOException e) {
             System.err.println("ERROR：Failed to print ir to file " + path);
         }
     }
 
+    /*
+     * 按函数在模块中的顺序、基本块在函数中的顺序把基本块标签的后缀重新编为0、1、2...
+     * 优化中新建的基本块(如尾递归消除的phi块、循环的preheader)的编号取决于各函数优化的先后，
+     * -j并行优化时由线程调度决定；在所有函数优化完之后、生成代码之前重新编号，使标签与串行编译时相同
+     * 编号不超过已分配的编号数量，之后新建的基本块不会与之重复
+     */
+    public static void IRRenumberBaseBlocks(IRModule module) {
+        int id = 0;
+        for (IRFunctionBlockRef function : module.functionBlocks) {
+            for (IRBaseBlockRef block : function.getBaseBlocks()) {
+                block.setBaseBlockId(id++);
+            }
+        }
+    }
+
     public static IRFunctionBlockRef IRAddFunction(IRModule module, String funcName, IRFunctionType functionType) {
         IRFunctionBlockRef function = new IRFunctionBlockRef(funcName, functionType);//创建函数
         module.addFunction(function);
@@ -223,7 +246,7 @@ public class IRModule {
     }
 
     private void addFunction(IRFunctionBlockRef function) {
-        functionBlocks.add(function);//使用ArrayList存储函数
+        functionBlocks.addLast(function);//使用侵入式链表存储函数
     }
 
     private void addGlobalVariable(IRGlobalRegRef name, IRValueRef value) {
@@ -245,16 +268,11 @@ public class IRModule {
 
     //提供给后端遍历module的接口
     public static IRFunctionBlockRef IRGetFirstFunction(IRModule module) {
-        return module.functionBlocks.get(0);
+        return module.functionBlocks.getFirst();
     }
 
     public static IRFunctionBlockRef IRGetNextFunction(IRModule module, IRFunctionBlockRef function) {
-        int index = module.functionBlocks.indexOf(function);
-        if (index == module.functionBlocks.size() - 1) {
-            return null;
-        } else {
-            return module.functionBlocks.get(index + 1);
-        }
+        return function.getNext();
     }
 
     /**
@@ -370,7 +388,7 @@ public class IRModule {
         return false;
     }
 
-    public ArrayList<IRFunctionBlockRef> getFunctionBlocks() {
+    public List<IRFunctionBlockRef> getFunctionBlocks() {
         return this.functionBlocks;
     }
 }
@@ -4,14 +4,11 @@ import IR.IRConst;
 
 public class IRFloatType implements IRType{
     private static final String name = "float";
-    private static IRFloatType floatType = null;
+    private static final IRFloatType floatType = new IRFloatType();
 
     public IRFloatType() {}
 
     public static IRType IRFloatType() {
-        if (floatType == null) {
-            floatType = new IRFloatType();
-        }
         return floatType;
     }
 
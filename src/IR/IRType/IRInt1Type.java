@@ -4,14 +4,11 @@ import IR.IRConst;
 
 public class IRInt1Type implements IRType{
     private static final String name = "i1";
-    private static IRInt1Type int1Type = null;/*将初始化延迟到第一次使用，同Int32，保证全局只有一个INT1对象*/
+    private static final IRInt1Type int1Type = new IRInt1Type();/*同Int32，在类初始化时创建，保证全局只有一个INT1对象*/
 
     private IRInt1Type() {}
 
     public static IRType IRInt1Type() {
-        if (int1Type == null) {
-            int1Type = new IRInt1Type();
-        }
         return int1Type;
     }
 
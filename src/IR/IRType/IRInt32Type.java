@@ -4,14 +4,11 @@ import IR.IRConst;
 
 public class IRInt32Type implements IRType{
     private static final String name = "i32";
-    private static IRInt32Type int32Type = null;/*将初始化延迟到第一次使用*/
+    private static final IRInt32Type int32Type = new IRInt32Type();/*在类初始化时创建，由JVM保证线程安全，保证全局只有一个Int32Type对象*/
 
     public IRInt32Type() {}
 
     public static IRType IRInt32Type() {/*静态方法，直接通过类名调用*/
-        if (int32Type == null) {
-            int32Type = new IRInt32Type();//如果int32Type为空，创建一个新的Int32Type对象，从而保证全局只有一个Int32Type对象
-        }
         return int32Type;
     }
 
@@ -4,14 +4,11 @@ import IR.IRConst;
 
 public class IRVoidType implements IRType{
     private static final String name = "void";
-    private static IRVoidType voidType = null;
+    private static final IRVoidType voidType = new IRVoidType();
 
     private IRVoidType() {}
 
     public static IRType IRVoidType() {
-        if (voidType == null) {
-            voidType = new IRVoidType();
-        }
         return voidType;
     }
 
@@ -1,30 +1,43 @@
 package IR.IRValueRef;
 
+import IR.CompilationContext;
 import IR.IRConst;
+import IR.IRInstruction.BranchInstruction;
 import IR.IRInstruction.IRInstruction;
+import IR.IRLinkedList;
 import IR.IRType.IRType;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class IRBaseBlockRef implements IRValueRef{
+public class IRBaseBlockRef implements IRValueRef, IRLinkedList.Node<IRBaseBlockRef> {
     /*
      * 该类是基本块的引用，用于表示基本块
      * 例如mainEntry:
      */
-    public static int baseBlockCounter = 0;
-    public final int baseBlockId;
-    private final StringBuilder IRCodeBuilder;/*用于存储该基本块的IR代码*/
+    private int baseBlockId;/*标签的后缀，IR优化后由IRModule.IRRenumberBaseBlocks按块的顺序重新编号*/
     private final String label;
-    private List<IRInstruction> instructionList;
+    private final IRLinkedList<IRInstruction> instructionList;/*指令链表，前驱后继指针保存在指令中*/
     private IRFunctionBlockRef functionBlockRef;/*该基本块所属的函数块*/
-    private List<IRValueRef> predList = new ArrayList<>();/*该基本块的前驱基本块，用于指明控制流*/
-    private List<IRValueRef> succList = new ArrayList<>();/*该基本块的后继基本块，用于指明控制流*/
+    /*
+     * 控制流图的边，由块末尾的跳转指令决定，插入、删除跳转指令或修改跳转目标时自动维护
+     * 条件跳转的两个目标相同时，边会记录两次
+     */
+    private final List<IRBaseBlockRef> predList = new ArrayList<>();/*该基本块的前驱基本块*/
+    private final List<IRBaseBlockRef> succList = new ArrayList<>();/*该基本块的后继基本块*/
+    private final List<IRBaseBlockRef> predView = Collections.unmodifiableList(predList);
+    private final List<IRBaseBlockRef> succView = Collections.unmodifiableList(succList);
+    private final IRUseList useList = new IRUseList();/*使用该基本块的指令(跳转指令)*/
+    private IRBaseBlockRef prev;/*函数中的上一个基本块*/
+    private IRBaseBlockRef next;/*函数中的下一个基本块*/
+    private IRLinkedList<IRBaseBlockRef> parentList;
+    private int ordinal;/*在函数中的序号*/
+    private long profileCount = -1;/*-fprofile-use读入的执行次数，-1表示没有剖析数据*/
     public IRBaseBlockRef(String label) {
-        this.IRCodeBuilder = new StringBuilder();
         this.label = label;
-        this.baseBlockId = baseBlockCounter++;
-        this.instructionList = new ArrayList<>();
+        this.baseBlockId = CompilationContext.current().nextBaseBlockId();
+        this.instructionList = new InstructionList();
     }
     public IRFunctionBlockRef setFunctionBlockRef(IRFunctionBlockRef functionBlockRef) {
         this.functionBlockRef = functionBlockRef;
@@ -42,21 +55,61 @@ public class IRBaseBlockRef implements IRValueRef{
         baseBlock.setFunctionBlockRef(function);
         return baseBlock;
     }
-    public void addPredBaseBlock(IRValueRef pred){
-        predList.add(pred);
-    }
-
-    public List<IRValueRef> getPredList(){return predList;}
-    public List<IRValueRef> getSuccList(){return succList;}
+    /*返回的列表只用于读取*/
+    public List<IRBaseBlockRef> getPredList(){return predView;}
+    public List<IRBaseBlockRef> getSuccList(){return succView;}
 
-    public void addSuccBaseBlock(IRValueRef succ){
-        succList.add(succ);
+    /*
+     * 根据块末尾的跳转指令重新计算后继，并同步修改后继基本块的前驱
+     * 块末尾有多条连续的跳转指令时以第一条为准，以ret结尾、不以跳转结尾或者不在函数中的基本块没有后继
+     */
+    public void updateSuccessors() {
+        IRBaseBlockRef succ1 = null;
+        IRBaseBlockRef succ2 = null;
+        IRInstruction last = instructionList.getLast();
+        if (parentList != null && last instanceof BranchInstruction) {
+            while (last.getPrev() instanceof BranchInstruction) {
+                last = last.getPrev();
+            }
+            succ1 = ((BranchInstruction) last).getBaseBlock1();
+            succ2 = ((BranchInstruction) last).getBaseBlock2();
+        }
+        int succNum = succ1 == null ? 0 : succ2 == null ? 1 : 2;
+        if (succList.size() == succNum && (succNum < 1 || succList.get(0) == succ1)
+                && (succNum < 2 || succList.get(1) == succ2)) {
+            return;
+        }
+        for (IRBaseBlockRef succ : succList) {
+            succ.predList.remove(this);
+        }
+        succList.clear();
+        if (succ1 != null) {
+            succList.add(succ1);
+            succ1.predList.add(this);
+        }
+        if (succ2 != null) {
+            succList.add(succ2);
+            succ2.predList.add(this);
+        }
     }
+
     public void appendInstr(IRInstruction instr) {
-        instructionList.add(instr);
+        instructionList.addLast(instr);
+        instr.setBaseBlock(this);
     }
     public void addInstructionAtStart(IRInstruction instruction) {
-        instructionList.add(0, instruction);
+        instructionList.addFirst(instruction);
+        instruction.setBaseBlock(this);
+    }
+    /*在pos之前插入指令，pos为null时插入到末尾*/
+    public void insertInstructionBefore(IRInstruction instruction, IRInstruction pos) {
+        instructionList.insertBefore(instruction, pos);
+        instruction.setBaseBlock(this);
+    }
+    /*在pos之后插入指令，pos为null时插入到开头*/
+    public void insertInstructionAfter(IRInstruction instruction, IRInstruction pos) {
+        instructionList.insertAfter(instruction, pos);
+        instruction.setBaseBlock(this);
     }
 
     @Override
@@ -71,42 +124,111 @@ public class IRBaseBlockRef implements IRValueRef{
     public int getTypeKind() {
         return IRConst.IRBasicBlockValueKind;
     }
-    public void appendln(String s) {
-        IRCodeBuilder.append("  ").append(s).append("\n");
-    }
-    public void appendln(String s, int align) {
-        IRCodeBuilder.append("  ").append(s).append(", align ").append(align).append("\n");
-    }
-    public void appendlnAtStart(String s){
-        IRCodeBuilder.insert(0, '\n');
-        IRCodeBuilder.insert(0, s);
-        IRCodeBuilder.insert(0, "  ");
+    @Override
+    public IRUseList getUseList() {
+        return useList;
     }
     public String getLabel() {
         return label + baseBlockId;
     }
-    public StringBuilder getCodeBuilder() {
-        return IRCodeBuilder;
+    public void setBaseBlockId(int baseBlockId) {
+        this.baseBlockId = baseBlockId;
     }
     public List<IRInstruction> getInstructionList() {
         return instructionList;
     }
+    /*剖析得到的执行次数，没有剖析数据时为-1，见BlockProfile*/
+    public long getProfileCount() {
+        return profileCount;
+    }
+    public void setProfileCount(long profileCount) {
+        this.profileCount = profileCount;
+    }
+    public boolean hasProfileCount() {
+        return profileCount >= 0;
+    }
+
+    @Override
+    public IRBaseBlockRef getPrev() {
+        return prev;
+    }
+
+    @Override
+    public IRBaseBlockRef getNext() {
+        return next;
+    }
+
+    @Override
+    public void setPrev(IRBaseBlockRef prev) {
+        this.prev = prev;
+    }
+
+    @Override
+    public void setNext(IRBaseBlockRef next) {
+        this.next = next;
+    }
+
+    @Override
+    public IRLinkedList<IRBaseBlockRef> getParentList() {
+        return parentList;
+    }
+
+    @Override
+    public void setParentList(IRLinkedList<IRBaseBlockRef> parentList) {
+        this.parentList = parentList;
+    }
+
+    @Override
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /*基本块在函数中的下标(0..n-1)，分析时可以用数组代替以基本块为key的Map*/
+    public int getIndex() {
+        return parentList.getOrdinal(this);
+    }
+
+    @Override
+    public void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    /*
+     * 指令链表，指令插入或删除后更新该基本块的后继
+     */
+    private class InstructionList extends IRLinkedList<IRInstruction> {
+        @Override
+        public void insertBefore(IRInstruction element, IRInstruction pos) {
+            super.insertBefore(element, pos);
+            updateSuccessors();
+        }
+
+        @Override
+        public void unlink(IRInstruction element) {
+            super.unlink(element);
+            updateSuccessors();
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            updateSuccessors();
+        }
+    }
 
     public static IRInstruction IRGetFirstInstruction(IRBaseBlockRef baseBlockRef) {
-        return baseBlockRef.getInstructionList().get(0);
+        return baseBlockRef.instructionList.getFirst();
+    }
+
+    public static IRInstruction IRGetLastInstruction(IRBaseBlockRef baseBlockRef) {
+        return baseBlockRef.instructionList.getLast();
     }
 
     public static IRInstruction IRGetNextInstruction(IRBaseBlockRef baseBlockRef, IRInstruction irInstruction) {
-        List<IRInstruction> instructions = baseBlockRef.getInstructionList();
-        for (IRInstruction instruction : instructions) {
-            if (irInstruction.equals(instruction)) {
-                int index = instructions.indexOf(instruction);
-                if (index == instructions.size() - 1)
-                    return null;
-                else
-                    return instructions.get(index + 1);
-            }
-        }
-        return null;
+        return irInstruction.getNext();
+    }
+
+    public static IRInstruction IRGetPreviousInstruction(IRBaseBlockRef baseBlockRef, IRInstruction irInstruction) {
+        return irInstruction.getPrev();
     }
-}
\ No newline at end of file
+}
@@ -1,27 +1,35 @@
 package IR.IRValueRef;
 
+import IR.IRInstruction.IRInstruction;
+import IR.IRLinkedList;
 import IR.IRType.IRFunctionType;
 import IR.IRType.IRType;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class IRFunctionBlockRef implements IRValueRef{
+public class IRFunctionBlockRef implements IRValueRef, IRLinkedList.Node<IRFunctionBlockRef> {
     /*
      * 该类是函数块的引用，用于表示函数块
      *
      */
-    private final List<IRBaseBlockRef> baseBlocks;/*该函数块中的基本块*/
+    private final IRLinkedList<IRBaseBlockRef> baseBlocks;/*该函数块中的基本块，前驱后继指针保存在基本块中*/
     private final IRFunctionType type;/*该函数块的类型*/
     private final String functionName;/*该函数块的名字*/
     private final List<IRValueRef> paramsValueRef;/*该函数块的参数*/
     private List<IRValueRef> caller; /*调用该函数的函数*/
     private List<IRValueRef> callee; /*被该函数调用的函数*/
     private List<IRBaseBlockRef> retBlocks;/*该函数块的返回基本块列表*/
+    private final IRUseList useList = new IRUseList();/*调用该函数的指令*/
+    private IRFunctionBlockRef prev;/*模块中的上一个函数*/
+    private IRFunctionBlockRef next;/*模块中的下一个函数*/
+    private IRLinkedList<IRFunctionBlockRef> parentList;
+    private int ordinal;
     public IRFunctionBlockRef(String functionName, IRFunctionType type) {
         this.functionName = functionName;
         this.type = type;
-        this.baseBlocks = new ArrayList<IRBaseBlockRef>();
+        this.baseBlocks = new IRLinkedList<>();
         this.paramsValueRef = new ArrayList<IRValueRef>();
         this.caller = new ArrayList<IRValueRef>();
         this.callee = new ArrayList<IRValueRef>();
@@ -32,18 +40,18 @@ public class IRFunctionBlockRef implements IRValueRef{
             paramsValueRef.add(valRegister);
         }
     }
-    public String genIRCodes() {
-        // 生成function的IR代码
+    public void appendIRCode(Appendable out) throws IOException {
+        // 由指令对象直接生成function的IR代码并写入out，只在需要输出IR时调用
         //例如：define i32 @main(i32 %main018){}
-        StringBuilder sb = new StringBuilder();
-        sb.append("define ").append(getRetType().getText()).append(" @").append(functionName)
+        out.append("define ").append(getRetType().getText()).append(" @").append(functionName)
                 .append(getParamsString()).append(" {\n");
         for (IRBaseBlockRef baseBlock : baseBlocks) {
-            sb.append(baseBlock.getLabel()).append(":\n");
-            sb.append(baseBlock.getCodeBuilder());
+            out.append(baseBlock.getLabel()).append(":\n");
+            for (IRInstruction instruction : baseBlock.getInstructionList()) {
+                out.append("  ").append(instruction.toString()).append('\n');
+            }
         }
-        sb.append("}\n");
-        return sb.toString();
+        out.append("}\n");
     }
     @Override
     public String getText() {
@@ -57,6 +65,10 @@ public class IRFunctionBlockRef implements IRValueRef{
     public int getTypeKind() {
         return type.getTypeKind();
     }
+    @Override
+    public IRUseList getUseList() {
+        return useList;
+    }
 
     public IRValueRef getParam(int i) {
         return paramsValueRef.get(i);
@@ -85,7 +97,25 @@ public class IRFunctionBlockRef implements IRValueRef{
         return function.paramsValueRef.size();
     }
     public void addBaseBlockRef(IRBaseBlockRef baseBlock) {
-        baseBlocks.add(baseBlock);
+        baseBlocks.addLast(baseBlock);
+        baseBlock.updateSuccessors();
+    }
+    /*在pos之前插入基本块，pos为null时插入到末尾*/
+    public void insertBaseBlockBefore(IRBaseBlockRef baseBlock, IRBaseBlockRef pos) {
+        baseBlocks.insertBefore(baseBlock, pos);
+        baseBlock.setFunctionBlockRef(this);
+        baseBlock.updateSuccessors();
+    }
+    /*在pos之后插入基本块，pos为null时插入到开头*/
+    public void insertBaseBlockAfter(IRBaseBlockRef baseBlock, IRBaseBlockRef pos) {
+        baseBlocks.insertAfter(baseBlock, pos);
+        baseBlock.setFunctionBlockRef(this);
+        baseBlock.updateSuccessors();
+    }
+    /*删除基本块，同时删除它发出的控制流边，跳转到该块的指令需要调用者自行修改*/
+    public void removeBaseBlock(IRBaseBlockRef baseBlock) {
+        baseBlocks.unlink(baseBlock);
+        baseBlock.updateSuccessors();
     }
     public String getFunctionName() {
         return functionName;
@@ -93,6 +123,14 @@ public class IRFunctionBlockRef implements IRValueRef{
     public List<IRBaseBlockRef> getBaseBlocks() {
         return baseBlocks;
     }
+    /*函数中的指令总数，用于统计IR规模*/
+    public int getInstructionCount() {
+        int count = 0;
+        for (IRBaseBlockRef baseBlock : baseBlocks) {
+            count += baseBlock.getInstructionList().size();
+        }
+        return count;
+    }
     public void addRetBlock(IRBaseBlockRef retBlock) {
         retBlocks.add(retBlock);
     }
@@ -100,9 +138,49 @@ public class IRFunctionBlockRef implements IRValueRef{
         return type.getReturnType();
     }
 
+    @Override
+    public IRFunctionBlockRef getPrev() {
+        return prev;
+    }
+
+    @Override
+    public IRFunctionBlockRef getNext() {
+        return next;
+    }
+
+    @Override
+    public void setPrev(IRFunctionBlockRef prev) {
+        this.prev = prev;
+    }
+
+    @Override
+    public void setNext(IRFunctionBlockRef next) {
+        this.next = next;
+    }
+
+    @Override
+    public IRLinkedList<IRFunctionBlockRef> getParentList() {
+        return parentList;
+    }
+
+    @Override
+    public void setParentList(IRLinkedList<IRFunctionBlockRef> parentList) {
+        this.parentList = parentList;
+    }
+
+    @Override
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    @Override
+    public void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
     public static IRBaseBlockRef IRGetFirstBaseBlock(IRValueRef function) {
         if (function instanceof IRFunctionBlockRef) {
-            return ((IRFunctionBlockRef) function).getBaseBlocks().get(0);
+            return ((IRFunctionBlockRef) function).baseBlocks.getFirst();
         }
         else {
             System.err.println("wrong block");
@@ -110,18 +188,15 @@ public class IRFunctionBlockRef implements IRValueRef{
         }
     }
 
+    public static IRBaseBlockRef IRGetLastBaseBlock(IRFunctionBlockRef function) {
+        return function.baseBlocks.getLast();
+    }
+
     public static IRBaseBlockRef IRGetNextBaseBlock(IRFunctionBlockRef function, IRValueRef block) {
-        List<IRBaseBlockRef> baseBlockRefs = function.getBaseBlocks();
-        for (IRBaseBlockRef baseBlockRef : baseBlockRefs) {
-            if (block.equals(baseBlockRef)) {
-                int index = baseBlockRefs.indexOf(baseBlockRef);
-                if (index == baseBlockRefs.size() - 1)
-                    return null;
-                else
-                    return baseBlockRefs.get(index + 1);
-            }
-        }
-        return null;
+        return ((IRBaseBlockRef) block).getNext();
+    }
 
+    public static IRBaseBlockRef IRGetPreviousBaseBlock(IRFunctionBlockRef function, IRValueRef block) {
+        return ((IRBaseBlockRef) block).getPrev();
     }
 }
@@ -1,5 +1,6 @@
 package IR.IRValueRef;
 
+import IR.CompilationContext;
 import IR.IRConst;
 import IR.IRType.IRType;
 
@@ -8,19 +9,28 @@ public class IRGlobalRegRef implements IRValueRef{
      * 该类是全局寄存器的引用，用于表示全局寄存器
      * 例如 @.str
      */
-    static int globalCounter = 0;
     private final IRType type;
     private final int globalNO;
-    private String identity;
+    private final int id;/*与虚拟寄存器共用编号*/
+    private final String identity;
+    private final String text;
+    private final IRUseList useList = new IRUseList();/*使用该全局变量的指令*/
 
     public IRGlobalRegRef(String identity, IRType type) {
         this.identity = identity;
-        this.globalNO = globalCounter++;
+        CompilationContext context = CompilationContext.current();
+        this.globalNO = context.nextGlobalNumber();
+        this.id = context.nextValueId();
         this.type = type;
+        this.text = "@" + identity + globalNO;
     }
     @Override
     public String getText() {
-        return "@" + this.identity + globalNO;
+        return text;
+    }
+    @Override
+    public int getId() {
+        return id;
     }
     @Override
     public IRType getType() {
@@ -34,4 +44,8 @@ public class IRGlobalRegRef implements IRValueRef{
     public String getIdentity() {
         return identity;
     }
+    @Override
+    public IRUseList getUseList() {
+        return useList;
+    }
 }
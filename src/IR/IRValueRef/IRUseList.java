@@ -0,0 +1,45 @@
+package IR.IRValueRef;
+
+import IR.IRInstruction.IRInstruction;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class IRUseList {
+    /*
+     * 该类记录一个值被哪些指令使用(def-use链)，类似于LLVM中Value的use list
+     * 同一条指令可能多次使用同一个值(例如 mul %a, %a)，所以这里记录的是使用次数
+     * 按插入顺序保存，保证遍历顺序稳定
+     */
+    private final Map<IRInstruction, Integer> users = new LinkedHashMap<>();
+
+    public synchronized void addUser(IRInstruction user) {
+        users.merge(user, 1, Integer::sum);
+    }
+
+    public synchronized void removeUser(IRInstruction user) {
+        Integer count = users.get(user);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            users.remove(user);
+        } else {
+            users.put(user, count - 1);
+        }
+    }
+
+    public synchronized Set<IRInstruction> getUsers() {
+        return Collections.unmodifiableSet(users.keySet());
+    }
+
+    public synchronized int getUseCount() {
+        int count = 0;
+        for (int n : users.values()) {
+            count += n;
+        }
+        return count;
+    }
+}
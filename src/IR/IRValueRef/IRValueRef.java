@@ -1,7 +1,12 @@
 package IR.IRValueRef;
 
+import IR.IRInstruction.IRInstruction;
 import IR.IRType.IRType;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+
 public interface IRValueRef {
     /*
      * 该接口是ValueRef的接口，用于表示IR中的值，类似与LLVMValueRef
@@ -9,4 +14,40 @@ public interface IRValueRef {
     String getText();
     IRType getType();/*返回该值的类型*/
     int getTypeKind();/*返回该值的类型*/
+
+    /**
+     * 返回该值的编号，虚拟寄存器和全局变量的编号从0开始连续分配且不会改变，后端可以直接用作数组下标
+     * 常量等其他值没有编号，返回-1
+     */
+    default int getId() {
+        return -1;
+    }
+
+    /**
+     * 返回该值的使用者列表，常量不记录使用者，返回null
+     */
+    default IRUseList getUseList() {
+        return null;
+    }
+
+    /**
+     * 返回使用该值的所有指令
+     */
+    default Set<IRInstruction> getUsers() {
+        IRUseList useList = getUseList();
+        return useList == null ? Collections.emptySet() : useList.getUsers();
+    }
+
+    /**
+     * 将所有对该值的使用替换为newValue，复杂度与使用次数成正比
+     * 调用指令的参数、phi的incoming value、GEP的下标都会被替换
+     */
+    default void replaceAllUsesWith(IRValueRef newValue) {
+        if (newValue == this) {
+            return;
+        }
+        for (IRInstruction user : new ArrayList<>(getUsers())) {
+            user.replaceUsesOfWith(this, newValue);
+        }
+    }
 }
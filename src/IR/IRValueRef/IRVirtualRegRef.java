@@ -1,5 +1,6 @@
 package IR.IRValueRef;
 
+import IR.CompilationContext;
 import IR.IRConst;
 import IR.IRType.IRType;
 
@@ -9,18 +10,31 @@ public class IRVirtualRegRef implements IRValueRef{
      * 例如 %tmp1
      * 一般会有alloca指令为其分配空间
      */
-    static int tempCounter = 0;
     private final String identity;/*虚拟寄存器的标识符*/
     private IRType type;/*虚拟寄存器所对应变量的类型*/
     private final int tempNO;
+    private final int id;
+    private final String text;/*打印用的名字，构造时拼接一次*/
+    private final IRUseList useList = new IRUseList();/*使用该虚拟寄存器的指令*/
     public IRVirtualRegRef(String identity, IRType type) {
-        this.tempNO = tempCounter++;
+        CompilationContext context = CompilationContext.current();/*编号计数器保存在本次编译的上下文中*/
+        this.tempNO = context.nextTempNumber();
+        this.id = context.nextValueId();
         this.type = type;
         this.identity = identity;
+        this.text = "%" + identity + tempNO;
+    }
+    /*当前编译中已分配的编号数量，编号都小于该值*/
+    public static int getValueCount() {
+        return CompilationContext.current().getValueCount();
     }
     @Override
     public String getText() {
-        return "%" + this.identity + tempNO;
+        return text;
+    }
+    @Override
+    public int getId() {
+        return id;
     }
     @Override
     public IRType getType() {
@@ -32,4 +46,8 @@ public class IRVirtualRegRef implements IRValueRef{
         return IRConst.IRInstructionValueKind;
     }
     public String getIdentity(){return identity;}
+    @Override
+    public IRUseList getUseList() {
+        return useList;
+    }
 }
@@ -0,0 +1,193 @@
+package IR;
+
+import IR.IRInstruction.*;
+import IR.IRType.IRInt32Type;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRConstIntRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRValueRef;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+
+/**
+ * 归纳变量分析(简化的scalar evolution)，识别循环中每次迭代按固定步长变化的int值
+ * 基本归纳变量{start, +, step}：循环头的phi，来自preheader的值为start，来自每个latch的值都是 phi + step，
+ *   step为同一个整数常量(phi - c 视为加上-c)，第k次迭代中的值为 start + k * step
+ * 仿射归纳变量：由基本归纳变量i经过与常量的加、减、乘得到的值，表示为 scale * i + offset
+ * 只分析有preheader的循环；结果依赖于指令，不由AnalysisManager缓存，修改指令后需要重新构造
+ */
+public class InductionVariables {
+    public record BasicIV(LoopInfo.Loop loop, PhiInstruction phi, IRValueRef start, int step,
+                          List<IRInstruction> increments) {
+        public IRValueRef getValue() {
+            return phi.getOperands().get(0);
+        }
+    }
+
+    public record AffineIV(BasicIV basic, int scale, int offset) {
+    }
+
+    //函数中定义每个值的指令，参数、全局变量和常量不在其中
+    private final Map<IRValueRef, IRInstruction> definitions = new HashMap<>();
+    private final Map<LoopInfo.Loop, List<BasicIV>> loopIVs = new LinkedHashMap<>();
+    private final Map<IRValueRef, BasicIV> basicIVs = new HashMap<>();
+    //已经分析过的值，不是仿射归纳变量的值映射到null
+    private final Map<IRValueRef, AffineIV> affineIVs = new HashMap<>();
+
+    public InductionVariables(IRFunctionBlockRef functionBlock, LoopInfo loopInfo) {
+        for (IRBaseBlockRef block : functionBlock.getBaseBlocks()) {
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+                if (!(inst instanceof StoreInstruction || inst instanceof BranchInstruction
+                        || inst instanceof ReturnInstruction)) {
+                    definitions.put(inst.getOperands().get(0), inst);
+                }
+            }
+        }
+        for (LoopInfo.Loop loop : loopInfo.getLoops()) {
+            findBasicIVs(loop);
+        }
+    }
+
+    private void findBasicIVs(LoopInfo.Loop loop) {
+        List<BasicIV> ivs = new ArrayList<>();
+        loopIVs.put(loop, ivs);
+        IRBaseBlockRef preheader = loop.getPreheader();
+        if (preheader == null) {
+            return;
+        }
+        for (IRInstruction inst = IRGetFirstInstruction(loop.getHeader());
+             inst instanceof PhiInstruction; inst = inst.getNext()) {
+            PhiInstruction phi = (PhiInstruction) inst;
+            IRValueRef value = phi.getOperands().get(0);
+            Map<IRBaseBlockRef, IRValueRef> incoming = phi.getIncomingValues();
+            if (!(value.getType() instanceof IRInt32Type) || !incoming.containsKey(preheader)
+                    || incoming.size() != loop.getLatches().size() + 1) {
+                continue;
+            }
+            Integer step = null;
+            List<IRInstruction> increments = new ArrayList<>();
+            for (IRBaseBlockRef latch : loop.getLatches()) {
+                IRValueRef next = incoming.get(latch);
+                Integer latchStep = next == null ? null : stepOf(next, value);
+                if (latchStep == null || step != null && !step.equals(latchStep)) {
+                    step = null;
+                    break;
+                }
+                step = latchStep;
+                if (!increments.contains(definitions.get(next))) {
+                    increments.add(definitions.get(next));
+                }
+            }
+            if (step != null) {
+                BasicIV iv = new BasicIV(loop, phi, incoming.get(preheader), step, Collections.unmodifiableList(increments));
+                ivs.add(iv);
+                basicIVs.put(value, iv);
+            }
+        }
+    }
+
+    //value为 phi + c、c + phi 或 phi - c 时返回每次的增量，否则返回null
+    private Integer stepOf(IRValueRef value, IRValueRef phi) {
+        if (!(definitions.get(value) instanceof CalculateInstruction calculate)) {
+            return null;
+        }
+        IRValueRef lhs = calculate.getOperands().get(1);
+        IRValueRef rhs = calculate.getOperands().get(2);
+        switch (calculate.getType()) {
+            case "add":
+                if (lhs == phi && rhs instanceof IRConstIntRef) {
+                    return ((IRConstIntRef) rhs).getValue();
+                }
+                if (rhs == phi && lhs instanceof IRConstIntRef) {
+                    return ((IRConstIntRef) lhs).getValue();
+                }
+                return null;
+            case "sub":
+                if (lhs == phi && rhs instanceof IRConstIntRef) {
+                    return -((IRConstIntRef) rhs).getValue();
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /*循环头中的基本归纳变量，按phi的顺序排列；没有preheader的循环返回空表*/
+    public List<BasicIV> getBasicIVs(LoopInfo.Loop loop) {
+        return Collections.unmodifiableList(loopIVs.getOrDefault(loop, Collections.emptyList()));
+    }
+
+    /*value是基本归纳变量(循环头的phi)时返回它，否则返回null*/
+    public BasicIV getBasicIV(IRValueRef value) {
+        return basicIVs.get(value);
+    }
+
+    /*value是某个基本归纳变量的仿射函数时返回 scale * i + offset 的形式，否则返回null*/
+    public AffineIV getAffineIV(IRValueRef value) {
+        if (affineIVs.containsKey(value)) {
+            return affineIVs.get(value);
+        }
+        AffineIV affine = computeAffineIV(value);
+        affineIVs.put(value, affine);
+        return affine;
+    }
+
+    /*
+     * 运算按int溢出回绕，与原来的计算结果一致
+     * a + c、c + a、a - c、c - a、a * c、c * a，a为仿射归纳变量，c为常量
+     */
+    private AffineIV computeAffineIV(IRValueRef value) {
+        BasicIV basic = basicIVs.get(value);
+        if (basic != null) {
+            return new AffineIV(basic, 1, 0);
+        }
+        if (!(definitions.get(value) instanceof CalculateInstruction calculate)) {
+            return null;
+        }
+        IRValueRef lhs = calculate.getOperands().get(1);
+        IRValueRef rhs = calculate.getOperands().get(2);
+        String type = calculate.getType();
+        if (rhs instanceof IRConstIntRef constant) {
+            AffineIV affine = lhs instanceof IRConstIntRef ? null : getAffineIV(lhs);
+            if (affine == null) {
+                return null;
+            }
+            int c = constant.getValue();
+            switch (type) {
+                case "add":
+                    return new AffineIV(affine.basic(), affine.scale(), affine.offset() + c);
+                case "sub":
+                    return new AffineIV(affine.basic(), affine.scale(), affine.offset() - c);
+                case "mul":
+                    return new AffineIV(affine.basic(), affine.scale() * c, affine.offset() * c);
+                default:
+                    return null;
+            }
+        }
+        if (lhs instanceof IRConstIntRef constant) {
+            AffineIV affine = getAffineIV(rhs);
+            if (affine == null) {
+                return null;
+            }
+            int c = constant.getValue();
+            switch (type) {
+                case "add":
+                    return new AffineIV(affine.basic(), affine.scale(), c + affine.offset());
+                case "sub":
+                    return new AffineIV(affine.basic(), -affine.scale(), c - affine.offset());
+                case "mul":
+                    return new AffineIV(affine.basic(), c * affine.scale(), c * affine.offset());
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+}
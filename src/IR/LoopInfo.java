@@ -0,0 +1,188 @@
+package IR;
+
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 自然循环分析：回边 t->h 满足h支配t，h为循环头，从t沿前驱逆向搜索到h为止得到循环体
+ * 同一个循环头的多条回边合并为一个循环；按逆后序处理循环头，外层循环头先于内层，据此建立循环嵌套树
+ * 每个循环还记录出口：有后继在循环外的块(exiting)和这些循环外的后继(exit)
+ * 依赖DomAnalysis，由AnalysisManager缓存；LoopSimplify可以为每个循环插入唯一的preheader和latch
+ */
+public class LoopInfo {
+    public static final class Loop {
+        private final IRBaseBlockRef header;
+        private final List<IRBaseBlockRef> blocks = new ArrayList<>();/*循环体，按在函数中的顺序排列，包含循环头*/
+        private final BitSet blockSet = new BitSet();/*以基本块下标为索引*/
+        private final List<IRBaseBlockRef> latches = new ArrayList<>();/*回边的起点*/
+        private final List<IRBaseBlockRef> exitingBlocks = new ArrayList<>();/*有后继在循环外的循环块*/
+        private final List<IRBaseBlockRef> exitBlocks = new ArrayList<>();/*循环块在循环外的后继，不重复*/
+        private final List<Loop> children = new ArrayList<>();
+        private Loop parent;
+        private int depth;/*最外层循环为1*/
+
+        private Loop(IRBaseBlockRef header) {
+            this.header = header;
+        }
+
+        public IRBaseBlockRef getHeader() {
+            return header;
+        }
+
+        public List<IRBaseBlockRef> getBlocks() {
+            return Collections.unmodifiableList(blocks);
+        }
+
+        public List<IRBaseBlockRef> getLatches() {
+            return Collections.unmodifiableList(latches);
+        }
+
+        /*只有一条回边时返回其起点，否则返回null*/
+        public IRBaseBlockRef getLatch() {
+            return latches.size() == 1 ? latches.get(0) : null;
+        }
+
+        /*
+         * 循环头在循环外只有一个前驱，且该前驱只跳转到循环头时返回该前驱，否则返回null
+         * 在preheader末尾插入的指令在进入循环前恰好执行一次
+         */
+        public IRBaseBlockRef getPreheader() {
+            IRBaseBlockRef preheader = null;
+            for (IRBaseBlockRef pred : header.getPredList()) {
+                if (!contains(pred)) {
+                    if (preheader != null && preheader != pred) {
+                        return null;
+                    }
+                    preheader = pred;
+                }
+            }
+            if (preheader == null || preheader.getSuccList().size() != 1) {
+                return null;
+            }
+            return preheader;
+        }
+
+        public List<IRBaseBlockRef> getExitingBlocks() {
+            return Collections.unmodifiableList(exitingBlocks);
+        }
+
+        public List<IRBaseBlockRef> getExitBlocks() {
+            return Collections.unmodifiableList(exitBlocks);
+        }
+
+        public boolean contains(IRBaseBlockRef block) {
+            return blockSet.get(block.getIndex());
+        }
+
+        public Loop getParent() {
+            return parent;
+        }
+
+        public List<Loop> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private final List<Loop> loops = new ArrayList<>();/*外层循环在前*/
+    private final List<Loop> topLevelLoops = new ArrayList<>();
+    private final List<IRBaseBlockRef> blocks;/*函数的基本块，按下标排列*/
+    private final Loop[] loopOfBlocks;/*以基本块下标为索引，包含该块的最内层循环*/
+
+    public LoopInfo(IRFunctionBlockRef functionBlock, DomAnalysis domAnalysis) {
+        this.blocks = new ArrayList<>(functionBlock.getBaseBlocks());
+        this.loopOfBlocks = new Loop[blocks.size()];
+        for (IRBaseBlockRef header : domAnalysis.getReversePostOrder()) {
+            Loop loop = null;
+            for (IRBaseBlockRef pred : header.getPredList()) {
+                if (domAnalysis.dominates(header, pred) && (loop == null || !loop.latches.contains(pred))) {
+                    if (loop == null) {
+                        loop = new Loop(header);
+                    }
+                    loop.latches.add(pred);
+                }
+            }
+            if (loop != null) {
+                addLoop(loop, domAnalysis);
+            }
+        }
+    }
+
+    private void addLoop(Loop loop, DomAnalysis domAnalysis) {
+        IRBaseBlockRef header = loop.header;
+        loop.blockSet.set(header.getIndex());
+        Deque<IRBaseBlockRef> workList = new ArrayDeque<>();
+        for (IRBaseBlockRef latch : loop.latches) {
+            if (!loop.blockSet.get(latch.getIndex())) {
+                loop.blockSet.set(latch.getIndex());
+                workList.push(latch);
+            }
+        }
+        while (!workList.isEmpty()) {
+            IRBaseBlockRef block = workList.pop();
+            for (IRBaseBlockRef pred : block.getPredList()) {
+                //不可达的前驱不属于循环
+                if (domAnalysis.isReachable(pred) && !loop.blockSet.get(pred.getIndex())) {
+                    loop.blockSet.set(pred.getIndex());
+                    workList.push(pred);
+                }
+            }
+        }
+        //外层循环已经处理过，循环头所在的最内层循环就是外层循环
+        loop.parent = loopOfBlocks[header.getIndex()];
+        if (loop.parent == null) {
+            loop.depth = 1;
+            topLevelLoops.add(loop);
+        } else {
+            loop.depth = loop.parent.depth + 1;
+            loop.parent.children.add(loop);
+        }
+        for (int b = loop.blockSet.nextSetBit(0); b >= 0; b = loop.blockSet.nextSetBit(b + 1)) {
+            loopOfBlocks[b] = loop;
+            loop.blocks.add(blocks.get(b));
+        }
+        for (IRBaseBlockRef block : loop.blocks) {
+            for (IRBaseBlockRef succ : block.getSuccList()) {
+                if (!loop.contains(succ)) {
+                    if (!loop.exitingBlocks.contains(block)) {
+                        loop.exitingBlocks.add(block);
+                    }
+                    if (!loop.exitBlocks.contains(succ)) {
+                        loop.exitBlocks.add(succ);
+                    }
+                }
+            }
+        }
+        loops.add(loop);
+    }
+
+    /*所有循环，外层循环排在它的内层循环之前*/
+    public List<Loop> getLoops() {
+        return Collections.unmodifiableList(loops);
+    }
+
+    public List<Loop> getTopLevelLoops() {
+        return Collections.unmodifiableList(topLevelLoops);
+    }
+
+    /*包含该基本块的最内层循环，不在循环中返回null*/
+    public Loop getLoopFor(IRBaseBlockRef block) {
+        return loopOfBlocks[block.getIndex()];
+    }
+
+    /*基本块所在循环的嵌套深度，不在循环中为0*/
+    public int getLoopDepth(IRBaseBlockRef block) {
+        Loop loop = getLoopFor(block);
+        return loop == null ? 0 : loop.depth;
+    }
+}
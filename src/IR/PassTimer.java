@@ -0,0 +1,201 @@
+package IR;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 编译各阶段(语法分析、生成IR、每个IR优化、寄存器分配、翻译、每个后端优化、输出)的耗时统计，对应-time-passes选项
+ * 每个阶段记录执行次数、墙钟时间、CPU时间、分配的内存(ThreadMXBean)，以及执行前后的指令数和基本块数
+ * 同一个阶段对不同函数的多次执行累加到一起；记录方法是线程安全的，并行编译和批量编译时可以共享一个PassTimer
+ * 未启用时run/call直接执行，不做任何统计
+ */
+public final class PassTimer {
+    private static final PassTimer disabledTimer = new PassTimer(false);
+
+    private final boolean enabled;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean allocationBean;/*HotSpot扩展，用于取得线程分配的内存，不支持时为null*/
+
+    public static final class Stage {
+        private final String name;
+        private int runs;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+        private long instructionsBefore;
+        private long instructionsAfter;
+        private long blocksBefore;
+        private long blocksAfter;
+        private boolean hasInstructions;/*该阶段是否记录了指令数*/
+        private boolean hasBlocks;/*该阶段是否记录了基本块数*/
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+    }
+
+    private PassTimer(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            this.threadBean = null;
+            this.allocationBean = null;
+            return;
+        }
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threadBean = bean.isCurrentThreadCpuTimeSupported() ? bean : null;
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            this.allocationBean = sunBean;
+        } else {
+            this.allocationBean = null;
+        }
+    }
+
+    public static PassTimer create() {
+        return new PassTimer(true);
+    }
+
+    public static PassTimer disabled() {
+        return disabledTimer;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 执行一个阶段并记录，instructions和blocks在执行前后各取一次，不需要统计规模时传null
+     */
+    public void run(String name, IntSupplier instructions, IntSupplier blocks, Runnable body) {
+        call(name, instructions, blocks, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    public <T> T call(String name, IntSupplier instructions, IntSupplier blocks, Supplier<T> body) {
+        if (!enabled) {
+            return body.get();
+        }
+        int instructionsBefore = instructions == null ? 0 : instructions.getAsInt();
+        int blocksBefore = blocks == null ? 0 : blocks.getAsInt();
+        long allocatedStart = allocatedBytes();
+        long cpuStart = cpuNanos();
+        long wallStart = System.nanoTime();
+        T result = body.get();
+        long wall = System.nanoTime() - wallStart;
+        long cpu = cpuNanos() - cpuStart;
+        long allocated = allocatedBytes() - allocatedStart;
+        int instructionsAfter = instructions == null ? 0 : instructions.getAsInt();
+        int blocksAfter = blocks == null ? 0 : blocks.getAsInt();
+        synchronized (stages) {
+            Stage stage = stages.computeIfAbsent(name, Stage::new);
+            stage.runs++;
+            stage.wallNanos += wall;
+            stage.cpuNanos += cpu;
+            stage.allocatedBytes += allocated;
+            if (instructions != null) {
+                stage.hasInstructions = true;
+                stage.instructionsBefore += instructionsBefore;
+                stage.instructionsAfter += instructionsAfter;
+            }
+            if (blocks != null) {
+                stage.hasBlocks = true;
+                stage.blocksBefore += blocksBefore;
+                stage.blocksAfter += blocksAfter;
+            }
+        }
+        return result;
+    }
+
+    private long cpuNanos() {
+        return threadBean == null ? 0 : threadBean.getCurrentThreadCpuTime();
+    }
+
+    @SuppressWarnings("deprecation")
+    private long allocatedBytes() {
+        return allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 按墙钟时间从大到小排序的各阶段统计
+     */
+    public List<Stage> getStages() {
+        List<Stage> sorted;
+        synchronized (stages) {
+            sorted = new ArrayList<>(stages.values());
+        }
+        sorted.sort(Comparator.comparingLong(Stage::getWallNanos).reversed());
+        return sorted;
+    }
+
+    public void printReport(PrintStream out) {
+        List<Stage> sorted = getStages();
+        long totalWall = 0;
+        for (Stage stage : sorted) {
+            totalWall += stage.wallNanos;
+        }
+        out.println("===-------------------------------------------------------------------------===");
+        out.println("                          Pass execution timing report");
+        out.println("===-------------------------------------------------------------------------===");
+        out.printf(Locale.ROOT, "%10s %7s %10s %10s %6s  %-21s %-15s %s%n",
+                "Wall(ms)", "Wall%", "CPU(ms)", "Alloc(MB)", "Runs", "Instructions", "Blocks", "Name");
+        for (Stage stage : sorted) {
+            out.printf(Locale.ROOT, "%10.3f %6.1f%% %10.3f %10.2f %6d  %-21s %-15s %s%n",
+                    stage.wallNanos / 1e6,
+                    totalWall == 0 ? 0.0 : stage.wallNanos * 100.0 / totalWall,
+                    stage.cpuNanos / 1e6,
+                    stage.allocatedBytes / (1024.0 * 1024.0),
+                    stage.runs,
+                    stage.hasInstructions ? stage.instructionsBefore + " -> " + stage.instructionsAfter : "-",
+                    stage.hasBlocks ? stage.blocksBefore + " -> " + stage.blocksAfter : "-",
+                    stage.name);
+        }
+        out.printf(Locale.ROOT, "%10.3f %6.1f%% %s%n", totalWall / 1e6, 100.0, "Total");
+    }
+
+    public void printJson(PrintStream out) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"stages\":[");
+        boolean first = true;
+        for (Stage stage : getStages()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("\n  {\"name\":\"").append(stage.name.replace("\\", "\\\\").replace("\"", "\\\"")).append('"')
+                    .append(",\"runs\":").append(stage.runs)
+                    .append(",\"wallNanos\":").append(stage.wallNanos)
+                    .append(",\"cpuNanos\":").append(stage.cpuNanos)
+                    .append(",\"allocatedBytes\":").append(stage.allocatedBytes);
+            if (stage.hasInstructions) {
+                sb.append(",\"instructionsBefore\":").append(stage.instructionsBefore)
+                        .append(",\"instructionsAfter\":").append(stage.instructionsAfter);
+            }
+            if (stage.hasBlocks) {
+                sb.append(",\"blocksBefore\":").append(stage.blocksBefore)
+                        .append(",\"blocksAfter\":").append(stage.blocksAfter);
+            }
+            sb.append('}');
+        }
+        sb.append("\n]}");
+        out.println(sb);
+    }
+}
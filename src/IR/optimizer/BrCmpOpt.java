@@ -1,5 +1,6 @@
 package IR.optimizer;
 
+import IR.Analysis;
 import IR.IRInstruction.BranchInstruction;
 import IR.IRInstruction.CompareInstruction;
 import IR.IRInstruction.IRInstruction;
@@ -8,45 +9,48 @@ import IR.IRValueRef.IRBaseBlockRef;
 import IR.IRValueRef.IRFunctionBlockRef;
 import IR.IRValueRef.IRValueRef;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
 
 public class BrCmpOpt implements OptForIR {
+    @Override
+    public Set<Analysis> getPreservedAnalyses() {
+        //只替换跳转条件，跳转目标不变
+        return EnumSet.of(Analysis.CFG, Analysis.DOMINATORS, Analysis.LOOPS);
+    }
+
     //针对跳转的if语句简化
     @Override
     public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
         for (IRBaseBlockRef irBaseBlockRef : irFunctionBlockRef.getBaseBlocks()) {
-            List<IRInstruction> irInstructions = irBaseBlockRef.getInstructionList();
-            Iterator<IRInstruction> it = irInstructions.iterator();
-            List<Integer> toRemove = new ArrayList<>();
-
-            while (it.hasNext()) {
-                IRInstruction instruction = it.next();
-                int currentIndex = irInstructions.indexOf(instruction);
-
+            IRInstruction next;
+            for (IRInstruction instruction = IRGetFirstInstruction(irBaseBlockRef); instruction != null; instruction = next) {
+                next = instruction.getNext();
+                // cmp; zext; cmp 0; br 的模式，直接用第一个cmp的结果跳转
                 if (instruction instanceof CompareInstruction) {
-                    if (currentIndex + 1 < irInstructions.size() && irInstructions.get(currentIndex + 1) instanceof ZextInstruction) {
-                        if (currentIndex + 2 < irInstructions.size() && irInstructions.get(currentIndex + 2) instanceof CompareInstruction) {
-                            if ((irInstructions.get(currentIndex + 2).getOperands().get(1) != null
-                                    && irInstructions.get(currentIndex + 2).getOperands().get(1).getText().equals("0"))
-                            || (irInstructions.get(currentIndex + 2).getOperands().get(2) != null
-                                    && irInstructions.get(currentIndex + 2).getOperands().get(2).getText().equals("0"))) {
-                                if (currentIndex + 3 < irInstructions.size() && irInstructions.get(currentIndex + 3) instanceof BranchInstruction) {
+                    IRInstruction zext = instruction.getNext();
+                    if (zext instanceof ZextInstruction) {
+                        IRInstruction compare = zext.getNext();
+                        if (compare instanceof CompareInstruction) {
+                            if ((compare.getOperands().get(1) != null
+                                    && compare.getOperands().get(1).getText().equals("0"))
+                            || (compare.getOperands().get(2) != null
+                                    && compare.getOperands().get(2).getText().equals("0"))) {
+                                IRInstruction branchInstruction = compare.getNext();
+                                if (branchInstruction instanceof BranchInstruction) {
                                     IRValueRef irValueRef = instruction.getOperands().get(0);
-                                    IRInstruction branchInstruction = irInstructions.get(currentIndex + 3);
                                     branchInstruction.IRSetOperand(0, irValueRef);
-                                    toRemove.add(currentIndex + 1);
-                                    toRemove.add(currentIndex + 2);
+                                    zext.eraseFromParent();
+                                    compare.eraseFromParent();
+                                    next = branchInstruction;
                                 }
                             }
                         }
                     }
                 }
             }
-            for (int i = toRemove.size() - 1; i >= 0; i--) {
-                irInstructions.remove((int) toRemove.get(i));
-            }
         }
     }
-}
\ No newline at end of file
+}
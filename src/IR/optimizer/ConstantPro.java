@@ -1,5 +1,6 @@
 package IR.optimizer;
 
+import IR.Analysis;
 import IR.IRConst;
 import IR.IRType.IRInt32Type;
 import IR.IRType.IRFloatType;
@@ -11,14 +12,21 @@ import IR.IRValueRef.IRBaseBlockRef;
 import IR.IRValueRef.IRValueRef;
 import IR.IRInstruction.*;
 
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 常量折叠
  * 常量传播: 由mem2Reg完成;
  */
 public class ConstantPro implements OptForIR {
+    @Override
+    public Set<Analysis> getPreservedAnalyses() {
+        //只删除计算指令，不改变控制流
+        return EnumSet.of(Analysis.CFG, Analysis.DOMINATORS, Analysis.LOOPS);
+    }
 
     @Override
     public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
@@ -38,42 +46,9 @@ public class ConstantPro implements OptForIR {
                             continue;
                         }
                         iterator.remove();
+                        calcInst.dropAllReferences();
                         //替换所有pointer为result;
-                        for (int i = 0; i < irFunctionBlockRef.getBaseBlocks().size(); i++) {
-                            IRBaseBlockRef replaceBlock = irFunctionBlockRef.getBaseBlocks().get(i);
-                            for (int j = 0; j < replaceBlock.getInstructionList().size(); j++) {
-                                IRInstruction inst = replaceBlock.getInstructionList().get(j);
-                                List<IRValueRef> op = inst.getOperands();
-                                //call指令传参
-                                if (inst instanceof CallInstruction callInstruction) {
-                                    for (int k = 0; k < callInstruction.getParams().size(); k++) {
-                                        if (callInstruction.getParams().get(k).equals(pointer)) {
-                                            callInstruction.setParams(k, result);
-                                        }
-                                    }
-                                }
-                                if (inst instanceof PhiInstruction phiInstruction){
-                                    for (IRBaseBlockRef key : phiInstruction.getIncomingValues().keySet()){
-                                        if (phiInstruction.getIncomingValues().get(key).equals(pointer)){
-                                            phiInstruction.setIncomingValue(result, key);
-                                        }
-                                    }
-                                }
-                                for (int k = 0; k < op.size(); k++) {
-                                    if (op.get(k) == null) {
-                                        continue;
-                                    }
-                                    if (op.get(k).getText().equals(pointer.getText())) {
-                                        if (inst instanceof GetElementPointerInstruction) {
-                                            ((GetElementPointerInstruction) inst).setIndex(k - 2, result);
-                                            inst.IRSetOperand(k, result);
-                                        } else {
-                                            inst.IRSetOperand(k, result);
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                        pointer.replaceAllUsesWith(result);
                     }
                 }
             }
@@ -0,0 +1,205 @@
+package IR.optimizer;
+
+import IR.Analysis;
+import IR.CompilationContext;
+import IR.DomAnalysis;
+import IR.IRConst;
+import IR.IRInstruction.*;
+import IR.IRType.IRType;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRValueRef;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+
+/**
+ * 基于支配树的全局值编号，取代只在基本块内查找的CommonSubEli
+ * 沿支配树先序遍历基本块，进入一个块时打开一层作用域，离开时删除这一层加入的表达式，
+ * 因此查到的表达式一定在支配当前块的块中(或当前块中更靠前的位置)计算过，可以直接复用其结果
+ * 表达式以操作码和操作数的值编号为键，覆盖计算、比较、GEP、zext和类型转换指令；
+ * 可交换的运算(add、mul、xor、fadd、fmul、eq、ne)把操作数排成固定的顺序，sgt/slt、sge/sle交换操作数后互相转换，
+ * 例如b + a与a + b、a > b与b < a得到相同的键
+ * 同一个块中incoming value完全相同的phi也被合并
+ * int a = b + c;
+ * if (x) { d = c + b; }
+ * // 优化后
+ * int a = b + c;
+ * if (x) { d = a; }
+ */
+public class GVN implements OptForIR {
+    //表达式的键：操作码(含计算类型、比较类型等)和各操作数的键
+    private record Expression(String opcode, List<Object> operands) {
+    }
+
+    //常量没有编号，以类型和字面值区分
+    private record ConstantKey(IRType type, String text) {
+    }
+
+    //当前作用域链上所有表达式到其结果的映射
+    private final Map<Expression, IRValueRef> table = new HashMap<>();
+
+    @Override
+    public Set<Analysis> getRequiredAnalyses() {
+        return EnumSet.of(Analysis.DOMINATORS);
+    }
+
+    @Override
+    public Set<Analysis> getPreservedAnalyses() {
+        //只删除指令，不改变控制流
+        return EnumSet.of(Analysis.CFG, Analysis.DOMINATORS, Analysis.LOOPS);
+    }
+
+    @Override
+    public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
+        if (irFunctionBlockRef.getBaseBlocks().isEmpty()) {
+            return;
+        }
+        DomAnalysis domAnalysis = CompilationContext.current().getAnalysisManager().getDomAnalysis(irFunctionBlockRef);
+        table.clear();
+        //显式的栈代替递归，支配树很深时不会栈溢出；scopes中为对应块的作用域中加入的键，null表示还没有进入该块
+        List<IRBaseBlockRef> blocks = new ArrayList<>();
+        List<List<Expression>> scopes = new ArrayList<>();
+        blocks.add(irFunctionBlockRef.getBaseBlocks().get(0));
+        scopes.add(null);
+        while (!blocks.isEmpty()) {
+            int top = blocks.size() - 1;
+            IRBaseBlockRef block = blocks.get(top);
+            if (scopes.get(top) != null) {
+                //block的子树都已处理完，关闭它的作用域
+                for (Expression expression : scopes.remove(top)) {
+                    table.remove(expression);
+                }
+                blocks.remove(top);
+                continue;
+            }
+            scopes.set(top, numberBlock(block));
+            List<IRBaseBlockRef> children = domAnalysis.getDomTreeChildren(block);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                blocks.add(children.get(i));
+                scopes.add(null);
+            }
+        }
+        table.clear();
+    }
+
+    //对一个块中的指令编号，返回加入table的键
+    private List<Expression> numberBlock(IRBaseBlockRef block) {
+        List<Expression> added = new ArrayList<>();
+        //phi只在所在的块中比较
+        Map<Map<IRBaseBlockRef, Object>, IRValueRef> phis = new HashMap<>();
+        IRInstruction next;
+        for (IRInstruction instruction = IRGetFirstInstruction(block); instruction != null; instruction = next) {
+            next = instruction.getNext();
+            IRValueRef result;
+            if (instruction instanceof PhiInstruction) {
+                Map<IRBaseBlockRef, Object> incoming = new LinkedHashMap<>();
+                for (Map.Entry<IRBaseBlockRef, IRValueRef> entry : ((PhiInstruction) instruction).getIncomingValues().entrySet()) {
+                    incoming.put(entry.getKey(), operandKey(entry.getValue()));
+                }
+                result = phis.putIfAbsent(incoming, instruction.getOperands().get(0));
+            } else {
+                Expression expression = expressionOf(instruction);
+                if (expression == null) {
+                    continue;
+                }
+                result = table.putIfAbsent(expression, instruction.getOperands().get(0));
+                if (result == null) {
+                    added.add(expression);
+                }
+            }
+            if (result != null) {
+                //已有相同的表达式，删除这一条指令，并将其结果的所有使用替换为之前的结果
+                IRValueRef resRegister = instruction.getOperands().get(0);
+                instruction.eraseFromParent();
+                resRegister.replaceAllUsesWith(result);
+            }
+        }
+        return added;
+    }
+
+    //返回指令对应的表达式，不参与值编号的指令返回null
+    private Expression expressionOf(IRInstruction instruction) {
+        List<IRValueRef> operands = instruction.getOperands();
+        if (instruction instanceof CalculateInstruction) {
+            String type = ((CalculateInstruction) instruction).getType();
+            boolean commutative = type.equals("add") || type.equals("mul") || type.equals("xor")
+                    || type.equals("fadd") || type.equals("fmul");
+            if (commutative && isOrdered(operands.get(2), operands.get(1))) {
+                return new Expression(type, List.of(operandKey(operands.get(2)), operandKey(operands.get(1))));
+            }
+            return new Expression(type, List.of(operandKey(operands.get(1)), operandKey(operands.get(2))));
+        }
+        if (instruction instanceof CompareInstruction) {
+            int compareType = ((CompareInstruction) instruction).getCompareType();
+            if (isOrdered(operands.get(2), operands.get(1))) {
+                compareType = swappedCompare(compareType);
+                return new Expression("cmp" + compareType, List.of(operandKey(operands.get(2)), operandKey(operands.get(1))));
+            }
+            return new Expression("cmp" + compareType, List.of(operandKey(operands.get(1)), operandKey(operands.get(2))));
+        }
+        if (instruction instanceof GetElementPointerInstruction) {
+            return new Expression("gep", operandKeys(operands));
+        }
+        if (instruction instanceof ZextInstruction) {
+            return new Expression("zext", operandKeys(operands));
+        }
+        if (instruction instanceof TypeTransferInstruction) {
+            return new Expression("transfer" + ((TypeTransferInstruction) instruction).getTransferType(), operandKeys(operands));
+        }
+        return null;
+    }
+
+    //交换操作数后等价的比较类型，eq、ne不变
+    private static int swappedCompare(int compareType) {
+        switch (compareType) {
+            case IRConst.IRSGT:
+                return IRConst.IRSLT;
+            case IRConst.IRSGE:
+                return IRConst.IRSLE;
+            case IRConst.IRSLT:
+                return IRConst.IRSGT;
+            case IRConst.IRSLE:
+                return IRConst.IRSGE;
+            default:
+                return compareType;
+        }
+    }
+
+    //除结果外所有操作数的键
+    private static List<Object> operandKeys(List<IRValueRef> operands) {
+        List<Object> keys = new ArrayList<>();
+        for (IRValueRef operand : operands.subList(1, operands.size())) {
+            keys.add(operandKey(operand));
+        }
+        return keys;
+    }
+
+    //虚拟寄存器和全局变量以编号为键，常量以类型和字面值为键
+    private static Object operandKey(IRValueRef value) {
+        if (value.getId() >= 0) {
+            return value.getId();
+        }
+        if (value.getUseList() == null) {
+            return new ConstantKey(value.getType(), value.getText());
+        }
+        return value;
+    }
+
+    //可交换的操作数的固定顺序：有编号的值按编号从小到大，常量排在最后并按字面值排序；a应排在b前面时返回true
+    private static boolean isOrdered(IRValueRef a, IRValueRef b) {
+        int idA = a.getId() >= 0 ? a.getId() : Integer.MAX_VALUE;
+        int idB = b.getId() >= 0 ? b.getId() : Integer.MAX_VALUE;
+        if (idA != idB) {
+            return idA < idB;
+        }
+        return idA == Integer.MAX_VALUE && a.getText().compareTo(b.getText()) < 0;
+    }
+}
@@ -8,10 +8,10 @@ import IR.IRType.*;
 import IR.IRValueRef.*;
 import IR.IRModule;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 public class GlobalArrToLocal {
     //全局数组局部化（仅针对main函数）
@@ -19,7 +19,7 @@ public class GlobalArrToLocal {
 
     public void Optimize(IRModule irModule) {
         int length = 0;
-        ArrayList<IRFunctionBlockRef> irFunctionBlocks = irModule.getFunctionBlocks();
+        List<IRFunctionBlockRef> irFunctionBlocks = irModule.getFunctionBlocks();
         LinkedHashMap<IRGlobalRegRef, IRValueRef> globalVars = irModule.getGlobalVariables();
         // 找到main函数
         IRFunctionBlockRef mainFunctionBlock = null;
@@ -57,7 +57,7 @@ public class GlobalArrToLocal {
         return pointerType.getBaseType() instanceof IRArrayType;
     }
 
-    private boolean isOnlyUsedInMain(IRGlobalRegRef globalVar, ArrayList<IRFunctionBlockRef> irFunctionBlockRefs) {
+    private boolean isOnlyUsedInMain(IRGlobalRegRef globalVar, List<IRFunctionBlockRef> irFunctionBlockRefs) {
         for (IRFunctionBlockRef irFunctionBlockRef : irFunctionBlockRefs) {
             if (irFunctionBlockRef.getFunctionName().equals("main")) {
                 for (IRBaseBlockRef irBaseBlockRef : irFunctionBlockRef.getBaseBlocks()) {
@@ -74,26 +74,19 @@ public class GlobalArrToLocal {
                         }
                     }
                 }
-            } else {
-                for (IRBaseBlockRef irBaseBlockRef : irFunctionBlockRef.getBaseBlocks()) {
-                    for (IRInstruction irInstruction : irBaseBlockRef.getInstructionList()) {
-                        for (int i = 0; i < irInstruction.getOperands().size(); i++) {
-                            if (irInstruction.getOperands().get(i) == null) {
-                                continue;
-                            }
-                            if (irInstruction.getOperands().get(i).equals(globalVar)) {
-                                return false;
-                            }
-                        }
-                    }
-                }
+            }
+        }
+        //其他函数中只要使用了该全局变量就不能局部化
+        for (IRInstruction user : globalVar.getUsers()) {
+            if (!user.getBaseBlock().getFunctionBlockRef().getFunctionName().equals("main")) {
+                return false;
             }
         }
         return true;
     }
 
     private void transformGlobalToLocal(IRGlobalRegRef globalVar, IRFunctionBlockRef
-            mainFunctionBlock, ArrayList<IRFunctionBlockRef> irFunctionBlockRefs) {
+            mainFunctionBlock, List<IRFunctionBlockRef> irFunctionBlockRefs) {
         IRPointerType pointerType = (IRPointerType) globalVar.getType();
         // 在main函数开始位置声明数组
         IRValueRef resRegister;
@@ -101,23 +94,7 @@ public class GlobalArrToLocal {
         IRInstruction allocateInst = new AllocateInstruction(Collections.singletonList(resRegister), mainFunctionBlock.getBaseBlocks().get(0));
         mainFunctionBlock.getBaseBlocks().get(0).addInstructionAtStart(allocateInst);
         //替换所有对globalVar的使用
-        for (IRFunctionBlockRef irFunctionBlockRef : irFunctionBlockRefs) {
-            for (IRBaseBlockRef irBaseBlockRef : irFunctionBlockRef.getBaseBlocks()) {
-                for (IRInstruction irInstruction : irBaseBlockRef.getInstructionList()) {
-                    for (int i = 0; i < irInstruction.getOperands().size(); i++) {
-                        if (irInstruction.getOperands().get(i) == null) {
-                            continue;
-                        }
-                        if (irInstruction.getOperands().get(i).equals(globalVar)) {
-                            irInstruction.IRSetOperand(i, resRegister);
-                            if (irInstruction instanceof GetElementPointerInstruction) {
-                                ((GetElementPointerInstruction) irInstruction).setBase(resRegister);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        globalVar.replaceAllUsesWith(resRegister);
         // 标记需要移除的全局变量
         varsToRemove.add(globalVar);
     }
@@ -0,0 +1,209 @@
+package IR.optimizer;
+
+import IR.Analysis;
+import IR.CompilationContext;
+import IR.DomAnalysis;
+import IR.IRInstruction.*;
+import IR.IRType.IRArrayType;
+import IR.IRType.IRPointerType;
+import IR.IRType.IRType;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRConstIntRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRGlobalRegRef;
+import IR.IRValueRef.IRValueRef;
+import IR.LoopInfo;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+import static IR.IRValueRef.IRBaseBlockRef.IRGetLastInstruction;
+
+/**
+ * 循环不变量外提，需要循环有preheader(由LoopSimplify插入)，没有preheader的循环不处理
+ * 从内层循环到外层循环依次处理，按逆后序遍历循环中的块，操作数都是循环不变量的以下指令移动到preheader末尾：
+ * 1.计算、比较、GEP、zext、类型转换：没有副作用，即使循环一次也不执行，提前计算也不影响结果；
+ *   sdiv/srem只在除数为非0常量时外提，避免提前执行除以0
+ * 2.load：循环中没有可能写同一块内存的store，也没有可能写内存的函数调用，
+ *   且地址是全局变量、alloca得到的栈上的变量(如保存数组参数的指针)或者以它们为基地址、下标为不越界常量的数组元素，
+ *   提前执行不会访问非法地址
+ * 内层循环外提到它的preheader中的指令属于外层循环，处理外层循环时可以继续外提
+ * 判断两个地址是否可能相同时只看它们沿GEP追溯到的根：不同的全局变量、不同的alloca互不相同，
+ * 来自参数等其他来源的地址可能指向任何全局数组，但不会指向本函数的alloca
+ */
+public class LICM implements OptForIR {
+    //不写程序内存的库函数，循环中调用它们不妨碍load外提
+    private static final Set<String> memoryFreeCalls = Set.of("getint", "getch", "getfloat", "putint", "putch",
+            "putfloat", "putarray", "putfarray", "putf", "_sysy_starttime", "_sysy_stoptime");
+
+    //本函数中定义每个值的指令，参数、全局变量和常量不在其中
+    private final Map<IRValueRef, IRInstruction> definitions = new HashMap<>();
+    private boolean changed;
+
+    @Override
+    public Set<Analysis> getRequiredAnalyses() {
+        return EnumSet.of(Analysis.LOOPS);
+    }
+
+    @Override
+    public Set<Analysis> getPreservedAnalyses() {
+        //只在块之间移动指令，不改变控制流
+        return EnumSet.of(Analysis.CFG, Analysis.DOMINATORS, Analysis.LOOPS);
+    }
+
+    @Override
+    public boolean run(IRFunctionBlockRef irFunctionBlockRef) {
+        //移动指令不改变指令数，需要自己记录是否修改
+        Optimize(irFunctionBlockRef);
+        return changed;
+    }
+
+    @Override
+    public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
+        changed = false;
+        definitions.clear();
+        for (IRBaseBlockRef block : irFunctionBlockRef.getBaseBlocks()) {
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+                if (!(inst instanceof StoreInstruction || inst instanceof BranchInstruction
+                        || inst instanceof ReturnInstruction)) {
+                    definitions.put(inst.getOperands().get(0), inst);
+                }
+            }
+        }
+        CompilationContext context = CompilationContext.current();
+        LoopInfo loopInfo = context.getAnalysisManager().getLoopInfo(irFunctionBlockRef);
+        DomAnalysis domAnalysis = context.getAnalysisManager().getDomAnalysis(irFunctionBlockRef);
+        List<LoopInfo.Loop> loops = loopInfo.getLoops();
+        //getLoops中外层循环在内层之前，倒序处理使内层先外提
+        for (int i = loops.size() - 1; i >= 0; i--) {
+            hoistLoop(loops.get(i), domAnalysis);
+        }
+        definitions.clear();
+    }
+
+    private void hoistLoop(LoopInfo.Loop loop, DomAnalysis domAnalysis) {
+        IRBaseBlockRef preheader = loop.getPreheader();
+        if (preheader == null) {
+            return;
+        }
+        //循环中store的地址的根，有可能写内存的调用时为null，此时不外提load
+        List<IRValueRef> storedRoots = new ArrayList<>();
+        for (IRBaseBlockRef block : loop.getBlocks()) {
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null && storedRoots != null; inst = inst.getNext()) {
+                if (inst instanceof StoreInstruction) {
+                    storedRoots.add(rootOf(inst.getOperands().get(2)));
+                } else if (inst instanceof CallInstruction
+                        && !memoryFreeCalls.contains(((CallInstruction) inst).getFunction().getFunctionName())) {
+                    storedRoots = null;
+                }
+            }
+            if (storedRoots == null) {
+                break;
+            }
+        }
+        IRInstruction insertPoint = IRGetLastInstruction(preheader);
+        for (IRBaseBlockRef block : domAnalysis.getReversePostOrder()) {
+            if (!loop.contains(block)) {
+                continue;
+            }
+            IRInstruction next;
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = next) {
+                next = inst.getNext();
+                if (isHoistable(inst, loop, storedRoots)) {
+                    inst.removeFromParent();
+                    preheader.insertInstructionBefore(inst, insertPoint);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private boolean isHoistable(IRInstruction inst, LoopInfo.Loop loop, List<IRValueRef> storedRoots) {
+        if (inst instanceof CalculateInstruction) {
+            String type = ((CalculateInstruction) inst).getType();
+            if (type.equals("sdiv") || type.equals("srem")) {
+                IRValueRef divisor = inst.getOperands().get(2);
+                if (!(divisor instanceof IRConstIntRef) || ((IRConstIntRef) divisor).getValue() == 0) {
+                    return false;
+                }
+            }
+        } else if (inst instanceof LoadInstruction) {
+            if (storedRoots == null || !isSafeToLoad(inst.getOperands().get(1))) {
+                return false;
+            }
+            IRValueRef root = rootOf(inst.getOperands().get(1));
+            for (IRValueRef storedRoot : storedRoots) {
+                if (mayAlias(root, storedRoot)) {
+                    return false;
+                }
+            }
+        } else if (!(inst instanceof CompareInstruction || inst instanceof GetElementPointerInstruction
+                || inst instanceof ZextInstruction || inst instanceof TypeTransferInstruction)) {
+            return false;
+        }
+        List<IRValueRef> operands = inst.getOperands();
+        for (IRValueRef operand : operands.subList(1, operands.size())) {
+            IRInstruction definition = definitions.get(operand);
+            if (definition != null && loop.contains(definition.getBaseBlock())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * 全局变量、alloca得到的变量的地址总是合法的，从它们出发、下标都是不越界的常量的GEP也是合法的
+     * 第一个下标是指针运算，只能为0
+     */
+    private boolean isSafeToLoad(IRValueRef pointer) {
+        IRInstruction definition = definitions.get(pointer);
+        if (pointer instanceof IRGlobalRegRef || definition instanceof AllocateInstruction) {
+            return true;
+        }
+        if (!(definition instanceof GetElementPointerInstruction gep)) {
+            return false;
+        }
+        List<IRValueRef> index = gep.getIndex();
+        if (!(index.get(0) instanceof IRConstIntRef first) || first.getValue() != 0) {
+            return false;
+        }
+        IRType type = ((IRPointerType) gep.getBase().getType()).getBaseType();
+        for (IRValueRef value : index.subList(1, index.size())) {
+            if (!(type instanceof IRArrayType arrayType) || !(value instanceof IRConstIntRef constant)
+                    || constant.getValue() < 0 || constant.getValue() >= arrayType.getLength()) {
+                return false;
+            }
+            type = arrayType.getBaseType();
+        }
+        return isSafeToLoad(gep.getBase());
+    }
+
+    //沿GEP的基地址追溯到全局变量、alloca的结果或者其他来源(参数、load得到的指针)
+    private IRValueRef rootOf(IRValueRef pointer) {
+        IRInstruction definition = definitions.get(pointer);
+        while (definition instanceof GetElementPointerInstruction) {
+            pointer = ((GetElementPointerInstruction) definition).getBase();
+            definition = definitions.get(pointer);
+        }
+        return pointer;
+    }
+
+    private boolean mayAlias(IRValueRef root1, IRValueRef root2) {
+        if (root1 == root2) {
+            return true;
+        }
+        boolean local1 = definitions.get(root1) instanceof AllocateInstruction;
+        boolean local2 = definitions.get(root2) instanceof AllocateInstruction;
+        if (local1 || local2) {
+            //alloca只能通过它自己访问
+            return false;
+        }
+        //两个不同的全局变量不会重叠，其余情况下至少有一个地址来源未知
+        return !(root1 instanceof IRGlobalRegRef && root2 instanceof IRGlobalRegRef);
+    }
+}
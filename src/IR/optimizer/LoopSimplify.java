@@ -0,0 +1,128 @@
+package IR.optimizer;
+
+import IR.Analysis;
+import IR.CompilationContext;
+import IR.IRInstruction.BranchInstruction;
+import IR.IRInstruction.IRInstruction;
+import IR.IRInstruction.PhiInstruction;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRValueRef;
+import IR.IRValueRef.IRVirtualRegRef;
+import IR.LoopInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static IR.IRInstruction.IRInstruction.IRGetOperand;
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+import static IR.IRValueRef.IRBaseBlockRef.IRGetLastInstruction;
+
+/**
+ * 循环规范化，为之后的循环优化提供固定的形状
+ * 1.preheader：循环头在循环外有多个前驱，或唯一的前驱还跳转到别处时，新建一个只跳转到循环头的块，
+ *   循环外的前驱都改为跳转到它，循环头phi中来自这些前驱的值合并为preheader中的一条phi
+ * 2.单一latch：循环有多条回边(如continue)时，新建一个只跳转到循环头的块，所有回边改为先跳转到它，
+ *   循环头phi中来自各latch的值同样合并为新块中的一条phi
+ * 循环头是入口块(没有循环外的前驱)时不插入preheader
+ * 合并latch会在每条回边上多一次phi的复制，只需要preheader的优化(如LICM)可以用LoopSimplify(false)只做第1步
+ * 插入的块紧挨着循环头之前或最后一个latch之后，后端的FallThrough可以去掉其中的跳转
+ */
+public class LoopSimplify implements OptForIR {
+    //先收集所有循环要修改的边，再统一修改；每个循环只修改指向自己循环头的边，互不影响
+    private record LoopShape(IRBaseBlockRef header, List<IRBaseBlockRef> outsidePreds, List<IRBaseBlockRef> latches,
+                             boolean needPreheader) {
+    }
+
+    private final boolean singleLatch;
+
+    public LoopSimplify() {
+        this(true);
+    }
+
+    /*singleLatch为false时只插入preheader，不合并latch*/
+    public LoopSimplify(boolean singleLatch) {
+        this.singleLatch = singleLatch;
+    }
+
+    @Override
+    public Set<Analysis> getRequiredAnalyses() {
+        return EnumSet.of(Analysis.LOOPS);
+    }
+
+    @Override
+    public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
+        LoopInfo loopInfo = CompilationContext.current().getAnalysisManager().getLoopInfo(irFunctionBlockRef);
+        List<LoopShape> shapes = new ArrayList<>();
+        for (LoopInfo.Loop loop : loopInfo.getLoops()) {
+            List<IRBaseBlockRef> outsidePreds = new ArrayList<>();
+            for (IRBaseBlockRef pred : loop.getHeader().getPredList()) {
+                if (!loop.contains(pred) && !outsidePreds.contains(pred)) {
+                    outsidePreds.add(pred);
+                }
+            }
+            boolean needPreheader = !outsidePreds.isEmpty() && loop.getPreheader() == null;
+            if (needPreheader || singleLatch && loop.getLatches().size() > 1) {
+                //latches按在函数中的顺序排列，新的latch放在最后一个之后
+                List<IRBaseBlockRef> latches = new ArrayList<>();
+                for (IRBaseBlockRef block : loop.getBlocks()) {
+                    if (loop.getLatches().contains(block)) {
+                        latches.add(block);
+                    }
+                }
+                shapes.add(new LoopShape(loop.getHeader(), outsidePreds, latches, needPreheader));
+            }
+        }
+        for (LoopShape shape : shapes) {
+            if (shape.needPreheader()) {
+                IRBaseBlockRef preheader = new IRBaseBlockRef("preheader");
+                irFunctionBlockRef.insertBaseBlockBefore(preheader, shape.header());
+                redirectEdges(shape.header(), shape.outsidePreds(), preheader);
+            }
+            if (singleLatch && shape.latches().size() > 1) {
+                IRBaseBlockRef latch = new IRBaseBlockRef("latch");
+                irFunctionBlockRef.insertBaseBlockAfter(latch, shape.latches().get(shape.latches().size() - 1));
+                redirectEdges(shape.header(), shape.latches(), latch);
+            }
+        }
+    }
+
+    /*
+     * 把preds中每个块到header的边改为先经过newBlock，newBlock已经在函数中且为空
+     * header的phi中来自preds的值合并为newBlock中的phi；preds只有一个时直接改为来自newBlock
+     */
+    private void redirectEdges(IRBaseBlockRef header, List<IRBaseBlockRef> preds, IRBaseBlockRef newBlock) {
+        for (IRInstruction instruction = IRGetFirstInstruction(header);
+             instruction instanceof PhiInstruction; instruction = instruction.getNext()) {
+            PhiInstruction phi = (PhiInstruction) instruction;
+            if (preds.size() == 1) {
+                phi.replaceIncomingBlock(preds.get(0), newBlock);
+                continue;
+            }
+            IRValueRef result = phi.getOperands().get(0);
+            IRValueRef merged = new IRVirtualRegRef("phi", result.getType());
+            PhiInstruction mergedPhi = new PhiInstruction(Collections.singletonList(merged), newBlock);
+            newBlock.appendInstr(mergedPhi);
+            for (IRBaseBlockRef pred : preds) {
+                IRValueRef value = phi.getIncomingValues().get(pred);
+                if (value != null) {
+                    mergedPhi.setIncomingValue(value, pred);
+                    phi.removeIncomingValue(pred);
+                }
+            }
+            phi.setIncomingValue(merged, newBlock);
+        }
+        newBlock.appendInstr(new BranchInstruction(Collections.singletonList(header), newBlock));
+        for (IRBaseBlockRef pred : preds) {
+            IRInstruction branch = IRGetLastInstruction(pred);
+            for (int i = 0; i < branch.getOperands().size(); i++) {
+                if (IRGetOperand(branch, i) == header) {
+                    branch.IRSetOperand(i, newBlock);
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package IR.optimizer;
 
+import IR.Analysis;
+import IR.CompilationContext;
 import IR.DomAnalysis;
 import IR.IRInstruction.*;
 
@@ -7,7 +9,6 @@ import IR.IRType.IRFloatType;
 import IR.IRType.IRInt32Type;
 import IR.IRType.IRType;
 import IR.IRValueRef.*;
-import backend.MemoryRegisterAlloc;
 
 import java.util.*;
 
@@ -18,21 +19,22 @@ public class Mem2Reg implements OptForIR {
     //需要进行Mem2Reg优化的所有分配指令。
     Map<String, IRValueRef> allocaVars = new HashMap<>();
     //分配指令在哪些基本块中被定义
-    Map<IRValueRef, Set<IRBaseBlockRef>> varDefs = new HashMap<>();
-    //前驱
-    Map<IRBaseBlockRef, List<IRBaseBlockRef>> predecessors;
-    MemoryRegisterAlloc memoryRegisterAlloc = new MemoryRegisterAlloc();
+    //按分配指令、基本块在函数中的顺序迭代，插入的phi的顺序不依赖于哈希值，-j并行编译时输出与串行一致
+    Map<IRValueRef, Set<IRBaseBlockRef>> varDefs = new LinkedHashMap<>();
+
+    @Override
+    public Set<Analysis> getRequiredAnalyses() {
+        return EnumSet.of(Analysis.DOMINATORS);
+    }
 
     @Override
     public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
-        //对于基本块过大的函数不做优化
-        if (irFunctionBlockRef.getBaseBlocks().size() > 5000){
-            return;
-        }
         //支配边界
-        DomAnalysis domAnalysis = new DomAnalysis(irFunctionBlockRef);
+        DomAnalysis domAnalysis = CompilationContext.current().getAnalysisManager().getDomAnalysis(irFunctionBlockRef);
         Map<IRBaseBlockRef, Set<IRBaseBlockRef>> df = domAnalysis.getDominanceFrontiers();
-        predecessors = domAnalysis.computePredecessors(irFunctionBlockRef);
+        //同一个Mem2Reg会依次处理多个函数，只保留当前函数的分配指令
+        allocaVars.clear();
+        varDefs.clear();
         //收集所有需要优化的分配指令
         for (IRBaseBlockRef block : irFunctionBlockRef.getBaseBlocks()) {
             List<IRInstruction> instructions = block.getInstructionList();
@@ -43,14 +45,14 @@ public class Mem2Reg implements OptForIR {
                     if ((((AllocateInstruction) inst).getType().getText().equals("i32*"))
                             || (((AllocateInstruction) inst).getType().getText().equals("float*"))) {
                         IRValueRef operand = inst.getOperands().get(0);
-                        varDefs.put(operand, new HashSet<>());
+                        varDefs.put(operand, new LinkedHashSet<>());
                         allocaVars.put(((AllocateInstruction) inst).getName(), operand);
                     }
                 } else if (inst instanceof BranchInstruction ||
                         inst instanceof ReturnInstruction) {
+                    //删除终结指令之后的死代码
                     while (iterator.hasNext()) {
-                        iterator.next();
-                        iterator.remove();
+                        iterator.next().eraseFromParent();
                     }
                     break;
                 }
@@ -77,7 +79,7 @@ public class Mem2Reg implements OptForIR {
 
     private Map<PhiInstruction, IRValueRef> insertPhiNodes(Map<IRBaseBlockRef, Set<IRBaseBlockRef>> dominanceFrontiers) {
         //存储新插入的 phi 指令及其关联的变量
-        Map<PhiInstruction, IRValueRef> newPhis = new HashMap<>();
+        Map<PhiInstruction, IRValueRef> newPhis = new LinkedHashMap<>();
         //已访问的基本块
         Set<IRBaseBlockRef> visited = new HashSet<>();
 
@@ -137,6 +139,7 @@ public class Mem2Reg implements OptForIR {
 
                 if (inst instanceof AllocateInstruction) {
                     if (allocaVars.containsKey(((AllocateInstruction) inst).getName())) {
+                        inst.dropAllReferences();
                         iterator.remove();
                     }
                 } else if (inst instanceof LoadInstruction) {
@@ -144,47 +147,15 @@ public class Mem2Reg implements OptForIR {
                     if (allocaVars.containsKey(pointer.getText())) {
                         //将用到 load 结果的地方都替换成 IncomingVals[L]
                         IRValueRef res = inst.getOperands().get(0);
-                        for (int i = 0; i < irFunctionBlockRef.getBaseBlocks().size(); i++) {
-                            IRBaseBlockRef replaceBlock = irFunctionBlockRef.getBaseBlocks().get(i);
-                            for (int j = 0; j < replaceBlock.getInstructionList().size(); j++) {
-                                IRInstruction instruction = replaceBlock.getInstructionList().get(j);
-                                List<IRValueRef> operands = instruction.getOperands();
-                                //call指令传参
-                                if (instruction instanceof CallInstruction callInstruction) {
-                                    for (int k = 0; k < callInstruction.getParams().size(); k++) {
-                                        if (callInstruction.getParams().get(k).equals(res)) {
-                                            callInstruction.setParams(k, incomingVals.get(pointer));
-                                        }
-                                    }
-                                }
-                                for (int k = 0; k < operands.size(); k++) {
-                                    if (operands.get(k) == null) {
-                                        continue;
-                                    }
-                                    if (operands.get(k).getText().equals(res.getText())) {
-                                        if (instruction instanceof GetElementPointerInstruction) {
-                                            ((GetElementPointerInstruction) instruction).setIndex(k - 2, incomingVals.get(pointer));
-                                            instruction.IRSetOperand(k, incomingVals.get(pointer));
-                                        } else if (instruction instanceof TypeTransferInstruction) {
-                                            if (k == 1) {
-                                                ((TypeTransferInstruction) instruction).setOrigin(incomingVals.get(pointer));
-                                            } else if (k == 0) {
-                                                ((TypeTransferInstruction) instruction).setResReg(incomingVals.get(pointer));
-                                            }
-                                            instruction.IRSetOperand(k, incomingVals.get(pointer));
-                                        } else {
-                                            instruction.IRSetOperand(k, incomingVals.get(pointer));
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                        res.replaceAllUsesWith(incomingVals.get(pointer));
+                        inst.dropAllReferences();
                         iterator.remove();
                     }
                 } else if (inst instanceof StoreInstruction) {
                     IRValueRef pointer = inst.getOperands().get(2);
                     if (allocaVars.containsKey(pointer.getText())) {
                         incomingVals.put(pointer, inst.getOperands().get(1));
+                        inst.dropAllReferences();
                         iterator.remove();
                     }
                 } else if (inst instanceof PhiInstruction && newPhis.containsKey(inst)) {
@@ -193,7 +164,7 @@ public class Mem2Reg implements OptForIR {
                 }
             }
             //更新工作集维护phi指令
-            for (IRBaseBlockRef succ : memoryRegisterAlloc.getImmediateSuccessors(block)) {
+            for (IRBaseBlockRef succ : block.getSuccList()) {
                 workList.add(new AbstractMap.SimpleEntry<>(succ, new HashMap<>(incomingVals)));
                 for (IRInstruction phiInst : succ.getInstructionList()) {
                     if (phiInst instanceof PhiInstruction && newPhis.containsKey(phiInst)) {
@@ -221,46 +192,21 @@ public class Mem2Reg implements OptForIR {
             // 遍历基本块中的所有指令
             while (iterator.hasNext()) {
                 IRInstruction inst = iterator.next();
-                if (inst instanceof PhiInstruction && !isUsed(inst, irFunctionBlockRef)) {
+                if (inst instanceof PhiInstruction && !isUsed(inst)) {
+                    inst.dropAllReferences();
                     iterator.remove();
                 }
             }
         }
     }
 
-    private boolean isUsed(IRInstruction inst, IRFunctionBlockRef irFunctionBlockRef) {
-        for (IRBaseBlockRef block : irFunctionBlockRef.getBaseBlocks()) {
-            for (IRInstruction instruction : block.getInstructionList()) {
-                IRValueRef phiName = inst.getOperands().get(0);
-                if (inst.equals(instruction)) {
-                    continue;
-                }
-                if (instruction instanceof CallInstruction callInstruction) {
-                    for (int i = 0; i < callInstruction.getParams().size(); i++) {
-                        if (callInstruction.getParams().get(i).equals(phiName)) {
-                            return true;
-                        }
-                    }
-                } else if (instruction instanceof GetElementPointerInstruction getElementPointerInstruction) {
-                    for (int i = 0; i < getElementPointerInstruction.getIndex().size(); i++) {
-                        if (getElementPointerInstruction.getIndex().get(i).equals(phiName)) {
-                            return true;
-                        }
-                    }
-                } else if (instruction instanceof PhiInstruction phiInstruction) {
-                    for (IRBaseBlockRef key : phiInstruction.getIncomingValues().keySet()) {
-                        if (phiInstruction.getIncomingValues().get(key).equals(phiName)) {
-                            return true;
-                        }
-                    }
-                }
-                for (IRValueRef operand : instruction.getOperands()) {
-                    if (phiName.equals(operand)) {
-                        return true;
-                    }
-                }
+    private boolean isUsed(IRInstruction inst) {
+        //phi自身引用自己不算使用
+        for (IRInstruction user : inst.getOperands().get(0).getUsers()) {
+            if (!user.equals(inst)) {
+                return true;
             }
         }
         return false;
     }
-}
\ No newline at end of file
+}
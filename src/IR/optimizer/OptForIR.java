@@ -1,7 +1,33 @@
 package IR.optimizer;
 
+import IR.Analysis;
 import IR.IRValueRef.IRFunctionBlockRef;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public interface OptForIR {
     void Optimize(IRFunctionBlockRef irFunctionBlockRef);
+
+    /**
+     * 执行一次优化，返回函数是否被修改，OptimizerFactory用它判断清理类优化是否已经不动点
+     * 默认比较执行前后的指令数和基本块数，现有的优化每次修改都会删除或增加指令、基本块；
+     * 只替换操作数而不改变规模的优化需要覆盖该方法
+     */
+    default boolean run(IRFunctionBlockRef irFunctionBlockRef) {
+        int instructions = irFunctionBlockRef.getInstructionCount();
+        int blocks = irFunctionBlockRef.getBaseBlocks().size();
+        Optimize(irFunctionBlockRef);
+        return instructions != irFunctionBlockRef.getInstructionCount() || blocks != irFunctionBlockRef.getBaseBlocks().size();
+    }
+
+    /*执行前需要的分析*/
+    default Set<Analysis> getRequiredAnalyses() {
+        return EnumSet.noneOf(Analysis.class);
+    }
+
+    /*修改函数后仍然有效的分析，默认全部失效*/
+    default Set<Analysis> getPreservedAnalyses() {
+        return EnumSet.noneOf(Analysis.class);
+    }
 }
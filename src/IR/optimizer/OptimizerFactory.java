@@ -1,28 +1,170 @@
 package IR.optimizer;
 
+import IR.Analysis;
+import IR.AnalysisManager;
+import IR.CompilationContext;
 import IR.IRValueRef.IRFunctionBlockRef;
+import IR.PassTimer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * IR优化的流水线，按优化级别(-O0/-O1/-O2)生成
+ * -O0：不做优化
+ * -O1：Mem2Reg、SCCP、ConstantPro、BrCmpOpt、TailRecursionEli、LoopSimplify(只插入preheader)、LICM、
+ *      StrengthReduction、GVN各执行一次，也是不给出级别时的默认流水线
+ * -O2：在-O1的基础上，GVN、ConstantPro、BrCmpOpt作为一组清理优化反复执行，直到一轮中都没有修改函数；
+ *      目前在test/functional和基准程序上第二轮都没有可做的修改，生成的代码与-O1相同，只多花编译时间
+ * 流水线的每一步都带有PassBudget，函数超过规模上限时跳过该步(如基本块多于5000个的函数不做Mem2Reg)
+ */
 public class OptimizerFactory {
-    private final List<OptForIR> optForIR;
+    public static final int DEFAULT_LEVEL = 1;
+    public static final int MAX_LEVEL = 2;
+    //清理优化最多执行的轮数，防止两个优化来回修改时不停止
+    private static final int maxCleanupRounds = 8;
+    //尾递归消除时每个参数都要在新的入口块中生成一条phi，参数过多时不做
+    private static final PassBudget tailRecursionBudget = PassBudget.unlimited().withMaxParams(30);
+    //超过该规模的函数只执行一轮清理优化，不再反复执行
+    private static final PassBudget cleanupRoundBudget = PassBudget.unlimited().withMaxInstructions(200000);
+    //有数千个分支的函数中几乎每个汇合块都会插入phi，每个phi的lost copy都经过栈上的临时位置，
+    //栈帧很大时每次访问还要先算出地址，比Mem2Reg之前的load/store更慢，超过该规模的函数不做Mem2Reg
+    private static final PassBudget mem2RegBudget = PassBudget.unlimited().withMaxBlocks(5000);
+
+    private final int level;
+    private final List<Step> pipeline = new ArrayList<>();
+    private final List<OptForIR> optForIR = new ArrayList<>();
+
+    //流水线中的一步：一组优化依次执行，untilNoChange为true时反复执行直到这一组都没有修改函数
+    private record Step(List<OptForIR> passes, PassBudget budget, boolean untilNoChange) {
+    }
 
     public OptimizerFactory() {
-        this.optForIR = new ArrayList<>();
-//         添加所有优化器
-        optForIR.add(new Mem2Reg());
-        optForIR.add(new ConstantPro());
-        optForIR.add(new BrCmpOpt());
-        optForIR.add(new TailRecursionEli());
-        optForIR.add(new CommonSubEli());
+        this(DEFAULT_LEVEL);
+    }
+
+    public OptimizerFactory(int level) {
+        this.level = Math.max(0, Math.min(level, MAX_LEVEL));
+        if (this.level == 0) {
+            return;
+        }
+        Mem2Reg mem2Reg = new Mem2Reg();
+        SCCP sccp = new SCCP();
+        ConstantPro constantPro = new ConstantPro();
+        BrCmpOpt brCmpOpt = new BrCmpOpt();
+        TailRecursionEli tailRecursionEli = new TailRecursionEli();
+        LoopSimplify loopSimplify = new LoopSimplify(false);
+        LICM licm = new LICM();
+        StrengthReduction strengthReduction = new StrengthReduction();
+        GVN gvn = new GVN();
+        addStep(mem2RegBudget, false, mem2Reg);
+        addStep(PassBudget.unlimited(), false, sccp);
+        addStep(PassBudget.unlimited(), false, constantPro);
+        addStep(PassBudget.unlimited(), false, brCmpOpt);
+        addStep(tailRecursionBudget, false, tailRecursionEli);
+        addStep(PassBudget.unlimited(), false, loopSimplify);
+        addStep(PassBudget.unlimited(), false, licm);
+        addStep(PassBudget.unlimited(), false, strengthReduction);
+        if (this.level == 1) {
+            addStep(PassBudget.unlimited(), false, gvn);
+        } else {
+            addStep(PassBudget.unlimited(), true, gvn, constantPro, brCmpOpt);
+        }
+    }
+
+    private void addStep(PassBudget budget, boolean untilNoChange, OptForIR... passes) {
+        pipeline.add(new Step(List.of(passes), budget, untilNoChange));
+        for (OptForIR pass : passes) {
+            if (!optForIR.contains(pass)) {
+                optForIR.add(pass);
+            }
+        }
+    }
+
+    /*
+     * 解析-O0/-O1/-O2等选项，返回优化级别，不是优化级别选项时返回-1
+     * 高于MAX_LEVEL的级别(如-O3)按MAX_LEVEL处理
+     */
+    public static int parseLevel(String option) {
+        if (!option.matches("-O[0-9]")) {
+            return -1;
+        }
+        return Math.min(option.charAt(2) - '0', MAX_LEVEL);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /*按第一次执行的顺序返回流水线中的所有优化，每个优化只出现一次，只用于读取*/
+    public List<OptForIR> getOptimizers() {
+        return Collections.unmodifiableList(optForIR);
     }
 
     public void optimize(IRFunctionBlockRef irFunctionBlockRef) {
-        for (OptForIR optForRISCV : optForIR) {
-            optForRISCV.Optimize(irFunctionBlockRef);
+        for (int i = 0; i < pipeline.size(); i++) {
+            optimizeStep(irFunctionBlockRef, i);
         }
     }
-}
 
+    /*流水线的步数，-O0时为0*/
+    public int getStepCount() {
+        return pipeline.size();
+    }
+
+    /*第index步的名字，为这一步各个优化的类名，反复执行的一组加上"*"，如"GVN+ConstantPro+BrCmpOpt*"*/
+    public String getStepName(int index) {
+        Step step = pipeline.get(index);
+        StringBuilder sb = new StringBuilder();
+        for (OptForIR pass : step.passes()) {
+            sb.append(sb.length() == 0 ? "" : "+").append(pass.getClass().getSimpleName());
+        }
+        return step.untilNoChange() ? sb.append('*').toString() : sb.toString();
+    }
 
+    /*
+     * 只执行流水线的第index步，依次对每一步调用等价于optimize
+     * 用于观察每一步的效果，例如TestIR -interp -passes在每一步之后解释执行整个模块
+     */
+    public void optimizeStep(IRFunctionBlockRef irFunctionBlockRef, int index) {
+        Step step = pipeline.get(index);
+        if (!step.budget().allows(irFunctionBlockRef)) {
+            return;
+        }
+        if (!step.untilNoChange()) {
+            runPasses(step.passes(), irFunctionBlockRef);
+            return;
+        }
+        int round = 1;
+        while (runPasses(step.passes(), irFunctionBlockRef) && round < maxCleanupRounds
+                && cleanupRoundBudget.allows(irFunctionBlockRef)) {
+            round++;
+        }
+    }
+
+    /*
+     * 依次执行一组优化，返回是否有优化修改了函数
+     * 执行前先准备优化需要的分析(已缓存的直接复用)，修改了函数后让没有被保持的分析失效
+     */
+    private boolean runPasses(List<OptForIR> passes, IRFunctionBlockRef irFunctionBlockRef) {
+        CompilationContext context = CompilationContext.current();
+        PassTimer timer = context.getPassTimer();
+        AnalysisManager analysisManager = context.getAnalysisManager();
+        boolean changed = false;
+        for (OptForIR pass : passes) {
+            for (Analysis analysis : pass.getRequiredAnalyses()) {
+                if (!analysisManager.isCached(irFunctionBlockRef, analysis)) {
+                    timer.run(analysis.getClassName(), null, null, () -> analysisManager.compute(irFunctionBlockRef, analysis));
+                }
+            }
+            boolean passChanged = timer.call(pass.getClass().getSimpleName(), irFunctionBlockRef::getInstructionCount,
+                    () -> irFunctionBlockRef.getBaseBlocks().size(), () -> pass.run(irFunctionBlockRef));
+            if (passChanged) {
+                analysisManager.invalidate(irFunctionBlockRef, pass.getPreservedAnalyses());
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,46 @@
+package IR.optimizer;
+
+import IR.IRValueRef.IRFunctionBlockRef;
+
+/**
+ * 单个优化在一个函数上的规模上限，函数超过任意一项上限时跳过该优化
+ * 以前这些上限直接写在各个优化里(Mem2Reg中基本块多于5000个、TailRecursionEli中参数多于30个时返回)，现在由流水线统一给出
+ * 上限为Integer.MAX_VALUE表示不限制
+ */
+public final class PassBudget {
+    private static final PassBudget unlimitedBudget = new PassBudget(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final int maxBlocks;
+    private final int maxInstructions;
+    private final int maxParams;
+
+    private PassBudget(int maxBlocks, int maxInstructions, int maxParams) {
+        this.maxBlocks = maxBlocks;
+        this.maxInstructions = maxInstructions;
+        this.maxParams = maxParams;
+    }
+
+    public static PassBudget unlimited() {
+        return unlimitedBudget;
+    }
+
+    public PassBudget withMaxBlocks(int maxBlocks) {
+        return new PassBudget(maxBlocks, maxInstructions, maxParams);
+    }
+
+    public PassBudget withMaxInstructions(int maxInstructions) {
+        return new PassBudget(maxBlocks, maxInstructions, maxParams);
+    }
+
+    public PassBudget withMaxParams(int maxParams) {
+        return new PassBudget(maxBlocks, maxInstructions, maxParams);
+    }
+
+    public boolean allows(IRFunctionBlockRef function) {
+        if (function.getParams().size() > maxParams || function.getBaseBlocks().size() > maxBlocks) {
+            return false;
+        }
+        //统计指令数需要遍历所有基本块，没有指令数上限时不统计
+        return maxInstructions == Integer.MAX_VALUE || function.getInstructionCount() <= maxInstructions;
+    }
+}
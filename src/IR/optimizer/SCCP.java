@@ -0,0 +1,425 @@
+package IR.optimizer;
+
+import IR.IRConst;
+import IR.IRInstruction.*;
+import IR.IRType.IRFloatType;
+import IR.IRType.IRInt1Type;
+import IR.IRType.IRInt32Type;
+import IR.IRType.IRType;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRConstFloatRef;
+import IR.IRValueRef.IRConstIntRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRValueRef;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+
+/**
+ * 稀疏条件常量传播(Wegman-Zadeck)
+ * 每个值在格上取UNDEFINED(还没有确定)、CONSTANT(int或float常量)、OVERDEFINED(不是常量)之一，只会沿这个顺序下降
+ * 从入口块出发，只计算可执行的基本块中的指令，phi只合并可执行的边上的值；
+ * 条件为常量的跳转只使另一个目标的边可执行，因此由常量决定的分支另一侧的代码不会影响结果
+ * 求出不动点后：值为常量的计算、比较、zext、类型转换和phi被替换为常量并删除，条件为常量的跳转改为无条件跳转，
+ * 不可执行的基本块被删除，phi中不可执行的边对应的incoming value被删除
+ * 与运行时结果不一致的情况不折叠：除数为0的sdiv/srem、NaN参与的浮点比较、NaN转换为整数
+ */
+public class SCCP implements OptForIR {
+    private enum State {UNDEFINED, CONSTANT, OVERDEFINED}
+
+    //格中的值，CONSTANT时按type保存intValue(i1、i32)或floatValue(float)
+    private record LatticeValue(State state, IRType type, int intValue, float floatValue) {
+        boolean isFloat() {
+            return type instanceof IRFloatType;
+        }
+
+        IRValueRef toConstant() {
+            return isFloat() ? new IRConstFloatRef(floatValue) : new IRConstIntRef(intValue, type);
+        }
+    }
+
+    private static final LatticeValue UNDEFINED = new LatticeValue(State.UNDEFINED, null, 0, 0);
+    private static final LatticeValue OVERDEFINED = new LatticeValue(State.OVERDEFINED, null, 0, 0);
+
+    //由本函数中的计算、比较、zext、类型转换和phi定义的值，其余的值(参数、全局变量、load和call的结果等)都不是常量
+    private final Map<IRValueRef, LatticeValue> values = new HashMap<>();
+    private final Set<IRBaseBlockRef> executableBlocks = new HashSet<>();
+    //以边的终点为键，可执行的边的起点
+    private final Map<IRBaseBlockRef, Set<IRBaseBlockRef>> executableEdges = new HashMap<>();
+    private final Deque<IRBaseBlockRef> blockWorkList = new ArrayDeque<>();
+    private final Deque<IRInstruction> instructionWorkList = new ArrayDeque<>();
+    private boolean changed;
+
+    @Override
+    public boolean run(IRFunctionBlockRef irFunctionBlockRef) {
+        Optimize(irFunctionBlockRef);
+        return changed;
+    }
+
+    @Override
+    public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
+        values.clear();
+        executableBlocks.clear();
+        executableEdges.clear();
+        changed = false;
+        List<IRBaseBlockRef> blocks = new ArrayList<>(irFunctionBlockRef.getBaseBlocks());
+        if (blocks.isEmpty()) {
+            return;
+        }
+        for (IRBaseBlockRef block : blocks) {
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+                if (isFoldable(inst)) {
+                    values.put(inst.getOperands().get(0), UNDEFINED);
+                }
+            }
+        }
+        solve(blocks);
+        rewrite(irFunctionBlockRef, blocks);
+    }
+
+    private static boolean isFoldable(IRInstruction inst) {
+        return inst instanceof CalculateInstruction || inst instanceof CompareInstruction || inst instanceof ZextInstruction
+                || inst instanceof TypeTransferInstruction || inst instanceof PhiInstruction;
+    }
+
+    private static boolean isTerminator(IRInstruction inst) {
+        return inst instanceof BranchInstruction || inst instanceof ReturnInstruction;
+    }
+
+    /*
+     * 迭代到不动点；结束时可执行块中还有条件为UNDEFINED的跳转(条件来自未初始化的值)时，
+     * 把条件当作OVERDEFINED，两条边都可执行，再继续迭代
+     */
+    private void solve(List<IRBaseBlockRef> blocks) {
+        executableBlocks.add(blocks.get(0));
+        blockWorkList.add(blocks.get(0));
+        boolean resolved;
+        do {
+            while (!blockWorkList.isEmpty() || !instructionWorkList.isEmpty()) {
+                while (!instructionWorkList.isEmpty()) {
+                    visit(instructionWorkList.poll());
+                }
+                if (!blockWorkList.isEmpty()) {
+                    IRBaseBlockRef block = blockWorkList.poll();
+                    for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+                        visit(inst);
+                        if (isTerminator(inst)) {
+                            break;
+                        }
+                    }
+                }
+            }
+            resolved = false;
+            for (IRBaseBlockRef block : blocks) {
+                BranchInstruction branch = executableBlocks.contains(block) ? getTerminatingBranch(block) : null;
+                if (branch != null && branch.getType() == BranchInstruction.DOUBLE
+                        && getValue(branch.getOperands().get(0)).state() == State.UNDEFINED) {
+                    values.put(branch.getOperands().get(0), OVERDEFINED);
+                    markEdge(block, branch.getBaseBlock1());
+                    markEdge(block, branch.getBaseBlock2());
+                    resolved = true;
+                }
+            }
+        } while (resolved);
+    }
+
+    //基本块执行到的第一条终结指令是跳转时返回它，否则返回null
+    private static BranchInstruction getTerminatingBranch(IRBaseBlockRef block) {
+        for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+            if (isTerminator(inst)) {
+                return inst instanceof BranchInstruction ? (BranchInstruction) inst : null;
+            }
+        }
+        return null;
+    }
+
+    private void markEdge(IRBaseBlockRef from, IRBaseBlockRef to) {
+        if (!executableEdges.computeIfAbsent(to, block -> new HashSet<>()).add(from)) {
+            return;
+        }
+        if (executableBlocks.add(to)) {
+            blockWorkList.add(to);
+        } else {
+            //已经可执行的块多了一条可执行的入边，只需要重新计算其中的phi
+            for (IRInstruction inst = IRGetFirstInstruction(to); inst instanceof PhiInstruction; inst = inst.getNext()) {
+                instructionWorkList.add(inst);
+            }
+        }
+    }
+
+    private void visit(IRInstruction inst) {
+        if (inst instanceof BranchInstruction branch) {
+            if (branch.getType() == BranchInstruction.SINGLE) {
+                markEdge(branch.getBaseBlock(), branch.getBaseBlock1());
+                return;
+            }
+            LatticeValue condition = getValue(branch.getOperands().get(0));
+            if (condition.state() == State.CONSTANT) {
+                markEdge(branch.getBaseBlock(), condition.intValue() != 0 ? branch.getBaseBlock1() : branch.getBaseBlock2());
+            } else if (condition.state() == State.OVERDEFINED) {
+                markEdge(branch.getBaseBlock(), branch.getBaseBlock1());
+                markEdge(branch.getBaseBlock(), branch.getBaseBlock2());
+            }
+            return;
+        }
+        if (!isFoldable(inst)) {
+            return;
+        }
+        IRValueRef result = inst.getOperands().get(0);
+        LatticeValue oldValue = values.get(result);
+        if (oldValue == OVERDEFINED) {
+            return;
+        }
+        LatticeValue newValue = evaluate(inst);
+        if (newValue.equals(oldValue)) {
+            return;
+        }
+        //常量变成另一个常量只会在phi合并时发生，此时直接降为OVERDEFINED，保证每个值最多改变两次
+        if (oldValue.state() == State.CONSTANT && newValue.state() == State.CONSTANT) {
+            newValue = OVERDEFINED;
+        }
+        values.put(result, newValue);
+        for (IRInstruction user : result.getUsers()) {
+            if (executableBlocks.contains(user.getBaseBlock())) {
+                instructionWorkList.add(user);
+            }
+        }
+    }
+
+    private LatticeValue getValue(IRValueRef value) {
+        if (value instanceof IRConstIntRef constInt) {
+            //Mem2Reg用类型为float的IRConstIntRef表示未初始化的float变量
+            return value.getType() instanceof IRFloatType ? floatConstant(constInt.getValue())
+                    : intConstant(constInt.getValue(), value.getType());
+        }
+        if (value instanceof IRConstFloatRef constFloat) {
+            return floatConstant(constFloat.getValue());
+        }
+        return values.getOrDefault(value, OVERDEFINED);
+    }
+
+    private static LatticeValue intConstant(int value, IRType type) {
+        return new LatticeValue(State.CONSTANT, canonical(type), value, 0);
+    }
+
+    //Mem2Reg插入的phi的类型是新建的IRInt32Type/IRFloatType对象，格中的值统一使用全局唯一的类型对象，按引用比较类型
+    private static IRType canonical(IRType type) {
+        if (type instanceof IRInt32Type) {
+            return IRInt32Type.IRInt32Type();
+        }
+        if (type instanceof IRInt1Type) {
+            return IRInt1Type.IRInt1Type();
+        }
+        return type instanceof IRFloatType ? IRFloatType.IRFloatType() : type;
+    }
+
+    private static LatticeValue floatConstant(float value) {
+        return new LatticeValue(State.CONSTANT, IRFloatType.IRFloatType(), 0, value);
+    }
+
+    private static float asFloat(LatticeValue value) {
+        return value.isFloat() ? value.floatValue() : value.intValue();
+    }
+
+    private LatticeValue evaluate(IRInstruction inst) {
+        IRValueRef result = inst.getOperands().get(0);
+        if (inst instanceof PhiInstruction phi) {
+            Set<IRBaseBlockRef> preds = executableEdges.getOrDefault(phi.getBaseBlock(), Set.of());
+            LatticeValue merged = UNDEFINED;
+            for (Map.Entry<IRBaseBlockRef, IRValueRef> entry : phi.getIncomingValues().entrySet()) {
+                if (!preds.contains(entry.getKey())) {
+                    continue;
+                }
+                LatticeValue incoming = getValue(entry.getValue());
+                if (incoming.state() == State.OVERDEFINED
+                        || merged.state() == State.CONSTANT && incoming.state() == State.CONSTANT && !incoming.equals(merged)) {
+                    return OVERDEFINED;
+                }
+                if (incoming.state() == State.CONSTANT) {
+                    merged = incoming;
+                }
+            }
+            return merged.state() == State.CONSTANT && merged.type() != canonical(result.getType()) ? OVERDEFINED : merged;
+        }
+        List<LatticeValue> operands = new ArrayList<>();
+        for (IRValueRef operand : inst.getOperands().subList(1, inst instanceof ZextInstruction ? 2 : inst.getOperands().size())) {
+            LatticeValue value = getValue(operand);
+            if (value.state() == State.OVERDEFINED) {
+                return OVERDEFINED;
+            }
+            operands.add(value);
+        }
+        for (LatticeValue value : operands) {
+            if (value.state() == State.UNDEFINED) {
+                return UNDEFINED;
+            }
+        }
+        if (inst instanceof CalculateInstruction calculate) {
+            return calculate(calculate.getType(), operands.get(0), operands.get(1), result.getType());
+        }
+        if (inst instanceof CompareInstruction compare) {
+            return compare(compare.getCompareType(), operands.get(0), operands.get(1));
+        }
+        if (inst instanceof ZextInstruction) {
+            return intConstant(operands.get(0).intValue() & 1, result.getType());
+        }
+        LatticeValue origin = operands.get(0);
+        if (((TypeTransferInstruction) inst).getTransferType() == IRConst.IntToFloat) {
+            return floatConstant(origin.isFloat() ? origin.floatValue() : (float) origin.intValue());
+        }
+        float value = asFloat(origin);
+        //NaN转换的结果在RISC-V和Java中不同
+        return Float.isNaN(value) ? OVERDEFINED : intConstant((int) value, result.getType());
+    }
+
+    private LatticeValue calculate(String type, LatticeValue lhs, LatticeValue rhs, IRType resultType) {
+        switch (type) {
+            case "fadd":
+                return floatConstant(asFloat(lhs) + asFloat(rhs));
+            case "fsub":
+                return floatConstant(asFloat(lhs) - asFloat(rhs));
+            case "fmul":
+                return floatConstant(asFloat(lhs) * asFloat(rhs));
+            case "fdiv":
+                return floatConstant(asFloat(lhs) / asFloat(rhs));
+        }
+        if (lhs.isFloat() || rhs.isFloat()) {
+            return OVERDEFINED;
+        }
+        int l = lhs.intValue();
+        int r = rhs.intValue();
+        switch (type) {
+            case "add":
+                return intConstant(l + r, resultType);
+            case "sub":
+                return intConstant(l - r, resultType);
+            case "mul":
+                return intConstant(l * r, resultType);
+            case "sdiv":
+                //除数为0时RISC-V的结果与Java不同(Java抛出异常)
+                return r == 0 ? OVERDEFINED : intConstant(l / r, resultType);
+            case "srem":
+                return r == 0 ? OVERDEFINED : intConstant(l % r, resultType);
+            case "xor":
+                return intConstant(l ^ r, resultType);
+        }
+        return OVERDEFINED;
+    }
+
+    private LatticeValue compare(int compareType, LatticeValue lhs, LatticeValue rhs) {
+        int order;
+        if (lhs.isFloat() || rhs.isFloat()) {
+            float l = asFloat(lhs);
+            float r = asFloat(rhs);
+            if (Float.isNaN(l) || Float.isNaN(r)) {
+                return OVERDEFINED;
+            }
+            //不用Float.compare，它把-0.0和0.0当作不相等
+            order = l < r ? -1 : l > r ? 1 : 0;
+        } else {
+            order = Integer.compare(lhs.intValue(), rhs.intValue());
+        }
+        boolean result = switch (compareType) {
+            case IRConst.IREQ -> order == 0;
+            case IRConst.IRNE -> order != 0;
+            case IRConst.IRSGT -> order > 0;
+            case IRConst.IRSGE -> order >= 0;
+            case IRConst.IRSLT -> order < 0;
+            case IRConst.IRSLE -> order <= 0;
+            default -> throw new IllegalArgumentException("unknown compare type " + compareType);
+        };
+        return intConstant(result ? 1 : 0, IRInt1Type.IRInt1Type());
+    }
+
+    private void rewrite(IRFunctionBlockRef irFunctionBlockRef, List<IRBaseBlockRef> blocks) {
+        for (IRBaseBlockRef block : blocks) {
+            if (!executableBlocks.contains(block)) {
+                continue;
+            }
+            Set<IRBaseBlockRef> preds = executableEdges.getOrDefault(block, Set.of());
+            IRInstruction next;
+            boolean terminated = false;
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = next) {
+                next = inst.getNext();
+                if (terminated) {
+                    //终结指令之后的指令不会执行
+                    inst.eraseFromParent();
+                    changed = true;
+                } else if (inst instanceof PhiInstruction phi) {
+                    for (IRBaseBlockRef pred : new ArrayList<>(phi.getIncomingValues().keySet())) {
+                        if (!preds.contains(pred)) {
+                            phi.removeIncomingValue(pred);
+                            changed = true;
+                        }
+                    }
+                    replaceIfConstant(inst);
+                } else if (inst instanceof BranchInstruction branch) {
+                    terminated = true;
+                    if (branch.getType() == BranchInstruction.DOUBLE) {
+                        foldBranch(branch);
+                    }
+                } else if (inst instanceof ReturnInstruction) {
+                    terminated = true;
+                } else if (isFoldable(inst)) {
+                    replaceIfConstant(inst);
+                }
+            }
+        }
+        //只剩一个incoming value的phi直接用该值代替
+        for (IRBaseBlockRef block : blocks) {
+            IRInstruction next;
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst instanceof PhiInstruction; inst = next) {
+                next = inst.getNext();
+                Map<IRBaseBlockRef, IRValueRef> incoming = ((PhiInstruction) inst).getIncomingValues();
+                if (executableBlocks.contains(block) && incoming.size() == 1) {
+                    inst.getOperands().get(0).replaceAllUsesWith(incoming.values().iterator().next());
+                    inst.eraseFromParent();
+                    changed = true;
+                }
+            }
+        }
+        for (IRBaseBlockRef block : blocks) {
+            if (!executableBlocks.contains(block)) {
+                for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+                    inst.dropAllReferences();
+                }
+                irFunctionBlockRef.removeBaseBlock(block);
+                changed = true;
+            }
+        }
+    }
+
+    private void replaceIfConstant(IRInstruction inst) {
+        IRValueRef result = inst.getOperands().get(0);
+        LatticeValue value = values.get(result);
+        if (value != null && value.state() == State.CONSTANT) {
+            result.replaceAllUsesWith(value.toConstant());
+            inst.eraseFromParent();
+            changed = true;
+        }
+    }
+
+    //只有一条出边可执行的条件跳转改为无条件跳转
+    private void foldBranch(BranchInstruction branch) {
+        IRBaseBlockRef block = branch.getBaseBlock();
+        boolean trueTaken = executableEdges.getOrDefault(branch.getBaseBlock1(), Set.of()).contains(block);
+        boolean falseTaken = executableEdges.getOrDefault(branch.getBaseBlock2(), Set.of()).contains(block);
+        if (trueTaken && falseTaken && branch.getBaseBlock1() != branch.getBaseBlock2()) {
+            return;
+        }
+        IRBaseBlockRef target = trueTaken ? branch.getBaseBlock1() : branch.getBaseBlock2();
+        List<IRValueRef> operands = new ArrayList<>();
+        operands.add(target);
+        block.insertInstructionBefore(new BranchInstruction(operands, block), branch);
+        branch.eraseFromParent();
+        changed = true;
+    }
+}
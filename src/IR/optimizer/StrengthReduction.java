@@ -0,0 +1,281 @@
+package IR.optimizer;
+
+import IR.Analysis;
+import IR.CompilationContext;
+import IR.IRInstruction.*;
+import IR.IRType.IRArrayType;
+import IR.IRType.IRPointerType;
+import IR.IRType.IRType;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRConstIntRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRValueRef;
+import IR.IRValueRef.IRVirtualRegRef;
+import IR.InductionVariables;
+import IR.LoopInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static IR.IRType.IRInt32Type.IRInt32Type;
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+import static IR.IRValueRef.IRBaseBlockRef.IRGetLastInstruction;
+
+/**
+ * 数组下标的强度削弱，依赖InductionVariables识别的归纳变量，需要循环有preheader(由LoopSimplify插入)
+ * 循环中下标是仿射归纳变量 scale * i + offset、基地址是循环不变量的GEP，后端每次迭代都要把下标乘以各维长度和4再加到基地址上；
+ * 改为在循环头增加一个指针phi：初值为preheader中按i的初值计算的GEP，每条回边上前进 scale * step 个元素，
+ * 原GEP的结果直接替换为该phi，循环中不再有乘法；基地址、下标形式和仿射函数都相同的GEP共用一个指针phi
+ * 之后消除多余的归纳变量：同一个循环头中初值和步长都相同的基本归纳变量合并为一个，
+ * 只被自己的递增使用的基本归纳变量(下标都换成指针之后)连同递增一起删除
+ * while (i < n) { s = s + a[i]; i = i + 1; }
+ * // 优化后，p的初值为&a[i0]
+ * while (i < n) { s = s + *p; p = p + 1; i = i + 1; }
+ */
+public class StrengthReduction implements OptForIR {
+    //可以共用一个指针phi的GEP：基地址、是否有值为0的第一个下标、最后一个下标的仿射函数都相同
+    private record PointerKey(IRValueRef base, boolean arrayIndex, InductionVariables.AffineIV affine) {
+    }
+
+    //本函数中定义每个值的指令，包括本优化新建的指令
+    private final Map<IRValueRef, IRInstruction> definitions = new HashMap<>();
+    private boolean changed;
+
+    @Override
+    public Set<Analysis> getRequiredAnalyses() {
+        return EnumSet.of(Analysis.LOOPS);
+    }
+
+    @Override
+    public Set<Analysis> getPreservedAnalyses() {
+        //只在已有的块中增删指令，不改变控制流
+        return EnumSet.of(Analysis.CFG, Analysis.DOMINATORS, Analysis.LOOPS);
+    }
+
+    @Override
+    public boolean run(IRFunctionBlockRef irFunctionBlockRef) {
+        //替换GEP和合并归纳变量可能不改变指令数，需要自己记录是否修改
+        Optimize(irFunctionBlockRef);
+        return changed;
+    }
+
+    @Override
+    public void Optimize(IRFunctionBlockRef irFunctionBlockRef) {
+        changed = false;
+        definitions.clear();
+        for (IRBaseBlockRef block : irFunctionBlockRef.getBaseBlocks()) {
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+                if (!(inst instanceof StoreInstruction || inst instanceof BranchInstruction
+                        || inst instanceof ReturnInstruction)) {
+                    definitions.put(inst.getOperands().get(0), inst);
+                }
+            }
+        }
+        LoopInfo loopInfo = CompilationContext.current().getAnalysisManager().getLoopInfo(irFunctionBlockRef);
+        InductionVariables inductionVariables = new InductionVariables(irFunctionBlockRef, loopInfo);
+        //先合并重复的归纳变量，使GEP的下标都基于留下的那个，削弱后共用同一个指针phi
+        Map<LoopInfo.Loop, List<InductionVariables.BasicIV>> keptIVs = new HashMap<>();
+        for (LoopInfo.Loop loop : loopInfo.getLoops()) {
+            keptIVs.put(loop, mergeIVs(inductionVariables.getBasicIVs(loop)));
+        }
+        for (LoopInfo.Loop loop : loopInfo.getLoops()) {
+            reduceLoop(loop, inductionVariables);
+        }
+        for (LoopInfo.Loop loop : loopInfo.getLoops()) {
+            removeDeadIVs(keptIVs.get(loop));
+        }
+        definitions.clear();
+    }
+
+    private void reduceLoop(LoopInfo.Loop loop, InductionVariables inductionVariables) {
+        IRBaseBlockRef preheader = loop.getPreheader();
+        if (preheader == null) {
+            return;
+        }
+        //先找出所有可以削弱的GEP，再按收益决定削弱哪些
+        Map<GetElementPointerInstruction, PointerKey> candidates = new LinkedHashMap<>();
+        for (IRBaseBlockRef block : loop.getBlocks()) {
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = inst.getNext()) {
+                if (!(inst instanceof GetElementPointerInstruction gep)) {
+                    continue;
+                }
+                //gep T, T* base, idx 或 gep [N x T], [N x T]* base, 0, idx
+                List<IRValueRef> index = gep.getIndex();
+                boolean arrayIndex = index.size() == 2;
+                if (index.size() > 2 || arrayIndex
+                        && !(index.get(0) instanceof IRConstIntRef first && first.getValue() == 0)) {
+                    continue;
+                }
+                InductionVariables.AffineIV affine = inductionVariables.getAffineIV(index.get(index.size() - 1));
+                if (affine != null && affine.basic().loop() == loop && isInvariant(gep.getBase(), loop)) {
+                    candidates.put(gep, new PointerKey(gep.getBase(), arrayIndex, affine));
+                }
+            }
+        }
+        Map<PointerKey, IRValueRef> pointers = new HashMap<>();
+        for (Map.Entry<GetElementPointerInstruction, PointerKey> entry : candidates.entrySet()) {
+            GetElementPointerInstruction gep = entry.getKey();
+            PointerKey key = entry.getValue();
+            if (!isProfitable(gep, key.affine()) && !isDead(key.affine().basic(), candidates.keySet())) {
+                continue;
+            }
+            IRValueRef pointer = pointers.get(key);
+            if (pointer == null) {
+                pointer = createPointer(gep, key.affine(), preheader);
+                pointers.put(key, pointer);
+            }
+            IRValueRef resRegister = gep.getOperands().get(0);
+            gep.eraseFromParent();
+            definitions.remove(resRegister);
+            resRegister.replaceAllUsesWith(pointer);
+            changed = true;
+        }
+    }
+
+    /*
+     * 指针phi每次迭代要在回边上做一次加法，后端还要经过栈上的临时位置复制一次，
+     * 比只有一次移位的一维下标(i * 4)更慢；只削弱要乘以行长度(结果指向数组)或下标本身含有乘法的GEP，
+     * 以及基本归纳变量除递增外只被可削弱的GEP使用(削弱后整个归纳变量可以删除)的情况
+     */
+    private boolean isProfitable(GetElementPointerInstruction gep, InductionVariables.AffineIV affine) {
+        IRType pointeeType = ((IRPointerType) gep.getOperands().get(0).getType()).getBaseType();
+        return pointeeType instanceof IRArrayType || affine.scale() != 1;
+    }
+
+    private boolean isInvariant(IRValueRef value, LoopInfo.Loop loop) {
+        IRInstruction definition = definitions.get(value);
+        return definition == null || !loop.contains(definition.getBaseBlock());
+    }
+
+    /*
+     * 在循环头插入指针phi并返回其结果，gep的下标为 scale * i + offset
+     * 初值：preheader末尾计算 scale * start + offset，再用它代替原来的下标求地址
+     * 每个latch末尾：gep T, T* phi, scale * step，T为原GEP结果指向的类型
+     */
+    private IRValueRef createPointer(GetElementPointerInstruction gep, InductionVariables.AffineIV affine,
+                                     IRBaseBlockRef preheader) {
+        InductionVariables.BasicIV basic = affine.basic();
+        LoopInfo.Loop loop = basic.loop();
+        IRType pointerType = gep.getOperands().get(0).getType();
+        IRInstruction insertPoint = IRGetLastInstruction(preheader);
+
+        IRValueRef startIndex = basic.start();
+        if (startIndex instanceof IRConstIntRef constant) {
+            startIndex = new IRConstIntRef(constant.getValue() * affine.scale() + affine.offset(), IRInt32Type());
+        } else {
+            if (affine.scale() != 1) {
+                startIndex = insertCalculate("mul", startIndex, affine.scale(), preheader, insertPoint);
+            }
+            if (affine.offset() != 0) {
+                startIndex = insertCalculate("add", startIndex, affine.offset(), preheader, insertPoint);
+            }
+        }
+        List<IRValueRef> startOperands = new ArrayList<>(gep.getOperands());
+        startOperands.set(0, new IRVirtualRegRef("sr", pointerType));
+        startOperands.set(startOperands.size() - 1, startIndex);
+        insert(new GetElementPointerInstruction(startOperands, preheader), preheader, insertPoint);
+
+        IRValueRef pointer = new IRVirtualRegRef("sr", pointerType);
+        PhiInstruction phi = new PhiInstruction(Collections.singletonList(pointer), loop.getHeader());
+        loop.getHeader().addInstructionAtStart(phi);
+        definitions.put(pointer, phi);
+        phi.setIncomingValue(startOperands.get(0), preheader);
+        IRConstIntRef stride = new IRConstIntRef(affine.scale() * basic.step(), IRInt32Type());
+        for (IRBaseBlockRef latch : loop.getLatches()) {
+            IRValueRef next = new IRVirtualRegRef("sr", pointerType);
+            insert(new GetElementPointerInstruction(List.of(next, pointer, stride), latch), latch, IRGetLastInstruction(latch));
+            phi.setIncomingValue(next, latch);
+        }
+        return pointer;
+    }
+
+    private IRValueRef insertCalculate(String type, IRValueRef lhs, int rhs, IRBaseBlockRef block, IRInstruction pos) {
+        IRValueRef result = new IRVirtualRegRef("sr", IRInt32Type());
+        insert(new CalculateInstruction(List.of(result, lhs, new IRConstIntRef(rhs, IRInt32Type())), block, type), block, pos);
+        return result;
+    }
+
+    private void insert(IRInstruction inst, IRBaseBlockRef block, IRInstruction pos) {
+        block.insertInstructionBefore(inst, pos);
+        definitions.put(inst.getOperands().get(0), inst);
+    }
+
+    /*
+     * ivs为同一个循环头中的基本归纳变量，初值和步长都与之前的某个相同时，它的使用都替换为之前的那个，返回留下的归纳变量
+     * 被合并的归纳变量的递增只被它的phi使用时一起删除，否则变为对留下的那个的递增，可以由GVN合并
+     */
+    private List<InductionVariables.BasicIV> mergeIVs(List<InductionVariables.BasicIV> ivs) {
+        List<InductionVariables.BasicIV> kept = new ArrayList<>();
+        for (InductionVariables.BasicIV iv : ivs) {
+            InductionVariables.BasicIV same = null;
+            for (InductionVariables.BasicIV other : kept) {
+                if (other.step() == iv.step() && sameValue(other.start(), iv.start())) {
+                    same = other;
+                    break;
+                }
+            }
+            if (same == null) {
+                kept.add(iv);
+                continue;
+            }
+            IRValueRef value = iv.getValue();
+            iv.phi().eraseFromParent();
+            definitions.remove(value);
+            value.replaceAllUsesWith(same.getValue());
+            for (IRInstruction increment : iv.increments()) {
+                if (increment.getOperands().get(0).getUsers().isEmpty()) {
+                    increment.eraseFromParent();
+                }
+            }
+            changed = true;
+        }
+        return kept;
+    }
+
+    //phi只被自己的递增使用、递增只被phi使用时，整个归纳变量都没有用，一起删除
+    private void removeDeadIVs(List<InductionVariables.BasicIV> ivs) {
+        for (InductionVariables.BasicIV iv : ivs) {
+            if (isDead(iv, Collections.emptySet())) {
+                iv.phi().eraseFromParent();
+                for (IRInstruction increment : iv.increments()) {
+                    increment.eraseFromParent();
+                }
+                changed = true;
+            }
+        }
+    }
+
+    /*
+     * 基本归纳变量的phi除了自己的递增以外只被removable中的指令使用，递增只被phi使用时返回true
+     * removable为空时表示归纳变量已经没有用了
+     */
+    private boolean isDead(InductionVariables.BasicIV iv, Set<? extends IRInstruction> removable) {
+        for (IRInstruction user : iv.getValue().getUsers()) {
+            if (!iv.increments().contains(user) && !removable.contains(user)) {
+                return false;
+            }
+        }
+        for (IRInstruction increment : iv.increments()) {
+            for (IRInstruction user : increment.getOperands().get(0).getUsers()) {
+                if (user != iv.phi()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameValue(IRValueRef a, IRValueRef b) {
+        if (a == b) {
+            return true;
+        }
+        return a instanceof IRConstIntRef constA && b instanceof IRConstIntRef constB
+                && constA.getValue() == constB.getValue();
+    }
+}
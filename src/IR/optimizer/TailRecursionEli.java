@@ -9,6 +9,9 @@ import IR.IRValueRef.IRVirtualRegRef;
 
 import java.util.*;
 
+import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+import static IR.IRValueRef.IRBaseBlockRef.IRGetLastInstruction;
+
 //https://www.cnblogs.com/JeffreyZhao/archive/2009/04/01/tail-recursion-explanation.html
 public class TailRecursionEli implements OptForIR{
     @Override
@@ -17,9 +20,6 @@ public class TailRecursionEli implements OptForIR{
         if (!TailRecursion(irFunctionBlockRef)) {
             return;
         }
-        if (irFunctionBlockRef.getParams().size() > 30){
-            return;
-        }
         //新建一个phi指令块实现对参数的选择
         IRBaseBlockRef phiBlock = createPhiBlock(irFunctionBlockRef);
         Map<IRValueRef, PhiInstruction> phiInstructions = createPhiInstructions(irFunctionBlockRef, phiBlock);
@@ -28,6 +28,13 @@ public class TailRecursionEli implements OptForIR{
                 replaceTailRecursion(irFunctionBlockRef, block, phiBlock, phiInstructions);
             }
         }
+        //将形参在函数中的使用点替换为Phi，入口块传入的仍然是形参本身
+        IRBaseBlockRef entryBlock = irFunctionBlockRef.getBaseBlocks().get(0);
+        for (IRValueRef param : irFunctionBlockRef.getParams()) {
+            PhiInstruction phiInst = phiInstructions.get(param);
+            param.replaceAllUsesWith(phiInst.getOperands().get(0));
+            phiInst.setIncomingValue(param, entryBlock);
+        }
     }
 
     private boolean TailRecursion(IRFunctionBlockRef function) {
@@ -40,12 +47,11 @@ public class TailRecursionEli implements OptForIR{
     }
 
     private boolean isTailRecursion(IRFunctionBlockRef function, IRBaseBlockRef block) {
-        List<IRInstruction> instructions = block.getInstructionList();
-        if (instructions.size() <= 1){
+        IRInstruction lastInstruction = IRGetLastInstruction(block);
+        if (lastInstruction == null || lastInstruction.getPrev() == null){
             return false;
         }
-        IRInstruction lastInstruction = instructions.get(instructions.size() - 1);
-        IRInstruction lastButOneInstruction = instructions.get(instructions.size() - 2);
+        IRInstruction lastButOneInstruction = lastInstruction.getPrev();
         if (lastInstruction instanceof ReturnInstruction returnInst
                 && lastButOneInstruction instanceof CallInstruction callInst) {
             return callInst.getFunction().getText().equals(function.getText())
@@ -58,14 +64,24 @@ public class TailRecursionEli implements OptForIR{
         IRBaseBlockRef entryBlock = function.getBaseBlocks().get(0);
         IRBaseBlockRef phiBlock = new IRBaseBlockRef("phiBlock");
         function.addBaseBlockRef(phiBlock);
+        phiBlock.setFunctionBlockRef(function);
 
-        List<IRInstruction> entryInstructions = entryBlock.getInstructionList();
-        List<IRInstruction> phiInstructions = new ArrayList<>(entryInstructions);
-        for (IRInstruction instruction : phiInstructions) {
+        //将入口块的指令全部移动到phi块中
+        IRInstruction next;
+        for (IRInstruction instruction = IRGetFirstInstruction(entryBlock); instruction != null; instruction = next) {
+            next = instruction.getNext();
+            instruction.removeFromParent();
             phiBlock.appendInstr(instruction);
         }
-        entryInstructions.clear();
         entryBlock.appendInstr(new BranchInstruction(Collections.singletonList(phiBlock), entryBlock));
+        //入口块原来的跳转现在在phi块中，后继块phi中来自入口块的值改为来自phi块
+        for (IRBaseBlockRef block : function.getBaseBlocks()) {
+            for (IRInstruction instruction : block.getInstructionList()) {
+                if (instruction instanceof PhiInstruction phiInst) {
+                    phiInst.replaceIncomingBlock(entryBlock, phiBlock);
+                }
+            }
+        }
         return phiBlock;
     }
 
@@ -85,54 +101,18 @@ public class TailRecursionEli implements OptForIR{
 
     private void replaceTailRecursion(IRFunctionBlockRef function, IRBaseBlockRef block, IRBaseBlockRef phiBlock, Map<IRValueRef, PhiInstruction> phiInstructions) {
         //替换尾递归块的call和ret为br
-        List<IRInstruction> instructions = block.getInstructionList();
-        CallInstruction callInst = (CallInstruction) instructions.get(instructions.size() - 2);
-        ReturnInstruction returnInst = (ReturnInstruction) instructions.get(instructions.size() - 1);
-        instructions.remove(callInst);
-        instructions.remove(returnInst);
+        ReturnInstruction returnInst = (ReturnInstruction) IRGetLastInstruction(block);
+        CallInstruction callInst = (CallInstruction) returnInst.getPrev();
+        callInst.removeFromParent();
+        returnInst.removeFromParent();
         block.appendInstr(new BranchInstruction(Collections.singletonList(phiBlock), block));
         List<IRValueRef> params = function.getParams();
         for (int i = 0; i < params.size(); i++){
             IRValueRef param = function.getParam(i);
             IRValueRef args = callInst.getParams().get(i);
             phiInstructions.get(param).setIncomingValue(args, block);
-            //将形参在函数中的使用点替换为Phi
-            for (int j = 0; j < function.getBaseBlocks().size(); j++) {
-                IRBaseBlockRef replaceBlock = function.getBaseBlocks().get(j);
-                for (int k = 0; k < replaceBlock.getInstructionList().size(); k++) {
-                    IRInstruction instruction = replaceBlock.getInstructionList().get(k);
-                    List<IRValueRef> operands = instruction.getOperands();
-                    IRValueRef phi = phiInstructions.get(param).getOperands().get(0);
-                    //call指令传参
-                    if (instruction instanceof CallInstruction callInstruction) {
-                        for (int m = 0; m < callInstruction.getParams().size(); m++) {
-                            if (callInstruction.getParams().get(m).equals(param)) {
-                                callInstruction.setParams(m, phi);
-                            }
-                        }
-                    }
-                    for (int m = 0; m < operands.size(); m++) {
-                        if (operands.get(m) == null) {
-                            continue;
-                        }
-                        if (operands.get(m).getText().equals(param.getText())) {
-                            if (instruction instanceof GetElementPointerInstruction) {
-                                ((GetElementPointerInstruction) instruction).setIndex(m - 2, phi);
-                                instruction.IRSetOperand(m, phi);
-                            } else if (instruction instanceof TypeTransferInstruction) {
-                                if (m == 1) {
-                                    ((TypeTransferInstruction) instruction).setOrigin(phi);
-                                } else if (m == 0) {
-                                    ((TypeTransferInstruction) instruction).setResReg(phi);
-                                }
-                                instruction.IRSetOperand(m, phi);
-                            } else {
-                                instruction.IRSetOperand(m, phi);
-                            }
-                        }
-                    }
-                }
-            }
         }
+        callInst.dropAllReferences();
+        returnInst.dropAllReferences();
     }
-}
\ No newline at end of file
+}
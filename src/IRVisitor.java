@@ -37,6 +37,26 @@ public class IRVisitor extends SysYParserBaseVisitor<IRValueRef> {
     private String currentBlockName = null;
     private int localScopeCounter;
     private boolean arrayAddr;
+    private final Deque<IRBaseBlockRef> whileCondStack = new ArrayDeque<>();//continue跳转的目标，即当前循环的whileCondition
+    private final Deque<IRBaseBlockRef> whileEntryStack = new ArrayDeque<>();//break跳转的目标，即当前循环结束后的entry
+
+    /*
+     * 自动插入的计时探针(-ftiming-probes)，在区间开始和结束处调用sylib的_sysy_starttime/_sysy_stoptime，参数为源代码的行号
+     * FUNCTIONS：每个函数(main除外)的函数体，结束探针插在每个ret之前；LOOPS：每个函数中最外层的while循环，
+     * 结束探针插在循环之后，循环中的return之前也插入一个
+     * sylib同时只能记录一个区间，且最多记录_SYSY_N-1个区间，所以探针用两个全局变量控制：
+     * PROBE_DEPTH为动态嵌套的深度，只有最外层的区间调用计时函数；PROBE_REGIONS为已记录的区间数，达到PROBE_LIMIT后不再记录
+     * 不要与源程序中手写的starttime/stoptime同时使用
+     */
+    public enum TimingProbes {NONE, FUNCTIONS, LOOPS}
+
+    public static final String PROBE_DEPTH = "__sysy_probe_depth";
+    public static final String PROBE_REGIONS = "__sysy_probe_regions";
+    private static final int PROBE_LIMIT = 1000;
+    private TimingProbes timingProbes = TimingProbes.NONE;
+    private IRGlobalRegRef probeDepth;
+    private IRGlobalRegRef probeRegions;
+    private int probeStopLine;//当前所在区间的结束探针的行号
 
     public IRVisitor(String source) {
         //创建module
@@ -59,23 +79,48 @@ public class IRVisitor extends SysYParserBaseVisitor<IRValueRef> {
         this.localScopeCounter = 0;
     }
 
+    //需要在visit之前设置
+    public void setTimingProbes(TimingProbes timingProbes) {
+        this.timingProbes = timingProbes;
+    }
+
     // 调用优化器进行优化
+    //单个函数的IR优化流水线，每次使用新的OptimizerFactory，可以在多个线程中同时对不同函数调用
+    public static void optimizeFunction(IRFunctionBlockRef function) {
+        optimizeFunction(function, OptimizerFactory.DEFAULT_LEVEL);
+    }
+
+    public static void optimizeFunction(IRFunctionBlockRef function, int optLevel) {
+        new OptimizerFactory(optLevel).optimize(function);
+    }
+
     public void optimizeModule() {
-        OptimizerFactory optimizerFactory = new OptimizerFactory();
+        optimizeModule(OptimizerFactory.DEFAULT_LEVEL);
+    }
+
+    //optLevel为优化级别，对应-O0/-O1/-O2
+    public void optimizeModule(int optLevel) {
+        OptimizerFactory optimizerFactory = new OptimizerFactory(optLevel);
 //        GlobalArrToLocal globalArrToLocal = new GlobalArrToLocal();
 //        globalArrToLocal.Optimize(module);
         for (IRFunctionBlockRef function : this.module.getFunctionBlocks()) {
             optimizerFactory.optimize(function);
         }
+        IRModule.IRRenumberBaseBlocks(this.module);
     }
 
     //visit方法的部分
     @Override
     public IRValueRef visitProgram(SysYParser.ProgramContext ctx) {
         addLibs(currentScope);
+        if (timingProbes != TimingProbes.NONE) {
+            probeDepth = (IRGlobalRegRef) IRAddGlobal(module, i32Type, PROBE_DEPTH);
+            IRSetInitializer(module, probeDepth, zero);
+            probeRegions = (IRGlobalRegRef) IRAddGlobal(module, i32Type, PROBE_REGIONS);
+            IRSetInitializer(module, probeRegions, zero);
+        }
         IRValueRef result = super.visitProgram(ctx);
-        // 生成IR后进行优化
-        optimizeModule();
+        // 生成IR后的优化由调用者通过optimizeModule或optimizeFunction进行，便于按函数并行
 
         //打印优化后的ir
 //        System.out.println("Instructions:");
@@ -257,6 +302,11 @@ public class IRVisitor extends SysYParserBaseVisitor<IRValueRef> {
             IRBuildStore(builder, (function).getParam(i), var);
             currentScope.defineVar(varName, var);
         }
+        boolean probed = timingProbes == TimingProbes.FUNCTIONS && !ctx.IDENT().getText().equals("main");
+        if (probed) {
+            probeStopLine = ctx.getStop().getLine();
+            buildTimingProbe(true, ctx.getStart().getLine());
+        }
         visitBlock(ctx.block());
         //找是否有return语句，如果没有，加上return
         boolean flag = false;
@@ -267,6 +317,9 @@ public class IRVisitor extends SysYParserBaseVisitor<IRValueRef> {
             }
         }
         if (!flag) {
+            if (probed) {
+                buildTimingProbe(false, probeStopLine);
+            }
             if (returnType == i32Type) {
                 IRBuildRet(builder, zero);
             } else {
@@ -302,8 +355,10 @@ public class IRVisitor extends SysYParserBaseVisitor<IRValueRef> {
                     result = typeTransfer(builder, result, IRConst.IntToFloat);
                 }
             }
+            buildReturnProbe();
             return IRBuildRet(builder, /*result:IRValueRef*/result);
         } else {
+            buildReturnProbe();
             return IRBuildRet(builder, null);
         }
     }
@@ -1036,6 +1091,11 @@ public class IRVisitor extends SysYParserBaseVisitor<IRValueRef> {
 
     @Override
     public IRValueRef visitStmt_with_while(SysYParser.Stmt_with_whileContext ctx) {
+        boolean probed = timingProbes == TimingProbes.LOOPS && whileCondStack.isEmpty();
+        if (probed) {
+            probeStopLine = ctx.getStop().getLine();
+            buildTimingProbe(true, ctx.getStart().getLine());
+        }
         //生成条件
         //从上一个基本块跳转到whileCond
         IRBaseBlockRef whileCond = IRAppendBasicBlock(currentFunction, "whileCondition");
@@ -1061,52 +1121,81 @@ public class IRVisitor extends SysYParserBaseVisitor<IRValueRef> {
                 /*ifFalse:IRBasicBlockRef*/ entry);
         //生成whileBody
         IRPositionBuilderAtEnd(builder, whileBody);
-        //将entry连接到whileBody
         currentBlock = whileBody;
-        currentBlock.getSuccList().add(entry);
         currentBlockName = "whileBody";
+        whileCondStack.push(whileCond);
+        whileEntryStack.push(entry);
         visit(ctx.stmt());
+        whileCondStack.pop();
+        whileEntryStack.pop();
         //要在whileBody的最后加上循环指令
         IRBuildBr(builder, whileCond);
         //生成entry
         IRPositionBuilderAtEnd(builder, entry);
         currentBlock = entry;
+        if (probed) {
+            buildTimingProbe(false, probeStopLine);
+        }
         return null;
     }
 
     @Override
     public IRValueRef visitStmt_with_break(SysYParser.Stmt_with_breakContext ctx) {
-        //找到while的基本块
-        IRBaseBlockRef whileBlock = currentScope.findWhileBlock();
-        if (whileBlock == null) {
-            currentScope = new Scope("whileBody", currentScope, currentBlock);
-            whileBlock = currentScope.findWhileBlock();
-            //找到while基本快的entry
-            IRBaseBlockRef entry = IRGetNextBasicBlock(whileBlock);
-            //跳转到while的基本块
-            IRBuildBr(builder, entry);
-            currentScope = currentScope.getFatherScope();
-        } else {
-            //找到while基本快的entry
-            IRBaseBlockRef entry = IRGetNextBasicBlock(whileBlock);
-            //跳转到while的基本块
-            IRBuildBr(builder, entry);
-        }
+        //跳转到当前循环结束后的entry
+        IRBuildBr(builder, whileEntryStack.peek());
         return null;
-
     }
 
     @Override
     public IRValueRef visitStmt_with_continue(SysYParser.Stmt_with_continueContext ctx) {
-        //找到while的基本块
-        IRBaseBlockRef whileBlock = currentScope.findWhileBlock();
-        //跳转到while的基本块的条件，即whileCond
-        IRBaseBlockRef whileCond = IRGetPreviousBasicBlock(whileBlock);
-        IRBuildBr(builder, whileCond);
+        //跳转到当前循环的条件，即whileCond
+        IRBuildBr(builder, whileCondStack.peek());
         return null;
     }
 
     //辅助函数的部分
+    //return离开计时的区间时先结束区间
+    private void buildReturnProbe() {
+        if (timingProbes == TimingProbes.FUNCTIONS && !currentFunction.getFunctionName().equals("main")
+                || timingProbes == TimingProbes.LOOPS && !whileCondStack.isEmpty()) {
+            buildTimingProbe(false, probeStopLine);
+        }
+    }
+
+    /*
+     * 在当前位置插入计时探针，start为true时是区间的开始
+     *   开始：depth++，原来的depth为0且regions<PROBE_LIMIT时调用_sysy_starttime(line)
+     *   结束：depth--，新的depth为0且regions<PROBE_LIMIT时调用_sysy_stoptime(line)并使regions加1
+     * 之后的代码生成在新建的probeEnd块中
+     */
+    private void buildTimingProbe(boolean start, int line) {
+        IRValueRef oldDepth = IRBuildLoad(builder, probeDepth, "probe_depth");
+        IRValueRef one = new IRConstIntRef(1, i32Type);
+        IRValueRef newDepth = start ? IRBuildAdd(builder, oldDepth, one, "probe_depth")
+                : IRBuildSub(builder, oldDepth, one, "probe_depth");
+        IRBuildStore(builder, newDepth, probeDepth);
+        IRValueRef outermost = IRBuildICmp(builder, IRConst.IREQ, start ? oldDepth : newDepth, zero, "probe_");
+        IRBaseBlockRef probeCheck = IRAppendBasicBlock(currentFunction, "probeCheck");
+        IRBaseBlockRef probeCall = IRAppendBasicBlock(currentFunction, "probeCall");
+        IRBaseBlockRef probeEnd = IRAppendBasicBlock(currentFunction, "probeEnd");
+        IRBuildCondBr(builder, outermost, probeCheck, probeEnd);
+        IRPositionBuilderAtEnd(builder, probeCheck);
+        IRValueRef regions = IRBuildLoad(builder, probeRegions, "probe_regions");
+        IRValueRef belowLimit = IRBuildICmp(builder, IRConst.IRSLT, regions, new IRConstIntRef(PROBE_LIMIT, i32Type), "probe_");
+        IRBuildCondBr(builder, belowLimit, probeCall, probeEnd);
+        IRPositionBuilderAtEnd(builder, probeCall);
+        String funcName = start ? "_sysy_starttime" : "_sysy_stoptime";
+        List<IRValueRef> args = new ArrayList<>();
+        args.add(new IRConstIntRef(line, i32Type));
+        IRBuildCall(builder, (IRFunctionBlockRef) currentScope.findVarInAllScope(funcName), args, 1, funcName);
+        if (!start) {
+            IRBuildStore(builder, IRBuildAdd(builder, regions, one, "probe_regions"), probeRegions);
+        }
+        IRBuildBr(builder, probeEnd);
+        IRPositionBuilderAtEnd(builder, probeEnd);
+        currentBlock = probeEnd;
+    }
+
     public IRValueRef calculateInt(String number) {
         int num;
         if (number.startsWith("0x") || number.startsWith("0X")) {
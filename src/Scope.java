@@ -18,17 +18,6 @@ public class Scope {
         this.varMap = new HashMap<>();
         this.block = block;
     }
-    public IRBaseBlockRef findWhileBlock(){
-        //在所有作用域查找while循环，并返回循环的基本块
-        //如果找不到，返回null
-        Scope currentScope = this;
-        while(currentScope != null){
-            if(currentScope.scopeName.contains("whileBody"))
-                return currentScope.getBlock();
-            currentScope = currentScope.getFatherScope();
-        }
-        return null;
-    }
     public IRBaseBlockRef getBlock(){
         //获取当前作用域所属的函数名
         return block;
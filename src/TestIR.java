@@ -1,15 +1,49 @@
+import IR.CompilationContext;
+import IR.IRModule;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.PassTimer;
+import IR.optimizer.OptimizerFactory;
+import backend.simulator.IRInterpreter;
+import backend.simulator.SimulationResult;
+
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
 
+/*
+ * 用法：TestIR [-interp] [-dir functional] [-O0|-O1|-O2] [-passes] [-blocks n]
+ * 默认用llc和gcc把生成的.ll编译成可执行文件运行；给出-interp时用IRInterpreter直接解释执行IR，并输出动态执行的IR指令数
+ * -passes在生成IR后和优化流水线的每一步之后各解释执行一次，输出每一步之后的动态指令数，用于比较各个优化的效果
+ * -blocks n输出执行指令数最多的n个基本块
+ */
 public class TestIR {
     public static void main(String[] args) throws IOException, InterruptedException {
         String testPath = "/home/ang/compilers/compiler2023/公开样例与运行时库/functional";
+        boolean useInterpreter = false;
+        boolean eachPass = false;
+        int hottestBlocks = 0;
+        int optLevel = OptimizerFactory.DEFAULT_LEVEL;
+        for (int i = 0; i < args.length; i++) {
+            if (OptimizerFactory.parseLevel(args[i]) >= 0) {
+                optLevel = OptimizerFactory.parseLevel(args[i]);
+            } else if (args[i].equals("-interp")) {
+                useInterpreter = true;
+            } else if (args[i].equals("-passes")) {
+                eachPass = true;
+            } else if (args[i].equals("-dir") && i + 1 < args.length) {
+                testPath = args[++i];
+            } else if (args[i].equals("-blocks") && i + 1 < args.length) {
+                hottestBlocks = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Unknown option " + args[i]);
+            }
+        }
         File directory = new File(testPath);
         List<File> fileList;
 
@@ -24,9 +58,18 @@ public class TestIR {
         // 按文件名排序
         fileList.sort(Comparator.comparing(File::getName));
 
+        if (useInterpreter) {
+            int failed = 0;
+            for (File f : fileList) {
+                failed += interpret(f, optLevel, eachPass, hottestBlocks) ? 0 : 1;
+            }
+            System.out.println(fileList.size() + " tests, " + failed + " failed");
+            return;
+        }
+
         for (File f : fileList) {
             // 生成.ll文件
-            Compiler.main(new String[]{"-S", "-o", "./tests/test1.s", f.getAbsolutePath()});
+            Compiler.main(new String[]{"-S", "-o", "./tests/test1.s", f.getAbsolutePath(), "-emit-ir", "./tests/test1.ll"});
 
             // 使用llc工具将.ll文件转换为.o文件
             ProcessBuilder pb1 = new ProcessBuilder("llc", "-filetype=obj", "-o", "./tests/output.o", "./tests/test1.ll", "--relocation-model=pic");
@@ -114,4 +157,59 @@ public class TestIR {
             }
         }
     }
-}
\ No newline at end of file
+
+    //生成f的IR并解释执行，与.out比较，eachPass时在优化流水线的每一步之后都执行一次
+    @SuppressWarnings("try")
+    private static boolean interpret(File f, int optLevel, boolean eachPass, int hottestBlocks) throws IOException {
+        String name = f.getName();
+        File inFile = TestRISCV.companionFile(f, ".in");
+        File outFile = TestRISCV.companionFile(f, ".out");
+        byte[] input = inFile.exists() ? Files.readAllBytes(inFile.toPath()) : new byte[0];
+        try (CompilationContext.Activation ignored = new CompilationContext().activate()) {
+            IRModule module;
+            try {
+                module = Compiler.generateIR(f.getPath(), PassTimer.disabled()).getModule();
+            } catch (Exception e) {
+                System.err.println("Failed to generate IR for " + name + ": " + e);
+                return false;
+            }
+            OptimizerFactory optimizer = new OptimizerFactory(optLevel);
+            long before = -1;
+            if (eachPass) {
+                System.out.println(name + ":");
+                before = run(module, input).getInstructionCount();
+                System.out.println(String.format("  %-44s %14d", "IRVisitor", before));
+            }
+            for (int step = 0; step < optimizer.getStepCount(); step++) {
+                for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+                    optimizer.optimizeStep(function, step);
+                }
+                if (eachPass) {
+                    long after = run(module, input).getInstructionCount();
+                    System.out.println(String.format("  %-44s %14d %+9.2f%%", optimizer.getStepName(step), after,
+                            before == 0 ? 0.0 : 100.0 * (after - before) / before));
+                    before = after;
+                }
+            }
+            IRInterpreter interpreter = new IRInterpreter(module);
+            SimulationResult result = interpreter.run(input);
+            if (result.hasError()) {
+                System.err.println(name + " failed with runtime error " + result.getError());
+                return false;
+            }
+            if (hottestBlocks > 0) {
+                System.out.print(interpreter.formatHottestBlocks(hottestBlocks));
+            }
+            if (outFile.exists() && !result.matches(Files.readString(outFile.toPath()))) {
+                System.err.println(name + " failed with return value " + result.getExitCode() + " and wrong output");
+                return false;
+            }
+            System.out.println(name + " passed, " + result.getInstructionCount() + " IR instructions");
+            return true;
+        }
+    }
+
+    private static SimulationResult run(IRModule module, byte[] input) {
+        return new IRInterpreter(module).run(input);
+    }
+}
@@ -0,0 +1,213 @@
+import IR.PassTimer;
+import IR.optimizer.OptimizerFactory;
+import backend.simulator.CostModel;
+import backend.simulator.RISCVProgram;
+import backend.simulator.RISCVSimulator;
+import backend.simulator.SimulationResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 性能回归检查：编译测试目录中的每个程序并在RISCVSimulator中运行，记录每个测试的
+ * 动态指令数、估计的周期数、栈帧大小(所有函数序言分配的字节数之和)和.s文件的行数
+ * -record时把结果写入基线文件(JSON)；否则与基线比较，输出有变化的指标，
+ * 任一指标比基线高出阈值以上、输出与.out不一致或运行出错时以1退出
+ * 测试程序的发现和.in/.out文件的对应规则与TestRISCV相同
+ * 用法：TestPerformance [-record] [-dir performance] [-baseline perf-baseline.json] [-threshold 2]
+ *                       [-O0|-O1|-O2] [-cost-model cost.properties]
+ */
+public class TestPerformance {
+    private static final String[] metrics = {"instructions", "cycles", "frameBytes", "asmLines"};
+    private static final Pattern testPattern = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"\\s*:\\s*\\{([^{}]*)}");
+
+    public static void main(String[] args) throws IOException {
+        boolean record = false;
+        String testPath = "performance";
+        String baselinePath = "perf-baseline.json";
+        double threshold = 2.0;//百分比
+        int optLevel = OptimizerFactory.DEFAULT_LEVEL;
+        CostModel costModel = CostModel.defaults();
+        for (int i = 0; i < args.length; i++) {
+            if (OptimizerFactory.parseLevel(args[i]) >= 0) {
+                optLevel = OptimizerFactory.parseLevel(args[i]);
+            } else if (args[i].equals("-record")) {
+                record = true;
+            } else if (args[i].equals("-dir") && i + 1 < args.length) {
+                testPath = args[++i];
+            } else if (args[i].equals("-baseline") && i + 1 < args.length) {
+                baselinePath = args[++i];
+            } else if (args[i].equals("-threshold") && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-cost-model") && i + 1 < args.length) {
+                costModel = CostModel.load(Path.of(args[++i]));
+            } else {
+                System.err.println("Unknown option " + args[i]);
+            }
+        }
+
+        Map<String, long[]> results = new LinkedHashMap<>();
+        List<String> failures = new ArrayList<>();
+        Path workDir = Files.createTempDirectory("perf");
+        for (File f : TestRISCV.listTests(new File(testPath))) {
+            String name = f.getName().substring(0, f.getName().length() - 3);
+            long[] values = measure(f, workDir.resolve(name + ".s"), optLevel, costModel, failures);
+            if (values != null) {
+                results.put(name, values);
+                System.out.println(name + " " + format(values));
+            }
+        }
+
+        if (record) {
+            writeBaseline(Path.of(baselinePath), optLevel, results);
+            System.out.println("Recorded " + results.size() + " tests to " + baselinePath);
+        } else {
+            if (!Files.exists(Path.of(baselinePath))) {
+                System.err.println("Baseline " + baselinePath + " not found, run with -record first");
+                System.exit(1);
+            }
+            String text = Files.readString(Path.of(baselinePath));
+            Matcher level = Pattern.compile("\"optLevel\"\\s*:\\s*(\\d+)").matcher(text);
+            if (level.find() && Integer.parseInt(level.group(1)) != optLevel) {
+                System.err.println("Warning: baseline was recorded at -O" + level.group(1) + ", comparing at -O" + optLevel);
+            }
+            compare(readBaseline(text), results, threshold, failures);
+        }
+        for (String failure : failures) {
+            System.err.println(failure);
+        }
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    //编译并运行一个测试，返回各指标的值，编译或运行失败时记录到failures中并返回null
+    private static long[] measure(File test, Path asm, int optLevel, CostModel costModel, List<String> failures) {
+        String name = test.getName();
+        try {
+            Compiler.compile(test.getPath(), asm.toString(), null, 1, optLevel, PassTimer.disabled());
+        } catch (Exception e) {
+            failures.add(name + " failed to compile: " + e);
+            return null;
+        }
+        try {
+            String text = Files.readString(asm);
+            RISCVProgram program = RISCVProgram.parse(text);
+            RISCVSimulator simulator = new RISCVSimulator(program);
+            simulator.setCostModel(costModel);
+            File inFile = TestRISCV.companionFile(test, ".in");
+            File outFile = TestRISCV.companionFile(test, ".out");
+            SimulationResult result = simulator.run(inFile.exists() ? Files.readAllBytes(inFile.toPath()) : new byte[0]);
+            if (result.hasError()) {
+                failures.add(name + " failed with runtime error " + result.getError());
+                return null;
+            }
+            if (outFile.exists() && !result.matches(Files.readString(outFile.toPath()))) {
+                failures.add(name + " failed with return value " + result.getExitCode() + " and wrong output");
+                return null;
+            }
+            long frameBytes = 0;
+            for (int i = 0; i < program.getFunctionNames().size(); i++) {
+                frameBytes += program.getFrameSize(i);
+            }
+            long lines = text.chars().filter(c -> c == '\n').count();
+            return new long[]{result.getInstructionCount(), result.getCycles(), frameBytes, lines};
+        } catch (IOException | IllegalArgumentException e) {
+            failures.add(name + " failed to run: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String format(long[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int m = 0; m < metrics.length; m++) {
+            sb.append(m == 0 ? "" : ", ").append(metrics[m]).append('=').append(values[m]);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * 输出有变化的指标，比基线高出threshold%以上的记为回归
+     * 基线中有而这次没有结果的测试也算失败，新增的测试只给出提示
+     */
+    private static void compare(Map<String, long[]> baseline, Map<String, long[]> results, double threshold, List<String> failures) {
+        List<String> rows = new ArrayList<>();
+        int regressions = 0;
+        for (Map.Entry<String, long[]> entry : results.entrySet()) {
+            long[] base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.println(entry.getKey() + " is not in the baseline");
+                continue;
+            }
+            for (int m = 0; m < metrics.length; m++) {
+                long before = base[m];
+                long after = entry.getValue()[m];
+                if (before == after || before < 0) {
+                    continue;
+                }
+                double change = before == 0 ? Double.POSITIVE_INFINITY : 100.0 * (after - before) / before;
+                boolean regressed = change > threshold;
+                regressions += regressed ? 1 : 0;
+                rows.add(String.format(Locale.ROOT, "%-24s %-14s %14d %14d %+9.2f%%%s", entry.getKey(), metrics[m],
+                        before, after, change, regressed ? "  REGRESSION" : ""));
+            }
+        }
+        for (String name : baseline.keySet()) {
+            if (!results.containsKey(name)) {
+                failures.add(name + " is in the baseline but has no result");
+            }
+        }
+        if (!rows.isEmpty()) {
+            System.out.println(String.format("%-24s %-14s %14s %14s %10s", "test", "metric", "baseline", "current", "change"));
+            rows.forEach(System.out::println);
+        }
+        System.out.println(results.size() + " tests, " + rows.size() + " changed metrics, " + regressions
+                + " regressions (threshold " + threshold + "%)");
+        if (regressions > 0) {
+            failures.add(regressions + " metrics regressed past " + threshold + "%");
+        }
+    }
+
+    private static void writeBaseline(Path path, int optLevel, Map<String, long[]> results) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"optLevel\":").append(optLevel).append(",\"tests\":{");
+        boolean first = true;
+        for (Map.Entry<String, long[]> entry : results.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("\n  \"").append(entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"")).append("\":{");
+            for (int m = 0; m < metrics.length; m++) {
+                sb.append(m == 0 ? "" : ",").append('"').append(metrics[m]).append("\":").append(entry.getValue()[m]);
+            }
+            sb.append('}');
+        }
+        sb.append("\n}}\n");
+        Files.writeString(path, sb);
+    }
+
+    //读取writeBaseline写出的基线文件，缺少的指标记为-1(不比较)
+    private static Map<String, long[]> readBaseline(String text) {
+        Map<String, long[]> baseline = new LinkedHashMap<>();
+        Matcher test = testPattern.matcher(text);
+        while (test.find()) {
+            long[] values = new long[metrics.length];
+            for (int m = 0; m < metrics.length; m++) {
+                Matcher value = Pattern.compile("\"" + metrics[m] + "\"\\s*:\\s*(-?\\d+)").matcher(test.group(2));
+                values[m] = value.find() ? Long.parseLong(value.group(1)) : -1;
+            }
+            baseline.put(test.group(1).replace("\\\"", "\"").replace("\\\\", "\\"), values);
+        }
+        return baseline;
+    }
+}
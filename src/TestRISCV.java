@@ -1,29 +1,33 @@
+import backend.simulator.RISCVProgram;
+import backend.simulator.RISCVSimulator;
+import backend.simulator.SimulationResult;
+
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
+//用法：TestRISCV [-sim] [-j N]，给出-sim时用内置的模拟器运行生成的汇编，不需要riscv64-linux-gnu-gcc和qemu
+//给出-j N时每个程序再用N个线程编译一次，生成的汇编与串行编译的不逐字节相同时报告失败
 public class TestRISCV {
     public static void main(String[] args) throws IOException, InterruptedException {
+        boolean useSimulator = List.of(args).contains("-sim");
+        int jobs = 1;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("-j")) {
+                jobs = Integer.parseInt(args[i + 1]);
+            }
+        }
 //        String testPath = "functional";
         String testPath = "functional";
 //        String testPath = "performance";
-        File directory = new File(testPath);
-        List<File> fileList;
+        List<File> fileList = listTests(new File(testPath));
         int timeOut = 180;
 
-        // 获取文件列表并过滤
-        fileList = new ArrayList<>();
-        for(File file : Objects.requireNonNull(directory.listFiles())) {
-            if(file.isFile() && file.getName().contains(".sy")) {
-                fileList.add(file);
-            }
-        }
-        // 按文件名排序
-        fileList.sort(Comparator.comparing(File::getName));
         for (File f : fileList) {
             // 生成.s文件
             //如果时间超过了10s，那么就会抛出异常
@@ -34,6 +38,9 @@ public class TestRISCV {
                 System.err.println("Failed to compile " + f.getName());
                 continue;
             }
+            if (jobs > 1 && !sameAsParallel(f, jobs)) {
+                continue;
+            }
             //统计.s文件的行数
             FileReader reader = new FileReader("./tests/test1.s");
             int lines = 0;
@@ -45,6 +52,10 @@ public class TestRISCV {
             }
             //输出.s文件的行数
             System.out.println(f.getName() + " has " + lines + " lines");
+            if (useSimulator) {
+                simulate(f);
+                continue;
+            }
 
             //riscv64-linux-gnu-gcc -c ./tests/test1.s -o ./tests/test1.o -static
             ProcessBuilder pb1 = new ProcessBuilder("riscv64-linux-gnu-gcc", "-c", "./tests/test1.s", "-o", "./tests/test1.o", "-static");
@@ -79,8 +90,7 @@ public class TestRISCV {
 
             // 查找对应的输入文件
             String name = f.getName();
-            String inName = name.substring(0, name.length() - 3) + ".in";
-            File inFile = new File(testPath + "/" + inName);
+            File inFile = companionFile(f, ".in");
 
             // 程序的return值存在processExitCode中，PRINT的输出存在output文件中
             // 使用生成的可执行文件进行测试
@@ -113,10 +123,9 @@ public class TestRISCV {
 
 
             // 查找对应的.out文件
-            String outName = name.substring(0, name.length() - 3) + ".out";
-            File outFile = new File(testPath + "/" + outName);
+            File outFile = companionFile(f, ".out");
             if (!outFile.exists()) {
-                System.out.println("Reference output file not found: " + outName);
+                System.out.println("Reference output file not found: " + outFile.getName());
                 continue;
             }
             // 读取参考输出文件
@@ -151,4 +160,65 @@ public class TestRISCV {
             }
         }
     }
+
+    //测试目录中的所有.sy文件，按文件名排序
+    static List<File> listTests(File directory) {
+        List<File> fileList = new ArrayList<>();
+        for (File file : Objects.requireNonNull(directory.listFiles())) {
+            if (file.isFile() && file.getName().contains(".sy")) {
+                fileList.add(file);
+            }
+        }
+        fileList.sort(Comparator.comparing(File::getName));
+        return fileList;
+    }
+
+    //与测试程序同名的输入(.in)或参考输出(.out)文件，不一定存在
+    static File companionFile(File test, String extension) {
+        String name = test.getName();
+        return new File(test.getParentFile(), name.substring(0, name.length() - 3) + extension);
+    }
+
+    //用jobs个线程再编译一次，与串行编译得到的./tests/test1.s逐字节比较
+    private static boolean sameAsParallel(File f, int jobs) throws IOException {
+        try {
+            Compiler.main(new String[]{"-S", "-o", "./tests/test1_j.s", f.getAbsolutePath(), "-j", Integer.toString(jobs)});
+        } catch (Exception e) {
+            System.err.println("Failed to compile " + f.getName() + " with -j " + jobs);
+            return false;
+        }
+        long mismatch = Files.mismatch(new File("./tests/test1.s").toPath(), new File("./tests/test1_j.s").toPath());
+        if (mismatch != -1) {
+            System.err.println(f.getName() + " failed: output with -j " + jobs + " differs from serial at byte " + mismatch);
+            return false;
+        }
+        return true;
+    }
+
+    //在模拟器中运行./tests/test1.s，与qemu运行时一样和.out文件比较
+    private static void simulate(File f) throws IOException {
+        String name = f.getName();
+        File inFile = companionFile(f, ".in");
+        File outFile = companionFile(f, ".out");
+        if (!outFile.exists()) {
+            System.out.println("Reference output file not found: " + outFile.getName());
+            return;
+        }
+        RISCVProgram program;
+        try {
+            program = RISCVProgram.parse(Files.readString(new File("./tests/test1.s").toPath()));
+        } catch (IllegalArgumentException e) {
+            System.err.println(name + " failed to load: " + e.getMessage());
+            return;
+        }
+        byte[] input = inFile.exists() ? Files.readAllBytes(inFile.toPath()) : new byte[0];
+        SimulationResult result = new RISCVSimulator(program).run(input);
+        if (result.matches(Files.readString(outFile.toPath()))) {
+            System.out.println(name + " passed (" + result.getInstructionCount() + " instructions, " + result.getCycles() + " cycles)");
+        } else if (result.hasError()) {
+            System.err.println(name + " failed with runtime error " + result.getError());
+        } else {
+            System.err.println(name + " failed with return value " + result.getExitCode() + " and output " + result.getOutput().trim());
+        }
+    }
 }
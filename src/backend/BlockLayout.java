@@ -0,0 +1,46 @@
+package backend;
+
+import IR.CompilationContext;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 按-fprofile-use读入的执行次数安排函数中基本块的顺序，在寄存器分配和翻译之前调用
+ * 只把没有执行过的块按原来的顺序移到函数最后，执行过的块保持原来的相对顺序，
+ * 这样循环体仍然连续，按块顺序计算的活跃区间不会因为循环被拆开而变长，热路径上也少了跳过冷块的跳转
+ * 函数没有剖析数据时不做任何修改
+ */
+public class BlockLayout {
+    /*返回是否改变了基本块的顺序*/
+    public static boolean run(IRFunctionBlockRef function) {
+        List<IRBaseBlockRef> blocks = new ArrayList<>(function.getBaseBlocks());
+        if (blocks.isEmpty() || !blocks.get(0).hasProfileCount()) {
+            return false;
+        }
+        List<IRBaseBlockRef> order = new ArrayList<>();
+        List<IRBaseBlockRef> cold = new ArrayList<>();
+        for (IRBaseBlockRef block : blocks) {
+            //入口块总在最前
+            if (block == blocks.get(0) || block.getProfileCount() > 0) {
+                order.add(block);
+            } else {
+                cold.add(block);
+            }
+        }
+        order.addAll(cold);
+        if (order.equals(blocks)) {
+            return false;
+        }
+        for (IRBaseBlockRef block : order) {
+            function.removeBaseBlock(block);
+            function.insertBaseBlockBefore(block, null);
+        }
+        //ControlFlowGraph等按基本块在函数中的下标编号，顺序改变后需要重新计算
+        CompilationContext.current().getAnalysisManager().invalidate(function, Set.of());
+        return true;
+    }
+}
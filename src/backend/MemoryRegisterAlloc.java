@@ -1,5 +1,6 @@
 package backend;
-import IR.DomAnalysis;
+import IR.CompilationContext;
+import IR.ControlFlowGraph;
 import IR.IRInstruction.*;
 import IR.IRModule;
 import IR.IRType.IRArrayType;
@@ -7,9 +8,9 @@ import IR.IRType.IRFloatType;
 import IR.IRType.IRPointerType;
 import IR.IRType.IRType;
 import IR.IRValueRef.*;
+import IR.LoopInfo;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
 import static IR.IRValueRef.IRBaseBlockRef.IRGetNextInstruction;
@@ -18,54 +19,62 @@ import static IR.IRValueRef.IRFunctionBlockRef.IRGetNextBaseBlock;
 
 /**
  * 线性扫描寄存器分配算法，在RISCVBuilder翻译代码之前对IR进行扫描，得出所有变量应当存放的地址（寄存器或栈）
+ * 函数中出现的变量按第一次出现的顺序得到一个稠密编号，下面的表都以该编号为下标
  */
 public class MemoryRegisterAlloc implements RegisterAllocator {
 
-    private Map<String, List<String>> varLocations ;
-    private Map<String, int[]> liveIntervals ;
+    private List<List<String>> varLocations ;
+    private String raLocation;
     private int stackPointer = 0;
     private final int wordSize=4;
 
     private int registerCount;
     private String[] Reg;
     private boolean[] availReg;
-    private Map<String,Integer> occupiedReg;
 
     private int floatRegCount;
     private String[] floatReg;
     private  boolean[] availFloatReg;
-    private Map<String,Integer> occupiedFloatReg;
+    private int[] occupiedReg;//变量占用的寄存器在Reg或floatReg中的下标
 
     private IRFunctionBlockRef functionBlockRef;
 
     private IRModule module;
 
-    private List<String> arrayVars ;
-    private Map<String,Integer> arrayLength;
-    private List<String> floatVars;
-    private List<String> copyFloatVars;
-
-    private List<IRInstruction> worklist ;//ir指令
-    private List<IRInstruction> copylist ;
-    private Map<IRInstruction,List<String>> inOfInstructions ;
-    private Map<IRInstruction,List<String>> outOfInstructions;
-
-    private List<String> vars ;
-    private List<String> copyVars;
-    private Map<String,Integer> startPoint ;
-    private Map<String,Integer> endPoint ;
-
-    Map<IRBaseBlockRef, List<IRBaseBlockRef>> predecessors=new HashMap<>();
-    private List<IRBaseBlockRef> blockWorkList ;
+    private List<Integer> arrayVars ;
+    private boolean[] isArrayVar;
+    private int[] arrayLength;
+    private List<Integer> floatVars;
+    private List<Integer> copyFloatVars;
+
+    private List<IRInstruction> copylist ;//ir指令，按基本块顺序排列
+
+    private List<Integer> vars ;
+    private List<Integer> copyVars;
+
+    //变量编号对应的值，以及以值的编号(IRValueRef.getId)为下标的变量编号，不在当前函数中为-1
+    private List<IRValueRef> varValues = new ArrayList<>();
+    private int[] varIds = new int[0];
+    //每条指令使用和定义的变量编号，以指令在copylist中的下标为索引
+    private int[][] usesOfInstructions;
+    private int[][] defsOfInstructions;
+    //每个变量第一次和最后一次活跃的位置，不活跃为-1
+    private int[] startPoint;
+    private int[] endPoint;
+    //溢出代价：每次使用和定义按所在基本块的执行次数加权，没有剖析数据(-fprofile-use)时按循环嵌套深度估计，见calculateSpillWeights
+    private long[] spillWeights;
+    //估计溢出代价时考虑的最大循环深度，更深的循环按该深度计，避免代价溢出
+    private static final int maxSpillLoopDepth=6;
+
+    //以下都以基本块在blockCopyList中的下标为索引
     private List<IRBaseBlockRef> blockCopyList ;
-    private Map<IRBaseBlockRef,List<String>> inOfBlocks;
-    private Map<IRBaseBlockRef,List<String>> outOfBlocks;
-    private Map<IRBaseBlockRef,List<String>> useOfBlocks;
-    private Map<IRBaseBlockRef,List<String>> defOfBlocks;
+    private int[] firstInstOfBlocks;//基本块第一条指令在copylist中的下标，多一项作为结尾
+    private ControlFlowGraph controlFlowGraph;//前驱、后继和后序，由AnalysisManager缓存
+    private BitSet[] inOfBlocks;
+    private BitSet[] outOfBlocks;
+    private BitSet[] useOfBlocks;
+    private BitSet[] defOfBlocks;
 
-    public Map<IRBaseBlockRef, List<IRBaseBlockRef>> getPredecessors() {
-        return new HashMap<>(predecessors);
-    }
 
     @Override
     public void setFunction(IRFunctionBlockRef functionBlockRef) {
@@ -119,105 +128,86 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
         this.module = module;
     }
 
+
     private void initListAndMap(){
         stackPointer=0;
-        worklist=new ArrayList<>();
+        raLocation=null;
         copylist=new ArrayList<>();
-        blockWorkList=new ArrayList<>();
         blockCopyList=new ArrayList<>();
-        useOfBlocks=new HashMap<>();
-        defOfBlocks=new HashMap<>();
+        //清除上一个函数的变量编号
+        for (IRValueRef value : varValues){
+            varIds[value.getId()]=-1;
+        }
+        varValues=new ArrayList<>();
+        if(varIds.length<IRVirtualRegRef.getValueCount()){
+            int oldLength=varIds.length;
+            varIds=Arrays.copyOf(varIds,IRVirtualRegRef.getValueCount());
+            Arrays.fill(varIds,oldLength,varIds.length,-1);
+        }
         vars=new ArrayList<>();
         copyVars=new ArrayList<>();
         arrayVars=new ArrayList<>();
-        arrayLength=new HashMap<>();
         floatVars=new ArrayList<>();
         copyFloatVars=new ArrayList<>();
-        varLocations=new HashMap<>();
-        liveIntervals=new HashMap<>();
-        inOfInstructions=new HashMap<>();
-        outOfInstructions=new HashMap<>();
-        inOfBlocks=new HashMap<>();
-        outOfBlocks=new HashMap<>();
-        startPoint=new HashMap<>();
-        endPoint=new HashMap<>();
-        occupiedReg=new HashMap<>();
-        occupiedFloatReg=new HashMap<>();
     }
 
+
     /*
-     * 把函数所有基本块加入blockworklist中，并初始化
-     * 把函数的所有指令加入worklist中,并初始化每个指令的in和out
+     * 把函数所有基本块和指令按顺序加入blockCopyList和copylist中
+     * 给出现的变量编号，并计算每条指令和每个基本块的use和def
      */
     private void setWorklist() {
+        List<Integer> firstInsts=new ArrayList<>();
         for(IRBaseBlockRef blockRef =IRGetFirstBaseBlock(functionBlockRef);blockRef!=null;
             blockRef=IRGetNextBaseBlock(functionBlockRef,blockRef)){
-            //TODO: baseblocks有去重吗？
-            if(!blockWorkList.contains(blockRef)){
-                blockWorkList.add(blockRef);
-                blockCopyList.add(blockRef);
-                inOfBlocks.put(blockRef,new ArrayList<>());
-                outOfBlocks.put(blockRef,new ArrayList<>());
-                useOfBlocks.put(blockRef,new ArrayList<>());
-                defOfBlocks.put(blockRef,new ArrayList<>());
-                //每个基本块逐条添加，初始化
-                for (IRInstruction inst =IRGetFirstInstruction(blockRef);inst!=null;
-                     inst=IRGetNextInstruction(blockRef,inst)){
-                    worklist.add(inst);
-                    copylist.add(inst);
-                    inOfInstructions.put(inst,new ArrayList<>());
-                    outOfInstructions.put(inst,new ArrayList<>());
-                }
+            blockCopyList.add(blockRef);
+            firstInsts.add(copylist.size());
+            for (IRInstruction inst =IRGetFirstInstruction(blockRef);inst!=null;
+                 inst=IRGetNextInstruction(blockRef,inst)){
+                copylist.add(inst);
             }
         }
-        Collections.reverse(worklist);//从后往前遍历
-        Collections.reverse(blockWorkList);
-        //计算基本块的use和def
-        for (IRBaseBlockRef baseBlockRef: blockWorkList){
-            calculateUseAndDefOfBlock(baseBlockRef);
+        firstInsts.add(copylist.size());
+        firstInstOfBlocks=firstInsts.stream().mapToInt(Integer::intValue).toArray();
+        int blockNum=blockCopyList.size();
+        usesOfInstructions=new int[copylist.size()][];
+        defsOfInstructions=new int[copylist.size()][];
+        useOfBlocks=new BitSet[blockNum];
+        defOfBlocks=new BitSet[blockNum];
+        //从后往前给基本块编号变量，保持原来的变量顺序
+        for (int b=blockNum-1;b>=0;b--){
+            calculateUseAndDefOfBlock(b);
         }
+        //基本块在blockCopyList中的下标就是它在函数中的下标，也就是在ControlFlowGraph中的编号
+        controlFlowGraph=CompilationContext.current().getAnalysisManager().getControlFlowGraph(functionBlockRef);
     }
 
+
     /*
-     * 获取基本块的直接后继基本块
+     * 判断类型是否为变量
      */
-    public List<IRBaseBlockRef> getImmediateSuccessors(IRBaseBlockRef block) {
-        List<IRBaseBlockRef> successors = new ArrayList<>();
-        List<IRInstruction> instructions=block.getInstructionList();
-        int last=instructions.size()-1;
-        IRInstruction firstBrInstruction =instructions.get(last);
-        if(firstBrInstruction instanceof ReturnInstruction)return successors;
-        while(last >= 0 && instructions.get(last)!=null && instructions.get(last) instanceof BranchInstruction){
-            firstBrInstruction=instructions.get(last);
-            last--;
-        }
-        IRBaseBlockRef block1=((BranchInstruction) firstBrInstruction).getBaseBlock1();
-        List<IRBaseBlockRef> temp=new ArrayList<>();
-        temp.add(block);
-        successors.add(block1);
-        if(((BranchInstruction) firstBrInstruction).getBaseBlock2() != null){
-            IRBaseBlockRef block2=((BranchInstruction) firstBrInstruction).getBaseBlock2();
-            successors.add(block2);
-            if(predecessors.get(block2)==null)predecessors.put(block2,temp);
-            else predecessors.get(block2).addAll(temp);
-        }
-        if(predecessors.get(block1)==null)predecessors.put(block1, temp);
-        else predecessors.get(block1).addAll(temp);
-        return successors;
+    private boolean notVariable(IRValueRef var){
+        return !(var instanceof IRVirtualRegRef||var instanceof IRGlobalRegRef);
     }
 
     /*
-     * 判断类型是否为变量
+     * 返回变量的编号，第一次出现时分配新编号
      */
-    private boolean notVariable(IRValueRef var){
-        return !(var instanceof IRArrayRef||var instanceof IRVirtualRegRef||var instanceof IRGlobalRegRef);
+    private int getVarId(IRValueRef var){
+        int id=varIds[var.getId()];
+        if(id==-1){
+            id=varValues.size();
+            varIds[var.getId()]=id;
+            varValues.add(var);
+        }
+        return id;
     }
 
     /*
      * 获取指令里使用的变量
      */
-    private List<String> getUsedVarsOfInstructions(IRInstruction inst){
-        List<String> usedVars = new ArrayList<>();
+    private int[] getUsedVarsOfInstructions(IRInstruction inst){
+        List<IRValueRef> usedVars = new ArrayList<>();
         List<IRValueRef> operands = inst.getOperands();
         operands.removeIf(this::notVariable);
         if(!operands.isEmpty()){
@@ -228,27 +218,21 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
                 operands.remove(0);
             }
             if (inst instanceof PhiInstruction){
-                for (IRBaseBlockRef keySet: ((PhiInstruction) inst).getIncomingValues().keySet()){
-                    String var=((PhiInstruction) inst).getIncomingValues().get(keySet).getText();
-                    if(Character.isDigit(var.charAt(0)))continue;
-                    vars.add(var);
+                for (IRValueRef var : ((PhiInstruction) inst).getIncomingValues().values()){
+                    if(notVariable(var))continue;
                     usedVars.add(var);
                 }
             }
-            vars.addAll(operands.stream().map(IRValueRef::getText).toList());
-            vars=vars.stream().distinct().collect(Collectors.toList());
-            usedVars.addAll(operands.stream().map(IRValueRef::getText).toList());
+            usedVars.addAll(operands);
         }
-        usedVars=usedVars.stream().distinct().collect(Collectors.toList());
-        return usedVars;
+        return usedVars.stream().distinct().mapToInt(this::getVarId).toArray();
     }
 
     /*
      * 获取指令里定义的变量
      * allocate, calculate, compare, getelementp, load, type, zext
      */
-    private List<String> getDefVarsOfInstructions(IRInstruction inst){
-        List<String> defVars = new ArrayList<>();
+    private int[] getDefVarsOfInstructions(IRInstruction inst){
         List<IRValueRef> operands = inst.getOperands();
         operands.removeIf(this::notVariable);
         if(!operands.isEmpty()){
@@ -256,247 +240,166 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
                     ||inst instanceof CompareInstruction||inst instanceof GetElementPointerInstruction
                     ||inst instanceof LoadInstruction||inst instanceof TypeTransferInstruction
                     ||inst instanceof ZextInstruction||inst instanceof PhiInstruction){
-                vars.addAll(operands.stream().map(IRValueRef::getText).toList());
-                vars=vars.stream().distinct().collect(Collectors.toList());
-                defVars.add(operands.get(0).getText());//以上指令的第一个操作数是被define的
+                for (IRValueRef operand : operands){
+                    getVarId(operand);
+                }
+                return new int[]{getVarId(operands.get(0))};//以上指令的第一个操作数是被define的
             }
         }
-        defVars=defVars.stream().distinct().collect(Collectors.toList());
-        return defVars;
+        return new int[0];
     }
 
-    private void calculateUseAndDefOfBlock(IRBaseBlockRef block){
-        List<String> use=new ArrayList<>();
-        List<String> def=new ArrayList<>();
-        for (IRInstruction inst = IRGetFirstInstruction(block); inst != null;
-             inst = IRGetNextInstruction(block, inst)){
-            List<String> usedVars = getUsedVarsOfInstructions(inst);
-            List<String> defVars = getDefVarsOfInstructions(inst);
-            for(String usedVar : usedVars){
-                if(!def.contains(usedVar))use.add(usedVar);
+    /*
+     * 计算基本块的use和def，同时记录每条指令使用和定义的变量编号
+     * 变量在块内先被使用再被定义时只算use
+     */
+    private void calculateUseAndDefOfBlock(int b){
+        BitSet use=new BitSet();
+        BitSet def=new BitSet();
+        for (int i=firstInstOfBlocks[b];i<firstInstOfBlocks[b+1];i++){
+            IRInstruction inst=copylist.get(i);
+            int[] usedVars=getUsedVarsOfInstructions(inst);
+            int[] defVars=getDefVarsOfInstructions(inst);
+            for (int usedVar : usedVars){
+                if(!def.get(usedVar))use.set(usedVar);
             }
-            for (String defVar : defVars){
-                if(!use.contains(defVar))def.add(defVar);
+            for (int defVar : defVars){
+                if(!use.get(defVar))def.set(defVar);
             }
+            usesOfInstructions[i]=usedVars;
+            defsOfInstructions[i]=defVars;
         }
-        use=use.stream().distinct().collect(Collectors.toList());
-        def=def.stream().distinct().collect(Collectors.toList());
-        useOfBlocks.put(block,use);
-        defOfBlocks.put(block,def);
+        useOfBlocks[b]=use;
+        defOfBlocks[b]=def;
     }
 
+
     /*
-     * 以基本块为单位，计算每个基本块的in和out
+     * 以基本块为单位求in和out，in=use+(out-def)，out=所有后继的in
+     * 活跃变量是逆向问题，按后序(后继先于前驱)作为优先级取出工作集中的基本块，
+     * 某个基本块的in变化时把它的前驱重新加入工作集
      */
-    private void WorkListAlgorithm(){
-        boolean change=true;
-        while (change){
-            change=false;
-            for (IRBaseBlockRef blockRef : blockWorkList) {
-                List<String> oldOutOfBlocks = new ArrayList<>(outOfBlocks.get(blockRef));
-                //out=all in of successors
-                List<String> curOutOfBlocks = new ArrayList<>();
-                List<IRBaseBlockRef> successors = getImmediateSuccessors(blockRef);
-                for (IRBaseBlockRef successor : successors) {
-                    List<String> inOfBlock = inOfBlocks.get(successor);
-                    curOutOfBlocks.addAll(inOfBlock);
+    private void calculateBlocks(){
+        int blockNum=blockCopyList.size();
+        inOfBlocks=new BitSet[blockNum];
+        outOfBlocks=new BitSet[blockNum];
+        for (int b=0;b<blockNum;b++){
+            inOfBlocks[b]=new BitSet();
+            outOfBlocks[b]=new BitSet();
+        }
+        int[] order=controlFlowGraph.getPostOrder();
+        int[] position=new int[blockNum];
+        for (int p=0;p<blockNum;p++){
+            position[order[p]]=p;
+        }
+        BitSet workList=new BitSet(blockNum);
+        workList.set(0,blockNum);
+        for (int p=workList.nextSetBit(0);p>=0;p=workList.nextSetBit(0)){
+            workList.clear(p);
+            int b=order[p];
+            BitSet out=new BitSet();
+            for (int succ : controlFlowGraph.getSuccessors(b)){
+                out.or(inOfBlocks[succ]);
+            }
+            BitSet in=(BitSet) out.clone();
+            in.andNot(defOfBlocks[b]);
+            in.or(useOfBlocks[b]);
+            outOfBlocks[b]=out;
+            if(!in.equals(inOfBlocks[b])){
+                inOfBlocks[b]=in;
+                for (int pred : controlFlowGraph.getPredecessors(b)){
+                    workList.set(position[pred]);
                 }
-                curOutOfBlocks = curOutOfBlocks.stream().distinct().collect(Collectors.toList());
-                List<String> copyOutOfBlocks=new ArrayList<>(curOutOfBlocks);
-                //in=use+(out-def)
-                List<String> curInOfBlocks = new ArrayList<>(useOfBlocks.get(blockRef));
-                copyOutOfBlocks.removeAll(defOfBlocks.get(blockRef));
-                curInOfBlocks.addAll(copyOutOfBlocks);
-                curInOfBlocks = curInOfBlocks.stream().distinct().collect(Collectors.toList());
-                //if out changed,push all successors into worklist
-                List<String> oldInOfBlocks = new ArrayList<>(inOfBlocks.get(blockRef));
-                if (!listEqual(curOutOfBlocks, oldOutOfBlocks) || !listEqual(curInOfBlocks, oldInOfBlocks)) {
-                    change = true;
-                }
-                //update in and out of blocks
-                outOfBlocks.put(blockRef, curOutOfBlocks);
-                inOfBlocks.put(blockRef, curInOfBlocks);
             }
         }
     }
 
     /*
-     * 时清凯的完整工作集算法
+     * 每个基本块从out开始逆序扫描一遍，得到每条指令的in和out
+     * 第一条指令的in就是基本块的in，最后一条指令的out就是基本块的out
+     * 同时记录每个变量第一次和最后一次活跃的位置
      */
-    private void TestWorkList(){
-        while(!blockWorkList.isEmpty()){
-            IRBaseBlockRef blockRef = blockWorkList.remove(0);
-            //out=all in of successors
-            List<String> curOutOfBlocks = new ArrayList<>();
-            List<IRBaseBlockRef> successors = getImmediateSuccessors(blockRef);
-            for (IRBaseBlockRef successor : successors) {
-                List<String> inOfBlock = inOfBlocks.get(successor);
-                curOutOfBlocks.addAll(inOfBlock);
-            }
-            curOutOfBlocks = curOutOfBlocks.stream().distinct().collect(Collectors.toList());
-            List<String> copyOutOfBlocks=new ArrayList<>(curOutOfBlocks);
-            //in=use+(out-def)
-            List<String> curInOfBlocks = new ArrayList<>(useOfBlocks.get(blockRef));
-            copyOutOfBlocks.removeAll(defOfBlocks.get(blockRef));
-            curInOfBlocks.addAll(copyOutOfBlocks);
-            curInOfBlocks = curInOfBlocks.stream().distinct().collect(Collectors.toList());
-            List<String> oldInOfBlocks = new ArrayList<>(inOfBlocks.get(blockRef));
-            //if out changed,push all successors into worklist
-            if (!listEqual(curInOfBlocks, oldInOfBlocks) ) {
-                List<IRBaseBlockRef> predecessor=predecessors.get(blockRef);
-                if(predecessor!=null){
-                    blockWorkList.addAll(predecessor);
-                    blockWorkList=blockWorkList.stream().distinct().collect(Collectors.toList());
-                }
-            }
-            //update in and out of blocks
-            outOfBlocks.put(blockRef, curOutOfBlocks);
-            inOfBlocks.put(blockRef, curInOfBlocks);
-        }
-    }
-
     private void calculateInstructions(){
-        for (IRBaseBlockRef blockRef : blockCopyList){
-            //逐条遍历计算最后的in和out
-            List<String> inOfBlock = inOfBlocks.get(blockRef);
-            List<String> outOfBlock = outOfBlocks.get(blockRef);
-            List<IRInstruction> instructions = new ArrayList<>(blockRef.getInstructionList());
-            Collections.reverse(instructions);
-            for(int i=0;i<instructions.size();i++){
-                IRInstruction inst = instructions.get(i);
-                if(i==0){//最后一条指令的out就是这个基本块的out
-                    outOfInstructions.put(inst,outOfBlock);
-                }else{//其他的指令的out等于下一条i--指令的in
-                    outOfInstructions.put(inst,inOfInstructions.get(instructions.get(i-1)));
-                }
-
-                if(i==instructions.size()-1){//第一条指令的in就是这个基本块的in
-                    inOfInstructions.put(inst,inOfBlock);
+        startPoint=new int[varValues.size()];
+        endPoint=new int[varValues.size()];
+        Arrays.fill(startPoint,-1);
+        Arrays.fill(endPoint,-1);
+        for (int b=0;b<blockCopyList.size();b++){
+            int first=firstInstOfBlocks[b];
+            BitSet live=(BitSet) outOfBlocks[b].clone();
+            for (int i=firstInstOfBlocks[b+1]-1;i>=first;i--){
+                markLiveVars(live,i+1);//指令的out
+                if(i==first){
+                    live=inOfBlocks[b];
                 }else{//in=use+(out-def)
-                    List<String> usedVars = new ArrayList<>(getUsedVarsOfInstructions(inst));
-                    List<String> intersection = new ArrayList<>(getDefVarsOfInstructions(inst));
-                    List<String> outOfInst=new ArrayList<>(outOfInstructions.get(inst));
-                    intersection.retainAll(outOfInst);
-                    outOfInst.removeAll(intersection);
-                    usedVars.addAll(outOfInst);
-                    usedVars=usedVars.stream().distinct().collect(Collectors.toList());
-                    inOfInstructions.put(inst,usedVars);
-                }
-            }
-        }
-    }
-
-    /*
-     * 蚂蚁的遍历法
-     */
-    private void worklistAlgorithm(){
-        boolean change=true;
-        while (change){
-            change=false;
-            for (IRInstruction inst : worklist) {
-                List<String> oldOutOfInstructions = new ArrayList<>(outOfInstructions.get(inst));
-                //out=all in of successors
-                List<String> curOutOfInstructions = new ArrayList<>();
-                IRInstruction nextInst = IRGetNextInstruction(inst.getBaseBlock(), inst);
-                List<IRBaseBlockRef> postDominators = getImmediateSuccessors(inst.getBaseBlock());
-                if (nextInst == null) { //inst is last instruction of this baseblock
-                    for (IRBaseBlockRef postDominator : postDominators) {
-                        IRInstruction firstInst = IRGetFirstInstruction(postDominator);
-                        curOutOfInstructions.addAll(inOfInstructions.get(firstInst));
+                    for (int defVar : defsOfInstructions[i]){
+                        live.clear(defVar);
+                    }
+                    for (int usedVar : usesOfInstructions[i]){
+                        live.set(usedVar);
                     }
-                } else curOutOfInstructions.addAll(inOfInstructions.get(nextInst));
-                curOutOfInstructions=curOutOfInstructions.stream().distinct().collect(Collectors.toList());
-                //in=use+(out-def)
-                List<String> curInOfInstructions = new ArrayList<>(getUsedVarsOfInstructions(inst));
-                List<String> intersection = new ArrayList<>(getDefVarsOfInstructions(inst));
-                intersection.retainAll(oldOutOfInstructions);//out^def
-                oldOutOfInstructions.removeAll(intersection);//out-def
-                curInOfInstructions.addAll(oldOutOfInstructions);
-                curInOfInstructions=curInOfInstructions.stream().distinct().collect(Collectors.toList());
-                //if out or in changed continue
-                oldOutOfInstructions = outOfInstructions.get(inst);
-                List<String> oldInOfInstructions = inOfInstructions.get(inst);
-                if(!listEqual(curInOfInstructions,oldInOfInstructions)||!listEqual(curOutOfInstructions,oldOutOfInstructions)){
-                    change=true;
                 }
-                //update in and out of blocks
-                outOfInstructions.put(inst, curOutOfInstructions);
-                inOfInstructions.put(inst, curInOfInstructions);
+                markLiveVars(live,i+1);//指令的in
             }
         }
     }
 
-    /*
-     * 判断两个列表是否含有相同元素（顺序不影响）
-     */
-    boolean listEqual(List<String> list1,List<String> list2){
-        return list1.size()==list2.size()&& new HashSet<>(list1).containsAll(list2);
+    private void markLiveVars(BitSet live,int cnt){
+        for (int var=live.nextSetBit(0);var>=0;var=live.nextSetBit(var+1)){
+            if(startPoint[var]==-1||cnt<startPoint[var])startPoint[var]=cnt;
+            if(cnt>endPoint[var])endPoint[var]=cnt;
+        }
     }
 
     /*
-     * 计算每个变量的live range
+     * 计算每个变量的live range，从不活跃的变量不分配位置
      */
     private void calculateIntervals(){
-        int cnt=0;
-        for(IRInstruction inst : copylist){
-            cnt++;
-            List<String> outOfInst=outOfInstructions.get(inst);
-            List<String> inOfInst=inOfInstructions.get(inst);
-            for (String inVal: inOfInst){
-                startPoint.putIfAbsent(inVal,cnt);
-                endPoint.put(inVal,cnt);
-            }
-            for (String outVal : outOfInst){
-                //第一次出现
-                startPoint.putIfAbsent(outVal, cnt);
-                endPoint.put(outVal, cnt);
-            }
-        }
-        List<String> copy=new ArrayList<>(vars);
-        for(String var:copy){
-            if(startPoint.get(var)==null){
-                vars.remove(var);
+        varLocations=new ArrayList<>(Collections.nCopies(varValues.size(),null));
+        for (int var=0;var<varValues.size();var++){
+            if(startPoint[var]==-1){
                 List<String> location=new ArrayList<>();
                 location.add(String.valueOf(-1));
-                varLocations.put(var,location);
+                varLocations.set(var,location);
+            }else{
+                vars.add(var);
             }
         }
-        for (String varName : vars){
-            int[] liveInterval = new int[2];
-            liveInterval[0]=startPoint.get(varName);
-            liveInterval[1]=endPoint.get(varName);
-            liveIntervals.put(varName,liveInterval);
-        }
     }
 
     /*
-     * 遍历所有变量，把数组变量及其长度记录到list里
+     * 遍历所有变量，把数组变量及其长度记录下来
      * 把float类型记录，在之后单独处理
      */
     private void setArrayAndFloatVars(){
+        isArrayVar=new boolean[varValues.size()];
+        arrayLength=new int[varValues.size()];
+        boolean[] isFloatVar=new boolean[varValues.size()];
         for(IRInstruction inst : copylist){
             List<IRValueRef> operands = inst.getOperands();
             operands.removeIf(this::notVariable);
             if(!operands.isEmpty()){
                 for(IRValueRef operand : operands){
                     IRType type = operand.getType();
+                    int var=varIds[operand.getId()];
                     if(inst instanceof AllocateInstruction&&type instanceof IRPointerType &&((IRPointerType) type).getBaseType() instanceof IRArrayType){
-                        arrayVars.add(operand.getText());
+                        if(!isArrayVar[var])arrayVars.add(var);
+                        isArrayVar[var]=true;
                         List<Integer> lengthList=((IRArrayType) ((IRPointerType) type).getBaseType()).getLengthList();
                         int len=1;
                         for (int length : lengthList){
                             len*=length;
                         }
-                        arrayLength.put(operand.getText(),len);
+                        arrayLength[var]=len;
                     }else if(type instanceof IRFloatType){
-                        floatVars.add(operand.getText());
-                        vars.remove(operand.getText());
+                        if(!isFloatVar[var]&&startPoint[var]!=-1)floatVars.add(var);
+                        isFloatVar[var]=true;
                     }
                 }
             }
         }
-        arrayVars=arrayVars.stream().distinct().collect(Collectors.toList());
-        floatVars=floatVars.stream().distinct().collect(Collectors.toList());
+        vars.removeIf(var->isFloatVar[var]);
+        occupiedReg=new int[varValues.size()];
         Arrays.fill(availReg, true);
         Arrays.fill(availFloatReg,true);
     }
@@ -505,16 +408,16 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
      * 线性分配算法
      */
     private void linearScanAllocate(){
-        List<String> active=new ArrayList<>();
-        List<String> sortedVars=sortVarsByStartPoint(vars);// in order of increasing start point
-        for(String var : sortedVars){
-            if(arrayVars.contains(var)){//if var is an array
-                int len=arrayLength.get(var)+1; //put array name on stack
+        List<Integer> active=new ArrayList<>();
+        List<Integer> sortedVars=sortVarsByStartPoint(vars);// in order of increasing start point
+        for(int var : sortedVars){
+            if(isArrayVar[var]){//if var is an array
+                int len=arrayLength[var]+1; //put array name on stack
                 storeToStack(var,len*wordSize);
                 continue;
             }
             copyVars.add(var);
-            int start=startPoint.get(var);
+            int start=startPoint[var];
             active=expireOldVars(start,active,false);
             if(active.size()>=registerCount){
                 spill(var,active,false);
@@ -523,7 +426,7 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
                 String reg=getOneAvailReg(var,false);
                 List<String>location=new ArrayList<>();
                 location.add(reg);
-                varLocations.put(var,location);
+                varLocations.set(var,location);
                 //add i to active, sorted by increasing end point
                 addVarByEndPoint(active,var);
             }
@@ -533,61 +436,119 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     /*
      * 按start递增对活跃周期进行排序
      */
-    private List<String> sortVarsByStartPoint(List<String> vars){
-        List<String> sortedVars = new ArrayList<>(vars);
-        sortedVars.sort(Comparator.comparingInt(varName -> startPoint.get(varName)));
+    private List<Integer> sortVarsByStartPoint(List<Integer> vars){
+        List<Integer> sortedVars = new ArrayList<>(vars);
+        sortedVars.sort(Comparator.comparingInt(var -> startPoint[var]));
         return sortedVars;
     }
 
     /*
      * 按照end递增往active里添加一个变量
      */
-    private void addVarByEndPoint(List<String> active,String var){
+    private void addVarByEndPoint(List<Integer> active,int var){
         active.add(var);
-        active.sort(Comparator.comparingInt(varName -> endPoint.get(varName)));
+        active.sort(Comparator.comparingInt(v -> endPoint[v]));
     }
 
     /*
      * 把active里元素end时间早于cutTime的变量都去掉
      */
-    private List<String> expireOldVars(int curTime,List<String> active,boolean f){
-        List<String> copy=new ArrayList<>(active);
-        for (String var : active){//in order of increasing end point
-            if(endPoint.get(var)>=curTime)return copy;
+    private List<Integer> expireOldVars(int curTime,List<Integer> active,boolean f){
+        List<Integer> copy=new ArrayList<>(active);
+        for (int var : active){//in order of increasing end point
+            if(endPoint[var]>=curTime)return copy;
             //remove var from active
-            copy.remove(var);
+            copy.remove(Integer.valueOf(var));
             //add register to pool of free registers
             if(f){//float type
-                int reg=occupiedFloatReg.get(var);
-                availFloatReg[reg]=true;
+                availFloatReg[occupiedReg[var]]=true;
             }else{
-                int reg=occupiedReg.get(var);
-                availReg[reg]=true;
+                availReg[occupiedReg[var]]=true;
             }
         }
         return copy;
     }
 
     /*
-     * 选择一个结束最晚的变量溢出到栈上
+     * 计算每个变量的溢出代价：每次使用和定义按所在基本块的执行次数加权
+     * 有剖析数据时用实际的执行次数，否则按所在循环的嵌套深度估计为10^depth(深度超过maxSpillLoopDepth时按maxSpillLoopDepth计)
+     * 函数中没有循环且没有剖析数据时不计算，溢出时仍选择结束最晚的变量
+     */
+    private void calculateSpillWeights(){
+        spillWeights=null;
+        boolean hasProfile=blockCopyList.get(0).hasProfileCount();
+        LoopInfo loopInfo=null;
+        if(!hasProfile){
+            loopInfo=CompilationContext.current().getAnalysisManager().getLoopInfo(functionBlockRef);
+            if(loopInfo.getLoops().isEmpty()){
+                return;
+            }
+        }
+        spillWeights=new long[varValues.size()];
+        for (int b=0;b<blockCopyList.size();b++){
+            IRBaseBlockRef block=blockCopyList.get(b);
+            long count=hasProfile?Math.max(block.getProfileCount(),0)
+                    :loopDepthWeight(Math.min(loopInfo.getLoopDepth(block),maxSpillLoopDepth));
+            for (int i=firstInstOfBlocks[b];i<firstInstOfBlocks[b+1];i++){
+                for (int usedVar : usesOfInstructions[i]){
+                    spillWeights[usedVar]+=count;
+                }
+                for (int defVar : defsOfInstructions[i]){
+                    spillWeights[defVar]+=count;
+                }
+            }
+        }
+    }
+
+    private static long loopDepthWeight(int depth){
+        long weight=1;
+        for (int i=0;i<depth;i++){
+            weight*=10;
+        }
+        return weight;
+    }
+
+    /*
+     * 选择一个变量溢出到栈上
+     * 有溢出代价时选择var和active中代价最小的变量，代价相同时选择结束最晚的；否则选择结束最晚的变量
      */
-    private void spill(String var,List<String> active,boolean f){
+    private void spill(int var,List<Integer> active,boolean f){
+        if(spillWeights!=null){
+            int victim=var;
+            for (int v : active){
+                if(spillWeights[v]<spillWeights[victim]
+                        ||spillWeights[v]==spillWeights[victim]&&endPoint[v]>endPoint[victim]){
+                    victim=v;
+                }
+            }
+            if(victim==var){
+                storeToStack(var,wordSize);
+            }else{
+                int reg=occupiedReg[victim];
+                List<String> regLocation=new ArrayList<>();
+                regLocation.add(f?floatReg[reg]:Reg[reg]);
+                varLocations.set(var,regLocation);
+                occupiedReg[var]=reg;
+
+                storeToStack(victim,wordSize);
+                active.remove(Integer.valueOf(victim));
+                addVarByEndPoint(active,var);
+            }
+            return;
+        }
         //last interval in active
-        int latestEndPoint=endPoint.get(active.get(active.size()-1));
-        if(endPoint.get(var)>latestEndPoint){
+        int last=active.get(active.size()-1);
+        if(endPoint[var]>endPoint[last]){
             storeToStack(var,wordSize);
         }else{
-            int reg=f?occupiedFloatReg.get(active.get(active.size()-1))
-                    : occupiedReg.get(active.get(active.size()-1));
+            int reg=occupiedReg[last];
             List<String> regLocation=new ArrayList<>();
             regLocation.add(f?floatReg[reg]:Reg[reg]);
-            varLocations.put(var,regLocation);
-
-            if(f)occupiedFloatReg.put(var,reg);
-            else occupiedReg.put(var,reg);
+            varLocations.set(var,regLocation);
+            occupiedReg[var]=reg;
 
-            storeToStack(active.get(active.size()-1),wordSize);
-            active.remove(active.get(active.size()-1));
+            storeToStack(last,wordSize);
+            active.remove(active.size()-1);
             addVarByEndPoint(active,var);
         }
     }
@@ -595,22 +556,22 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     /*
      * 把变量存到栈上
      */
-    private void storeToStack(String var,int size){
+    private void storeToStack(int var,int size){
         stackPointer+=size;//new stack location
         List<String> location=new ArrayList<>();
         location.add(String.valueOf(stackPointer));
-        varLocations.put(var,location);
+        varLocations.set(var,location);
     }
 
     /*
      * 获取一个空的寄存器
      */
-    private String getOneAvailReg(String var,boolean f){
+    private String getOneAvailReg(int var,boolean f){
         if(f){
             for(int i=0;i<floatRegCount;i++){
                 if(availFloatReg[i]){
                     availFloatReg[i]=false;
-                    occupiedFloatReg.put(var,i);
+                    occupiedReg[var]=i;
                     return floatReg[i];
                 }
             }
@@ -618,7 +579,7 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
             for (int i=0;i<registerCount;i++){
                 if(availReg[i]){
                     availReg[i]=false;
-                    occupiedReg.put(var,i);
+                    occupiedReg[var]=i;
                     return Reg[i];
                 }
             }
@@ -630,11 +591,11 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
      * 为浮点数类型的变量分配寄存器
      */
     private void floatAllocate(){
-        List<String> active=new ArrayList<>();
-        List<String> sortedVars=sortVarsByStartPoint(floatVars);// in order of increasing start point
-        for(String var : sortedVars){
+        List<Integer> active=new ArrayList<>();
+        List<Integer> sortedVars=sortVarsByStartPoint(floatVars);// in order of increasing start point
+        for(int var : sortedVars){
             copyFloatVars.add(var);
-            int start=startPoint.get(var);
+            int start=startPoint[var];
             active=expireOldVars(start,active,true);
             if(active.size()>=floatRegCount){
                 spill(var,active,true);
@@ -643,7 +604,7 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
                 String reg=getOneAvailReg(var,true);
                 List<String>location=new ArrayList<>();
                 location.add(reg);
-                varLocations.put(var,location);
+                varLocations.set(var,location);
                 //add i to active, sorted by increasing end point
                 addVarByEndPoint(active,var);
             }
@@ -651,11 +612,11 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     }
 
     private void allocateArrayVars(){
-        for(String var:arrayVars){//if var is an array
-            int len=arrayLength.get(var)+1; //put array name on stack
+        for(int var:arrayVars){//if var is an array
+            int len=arrayLength[var]+1; //put array name on stack
             storeToStack(var,len*wordSize);
         }
-        vars.removeAll(arrayVars);
+        vars.removeIf(var->isArrayVar[var]);
         copyVars.addAll(vars);
         copyFloatVars.addAll(floatVars);
     }
@@ -663,12 +624,12 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     /*
      * 图着色寄存器分配
      */
-    private void colorAllocate(List<String> vars,int regCount){
-        Stack<String> stack=new Stack<>();
-        Map<String,String> regAllocate=new HashMap<>();
-        //遍历liveintervals，每寄存器对应一个List<String>
-        Map<String,List<String>> conflictVars = calculateConflictVars(vars);//TODO: 浮点数
-        Map<String,List<String>> conflictCopy=new HashMap<>(conflictVars);
+    private void colorAllocate(List<Integer> vars,int regCount){
+        Stack<Integer> stack=new Stack<>();
+        Map<Integer,String> regAllocate=new HashMap<>();
+        //遍历liveintervals，每寄存器对应一个List<Integer>
+        Map<Integer,List<Integer>> conflictVars = calculateConflictVars(vars);//TODO: 浮点数
+        Map<Integer,List<Integer>> conflictCopy=new HashMap<>(conflictVars);
         //如果每个点的度都小于寄存器数量，则加入栈中
         addVertexsToStack(vars,conflictCopy,regCount,stack);
         //剩下的点入度都大于等于寄存器数量
@@ -682,7 +643,7 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
         }
         //给栈里的元素分配寄存器
         while(!stack.isEmpty()){
-            String var=stack.pop();
+            int var=stack.pop();
             boolean f = regCount==floatRegCount;
             List<String> conflictedRegs=getConflictedRegs(regAllocate,conflictVars.get(var));
             String reg = "";
@@ -704,17 +665,17 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
             regAllocate.put(var,reg);
             List<String>location=new ArrayList<>();
             location.add(reg);
-            varLocations.put(var,location);
+            varLocations.set(var,location);
         }
     }
 
     //获取当前节点的相邻节点已经占用的寄存器
-    private List<String> getConflictedRegs(Map<String,String> regAllocate,List<String> conflictVars){
+    private List<String> getConflictedRegs(Map<Integer,String> regAllocate,List<Integer> conflictVars){
         List<String> conflictedRegs=new ArrayList<>();
-        for (String conflictVar : conflictVars){
-            if(regAllocate.get(conflictVar)!=null){
-                conflictedRegs.add(regAllocate.get(conflictVar));
-                conflictedRegs=conflictedRegs.stream().distinct().collect(Collectors.toList());
+        for (int conflictVar : conflictVars){
+            String reg=regAllocate.get(conflictVar);
+            if(reg!=null&&!conflictedRegs.contains(reg)){
+                conflictedRegs.add(reg);
             }
         }
         return conflictedRegs;
@@ -723,19 +684,19 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     /*
      * 把入度小于k的点都加到栈里，并从图中删去
      */
-    private void addVertexsToStack(List<String> vars,Map<String,List<String>> conflictVars,int regCount,Stack<String> stack){
-        List<String> copy;
+    private void addVertexsToStack(List<Integer> vars,Map<Integer,List<Integer>> conflictVars,int regCount,Stack<Integer> stack){
+        List<Integer> copy;
         while(true){
             boolean find=false;
             copy=new ArrayList<>(vars);
-            for (String var: copy){
-                List<String> conflict=conflictVars.get(var);
+            for (int var: copy){
+                List<Integer> conflict=conflictVars.get(var);
                 int size=conflict.size();
                 if(size<regCount){
                     find=true;
                     removeVertexFromGraph(var,vars,conflictVars);
                     stack.push(var);
-                    vars.remove(var);
+                    vars.remove(Integer.valueOf(var));
                 }
             }
             if(!find)break;
@@ -745,33 +706,25 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     /*
      * 从图中删去一个点的所有边
      */
-    private void removeVertexFromGraph(String var,List<String> vars,Map<String,List<String>> conflictVars){
-        for (String variable: vars){
-            if(var.equals(variable))continue;
-            conflictVars.get(variable).remove(var);
+    private void removeVertexFromGraph(int var,List<Integer> vars,Map<Integer,List<Integer>> conflictVars){
+        for (int variable: vars){
+            if(var==variable)continue;
+            conflictVars.get(variable).remove(Integer.valueOf(var));
         }
     }
 
     /*
      * 分别计算每个变量冲突的变量list
      */
-    private Map<String,List<String>> calculateConflictVars(List<String> vars){
-        Map<String,List<String>> conflictVars=new HashMap<>();
+    private Map<Integer,List<Integer>> calculateConflictVars(List<Integer> vars){
+        Map<Integer,List<Integer>> conflictVars=new HashMap<>();
         vars=sortVarsByStartPoint(vars);
-        for (String var:vars){
-            int end=endPoint.get(var);
-            for (String conflictVar:vars){
-                if(startPoint.get(conflictVar)>end)break;
-                List<String> temp=new ArrayList<>();
-                temp.add(conflictVar);
-                temp=temp.stream().distinct().collect(Collectors.toList());
-                if(conflictVars.get(var)==null)conflictVars.put(var,temp);
-                else conflictVars.get(var).addAll(temp);
-                temp=new ArrayList<>();
-                temp.add(var);
-                temp=temp.stream().distinct().collect(Collectors.toList());
-                if(conflictVars.get(conflictVar)==null)conflictVars.put(conflictVar,temp);
-                else conflictVars.get(conflictVar).addAll(temp);
+        for (int var:vars){
+            int end=endPoint[var];
+            for (int conflictVar:vars){
+                if(startPoint[conflictVar]>end)break;
+                conflictVars.computeIfAbsent(var, k -> new ArrayList<>()).add(conflictVar);
+                conflictVars.computeIfAbsent(conflictVar, k -> new ArrayList<>()).add(var);
             }
             conflictVars.computeIfAbsent(var, k -> new ArrayList<>());
         }
@@ -786,15 +739,13 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
         for (IRInstruction inst : copylist){
             cnt++;
             if(inst instanceof CallInstruction){
-                List<String> active=getCurrentActiveVars(cnt);
-                for (String s : active) {
-                    //storeToStack(s,4);
+                List<Integer> active=getCurrentActiveVars(cnt);
+                for (int var : active) {
                     stackPointer+=4;//new stack location
-                    List<String> location=new ArrayList<>(varLocations.get(s));
-                    location.add(String.valueOf(stackPointer));
-                    varLocations.put(s,location);
+                    varLocations.get(var).add(String.valueOf(stackPointer));
                 }
-                storeToStack("ra",4);
+                stackPointer+=4;//ra的位置，以最后一次调用为准
+                raLocation=String.valueOf(stackPointer);
             }
         }
     }
@@ -802,11 +753,10 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     /*
      * 获得当前活跃的变量集合
      */
-    private List<String> getCurrentActiveVars(int cutTime){
-        List<String> active=new ArrayList<>();
-        for (String var : copyVars){
-            int[] liveInterval=liveIntervals.get(var);
-            if(liveInterval[0]<=cutTime&&liveInterval[1]>=cutTime){
+    private List<Integer> getCurrentActiveVars(int cutTime){
+        List<Integer> active=new ArrayList<>();
+        for (int var : copyVars){
+            if(startPoint[var]<=cutTime&&endPoint[var]>=cutTime){
                 List<String> location=varLocations.get(var);
                 String curLocation=location.get(location.size()-1);
                 if(!Character.isDigit(curLocation.charAt(0))){//只计算在寄存器里的
@@ -814,9 +764,8 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
                 }
             }
         }
-        for (String var:copyFloatVars){
-            int[] liveInterval=liveIntervals.get(var);
-            if(liveInterval[0]<=cutTime&&liveInterval[1]>=cutTime){
+        for (int var:copyFloatVars){
+            if(startPoint[var]<=cutTime&&endPoint[var]>=cutTime){
                 List<String> location=varLocations.get(var);
                 String curLocation=location.get(0);
                 if(!Character.isDigit(curLocation.charAt(0))){//只计算在寄存器里的
@@ -831,12 +780,11 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
      * 去除没有使用的常量定义
      */
     private void removeUnusedVarDefinitions() {
-        Set<String> usedVars = new HashSet<>(startPoint.keySet());
         Iterator<IRInstruction> iterator = copylist.iterator();
         while (iterator.hasNext()) {
             IRInstruction inst = iterator.next();
-            List<String> defVars = getDefVarsOfInstructions(inst);
-            if (!defVars.isEmpty() && !usedVars.contains(defVars.get(0))) {
+            int[] defVars = getDefVarsOfInstructions(inst);
+            if (defVars.length != 0 && startPoint[defVars[0]] == -1) {
                 iterator.remove();
             }
         }
@@ -846,12 +794,12 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     public int allocate(){
         initListAndMap();
         setWorklist();
-        //WorkListAlgorithm();
-        TestWorkList();
+        calculateBlocks();
         calculateInstructions();
         calculateIntervals();
 //        removeUnusedVarDefinitions();
         setArrayAndFloatVars();
+        calculateSpillWeights();
 //        if(this.functionBlockRef.getBaseBlocks().size()>3000||this.vars.size()>3000){
             linearScanAllocate();
             floatAllocate();
@@ -865,7 +813,16 @@ public class MemoryRegisterAlloc implements RegisterAllocator {
     }
 
     @Override
-    public List<String> getRegister(String variable) {
-        return varLocations.get(variable);
+    public List<String> getRegister(IRValueRef variable) {
+        int id=variable.getId();
+        if(id<0||id>=varIds.length||varIds[id]==-1){
+            return null;
+        }
+        return varLocations.get(varIds[id]);
+    }
+
+    @Override
+    public String getRaLocation() {
+        return raLocation;
     }
 }
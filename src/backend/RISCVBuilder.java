@@ -1,8 +1,10 @@
 package backend;
 
+import IR.CompilationContext;
 import IR.IRConst;
 import IR.IRInstruction.*;
 import IR.IRModule;
+import IR.PassTimer;
 import IR.IRType.*;
 import IR.IRValueRef.*;
 import backend.RISCVCode.*;
@@ -14,11 +16,16 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.security.interfaces.ECKey;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static IR.IRInstruction.IRInstruction.*;
 import static IR.IRModule.*;
 import static IR.IRModule.IRConstIntGetSExtValue;
 import static IR.IRValueRef.IRBaseBlockRef.IRGetFirstInstruction;
+import static IR.IRValueRef.IRBaseBlockRef.IRGetLastInstruction;
 import static IR.IRValueRef.IRBaseBlockRef.IRGetNextInstruction;
 import static IR.IRValueRef.IRFunctionBlockRef.IRGetFirstBaseBlock;
 import static IR.IRValueRef.IRFunctionBlockRef.IRGetNextBaseBlock;
@@ -34,7 +41,7 @@ public class RISCVBuilder {
     private final StringBuilder outputStringBuilder = new StringBuilder();
     private final RegisterAllocator registerAllocator;
     private RISCVCode riscvCode;
-    private Set<String> GEPPointers;
+    private BitSet GEPPointers;//GEP和指针phi得到的指针，以值的编号为下标，翻译函数前标记
 
 
     private LinkedHashMap<String, String> paramsRegStoreStack;
@@ -55,8 +62,70 @@ public class RISCVBuilder {
     }
 
     public void generateASM(String outputPath) {
+        generateGlobals();
+        for (IRFunctionBlockRef functionBlockRef = IRGetFirstFunction(module); functionBlockRef != null; functionBlockRef = IRGetNextFunction(module, functionBlockRef)) {
+            riscvCode.addFunction(buildFunction(functionBlockRef));
+        }
+
+        for (RISCVFunction function : riscvCode.getFunctions()) {
+            optimizerFactory.optimize(function);
+        }
+        emit(outputPath);
+    }
+
+    /**
+     * 并行生成汇编，分两轮把每个函数作为一个任务提交到pool：第一轮执行irPipeline(IR优化)，第二轮执行寄存器分配、翻译和后端优化
+     * 两轮之间按模块中的顺序重新编号基本块(IRModule.IRRenumberBaseBlocks)，使优化中新建的基本块的标签不取决于线程调度，输出与串行时相同
+     * 每个任务使用独立的RISCVBuilder和寄存器分配器，并在工作线程中激活调用者的编译上下文，最后按函数在模块中的原顺序拼接输出
+     */
+    @SuppressWarnings("try")
+    public void generateASM(String outputPath, ForkJoinPool pool, Supplier<RegisterAllocator> registerAllocatorSupplier,
+                            Consumer<IRFunctionBlockRef> irPipeline) {
+        generateGlobals();
+        CompilationContext context = CompilationContext.current();
+        List<ForkJoinTask<?>> irTasks = new ArrayList<>();
+        for (IRFunctionBlockRef functionBlockRef = IRGetFirstFunction(module); functionBlockRef != null; functionBlockRef = IRGetNextFunction(module, functionBlockRef)) {
+            IRFunctionBlockRef function = functionBlockRef;
+            irTasks.add(pool.submit(() -> {
+                try (CompilationContext.Activation ignored = context.activate()) {
+                    irPipeline.accept(function);
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : irTasks) {
+            task.join();
+        }
+        IRModule.IRRenumberBaseBlocks(module);
+        List<ForkJoinTask<RISCVFunction>> tasks = new ArrayList<>();
+        for (IRFunctionBlockRef functionBlockRef = IRGetFirstFunction(module); functionBlockRef != null; functionBlockRef = IRGetNextFunction(module, functionBlockRef)) {
+            IRFunctionBlockRef function = functionBlockRef;
+            tasks.add(pool.submit(() -> {
+                try (CompilationContext.Activation ignored = context.activate()) {
+                    RISCVBuilder worker = new RISCVBuilder(module, registerAllocatorSupplier.get());
+                    RISCVFunction riscvFunction = worker.buildFunction(function);
+                    worker.optimizerFactory.optimize(riscvFunction);
+                    return riscvFunction;
+                }
+            }));
+        }
+        for (ForkJoinTask<RISCVFunction> task : tasks) {
+            riscvCode.addFunction(task.join());
+        }
+        emit(outputPath);
+    }
+
+    private void emit(String outputPath) {
+        CompilationContext.current().getPassTimer().run("emit", () -> {
+            int count = 0;
+            for (RISCVFunction function : riscvCode.getFunctions()) {
+                count += function.getInstructionCount();
+            }
+            return count;
+        }, null, () -> riscvCode.generateRISCVCode(outputPath));
+    }
 
-        // 处理全局变量
+    // 处理全局变量
+    private void generateGlobals() {
         for (IRGlobalRegRef global = IRGetFirstGlobal(module); global != null; global = IRGetNextGlobal(module, global)) {
             String name = global.getIdentity();
             IRValueRef initializer = IRGetInitializer(module, global);
@@ -100,178 +169,198 @@ public class RISCVBuilder {
                 }//数组一定有初始化值
             }
         }
+    }
 
-        for (IRFunctionBlockRef functionBlockRef = IRGetFirstFunction(module); functionBlockRef != null; functionBlockRef = IRGetNextFunction(module, functionBlockRef)) {
-            paramsRegStoreStack = new LinkedHashMap<>();
-            phiIndex = 0;
-
-            boolean hasCall = false;
-
-            GEPPointers = new HashSet<>();
-            // 为参数分配寄存器
-            LinkedHashMap<String, String> paramsAndRegister = new LinkedHashMap<>();
-            List<IRValueRef> params = functionBlockRef.getParams();
-            int floatIndex = 0;
-            int intIndex = 0;
-            int paramStackSize = 0;
-            int paramRegStackSize = 0;
-            for(IRValueRef param : params) {
-                if (param.getType() instanceof IRInt32Type) {
-                    if (intIndex > 7) {
-                        paramsAndRegister.put(param.getText(), Integer.toString(paramStackSize));
-                        paramStackSize += 8;
-                    }
-                    else{
-                        paramsAndRegister.put(param.getText(), "a" + intIndex);
-                        paramsRegStoreStack.put("a" + intIndex, Integer.toString(paramRegStackSize));
-                        paramRegStackSize += 8;
-                        intIndex++;
-                    }
-                }
-                if (param.getType() instanceof IRFloatType) {
-                    if (floatIndex > 7) {
-                        paramsAndRegister.put(param.getText(), Integer.toString(paramStackSize));
-                        paramStackSize += 8;
-                    }
-                    else {
-                        paramsAndRegister.put(param.getText(), "fa" + floatIndex);
-                        paramsRegStoreStack.put("fa" + floatIndex, Integer.toString(paramRegStackSize));
-                        paramRegStackSize += 8;
-                        floatIndex++;
-                    }
+    /**
+     * 为一个函数分配寄存器并翻译为RISCVFunction，不修改riscvCode
+     */
+    public RISCVFunction buildFunction(IRFunctionBlockRef functionBlockRef) {
+        paramsRegStoreStack = new LinkedHashMap<>();
+        phiIndex = 0;
+
+        boolean hasCall = false;
+
+        GEPPointers = new BitSet();
+        // 为参数分配寄存器
+        LinkedHashMap<Integer, String> paramsAndRegister = new LinkedHashMap<>();
+        List<IRValueRef> params = functionBlockRef.getParams();
+        int floatIndex = 0;
+        int intIndex = 0;
+        int paramStackSize = 0;
+        int paramRegStackSize = 0;
+        for(IRValueRef param : params) {
+            if (param.getType() instanceof IRInt32Type) {
+                if (intIndex > 7) {
+                    paramsAndRegister.put(param.getId(), Integer.toString(paramStackSize));
+                    paramStackSize += 8;
                 }
-                if (param.getType() instanceof IRPointerType) {
-                    if (intIndex > 7) {
-                        paramsAndRegister.put(param.getText(), Integer.toString(paramStackSize));
-                        paramStackSize += 8;
-                    }
-                    else{
-                        paramsAndRegister.put(param.getText(), "a" + intIndex);
-                        paramsRegStoreStack.put("a" + intIndex, Integer.toString(paramRegStackSize));
-                        paramRegStackSize += 8;
-                        intIndex++;
-                    }
+                else{
+                    paramsAndRegister.put(param.getId(), "a" + intIndex);
+                    paramsRegStoreStack.put("a" + intIndex, Integer.toString(paramRegStackSize));
+                    paramRegStackSize += 8;
+                    intIndex++;
                 }
             }
-
-            RISCVFunction riscvFunction = new RISCVFunction(functionBlockRef.getFunctionName(), paramsAndRegister, paramStackSize);
-            riscvCode.addFunction(riscvFunction);
-            registerAllocator.setFunction(functionBlockRef);
-            registerAllocator.setModule(module);
-            int paramsRegStoreStackSize = intIndex * 8 + floatIndex * 8;
-            int alignedStackSize = registerAllocator.allocate() * 2 + 8 + paramsRegStoreStackSize; // lost copy
-            for (String paramsReg : paramsRegStoreStack.keySet()) {
-                String location = Integer.toString(Integer.parseInt(paramsRegStoreStack.get(paramsReg)) + alignedStackSize -  paramsRegStoreStackSize);
-                paramsRegStoreStack.put(paramsReg, location);
+            if (param.getType() instanceof IRFloatType) {
+                if (floatIndex > 7) {
+                    paramsAndRegister.put(param.getId(), Integer.toString(paramStackSize));
+                    paramStackSize += 8;
+                }
+                else {
+                    paramsAndRegister.put(param.getId(), "fa" + floatIndex);
+                    paramsRegStoreStack.put("fa" + floatIndex, Integer.toString(paramRegStackSize));
+                    paramRegStackSize += 8;
+                    floatIndex++;
+                }
             }
-            int phiTmpStackSize = calculatePhiTmpStackSize(functionBlockRef); // lost copy
-            riscvFunction.setStackSize(alignedStackSize + phiTmpStackSize);
-            for (IRBaseBlockRef block = IRGetFirstBaseBlock(functionBlockRef); block != null; block = IRGetNextBaseBlock(functionBlockRef, block)) {
-                for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = IRGetNextInstruction(block, inst)) {
-                    String opcode = IRGetInstructionOpcode(inst);
-                    if (opcode.equals("IRCall")) {
-                        hasCall = true;
-                        break;
-                    }
+            if (param.getType() instanceof IRPointerType) {
+                if (intIndex > 7) {
+                    paramsAndRegister.put(param.getId(), Integer.toString(paramStackSize));
+                    paramStackSize += 8;
+                }
+                else{
+                    paramsAndRegister.put(param.getId(), "a" + intIndex);
+                    paramsRegStoreStack.put("a" + intIndex, Integer.toString(paramRegStackSize));
+                    paramRegStackSize += 8;
+                    intIndex++;
                 }
             }
-            for (IRBaseBlockRef block = IRGetFirstBaseBlock(functionBlockRef); block != null; block = IRGetNextBaseBlock(functionBlockRef, block)) {
-                blockEnd = false;
-                RISCVBlock riscvBlock = new RISCVBlock(block.getLabel());
-
-                riscvFunction.addBlock(riscvBlock);
-                if (block.equals(IRGetFirstBaseBlock(functionBlockRef)) && hasCall) {
-                    String raLocation = Integer.toString(Integer.parseInt(registerAllocator.getRegister("ra").get(0)) * 2);
-                    riscvBlock.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "ra"), new RISCVOperand(OperandType.stackRoom, raLocation + "(sp)")));
-                    riscvFunction.setStackTopOffset("0");
-                }
-                for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = IRGetNextInstruction(block, inst)) {
-                    String opcode = IRGetInstructionOpcode(inst);
-                    switch (opcode) {
-                        case "IRAllocate":
-                            handleAllocateInstruction(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRStore":
-                            handleStoreInstruction(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRLoad":
-                            handleLoadInstruction(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRAdd":
-                        case "IRFAdd":
-                        case "IRSub":
-                        case "IRFSub":
-                        case "IRMul":
-                        case "IRFMul":
-                        case "IRSDiv":
-                        case "IRFDiv":
-                        case "IRSRem":
-                            handleBinaryOperation(inst, opcode, riscvBlock, riscvFunction);
-                            break;
-                        case "IREq":
-                        case "IRNe":
-                        case "IRUne":
-                        case "IRUeq":
-                        case "IRUgt":
-                        case "IRUge":
-                        case "IRUlt":
-                        case "IRUle":
-                        case "IRSgt":
-                        case "IRSge":
-                        case "IRSlt":
-                        case "IRSle":
-                            handleICmpInstruction(inst, opcode, riscvBlock, riscvFunction);
-                            break;
-                        case "IRXor":
-                            handleXorInstruction(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRZExt":
-                            handleZExtInstruction(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRRet":
-                            blockEnd = true;
-                            if (hasCall) {
-                                String raLocation = Integer.toString(Integer.parseInt(registerAllocator.getRegister("ra").get(0)) * 2);
-                                riscvBlock.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ra"), new RISCVOperand(OperandType.stackRoom, raLocation + "(sp)")));
-                            }
-                            handleRetInstruction(inst, riscvBlock, riscvFunction, functionBlockRef);
-                            break;
-                        case "IRCall":
-                            handleCallInstruction(inst, riscvBlock, riscvFunction, functionBlockRef);
-                            break;
-                        case "IRBr":
-                            blockEnd = true;
-                            handleBrInstruction(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRGetElementPointer" :
-                            handleGetElementPointer(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRTypeTransfer":
-                            handleTypeTransfer(inst, riscvBlock, riscvFunction);
-                            break;
-                        case "IRPhi":
-                            handlePhiInstitution(inst, riscvBlock, riscvFunction, alignedStackSize);
-                        default:
-                            break;
-                    }
-                    if (blockEnd)
-                        break;
+        }
+
+        RISCVFunction riscvFunction = new RISCVFunction(functionBlockRef.getFunctionName(), paramsAndRegister, paramStackSize);
+        PassTimer timer = CompilationContext.current().getPassTimer();
+        //有剖析数据时按执行次数安排基本块顺序，寄存器分配按新的顺序计算活跃区间
+        timer.run("BlockLayout", functionBlockRef::getInstructionCount, () -> functionBlockRef.getBaseBlocks().size(),
+                () -> BlockLayout.run(functionBlockRef));
+        registerAllocator.setFunction(functionBlockRef);
+        registerAllocator.setModule(module);
+        int paramsRegStoreStackSize = intIndex * 8 + floatIndex * 8;
+        int allocatedSize = timer.call(registerAllocator.getClass().getSimpleName(), functionBlockRef::getInstructionCount,
+                () -> functionBlockRef.getBaseBlocks().size(), registerAllocator::allocate);
+        int alignedStackSize = allocatedSize * 2 + 8 + paramsRegStoreStackSize; // lost copy
+        for (String paramsReg : paramsRegStoreStack.keySet()) {
+            String location = Integer.toString(Integer.parseInt(paramsRegStoreStack.get(paramsReg)) + alignedStackSize -  paramsRegStoreStackSize);
+            paramsRegStoreStack.put(paramsReg, location);
+        }
+        int phiTmpStackSize = calculatePhiTmpStackSize(functionBlockRef); // lost copy
+        riscvFunction.setStackSize(alignedStackSize + phiTmpStackSize);
+        for (IRBaseBlockRef block = IRGetFirstBaseBlock(functionBlockRef); block != null; block = IRGetNextBaseBlock(functionBlockRef, block)) {
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = IRGetNextInstruction(block, inst)) {
+                String opcode = IRGetInstructionOpcode(inst);
+                if (opcode.equals("IRCall")) {
+                    hasCall = true;
+                }
+                //翻译前标记所有GEP的结果：使用者所在的块可能排在GEP之前(如GVN复用了其他块中的GEP)
+                //指针phi(强度削弱产生)的值都来自GEP，同样是地址
+                if (inst instanceof GetElementPointerInstruction
+                        || inst instanceof PhiInstruction && inst.getOperands().get(0).getType() instanceof IRPointerType) {
+                    GEPPointers.set(inst.getOperands().get(0).getId());
                 }
             }
-            phiAddInSrcBlock(riscvFunction, alignedStackSize);
         }
+        boolean functionHasCall = hasCall;
+        timer.run("RISCVBuilder", riscvFunction::getInstructionCount, () -> riscvFunction.getBlocks().size(),
+                () -> lowerBlocks(functionBlockRef, riscvFunction, functionHasCall, alignedStackSize));
+        //之后不再使用该函数的分析结果
+        CompilationContext.current().getAnalysisManager().release(functionBlockRef);
+        return riscvFunction;
+    }
 
-        for (RISCVFunction function : riscvCode.getFunctions()) {
-            optimizerFactory.optimize(function);
+    /**
+     * 逐条翻译函数中的IR指令，最后为phi指令在前驱块中插入复制
+     */
+    private void lowerBlocks(IRFunctionBlockRef functionBlockRef, RISCVFunction riscvFunction, boolean hasCall, int alignedStackSize) {
+        for (IRBaseBlockRef block = IRGetFirstBaseBlock(functionBlockRef); block != null; block = IRGetNextBaseBlock(functionBlockRef, block)) {
+            blockEnd = false;
+            RISCVBlock riscvBlock = new RISCVBlock(block.getLabel());
+
+            riscvFunction.addBlock(riscvBlock);
+            if (block.equals(IRGetFirstBaseBlock(functionBlockRef)) && hasCall) {
+                String raLocation = Integer.toString(Integer.parseInt(registerAllocator.getRaLocation()) * 2);
+                riscvBlock.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "ra"), new RISCVOperand(OperandType.stackRoom, raLocation + "(sp)")));
+                riscvFunction.setStackTopOffset("0");
+            }
+            for (IRInstruction inst = IRGetFirstInstruction(block); inst != null; inst = IRGetNextInstruction(block, inst)) {
+                String opcode = IRGetInstructionOpcode(inst);
+                switch (opcode) {
+                    case "IRAllocate":
+                        handleAllocateInstruction(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRStore":
+                        handleStoreInstruction(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRLoad":
+                        handleLoadInstruction(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRAdd":
+                    case "IRFAdd":
+                    case "IRSub":
+                    case "IRFSub":
+                    case "IRMul":
+                    case "IRFMul":
+                    case "IRSDiv":
+                    case "IRFDiv":
+                    case "IRSRem":
+                        handleBinaryOperation(inst, opcode, riscvBlock, riscvFunction);
+                        break;
+                    case "IREq":
+                    case "IRNe":
+                    case "IRUne":
+                    case "IRUeq":
+                    case "IRUgt":
+                    case "IRUge":
+                    case "IRUlt":
+                    case "IRUle":
+                    case "IRSgt":
+                    case "IRSge":
+                    case "IRSlt":
+                    case "IRSle":
+                        handleICmpInstruction(inst, opcode, riscvBlock, riscvFunction);
+                        break;
+                    case "IRXor":
+                        handleXorInstruction(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRZExt":
+                        handleZExtInstruction(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRRet":
+                        blockEnd = true;
+                        if (hasCall) {
+                            String raLocation = Integer.toString(Integer.parseInt(registerAllocator.getRaLocation()) * 2);
+                            riscvBlock.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ra"), new RISCVOperand(OperandType.stackRoom, raLocation + "(sp)")));
+                        }
+                        handleRetInstruction(inst, riscvBlock, riscvFunction, functionBlockRef);
+                        break;
+                    case "IRCall":
+                        handleCallInstruction(inst, riscvBlock, riscvFunction, functionBlockRef);
+                        break;
+                    case "IRBr":
+                        blockEnd = true;
+                        handleBrInstruction(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRGetElementPointer" :
+                        handleGetElementPointer(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRTypeTransfer":
+                        handleTypeTransfer(inst, riscvBlock, riscvFunction);
+                        break;
+                    case "IRPhi":
+                        handlePhiInstitution(inst, riscvBlock, riscvFunction, alignedStackSize);
+                    default:
+                        break;
+                }
+                if (blockEnd)
+                    break;
+            }
         }
-            riscvCode.generateRISCVCode(outputPath);
+        phiAddInSrcBlock(riscvFunction, alignedStackSize);
     }
 
     private void handleAllocateInstruction(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction) {
         IRType allocationType = ((IRPointerType)inst.getOperands().get(0).getType()).getBaseType();
         if (allocationType instanceof IRArrayType) {
-            String varName = IRGetValueName(inst.getOperands().get(0));
-            String str = registerAllocator.getRegister(varName).get(0);
+            IRValueRef varValue = inst.getOperands().get(0);
+            String str = registerAllocator.getRegister(varValue).get(0);
             if (str.startsWith("-"))
                 return;
             int arrayLength = 1;
@@ -303,7 +392,7 @@ public class RISCVBuilder {
     private void handleStoreInstruction(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction) {
         IRValueRef value = IRGetOperand(inst, 1);
         IRValueRef pointer = IRGetOperand(inst, 2);
-        if (registerAllocator.getRegister(pointer.getText()).get(0).startsWith("-"))
+        if (registerAllocator.getRegister(pointer).get(0).startsWith("-"))
             return;
         boolean valueIsFloat = false;
         if (IRIsIntConstant(value)) {
@@ -320,30 +409,29 @@ public class RISCVBuilder {
         } else {
             // 检查value是不是参数
             // TODO
-            if (riscvFunction.getParamsRegister(value.getText()) != null) {
-                if (riscvFunction.getParamsRegister(value.getText()).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(value.getText()))));
-                else if (riscvFunction.getParamsRegister(value.getText()).startsWith("fa")) {
+            if (riscvFunction.getParamsRegister(value) != null) {
+                if (riscvFunction.getParamsRegister(value).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(value))));
+                else if (riscvFunction.getParamsRegister(value).startsWith("fa")) {
                     valueIsFloat = true;
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(value.getText()))));
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(value))));
                 }
                 // 参数在栈里
                 else {
                     if (((IRPointerType)(inst.getOperands().get(0).getType())).getBaseType() instanceof IRFloatType) {
                         valueIsFloat = true;
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(value.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(value) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(value.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(value) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
             } else {
-                String varName = IRGetValueName(value);
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(value).get(0);
                 String varOperateReg;
                 if (value.getType() instanceof IRFloatType) {
                     valueIsFloat = true;
@@ -374,9 +462,9 @@ public class RISCVBuilder {
             } else
                 block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, "0(t1)")));
         } else {
-            String str = registerAllocator.getRegister(ptrName).get(0);
+            String str = registerAllocator.getRegister(pointer).get(0);
             //判断是不是数组中元素
-            if (GEPPointers.contains(ptrName)) {
+            if (GEPPointers.get(pointer.getId())) {
                 IRType arrayBase = ((IRPointerType)pointer.getType()).getBaseType();
                 while(arrayBase instanceof IRArrayType)
                     arrayBase = ((IRArrayType) arrayBase).getBaseType();
@@ -439,7 +527,7 @@ public class RISCVBuilder {
     }
 
     private void handleLoadInstruction(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction) {
-        if (registerAllocator.getRegister(inst.getOperands().get(0).getText()).get(0).startsWith("-"))
+        if (registerAllocator.getRegister(inst.getOperands().get(0)).get(0).startsWith("-"))
             return;
         IRValueRef srcValue = IRGetOperand(inst, 1);
         String srcName = IRGetValueName(srcValue);
@@ -455,7 +543,7 @@ public class RISCVBuilder {
             else
                 block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, "0(t0)")));
         } else { // 局部变量
-            String str = registerAllocator.getRegister(srcName).get(0);
+            String str = registerAllocator.getRegister(srcValue).get(0);
             if (isNumeric(str)) { // 栈
 //                if (Integer.parseInt(str) > 10000000) {
 //                    throw new RuntimeException();
@@ -472,7 +560,7 @@ public class RISCVBuilder {
                 else
                     block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, str)));
             }
-            if (GEPPointers.contains(srcName)) {
+            if (GEPPointers.get(srcValue.getId())) {
                 //TODO
                 block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, "t0")));
                 if (srcIsFloat)
@@ -483,8 +571,7 @@ public class RISCVBuilder {
         }
 
         IRValueRef dest = inst.getOperands().get(0);
-        String destName = IRGetValueName(dest);
-        String str = registerAllocator.getRegister(destName).get(0);
+        String str = registerAllocator.getRegister(dest).get(0);
         if (isNumeric(str)) { // 栈
 //            if (Integer.parseInt(str) > 10000000) {
 //                throw new RuntimeException();
@@ -505,7 +592,7 @@ public class RISCVBuilder {
 
     private void handleBinaryOperation(IRInstruction inst, String opcode, RISCVBlock block, RISCVFunction riscvFunction) {
         boolean isFloatBinary = false;
-        if (registerAllocator.getRegister(IRGetValueName(inst.getOperands().get(0))).get(0).startsWith("-"))
+        if (registerAllocator.getRegister(inst.getOperands().get(0)).get(0).startsWith("-"))
             return;
 
         IRValueRef lhs = IRGetOperand(inst, 1);
@@ -525,24 +612,24 @@ public class RISCVBuilder {
             block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, "t0")));
         }
         else {
-            if (riscvFunction.getParamsRegister(lhs.getText()) != null) {
-                if (riscvFunction.getParamsRegister(lhs.getText()).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs.getText()))));
-                else if (riscvFunction.getParamsRegister(lhs.getText()).startsWith("fa")) {
+            if (riscvFunction.getParamsRegister(lhs) != null) {
+                if (riscvFunction.getParamsRegister(lhs).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs))));
+                else if (riscvFunction.getParamsRegister(lhs).startsWith("fa")) {
                     isFloatBinary = true;
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs.getText()))));
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs))));
                 }
                 // 参数在栈里
                 else {
                     if (lhs.getType() instanceof IRFloatType) {
                         isFloatBinary = true;
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
@@ -551,8 +638,7 @@ public class RISCVBuilder {
             else {
                 if (lhs.getType() instanceof IRFloatType)
                     isFloatBinary = true;
-                String varName = IRGetValueName(lhs);
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(lhs).get(0);
                 if (isNumeric(str)) { // 栈
 //                if (Integer.parseInt(str) > 10000000) {
 //                    throw new RuntimeException();
@@ -586,24 +672,24 @@ public class RISCVBuilder {
             block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.reg, "t1")));
         }
         else {
-            if (riscvFunction.getParamsRegister(rhs.getText()) != null) {
-                if (riscvFunction.getParamsRegister(rhs.getText()).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs.getText()))));
-                else if (riscvFunction.getParamsRegister(rhs.getText()).startsWith("fa")) {
+            if (riscvFunction.getParamsRegister(rhs) != null) {
+                if (riscvFunction.getParamsRegister(rhs).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs))));
+                else if (riscvFunction.getParamsRegister(rhs).startsWith("fa")) {
                     isFloatBinary = true;
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs.getText()))));
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs))));
                 }
                 // 参数在栈里
                 else {
                     if (rhs.getType() instanceof IRFloatType) {
                         isFloatBinary = true;
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
@@ -614,8 +700,7 @@ public class RISCVBuilder {
 
                 if (rhs.getType() instanceof IRFloatType)
                     isFloatBinary = true;
-                String varName = IRGetValueName(rhs);
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(rhs).get(0);
                 if (isNumeric(str)) { // 栈
 //                if (Integer.parseInt(str) > 10000000) {
 //                    throw new RuntimeException();
@@ -672,8 +757,8 @@ public class RISCVBuilder {
             }
         }
 
-        String varName = IRGetValueName(inst.getOperands().get(0));
-            String str = registerAllocator.getRegister(varName).get(0);
+        IRValueRef varValue = inst.getOperands().get(0);
+            String str = registerAllocator.getRegister(varValue).get(0);
             if (isNumeric(str)) { // 栈
                 str = Integer.toString(Integer.parseInt(str) * 2);
                 if (isFloatBinary)
@@ -702,20 +787,19 @@ public class RISCVBuilder {
                 int constValue = (int) IRConstIntGetSExtValue(returnValue);
                 block.addInstruction(new RISCVLi(new RISCVOperand(OperandType.reg, "a0"), new RISCVOperand(OperandType.imm, Integer.toString(constValue))));
             } else {
-                String varName = IRGetValueName(returnValue);
 
-                if (riscvFunction.getParamsRegister(varName) != null) {
-                    if (riscvFunction.getParamsRegister(varName).startsWith("a"))
-                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "a0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(varName))));
+                if (riscvFunction.getParamsRegister(returnValue) != null) {
+                    if (riscvFunction.getParamsRegister(returnValue).startsWith("a"))
+                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "a0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(returnValue))));
                     // 参数在栈里
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "a0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(varName) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "a0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(returnValue) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
                 else {
-                    String str = registerAllocator.getRegister(varName).get(0);
+                    String str = registerAllocator.getRegister(returnValue).get(0);
                     if (isNumeric(str)) { // 栈
 //                    if (Integer.parseInt(str) > 10000000) {
 //                        throw new RuntimeException();
@@ -740,21 +824,20 @@ public class RISCVBuilder {
                 block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.imm, lower12), "addi"));
                 block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "fa0"), new RISCVOperand(OperandType.reg, "t0")));
             } else {
-                String varName = IRGetValueName(returnValue);
 
-                if (riscvFunction.getParamsRegister(varName) != null) {
-                     if (riscvFunction.getParamsRegister(varName).startsWith("fa")) {
-                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "fa0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(varName))));
+                if (riscvFunction.getParamsRegister(returnValue) != null) {
+                     if (riscvFunction.getParamsRegister(returnValue).startsWith("fa")) {
+                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "fa0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(returnValue))));
                     }
                     // 参数在栈里
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "fa0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(varName) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "fa0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(returnValue) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
                 else {
-                    String str = registerAllocator.getRegister(varName).get(0);
+                    String str = registerAllocator.getRegister(returnValue).get(0);
                     if (isNumeric(str)) { // 栈
 //                    if (Integer.parseInt(str) > 10000000) {
 //                        throw new RuntimeException();
@@ -775,16 +858,16 @@ public class RISCVBuilder {
     private void handleCallInstruction(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction, IRFunctionBlockRef functionBlockRef) {
 
         //调用者保存
-        LinkedHashMap<String, List<String>> callerSaveReg = new LinkedHashMap<>();
+        LinkedHashMap<Integer, List<String>> callerSaveReg = new LinkedHashMap<>();
         List<IRValueRef> originParams = functionBlockRef.getParams();
         for (IRValueRef param : originParams) {
-            if (riscvFunction.getParamsRegister(param.getText()).startsWith("a") || riscvFunction.getParamsRegister(param.getText()).startsWith("fa")) {
-                String str = paramsRegStoreStack.get(riscvFunction.getParamsRegister(param.getText()));
-                block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(param.getText())), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
+            if (riscvFunction.getParamsRegister(param).startsWith("a") || riscvFunction.getParamsRegister(param).startsWith("fa")) {
+                String str = paramsRegStoreStack.get(riscvFunction.getParamsRegister(param));
+                block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(param)), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
                 List<String> l = new ArrayList<>();
-                l.add(riscvFunction.getParamsRegister(param.getText()));
+                l.add(riscvFunction.getParamsRegister(param));
                 l.add(Integer.toString(Integer.parseInt(str) / 2));
-                callerSaveReg.put(param.getText(), l);
+                callerSaveReg.put(param.getId(), l);
             }
         }
         boolean reachThisInst = false;
@@ -798,12 +881,12 @@ public class RISCVBuilder {
                 for (IRValueRef opt : opts) {
                     if (opt == null)
                         break;
-                    List<String> locations = registerAllocator.getRegister(opt.getText());
-                    if (locations != null && locations.size() > 1 &&callerSaveReg.get(opt.getText())==null) {
+                    List<String> locations = registerAllocator.getRegister(opt);
+                    if (locations != null && locations.size() > 1 &&callerSaveReg.get(opt.getId())==null) {
                         String str = Integer.toString(2 * Integer.parseInt(locations.get(1)));
                         block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, locations.get(0)), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
 //                        locations.set(1, str);
-                        callerSaveReg.put(opt.getText(), locations);
+                        callerSaveReg.put(opt.getId(), locations);
                     }
                 }
             }
@@ -871,33 +954,32 @@ public class RISCVBuilder {
             }
             else {
                 // 检查value是不是参数
-                String varName = IRGetValueName(param);
 
-                if (riscvFunction.getParamsRegister(varName) != null) {
-                    if (riscvFunction.getParamsRegister(varName).startsWith("a")) {
-                        String str = Integer.toString(Integer.parseInt(callerSaveReg.get(varName).get(1)) * 2);
+                if (riscvFunction.getParamsRegister(param) != null) {
+                    if (riscvFunction.getParamsRegister(param).startsWith("a")) {
+                        String str = Integer.toString(Integer.parseInt(callerSaveReg.get(param.getId()).get(1)) * 2);
                         block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
-                    }else if (riscvFunction.getParamsRegister(varName).startsWith("fa")) {
-                        String str = Integer.toString(Integer.parseInt(callerSaveReg.get(varName).get(1)) * 2);
+                    }else if (riscvFunction.getParamsRegister(param).startsWith("fa")) {
+                        String str = Integer.toString(Integer.parseInt(callerSaveReg.get(param.getId()).get(1)) * 2);
                         block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
                     }
                     // 参数在栈里
                     else {
                         if (param.getType() instanceof IRFloatType) {
                             block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                            block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(varName) + "(sp)")));
+                            block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(param) + "(sp)")));
                             block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                         }
                         else {
                             block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                            block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(varName) + "(sp)")));
+                            block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(param) + "(sp)")));
                             block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                         }
                     }
                 }
 
                 else {
-                    String str = registerAllocator.getRegister(varName).get(0);
+                    String str = registerAllocator.getRegister(param).get(0);
                     if (isNumeric(str)) { // 栈
                         str = Integer.toString(Integer.parseInt(str) * 2);
                         if (param.getType() instanceof IRFloatType)
@@ -908,7 +990,7 @@ public class RISCVBuilder {
                     } else {
                         if (param.getType() instanceof IRFloatType) {
                             if (str.startsWith("fa")) {
-                                List<String> location = callerSaveReg.get(param.getText());
+                                List<String> location = callerSaveReg.get(param.getId());
                                 str = Integer.toString(2 * Integer.parseInt(location.get(1)));
                                 block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
                             }
@@ -917,7 +999,7 @@ public class RISCVBuilder {
                         }
                         else {
                             if (str.startsWith("a")) {
-                                List<String> location = callerSaveReg.get(param.getText());
+                                List<String> location = callerSaveReg.get(param.getId());
                                 str = Integer.toString(2 * Integer.parseInt(location.get(1)));
                                 block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
                             }
@@ -958,8 +1040,8 @@ public class RISCVBuilder {
 
 
         if (!((CallInstruction)inst).isVoid()) {
-            String varName = IRGetValueName(inst.getOperands().get(0));
-            String str = registerAllocator.getRegister(varName).get(0);
+            IRValueRef varValue = inst.getOperands().get(0);
+            String str = registerAllocator.getRegister(varValue).get(0);
             if ( ((CallInstruction)inst).getFunction().getRetType()  instanceof IRInt32Type) {
                 if (isNumeric(str)) { // 栈
                     str = Integer.toString(Integer.parseInt(str) * 2);
@@ -983,8 +1065,7 @@ public class RISCVBuilder {
 
 
         // 调用者恢复
-        for (String key : callerSaveReg.keySet()) {
-            List<String> location = callerSaveReg.get(key);
+        for (List<String> location : callerSaveReg.values()) {
             String str = Integer.toString(2 * Integer.parseInt(location.get(1)));
             block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, location.get(0)), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
         }
@@ -992,7 +1073,7 @@ public class RISCVBuilder {
     }
 
     private void handleICmpInstruction(IRInstruction inst, String opt,RISCVBlock block, RISCVFunction riscvFunction) {
-        if (registerAllocator.getRegister(inst.getOperands().get(0).getText()).get(0).startsWith("-"))
+        if (registerAllocator.getRegister(inst.getOperands().get(0)).get(0).startsWith("-"))
             return;
 
         IRValueRef lhs = IRGetOperand(inst, 1);
@@ -1012,24 +1093,24 @@ public class RISCVBuilder {
             block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.imm, lower12), "addi"));
             block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, "t0")));
         } else {
-            if (riscvFunction.getParamsRegister(lhs.getText()) != null) {
-                if (riscvFunction.getParamsRegister(lhs.getText()).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs.getText()))));
-                else if (riscvFunction.getParamsRegister(lhs.getText()).startsWith("fa")) {
+            if (riscvFunction.getParamsRegister(lhs) != null) {
+                if (riscvFunction.getParamsRegister(lhs).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs))));
+                else if (riscvFunction.getParamsRegister(lhs).startsWith("fa")) {
                     isFloatIcmp = true;
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs.getText()))));
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs))));
                 }
                 // 参数在栈里
                 else {
                     if (lhs.getType() instanceof IRFloatType) {
                         isFloatIcmp = true;
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
@@ -1038,8 +1119,7 @@ public class RISCVBuilder {
             else {
                 if (lhs.getType() instanceof IRFloatType)
                     isFloatIcmp = true;
-                String varName = IRGetValueName(lhs);
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(lhs).get(0);
                 if (isNumeric(str)) { // 栈
                     str = Integer.toString(Integer.parseInt(str) * 2);
                     if (isFloatIcmp)
@@ -1070,24 +1150,24 @@ public class RISCVBuilder {
             block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.reg, "t1")));
         }
         else {
-            if (riscvFunction.getParamsRegister(rhs.getText()) != null) {
-                if (riscvFunction.getParamsRegister(rhs.getText()).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs.getText()))));
-                else if (riscvFunction.getParamsRegister(rhs.getText()).startsWith("fa")) {
+            if (riscvFunction.getParamsRegister(rhs) != null) {
+                if (riscvFunction.getParamsRegister(rhs).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs))));
+                else if (riscvFunction.getParamsRegister(rhs).startsWith("fa")) {
                     isFloatIcmp = true;
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs.getText()))));
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs))));
                 }
                 // 参数在栈里
                 else {
                     if (rhs instanceof IRFloatType) {
                         isFloatIcmp = true;
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
@@ -1096,8 +1176,7 @@ public class RISCVBuilder {
 
                 if (rhs.getType() instanceof IRFloatType)
                     isFloatIcmp = true;
-                String varName = IRGetValueName(rhs);
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(rhs).get(0);
                 if (isNumeric(str)) { // 栈
                     str = Integer.toString(Integer.parseInt(str) * 2);
                     if (isFloatIcmp)
@@ -1164,8 +1243,8 @@ public class RISCVBuilder {
         }
 
 
-        String varName = IRGetValueName(inst.getOperands().get(0));
-        String str = registerAllocator.getRegister(varName).get(0);
+        IRValueRef varValue = inst.getOperands().get(0);
+        String str = registerAllocator.getRegister(varValue).get(0);
         if (isNumeric(str)) { // 栈
             str = Integer.toString(Integer.parseInt(str) * 2);
             block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
@@ -1177,7 +1256,7 @@ public class RISCVBuilder {
     }
 
     private void handleXorInstruction(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction) {
-        if (registerAllocator.getRegister(inst.getOperands().get(0).getText()).get(0).startsWith("-"))
+        if (registerAllocator.getRegister(inst.getOperands().get(0)).get(0).startsWith("-"))
             return;
 
         IRValueRef lhs = IRGetOperand(inst, 1);
@@ -1188,21 +1267,20 @@ public class RISCVBuilder {
             block.addInstruction(new RISCVLi(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.imm, Integer.toString(constValue))));
 
         } else {
-            String varName = IRGetValueName(lhs);
-            if (riscvFunction.getParamsRegister(rhs.getText()) != null) {
-                if (riscvFunction.getParamsRegister(varName).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(varName))));
+            if (riscvFunction.getParamsRegister(rhs) != null) {
+                if (riscvFunction.getParamsRegister(lhs).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(lhs))));
                 // 参数在栈里
                 else {
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(varName) + "(sp)")));
+                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(lhs) + "(sp)")));
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                 }
             }
 
 
             else {
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(lhs).get(0);
                 if (isNumeric(str)) { // 栈
 //                if (Integer.parseInt(str) > 10000000) {
 //                    throw new RuntimeException();
@@ -1220,20 +1298,19 @@ public class RISCVBuilder {
             int constValue = (int) IRConstIntGetSExtValue(rhs);
             block.addInstruction(new RISCVLi(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.imm, Integer.toString(constValue))));
         } else {
-            String varName = IRGetValueName(rhs);
-            if (riscvFunction.getParamsRegister(varName) != null) {
-                if (riscvFunction.getParamsRegister(varName).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(varName))));
+            if (riscvFunction.getParamsRegister(rhs) != null) {
+                if (riscvFunction.getParamsRegister(rhs).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(rhs))));
                     // 参数在栈里
                 else {
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(varName) + "(sp)")));
+                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(rhs) + "(sp)")));
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                 }
             }
 
             else {
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(rhs).get(0);
                 if (isNumeric(str)) { // 栈
                     str = Integer.toString(Integer.parseInt(str) * 2);
                     block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, str + "(sp)")));
@@ -1245,8 +1322,8 @@ public class RISCVBuilder {
         }
         block.addInstruction(new RISCVXor(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, "t1")));
         // TODO
-        String varName = IRGetValueName(inst.getOperands().get(0));
-        String str = registerAllocator.getRegister(varName).get(0);
+        IRValueRef varValue = inst.getOperands().get(0);
+        String str = registerAllocator.getRegister(varValue).get(0);
         if (isNumeric(str)) { // 栈
 //            if (Integer.parseInt(str) > 10000000) {
 //                throw new RuntimeException();
@@ -1267,20 +1344,19 @@ public class RISCVBuilder {
             block.addInstruction(new RISCVLi(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.imm, Integer.toString(constValue))));
 
         } else {
-            String varName = IRGetValueName(operand);
-            if (riscvFunction.getParamsRegister(varName) != null) {
-                if (riscvFunction.getParamsRegister(varName).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(varName))));
+            if (riscvFunction.getParamsRegister(operand) != null) {
+                if (riscvFunction.getParamsRegister(operand).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(operand))));
                     // 参数在栈里
                 else {
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(varName) + "(sp)")));
+                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(operand) + "(sp)")));
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                 }
             }
 
             else {
-                String str = registerAllocator.getRegister(varName).get(0);
+                String str = registerAllocator.getRegister(operand).get(0);
                 if (isNumeric(str)) { // 栈
 //                if (Integer.parseInt(str) > 10000000) {
 //                    throw new RuntimeException();
@@ -1295,8 +1371,8 @@ public class RISCVBuilder {
         }
 
         block.addInstruction(new RISCVAndi(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, "t0"), 1));
-        String varName = IRGetValueName(inst.getOperands().get(0));
-        String str = registerAllocator.getRegister(varName).get(0);
+        IRValueRef varValue = inst.getOperands().get(0);
+        String str = registerAllocator.getRegister(varValue).get(0);
         if (isNumeric(str)) { // 栈
 //            if (Integer.parseInt(str) > 10000000) {
 //                throw new RuntimeException();
@@ -1314,8 +1390,8 @@ public class RISCVBuilder {
             block.addInstruction(new RISCVJ(new RISCVOperand(OperandType.label, ((BranchInstruction) inst).getBaseBlock1().getLabel())));
         }
         else {
-            String varName = IRGetValueName(inst.getOperands().get(0));
-            String str = registerAllocator.getRegister(varName).get(0);
+            IRValueRef varValue = inst.getOperands().get(0);
+            String str = registerAllocator.getRegister(varValue).get(0);
             if (isNumeric(str)) { // 栈
 //                if (Integer.parseInt(str) > 10000000) {
 //                    throw new RuntimeException();
@@ -1332,7 +1408,7 @@ public class RISCVBuilder {
     }
 
     public void handleGetElementPointer(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction) {
-        if (registerAllocator.getRegister(inst.getOperands().get(0).getText()).get(0).startsWith("-"))
+        if (registerAllocator.getRegister(inst.getOperands().get(0)).get(0).startsWith("-"))
             return;
 
         IRValueRef arrayBase = ((GetElementPointerInstruction)inst).getBase();
@@ -1346,17 +1422,17 @@ public class RISCVBuilder {
             arrayBaseAllocation = "t0";
         }
         else {
-            if (riscvFunction.getParamsRegister(arrayBaseName) != null) {
-                if (riscvFunction.getParamsRegister(arrayBaseName).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(arrayBaseName))));
+            if (riscvFunction.getParamsRegister(arrayBase) != null) {
+                if (riscvFunction.getParamsRegister(arrayBase).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(arrayBase))));
                     // 参数在栈里
                 else {
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(arrayBaseName) + "(sp)")));
+                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(arrayBase) + "(sp)")));
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                 }
             } else {
-                arrayBaseAllocation = registerAllocator.getRegister(arrayBaseName).get(0);
+                arrayBaseAllocation = registerAllocator.getRegister(arrayBase).get(0);
                 if (isNumeric(arrayBaseAllocation)) { // 栈
 //            if (Integer.parseInt(arrayBaseAllocation) > 10000000) {
 //                throw new RuntimeException();
@@ -1387,19 +1463,19 @@ public class RISCVBuilder {
         }else if (((GetElementPointerInstruction)inst).getIndex().size() > 1){
             //todo:验证是否正确
             //是一个局部变量作为索引
-            String indexName = ((GetElementPointerInstruction)inst).getIndex().get(1).getText();
-            if (riscvFunction.getParamsRegister(indexName) != null) {
-                if (riscvFunction.getParamsRegister(indexName).startsWith("a"))
-                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(indexName))));
+            IRValueRef indexValue = ((GetElementPointerInstruction)inst).getIndex().get(1);
+            if (riscvFunction.getParamsRegister(indexValue) != null) {
+                if (riscvFunction.getParamsRegister(indexValue).startsWith("a"))
+                    block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(indexValue))));
                     // 参数在栈里
                 else {
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(indexName) + "(sp)")));
+                    block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(indexValue) + "(sp)")));
                     block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                 }
             }
             else {
-                String indexAllocation = registerAllocator.getRegister(indexName).get(0);
+                String indexAllocation = registerAllocator.getRegister(indexValue).get(0);
                 //如果是栈上的局部变量
                 if (isNumeric(indexAllocation)) {
 //                if (Integer.parseInt(indexAllocation) > 10000000) {
@@ -1447,19 +1523,19 @@ public class RISCVBuilder {
             }
             else {
                 //是一个局部变量作为索引
-                String indexName = ((GetElementPointerInstruction) inst).getIndex().get(0).getText();
-                if (riscvFunction.getParamsRegister(indexName) != null) {
-                    if (riscvFunction.getParamsRegister(indexName).startsWith("a"))
-                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(indexName))));
+                IRValueRef indexValue = ((GetElementPointerInstruction) inst).getIndex().get(0);
+                if (riscvFunction.getParamsRegister(indexValue) != null) {
+                    if (riscvFunction.getParamsRegister(indexValue).startsWith("a"))
+                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(indexValue))));
                         // 参数在栈里
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(indexName) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t1"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(indexValue) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
                 else {
-                    String indexAllocation = registerAllocator.getRegister(indexName).get(0);
+                    String indexAllocation = registerAllocator.getRegister(indexValue).get(0);
                     //如果是栈上的局部变量
                     if (isNumeric(indexAllocation)) {
 //                    if (Integer.parseInt(indexAllocation) > 10000000) {
@@ -1513,7 +1589,7 @@ public class RISCVBuilder {
 
         }
 
-        String destLocation = registerAllocator.getRegister(inst.getOperands().get(0).getText()).get(0);
+        String destLocation = registerAllocator.getRegister(inst.getOperands().get(0)).get(0);
         if (isNumeric(destLocation)) { // 栈
 //            if (Integer.parseInt(destLocation) > 10000000) {
 //                throw new RuntimeException();
@@ -1524,13 +1600,12 @@ public class RISCVBuilder {
         } else {
             block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, destLocation), new RISCVOperand(OperandType.reg, "t0")));
         }
-        GEPPointers.add(inst.getOperands().get(0).getText());
     }
 
     public void handleTypeTransfer(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction) {
         IRValueRef origin = inst.getOperands().get(1);
         IRValueRef result = inst.getOperands().get(0);
-        if (registerAllocator.getRegister(result.getText()).get(0).startsWith("-"))
+        if (registerAllocator.getRegister(result).get(0).startsWith("-"))
             return;
         int transferType = ((TypeTransferInstruction)inst).getTransferType();
         if (transferType == IRConst.IntToFloat) {
@@ -1539,19 +1614,19 @@ public class RISCVBuilder {
                 block.addInstruction(new RISCVLi(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.imm, Integer.toString(constValue))));
             }
             else {
-                if (riscvFunction.getParamsRegister(origin.getText()) != null) {
-                    if (riscvFunction.getParamsRegister(origin.getText()).startsWith("a"))
-                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(origin.getText()))));
+                if (riscvFunction.getParamsRegister(origin) != null) {
+                    if (riscvFunction.getParamsRegister(origin).startsWith("a"))
+                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(origin))));
                     // 参数在栈里
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(origin.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(origin) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
 
                 else {
-                    String originLocation = registerAllocator.getRegister(origin.getText()).get(0);
+                    String originLocation = registerAllocator.getRegister(origin).get(0);
                     if (isNumeric(originLocation)) { // 栈
 //                    if (Integer.parseInt(originLocation) > 10000000) {
 //                        throw new RuntimeException();
@@ -1565,7 +1640,7 @@ public class RISCVBuilder {
                 }
             }
             block.addInstruction(new RISCVFcvt(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, "t0"), ""));
-            String resultLocation = registerAllocator.getRegister(result.getText()).get(0);
+            String resultLocation = registerAllocator.getRegister(result).get(0);
             if (isNumeric(resultLocation)) { // 栈
 //                if (Integer.parseInt(resultLocation) > 10000000) {
 //                    throw new RuntimeException();
@@ -1588,18 +1663,18 @@ public class RISCVBuilder {
                 block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, "t0")));
             }
             else {
-                if (riscvFunction.getParamsRegister(origin.getText()) != null) {
-                    if (riscvFunction.getParamsRegister(origin.getText()).startsWith("fa"))
-                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(origin.getText()))));
+                if (riscvFunction.getParamsRegister(origin) != null) {
+                    if (riscvFunction.getParamsRegister(origin).startsWith("fa"))
+                        block.addInstruction(new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(origin))));
                         // 参数在栈里
                     else {
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(origin.getText()) + "(sp)")));
+                        block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, riscvFunction.getParamsRegister(origin) + "(sp)")));
                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                     }
                 }
                 else {
-                    String originLocation = registerAllocator.getRegister(origin.getText()).get(0);
+                    String originLocation = registerAllocator.getRegister(origin).get(0);
                     if (isNumeric(originLocation)) { // 栈
 //                    if (Integer.parseInt(originLocation) > 10000000) {
 //                        throw new RuntimeException();
@@ -1613,7 +1688,7 @@ public class RISCVBuilder {
                 }
             }
             block.addInstruction(new RISCVFcvt(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, "ft0"), "rtz"));
-            String resultLocation = registerAllocator.getRegister(result.getText()).get(0);
+            String resultLocation = registerAllocator.getRegister(result).get(0);
             if (isNumeric(resultLocation)) { // 栈
 //                if (Integer.parseInt(resultLocation) > 10000000) {
 //                    throw new RuntimeException();
@@ -1629,13 +1704,13 @@ public class RISCVBuilder {
 
     public void handlePhiInstitution(IRInstruction inst, RISCVBlock block, RISCVFunction riscvFunction, int alignedStackSize) {
 //        IRValueRef dest = inst.getOperands().get(0);
-//        String destLocation = registerAllocator.getRegister(dest.getText()).get(0);
+//        String destLocation = registerAllocator.getRegister(dest).get(0);
 //        riscvFunction.addPhiDestAndSrc(((PhiInstruction)inst).getIncomingValues(), destLocation);
 
 
         // lost copy
         IRValueRef dest = inst.getOperands().get(0);
-        String destLocation = registerAllocator.getRegister(dest.getText()).get(0);
+        String destLocation = registerAllocator.getRegister(dest).get(0);
         if (destLocation.startsWith("-"))
             return;
         riscvFunction.addPhiDestAndSrc(((PhiInstruction)inst).getIncomingValues(), destLocation);
@@ -1646,19 +1721,12 @@ public class RISCVBuilder {
                 block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, tmpLocation + "(sp)")));
                 block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, destLocation + "(sp)")));
             }
-            else if (dest.getType() instanceof IRInt32Type){
-                block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, tmpLocation + "(sp)")));
-                block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, destLocation + "(sp)")));
-            }
-            else if (((IRPointerType)dest.getType()).getBaseType() instanceof IRInt32Type) {
+            else {
+                //int和指针(64位地址)都用t0
+                assert dest.getType() instanceof IRInt32Type || dest.getType() instanceof IRPointerType;
                 block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, tmpLocation + "(sp)")));
                 block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, destLocation + "(sp)")));
             }
-            else {
-                assert ((IRPointerType)dest.getType()).getBaseType() instanceof IRFloatType;
-                block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, tmpLocation + "(sp)")));
-                block.addInstruction(new RISCVSd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, destLocation + "(sp)")));
-            }
         }
         else {
             block.addInstruction(new RISCVLd(new RISCVOperand(OperandType.reg, destLocation), new RISCVOperand(OperandType.stackRoom, tmpLocation + "(sp)")));
@@ -1676,7 +1744,7 @@ public class RISCVBuilder {
 //            for (Map<IRBaseBlockRef, IRValueRef> phiSrc : phiSrcAndDest.keySet()) {
 //                for (IRBaseBlockRef irBaseBlockRef : phiSrc.keySet()) {
 //                    if (irBaseBlockRef.getLabel().equals(block.getBlockLabel().getName())) {
-//                        BranchInstruction br = (BranchInstruction) irBaseBlockRef.getInstructionList().get(irBaseBlockRef.getInstructionList().size() - 1);
+//                        BranchInstruction br = (BranchInstruction) IRGetLastInstruction(irBaseBlockRef);
 //                        int offset = 0;
 //                        if (br.getType() == BranchInstruction.SINGLE) {
 //                            offset = 1;
@@ -1699,7 +1767,7 @@ public class RISCVBuilder {
 //                            block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, "t0")));
 //                        }
 //                        else {
-//                            String srcLocation = registerAllocator.getRegister(phiSrc.get(irBaseBlockRef).getText()).get(0);
+//                            String srcLocation = registerAllocator.getRegister(phiSrc.get(irBaseBlockRef)).get(0);
 //                            if (isNumeric(srcLocation)) {
 //                                srcLocation = Integer.toString(Integer.parseInt(srcLocation) * 2);
 //                                if (srcValue.getType() instanceof IRInt32Type)
@@ -1752,7 +1820,7 @@ public class RISCVBuilder {
             for (Map<IRBaseBlockRef, IRValueRef> phiSrc : phiSrcAndDest.keySet()) {
                 for (IRBaseBlockRef irBaseBlockRef : phiSrc.keySet()) {
                     if (irBaseBlockRef.getLabel().equals(block.getBlockLabel().getName())) {
-                        BranchInstruction br = (BranchInstruction) irBaseBlockRef.getInstructionList().get(irBaseBlockRef.getInstructionList().size() - 1);
+                        BranchInstruction br = (BranchInstruction) IRGetLastInstruction(irBaseBlockRef);
                         int offset = 0;
                         if (br.getType() == BranchInstruction.SINGLE) {
                             offset = 1;
@@ -1775,73 +1843,46 @@ public class RISCVBuilder {
                             block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, "t0")));
                         }
                         else {
-                            if (riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()) != null) {
-                                if (riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()).startsWith("a"))
-                                    block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()))));
-                                else if (riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()).startsWith("fa")) {
+                            if (riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef)) != null) {
+                                if (riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef)).startsWith("a"))
+                                    block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef)))));
+                                else if (riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef)).startsWith("fa")) {
                                     floatSrc = true;
-                                    block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()))));
+                                    block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef)))));
                                 }
                                 // 参数在栈里
                                 else {
                                     if (srcValue.getType() instanceof IRFloatType) {
                                         floatSrc = true;
                                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                                        block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom,  riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()) + "(sp)")));
+                                        block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom,  riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef)) + "(sp)")));
                                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                                     }
-                                    else if ((srcValue.getType() instanceof IRInt32Type)){
+                                    //指针都是64位的地址，和整数一样用t0传递
+                                    else if (srcValue.getType() instanceof IRInt32Type || srcValue.getType() instanceof IRPointerType){
                                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                                        block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom,  riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()) + "(sp)")));
+                                        block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom,  riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef)) + "(sp)")));
                                         block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
                                     }
-                                    else if (srcValue.getType() instanceof IRPointerType) {
-                                        if (((IRPointerType) srcValue.getType()).getBaseType() instanceof IRInt32Type){
-                                            block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                                            block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom,  riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()) + "(sp)")));
-                                            block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
-                                        }
-                                        else {
-                                            floatSrc = true;
-                                            block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(riscvFunction.getStackSize())), "addi"));
-                                            block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom,  riscvFunction.getParamsRegister(phiSrc.get(irBaseBlockRef).getText()) + "(sp)")));
-                                            block.addInstruction(new RISCVBinary(new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.reg, "sp"), new RISCVOperand(OperandType.imm, Integer.toString(-riscvFunction.getStackSize())), "addi"));
-                                        }
-                                    }
                                 }
                             }
 
                             else {
-                                String srcLocation = registerAllocator.getRegister(phiSrc.get(irBaseBlockRef).getText()).get(0);
+                                String srcLocation = registerAllocator.getRegister(phiSrc.get(irBaseBlockRef)).get(0);
                                 if (isNumeric(srcLocation)) {
                                     srcLocation = Integer.toString(Integer.parseInt(srcLocation) * 2);
-                                    if (srcValue.getType() instanceof IRInt32Type)
+                                    if (srcValue.getType() instanceof IRInt32Type || srcValue.getType() instanceof IRPointerType)
                                         block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, srcLocation + "(sp)")));
                                     else if (srcValue.getType() instanceof IRFloatType) {
                                         floatSrc = true;
                                         block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, srcLocation + "(sp)")));
-                                    } else if (srcValue.getType() instanceof IRPointerType) {
-                                        if (((IRPointerType) srcValue.getType()).getBaseType() instanceof IRInt32Type)
-                                            block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.stackRoom, srcLocation + "(sp)")));
-                                        else {
-                                            floatSrc = true;
-                                            block.insertInstruction(block.getInstructions().size() - offset, new RISCVLd(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.stackRoom, srcLocation + "(sp)")));
-                                        }
                                     }
                                 } else {
-                                    if (srcValue.getType() instanceof IRInt32Type)
+                                    if (srcValue.getType() instanceof IRInt32Type || srcValue.getType() instanceof IRPointerType)
                                         block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, srcLocation)));
                                     else if (srcValue.getType() instanceof IRFloatType) {
                                         floatSrc = true;
                                         block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, srcLocation)));
-                                    } else if (srcValue.getType() instanceof IRPointerType) {
-                                        if (((IRPointerType) srcValue.getType()).getBaseType() instanceof IRInt32Type)
-                                            block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "t0"), new RISCVOperand(OperandType.reg, srcLocation)));
-                                        else {
-                                            floatSrc = true;
-                                            block.insertInstruction(block.getInstructions().size() - offset, new RISCVMv(new RISCVOperand(OperandType.reg, "ft0"), new RISCVOperand(OperandType.reg, srcLocation)));
-                                        }
-
                                     }
                                 }
                             }
@@ -2,8 +2,13 @@ package backend.RISCVCode;
 
 import backend.RISCVCode.RISCVInstruction.RISCVInstruction;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,6 +18,8 @@ import java.util.Map;
  * 它包含了一个函数列表和一个全局变量映射。
  */
 public class RISCVCode {
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
     private ArrayList<RISCVFunction> functions;
 
     private Map<String, Integer> globalIntVar;
@@ -69,164 +76,83 @@ public class RISCVCode {
     public ArrayList<RISCVFunction> getFunctions(){return functions;}
 
     /**
-     * 生成 RISCV 汇编代码的字符串表示。
+     * 生成 RISCV 汇编代码并写入文件，整个文件只打开一次，经过缓冲区写出
      *
-     * @return 生成的 RISCV 汇编代码字符串
+     * @param outputPath 输出的汇编文件路径
      */
     public void generateRISCVCode(String outputPath)  {
-        StringBuilder outputStringBuilder = new StringBuilder();
-        try (FileWriter writer = new FileWriter(outputPath)) {
-            writer.write(outputStringBuilder.toString());
-            writer.close();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(Paths.get(outputPath)), StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE)) {
+            generateRISCVCode(writer);
         } catch (IOException e) {
             e.printStackTrace();
         }
-        outputStringBuilder.append("  .data\n");
-        if (!globalIntVar.isEmpty()) {
-            for (String name : globalIntVar.keySet()) {
-                outputStringBuilder.append(name).append(":\n");
-                outputStringBuilder.append("  .dword ").append(globalIntVar.get(name)).append("\n\n");
-                if (outputStringBuilder.length() > 10000) {
-                    try (FileWriter writer = new FileWriter(outputPath, true)) {
-                        writer.write(outputStringBuilder.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    outputStringBuilder = new StringBuilder();
-                }
-            }
+    }
+
+    /**
+     * 把 RISCV 汇编代码依次写到 out 中，指令通过 appendTo 直接写入，不生成中间字符串
+     *
+     * @param out 输出目标，可以是 Writer 或 StringBuilder
+     */
+    public void generateRISCVCode(Appendable out) throws IOException {
+        out.append("  .data\n");
+        for (String name : globalIntVar.keySet()) {
+            out.append(name).append(":\n");
+            out.append("  .dword ").append(String.valueOf(globalIntVar.get(name))).append("\n\n");
         }
-        if (!globalFloatVar.isEmpty()) {
-            for (String name : globalFloatVar.keySet()) {
-                outputStringBuilder.append(name).append(":\n");
-                outputStringBuilder.append("  .dword 0X").append(Integer.toHexString(Float.floatToIntBits(globalFloatVar.get(name)))).append("\n\n");
-                if (outputStringBuilder.length() > 10000) {
-                    try (FileWriter writer = new FileWriter(outputPath, true)) {
-                        writer.write(outputStringBuilder.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    outputStringBuilder = new StringBuilder();
-                }
-            }
+        for (String name : globalFloatVar.keySet()) {
+            out.append(name).append(":\n");
+            out.append("  .dword 0X").append(Integer.toHexString(Float.floatToIntBits(globalFloatVar.get(name)))).append("\n\n");
         }
-        if (!globalIntArrayVar.isEmpty()) {
-            for (String name : globalIntArrayVar.keySet()) {
-                outputStringBuilder.append(name).append(":\n");
-                outputStringBuilder.append("  .word ");
-                List<Integer> value = globalIntArrayVar.get(name);
-                for(int i = 0; i < value.size(); i++) {
-                    outputStringBuilder.append(value.get(i));
-                    if (i != value.size() - 1) {
-                        outputStringBuilder.append(", ");
-                    }
-                    if (outputStringBuilder.length() > 10000) {
-                        try (FileWriter writer = new FileWriter(outputPath, true)) {
-                            writer.write(outputStringBuilder.toString());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                        outputStringBuilder = new StringBuilder();
-                    }
+        for (String name : globalIntArrayVar.keySet()) {
+            out.append(name).append(":\n");
+            out.append("  .word ");
+            List<Integer> value = globalIntArrayVar.get(name);
+            for(int i = 0; i < value.size(); i++) {
+                if (i != 0) {
+                    out.append(", ");
                 }
-                outputStringBuilder.append("\n\n");
+                out.append(String.valueOf(value.get(i)));
             }
+            out.append("\n\n");
         }
-        if (!globalFloatArrayVar.isEmpty()) {
-            for (String name : globalFloatArrayVar.keySet()) {
-                outputStringBuilder.append(name).append(":\n");
-                outputStringBuilder.append("  .word ");
-                List<Float> value = globalFloatArrayVar.get(name);
-                for(int i = 0; i < value.size(); i++) {
-                    outputStringBuilder.append("0X").append(Integer.toHexString(Float.floatToIntBits(value.get(i))));
-                    if (i != value.size() - 1) {
-                        outputStringBuilder.append(", ");
-                    }
-                    if (outputStringBuilder.length() > 10000) {
-                        try (FileWriter writer = new FileWriter(outputPath, true)) {
-                            writer.write(outputStringBuilder.toString());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                        outputStringBuilder = new StringBuilder();
-                    }
+        for (String name : globalFloatArrayVar.keySet()) {
+            out.append(name).append(":\n");
+            out.append("  .word ");
+            List<Float> value = globalFloatArrayVar.get(name);
+            for(int i = 0; i < value.size(); i++) {
+                if (i != 0) {
+                    out.append(", ");
                 }
-                outputStringBuilder.append("\n\n");
+                out.append("0X").append(Integer.toHexString(Float.floatToIntBits(value.get(i))));
             }
+            out.append("\n\n");
         }
         if(!globalAllZeroArrayVar.isEmpty()) {
-            outputStringBuilder.append("  .bss \n");
+            out.append("  .bss \n");
             for (String name : globalAllZeroArrayVar.keySet()) {
-                outputStringBuilder.append(name).append(":\n");
-                outputStringBuilder.append("  .space ").append(globalAllZeroArrayVar.get(name) * 4).append("\n");
-                outputStringBuilder.append("\n");
-                if (outputStringBuilder.length() > 10000) {
-                    try (FileWriter writer = new FileWriter(outputPath, true)) {
-                        writer.write(outputStringBuilder.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    outputStringBuilder = new StringBuilder();
-                }
+                out.append(name).append(":\n");
+                out.append("  .space ").append(String.valueOf(globalAllZeroArrayVar.get(name) * 4)).append("\n");
+                out.append("\n");
             }
         }
-        outputStringBuilder.append("  .text\n");
-        outputStringBuilder.append("  .globl main\n");
+        out.append("  .text\n");
+        out.append("  .globl main\n");
         for(RISCVFunction function : functions) {
-            outputStringBuilder.append(function.getFunctionLabel().getName()).append(":");
+            out.append(function.getFunctionLabel().getName()).append(":");
             if (function.getStackSize() < 2048) {
-                outputStringBuilder.append("  addi sp, sp, ").append(-function.getStackSize()).append("\n");
-                if (outputStringBuilder.length() > 10000) {
-                    try (FileWriter writer = new FileWriter(outputPath, true)) {
-                        writer.write(outputStringBuilder.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    outputStringBuilder = new StringBuilder();
-                }
+                out.append("  addi sp, sp, ").append(String.valueOf(-function.getStackSize())).append("\n");
             }
             else {
-                outputStringBuilder.append("  li s0, ").append(-function.getStackSize()).append("\n");
-                if (outputStringBuilder.length() > 10000) {
-                    try (FileWriter writer = new FileWriter(outputPath, true)) {
-                        writer.write(outputStringBuilder.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    outputStringBuilder = new StringBuilder();
-                }
-                outputStringBuilder.append("  add sp, sp, s0").append("\n");
-                if (outputStringBuilder.length() > 10000) {
-                    try (FileWriter writer = new FileWriter(outputPath, true)) {
-                        writer.write(outputStringBuilder.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                    outputStringBuilder = new StringBuilder();
-                }
-
+                out.append("  li s0, ").append(String.valueOf(-function.getStackSize())).append("\n");
+                out.append("  add sp, sp, s0").append("\n");
             }
             for(RISCVBlock block : function.getBlocks()) {
-                outputStringBuilder.append(block.getBlockLabel().getName()).append(":\n");
+                out.append(block.getBlockLabel().getName()).append(":\n");
                 for (RISCVInstruction code : block.getInstructions()) {
-                    outputStringBuilder.append(code.getString());
-                    if (outputStringBuilder.length() > 10000) {
-                        try (FileWriter writer = new FileWriter(outputPath, true)) {
-                            writer.write(outputStringBuilder.toString());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                        outputStringBuilder = new StringBuilder();
-                    }
+                    code.appendTo(out);
                 }
             }
-
-        }
-        try (FileWriter writer = new FileWriter(outputPath, true)) {
-            writer.write(outputStringBuilder.toString());
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 }
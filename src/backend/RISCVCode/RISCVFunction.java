@@ -26,7 +26,7 @@ public class RISCVFunction {
     private LinkedHashMap<LinkedHashMap<IRBaseBlockRef, IRValueRef>, String> phiDestAndSrc;
 
 
-    private LinkedHashMap<String, String> paramsAndRegister; // 用于存储传递进来的参数的寄存器地址（其实是固定的）第一个参数 a0，第二个 a1……
+    private LinkedHashMap<Integer, String> paramsAndRegister; // 用于存储传递进来的参数的寄存器地址（其实是固定的）第一个参数 a0，第二个 a1……，以参数的编号为键
 
     public void setStackSize(int size) {
         stackSize = size;
@@ -34,7 +34,7 @@ public class RISCVFunction {
             stackTopOffset = 0;
     }
 
-    public RISCVFunction(String functionName, LinkedHashMap<String, String> paramsAndRegister, int paramStackSize) {
+    public RISCVFunction(String functionName, LinkedHashMap<Integer, String> paramsAndRegister, int paramStackSize) {
         this.blocks = new ArrayList<>();
         this.functionName = functionName;
         functionLabel = new RISCVLabel(functionName);
@@ -59,6 +59,14 @@ public class RISCVFunction {
         return this.blocks;
     }
 
+    public int getInstructionCount() {
+        int count = 0;
+        for (RISCVBlock block : blocks) {
+            count += block.getInstructions().size();
+        }
+        return count;
+    }
+
     public String getFunctionName() {
         return functionName;
     }
@@ -71,8 +79,8 @@ public class RISCVFunction {
         return stackSize;
     }
 
-    public String getParamsRegister(String varName) {
-        return paramsAndRegister.get(varName);
+    public String getParamsRegister(IRValueRef value) {
+        return paramsAndRegister.get(value.getId());
     }
 
     public void setStackTopOffset(String stackTop) {
@@ -1,6 +1,8 @@
 package backend.RISCVCode.RISCVInstruction;
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVAndi extends RISCVInstruction{
     private final RISCVOperand dest;
 
@@ -16,7 +18,7 @@ public class RISCVAndi extends RISCVInstruction{
     }
 
     @Override
-    public String getString() {
-        return "  andi " + dest.getName() + ", " + operand.getName() + ", " + positions + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  andi ").append(dest.getName()).append(", ").append(operand.getName()).append(", ").append(Integer.toString(positions)).append('\n');
     }
 }
@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVBeqz extends RISCVInstruction{
 
     private final RISCVOperand operand;
@@ -14,8 +16,12 @@ public class RISCVBeqz extends RISCVInstruction{
     }
 
     @Override
-    public String getString() {
-        return "  beqz " + operand.getName() + ", " + label.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  beqz ").append(operand.getName()).append(", ").append(label.getName()).append('\n');
+    }
+
+    public RISCVOperand getOperand() {
+        return this.operand;
     }
 
     public RISCVOperand getLabel() {
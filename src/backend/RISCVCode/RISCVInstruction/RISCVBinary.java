@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVBinary extends RISCVInstruction {
     private final RISCVOperand dest;
 
@@ -23,19 +25,16 @@ public class RISCVBinary extends RISCVInstruction {
     }
 
     @Override
-    public String getString() {
+    public void appendTo(Appendable out) throws IOException {
         if (opt.equals("addi") && !operand2.getName().startsWith("%lo")) {
-
             int stackSize = Integer.parseInt(operand2.getName());
-            if (stackSize < 0) {
-                int a = 1;
-            }
             if (stackSize > 2047 || stackSize < -2048) {
-                return "  li s0, " + stackSize + "\n" +
-                        " add " + dest.getName() + ", " + operand1.getName() + ", s0\n";
+                out.append("  li s0, ").append(Integer.toString(stackSize)).append('\n')
+                        .append(" add ").append(dest.getName()).append(", ").append(operand1.getName()).append(", s0\n");
+                return;
             }
         }
-        return "  " + opt + " " + dest.getName() + ", " + operand1.getName() + ", " + operand2.getName() + "\n";
+        out.append("  ").append(opt).append(' ').append(dest.getName()).append(", ").append(operand1.getName()).append(", ").append(operand2.getName()).append('\n');
     }
 
     public String getOpt() {
@@ -0,0 +1,30 @@
+package backend.RISCVCode.RISCVInstruction;
+
+import backend.RISCVCode.RISCVOperand;
+
+import java.io.IOException;
+
+public class RISCVBnez extends RISCVInstruction{
+
+    private final RISCVOperand operand;
+
+    private final RISCVOperand label;
+
+    public RISCVBnez(RISCVOperand operand, RISCVOperand label) {
+        this.operand = operand;
+        this.label = label;
+    }
+
+    @Override
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  bnez ").append(operand.getName()).append(", ").append(label.getName()).append('\n');
+    }
+
+    public RISCVOperand getOperand() {
+        return this.operand;
+    }
+
+    public RISCVOperand getLabel() {
+        return this.label;
+    }
+}
@@ -1,5 +1,7 @@
 package backend.RISCVCode.RISCVInstruction;
 
+import java.io.IOException;
+
 public class RISCVCall extends RISCVInstruction{
     private final String destFunc;
 
@@ -8,7 +10,7 @@ public class RISCVCall extends RISCVInstruction{
     }
 
     @Override
-    public String getString() {
-        return "  call " + destFunc + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  call ").append(destFunc).append('\n');
     }
 }
@@ -3,6 +3,8 @@ package backend.RISCVCode.RISCVInstruction.RISCVCompare;
 import backend.RISCVCode.RISCVInstruction.RISCVInstruction;
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVFeq extends RISCVInstruction {
     private RISCVOperand dest;
 
@@ -17,7 +19,7 @@ public class RISCVFeq extends RISCVInstruction {
     }
 
     @Override
-    public String getString() {
-        return  "  feq.s " + dest.getName() + ", " + operand1.getName() + ", " + operand2.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  feq.s ").append(dest.getName()).append(", ").append(operand1.getName()).append(", ").append(operand2.getName()).append('\n');
     }
 }
@@ -4,6 +4,8 @@ import backend.RISCVBuilder;
 import backend.RISCVCode.RISCVInstruction.RISCVInstruction;
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVSeqz extends RISCVInstruction {
 
     private RISCVOperand dest;
@@ -17,7 +19,7 @@ public class RISCVSeqz extends RISCVInstruction {
     }
 
     @Override
-    public String getString() {
-        return  "  seqz " + dest.getName() + ", " + operand.getName()+ "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  seqz ").append(dest.getName()).append(", ").append(operand.getName()).append('\n');
     }
 }
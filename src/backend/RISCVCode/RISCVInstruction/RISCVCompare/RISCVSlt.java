@@ -3,6 +3,8 @@ package backend.RISCVCode.RISCVInstruction.RISCVCompare;
 import backend.RISCVCode.RISCVInstruction.RISCVInstruction;
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVSlt extends RISCVInstruction {
     private RISCVOperand dest;
 
@@ -17,9 +19,8 @@ public class RISCVSlt extends RISCVInstruction {
     }
 
     @Override
-    public String getString() {
-        if (operand1.getName().startsWith("f"))
-            return  "  flt.s " + dest.getName() + ", " + operand1.getName() + ", " + operand2.getName() + "\n";
-        return  "  slt " + dest.getName() + ", " + operand1.getName() + ", " + operand2.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append(operand1.getName().startsWith("f") ? "  flt.s " : "  slt ");
+        out.append(dest.getName()).append(", ").append(operand1.getName()).append(", ").append(operand2.getName()).append('\n');
     }
 }
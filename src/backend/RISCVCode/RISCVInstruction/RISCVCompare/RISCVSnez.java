@@ -3,6 +3,8 @@ package backend.RISCVCode.RISCVInstruction.RISCVCompare;
 import backend.RISCVCode.RISCVInstruction.RISCVInstruction;
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVSnez extends RISCVInstruction {
     private RISCVOperand dest;
 
@@ -16,7 +18,7 @@ public class RISCVSnez extends RISCVInstruction {
     }
 
     @Override
-    public String getString() {
-        return  "  snez " + dest.getName() + ", " + operand.getName()+ "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  snez ").append(dest.getName()).append(", ").append(operand.getName()).append('\n');
     }
 }
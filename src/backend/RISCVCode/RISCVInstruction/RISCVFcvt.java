@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVFcvt extends RISCVInstruction{
     private final RISCVOperand dest;
 
@@ -15,9 +17,11 @@ public class RISCVFcvt extends RISCVInstruction{
         this.mode = mode;
     }
     @Override
-    public String getString() {
-        if (dest.getName().startsWith("f"))
-            return "  fcvt.s.w " + dest.getName() + ", " + operand1.getName() + "\n";
-        return "  fcvt.w.s " + dest.getName() + ", " + operand1.getName() + ", " + mode + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        if (dest.getName().startsWith("f")) {
+            out.append("  fcvt.s.w ").append(dest.getName()).append(", ").append(operand1.getName()).append('\n');
+            return;
+        }
+        out.append("  fcvt.w.s ").append(dest.getName()).append(", ").append(operand1.getName()).append(", ").append(mode).append('\n');
     }
 }
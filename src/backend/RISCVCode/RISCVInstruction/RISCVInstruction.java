@@ -1,10 +1,41 @@
 package backend.RISCVCode.RISCVInstruction;
 
+import backend.RISCVCode.RISCVOperand;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * 所有RISCV指令的父类
+ * 子类通过appendTo把指令直接写到输出流（或StringBuilder）里，不产生中间字符串
  */
 public abstract class RISCVInstruction {
+    public void appendTo(Appendable out) throws IOException {
+        out.append("NAN\n");
+    }
+
     public String getString() {
-        return "NAN\n";
-    };
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);//StringBuilder不会抛出IOException
+        }
+        return sb.toString();
+    }
+
+    /*
+     * ld/sd/lw/sw等访存指令，地址形如 offset(reg)，offset超出12位立即数范围时先用s0算出地址
+     */
+    protected static void appendMemoryAccess(Appendable out, String opt, RISCVOperand reg, RISCVOperand address) throws IOException {
+        String name = address.getName();
+        int stackSize = Integer.parseInt(name.substring(0, name.length() - 4));
+        if (stackSize > 2047) {
+            out.append("  li s0, ").append(Integer.toString(stackSize)).append('\n')
+                    .append("  add s0, ").append(name, name.length() - 3, name.length() - 1).append(", s0\n")
+                    .append("  ").append(opt).append(' ').append(reg.getName()).append(", 0(s0)\n");
+            return;
+        }
+        out.append("  ").append(opt).append(' ').append(reg.getName()).append(", ").append(name).append('\n');
+    }
 }
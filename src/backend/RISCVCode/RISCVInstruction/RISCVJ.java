@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVJ extends RISCVInstruction{
     private RISCVOperand label;
 
@@ -12,7 +14,7 @@ public class RISCVJ extends RISCVInstruction{
     public RISCVOperand getLabel() {return label;}
 
     @Override
-    public String getString() {
-        return "  j " + label.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  j ").append(label.getName()).append('\n');
     }
 }
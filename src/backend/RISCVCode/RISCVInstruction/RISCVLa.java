@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVLa extends RISCVInstruction {
     private final RISCVOperand dest;
 
@@ -12,7 +14,7 @@ public class RISCVLa extends RISCVInstruction {
         this.operand1 = operand1;
     }
     @Override
-    public String getString() {
-        return "  la " + dest.getName() + ", " + operand1.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  la ").append(dest.getName()).append(", ").append(operand1.getName()).append('\n');
     }
 }
@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVLi extends RISCVInstruction {
     private final RISCVOperand dest;
 
@@ -12,8 +14,8 @@ public class RISCVLi extends RISCVInstruction {
         this.operand1 = operand1;
     }
     @Override
-    public String getString() {
-        return "  li " + dest.getName() + ", " + operand1.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  li ").append(dest.getName()).append(", ").append(operand1.getName()).append('\n');
     }
     public RISCVOperand getOperand1(){return operand1;}
 }
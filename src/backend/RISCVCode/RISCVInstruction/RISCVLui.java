@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 /**
  * 用于将浮点数前20位加载到一个整数寄存器中
  */
@@ -16,7 +18,7 @@ public class RISCVLui extends RISCVInstruction{
     }
 
     @Override
-    public String getString() {
-        return "  lui " + dest.getName() + ", " + operand1.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  lui ").append(dest.getName()).append(", ").append(operand1.getName()).append('\n');
     }
 }
@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVLw extends RISCVInstruction{
     private final RISCVOperand dest;
 
@@ -19,14 +21,7 @@ public class RISCVLw extends RISCVInstruction{
     }
 
     @Override
-    public String getString() {
-        int stackSize = Integer.parseInt(operand1.getName().substring(0, operand1.getName().length() - 4));
-        String baseReg = operand1.getName().substring(operand1.getName().length() - 3, operand1.getName().length() - 1);
-        if (stackSize > 2047) {
-            return "  li s0, " + stackSize + "\n" +
-                    "  add s0, " + baseReg + ", s0\n" +
-                    "  " +opt + " " + dest.getName() + ", 0(s0)\n";
-        }
-        return "  " + opt + " " + dest.getName() + ", " + operand1.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        appendMemoryAccess(out, opt, dest, operand1);
     }
 }
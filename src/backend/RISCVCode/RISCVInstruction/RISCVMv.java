@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVMv extends RISCVInstruction {
     private final RISCVOperand dest;
 
@@ -23,8 +25,8 @@ public class RISCVMv extends RISCVInstruction {
     }
 
     @Override
-    public String getString() {
-        return "  " + opt + " " + dest.getName() + ", " + operand1.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  ").append(opt).append(' ').append(dest.getName()).append(", ").append(operand1.getName()).append('\n');
     }
 
     public RISCVOperand getSrc() {
@@ -1,13 +1,15 @@
 package backend.RISCVCode.RISCVInstruction;
 
+import java.io.IOException;
+
 public class RISCVRet extends RISCVInstruction {
     public RISCVRet(){
 
     };
 
     @Override
-    public String getString() {
-        return "  ret\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  ret\n");
     }
 
 }
@@ -2,6 +2,8 @@ package backend.RISCVCode.RISCVInstruction;
 
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVSext extends RISCVInstruction {
     private final RISCVOperand dest;
 
@@ -16,7 +18,7 @@ public class RISCVSext extends RISCVInstruction {
     }
 
     @Override
-    public String getString() {
-        return "  " + opt + " " + dest.getName() + ", " + operand1.getName() + "\n";
+    public void appendTo(Appendable out) throws IOException {
+        out.append("  ").append(opt).append(' ').append(dest.getName()).append(", ").append(operand1.getName()).append('\n');
     }
 }
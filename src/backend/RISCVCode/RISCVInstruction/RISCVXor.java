@@ -3,6 +3,8 @@ package backend.RISCVCode.RISCVInstruction;
 import backend.RISCVCode.OperandType;
 import backend.RISCVCode.RISCVOperand;
 
+import java.io.IOException;
+
 public class RISCVXor extends RISCVInstruction{
     private final RISCVOperand dest;
 
@@ -18,10 +20,12 @@ public class RISCVXor extends RISCVInstruction{
     }
 
     @Override
-    public String getString() {
+    public void appendTo(Appendable out) throws IOException {
         if (operand1.getOperandType() == OperandType.imm || operand2.getOperandType() == OperandType.imm) {
-            return "  xori " + dest.getName() + ", " + operand1.getName() + ", " + operand2.getName() + "\n";
+            out.append("  xori ");
+        } else {
+            out.append("  xor ");
         }
-        return "  xor " + dest.getName() + ", " + operand1.getName() + ", " + operand2.getName() + "\n";
+        out.append(dest.getName()).append(", ").append(operand1.getName()).append(", ").append(operand2.getName()).append('\n');
     }
 }
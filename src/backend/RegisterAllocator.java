@@ -2,6 +2,7 @@ package backend;
 
 import IR.IRModule;
 import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRValueRef;
 
 import java.util.List;
 
@@ -16,7 +17,9 @@ public interface RegisterAllocator {
 
     int allocate();/*返回栈帧大小*/
 
-    List<String> getRegister(String variable);/*返回变量对应的寄存器或栈地址*/
+    List<String> getRegister(IRValueRef variable);/*返回变量对应的寄存器或栈地址*/
+
+    String getRaLocation();/*返回ra在栈中的地址*/
 
 }
 
@@ -0,0 +1,48 @@
+package backend.optimizer;
+
+import backend.RISCVCode.RISCVBlock;
+import backend.RISCVCode.RISCVFunction;
+import backend.RISCVCode.RISCVInstruction.RISCVBeqz;
+import backend.RISCVCode.RISCVInstruction.RISCVBnez;
+import backend.RISCVCode.RISCVInstruction.RISCVInstruction;
+import backend.RISCVCode.RISCVInstruction.RISCVJ;
+
+import java.util.List;
+
+public class FallThrough implements OptForRISCV {
+    /**
+     * 利用块的排列顺序去掉多余的跳转，下一个块就是跳转目标时顺序执行即可：
+     *   j L             (L是下一个块)  删除
+     *   beqz r, L2; j L1 (L2是下一个块) 改为 bnez r, L1
+     *   beqz r, L       (L是下一个块)  删除
+     * 基本块的顺序由BlockLayout按剖析数据安排时，热的跳转目标大多紧跟在跳转之后
+     * 改写后的跳转只有这里认识，所以要作为最后一个后端优化执行
+     */
+    @Override
+    public void Optimize(RISCVFunction riscvFunction) {
+        List<RISCVBlock> blocks = riscvFunction.getBlocks();
+        for (int i = 0; i + 1 < blocks.size(); i++) {
+            List<RISCVInstruction> instructions = blocks.get(i).getInstructions();
+            String next = blocks.get(i + 1).getLabel().getName();
+            int size = instructions.size();
+            if (size == 0 || !(instructions.get(size - 1) instanceof RISCVJ)) {
+                continue;
+            }
+            RISCVJ jump = (RISCVJ) instructions.get(size - 1);
+            if (jump.getLabel().getName().equals(next)) {
+                instructions.remove(size - 1);
+                size--;
+                if (size > 0 && instructions.get(size - 1) instanceof RISCVBeqz
+                        && ((RISCVBeqz) instructions.get(size - 1)).getLabel().getName().equals(next)) {
+                    instructions.remove(size - 1);
+                }
+            } else if (size > 1 && instructions.get(size - 2) instanceof RISCVBeqz) {
+                RISCVBeqz branch = (RISCVBeqz) instructions.get(size - 2);
+                if (branch.getLabel().getName().equals(next)) {
+                    instructions.set(size - 2, new RISCVBnez(branch.getOperand(), jump.getLabel()));
+                    instructions.remove(size - 1);
+                }
+            }
+        }
+    }
+}
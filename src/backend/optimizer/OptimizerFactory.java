@@ -1,5 +1,7 @@
 package backend.optimizer;
 
+import IR.CompilationContext;
+import IR.PassTimer;
 import backend.RISCVCode.RISCVFunction;
 
 import java.util.ArrayList;
@@ -14,11 +16,15 @@ public class OptimizerFactory {
         optForRISCV.add(new RemoveUnreachableBlock());
         optForRISCV.add(new LSOpt());
         optForRISCV.add(new Peephole());
+        // 改写块末尾的跳转，要在其他优化之后执行
+        optForRISCV.add(new FallThrough());
     }
 
     public void optimize(RISCVFunction riscvFunction) {
+        PassTimer timer = CompilationContext.current().getPassTimer();
         for (OptForRISCV optForRISCV : optForRISCV) {
-            optForRISCV.Optimize(riscvFunction);
+            timer.run(optForRISCV.getClass().getSimpleName(), riscvFunction::getInstructionCount,
+                    () -> riscvFunction.getBlocks().size(), () -> optForRISCV.Optimize(riscvFunction));
         }
     }
 }
@@ -5,6 +5,7 @@ import backend.RISCVCode.RISCVFunction;
 import backend.RISCVCode.RISCVInstruction.RISCVInstruction;
 import backend.RISCVCode.RISCVInstruction.RISCVJ;
 import backend.RISCVCode.RISCVInstruction.RISCVBeqz;
+import backend.RISCVCode.RISCVInstruction.RISCVBnez;
 
 import java.util.*;
 
@@ -46,6 +47,9 @@ public class RemoveUnreachableBlock implements OptForRISCV {
         } else if (instruction instanceof RISCVBeqz) {
             String targetLabel = ((RISCVBeqz) instruction).getLabel().getName();
             return findBlockByLabel(targetLabel, blocks);
+        } else if (instruction instanceof RISCVBnez) {
+            String targetLabel = ((RISCVBnez) instruction).getLabel().getName();
+            return findBlockByLabel(targetLabel, blocks);
         }
         return null;
     }
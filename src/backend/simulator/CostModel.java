@@ -0,0 +1,130 @@
+package backend.simulator;
+
+import backend.simulator.RISCVProgram.Opcode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 估计执行周期数的代价模型：每类指令有固定的周期数，跳转实际发生时(条件跳转成立、j、call、ret)再加上taken-branch-penalty
+ * 默认值大致对应单发射顺序执行的RV64处理器，可以用properties文件修改，例如
+ *   div = 34
+ *   load = 2
+ *   taken-branch-penalty = 3
+ * 键为Category的小写名称或taken-branch-penalty，没有给出的键使用默认值
+ */
+public final class CostModel {
+    public enum Category {
+        ALU(1),          /*加减、逻辑、移位、比较、li/lui/la/mv等*/
+        MUL(3),
+        DIV(20),         /*除法和取余*/
+        LOAD(3),
+        STORE(1),
+        BRANCH(1),       /*条件跳转本身，成立时另加taken-branch-penalty*/
+        JUMP(1),         /*j、jr、call、ret*/
+        FADD(4),         /*浮点加减、最大最小值*/
+        FMUL(4),
+        FDIV(20),        /*浮点除法和开方*/
+        FCMP(4),
+        FCVT(4),         /*整数和浮点数之间的转换*/
+        FMOVE(2),        /*浮点寄存器之间、浮点和整数寄存器之间的移动，取反和绝对值*/
+        LIBCALL(100);    /*sylib库函数的整个调用*/
+
+        private final long defaultCost;
+
+        Category(long defaultCost) {
+            this.defaultCost = defaultCost;
+        }
+
+        public String getKey() {
+            return name().toLowerCase();
+        }
+    }
+
+    public static final String TAKEN_BRANCH_PENALTY = "taken-branch-penalty";
+    private static final long DEFAULT_TAKEN_BRANCH_PENALTY = 2;
+
+    private final Map<Category, Long> costs = new EnumMap<>(Category.class);
+    private long takenBranchPenalty = DEFAULT_TAKEN_BRANCH_PENALTY;
+
+    private CostModel() {
+        for (Category category : Category.values()) {
+            costs.put(category, category.defaultCost);
+        }
+    }
+
+    public static CostModel defaults() {
+        return new CostModel();
+    }
+
+    /*从properties文件读取代价模型，有未知的键或不是非负整数的值时抛出IllegalArgumentException*/
+    public static CostModel load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        CostModel model = new CostModel();
+        for (String key : properties.stringPropertyNames()) {
+            long value;
+            try {
+                value = Long.parseLong(properties.getProperty(key).trim());
+            } catch (NumberFormatException e) {
+                value = -1;
+            }
+            if (value < 0) {
+                throw new IllegalArgumentException(path + ": bad cost for " + key + ": " + properties.getProperty(key));
+            }
+            if (key.equals(TAKEN_BRANCH_PENALTY)) {
+                model.takenBranchPenalty = value;
+                continue;
+            }
+            Category category = null;
+            for (Category c : Category.values()) {
+                if (c.getKey().equals(key)) {
+                    category = c;
+                }
+            }
+            if (category == null) {
+                throw new IllegalArgumentException(path + ": unknown cost " + key);
+            }
+            model.costs.put(category, value);
+        }
+        return model;
+    }
+
+    public long getCost(Category category) {
+        return costs.get(category);
+    }
+
+    public long getTakenBranchPenalty() {
+        return takenBranchPenalty;
+    }
+
+    long getCost(Opcode opcode) {
+        return costs.get(categoryOf(opcode));
+    }
+
+    static Category categoryOf(Opcode opcode) {
+        return switch (opcode) {
+            case MUL, MULW -> Category.MUL;
+            case DIV, DIVU, REM, REMU, DIVW, DIVUW, REMW, REMUW -> Category.DIV;
+            case LD, LW, LWU, FLW -> Category.LOAD;
+            case SD, SW, FSW -> Category.STORE;
+            case BEQZ, BNEZ, BEQ, BNE, BLT, BGE, BLTU, BGEU -> Category.BRANCH;
+            case J, JR, CALL, RET -> Category.JUMP;
+            case CALL_NATIVE -> Category.LIBCALL;
+            case FADD, FSUB, FMIN, FMAX -> Category.FADD;
+            case FMUL -> Category.FMUL;
+            case FDIV, FSQRT -> Category.FDIV;
+            case FEQ, FLT, FLE -> Category.FCMP;
+            case FCVTSW, FCVTWS, FCVTWS_RTZ -> Category.FCVT;
+            case FNEG, FABS, FMV, FMVWX, FMVXW -> Category.FMOVE;
+            default -> Category.ALU;
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package backend.simulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 一次模拟执行的动态剖析结果：按CostModel估计每个函数、每个基本块(汇编中的标签)的执行次数、指令数和周期数
+ * 由RISCVSimulator在打开profiling时生成，format输出可读的报告，用于按估计的周期数比较不同优化的效果
+ */
+public class ExecutionProfile {
+    public record FunctionProfile(String name, long instructions, long cycles) {
+    }
+
+    /*executions为基本块第一条指令的执行次数*/
+    public record BlockProfile(String label, String function, long executions, long instructions, long cycles) {
+    }
+
+    private final List<FunctionProfile> functions = new ArrayList<>();/*按在代码中的顺序*/
+    private final List<BlockProfile> blocks = new ArrayList<>();/*按在代码中的顺序*/
+    private final long totalInstructions;
+    private final long totalCycles;
+
+    ExecutionProfile(RISCVProgram program, long[] counts, long[] taken, CostModel costModel) {
+        int n = program.getInstructionCount();
+        long[] cycles = new long[n + 1];//cycles[i]为前i条指令的周期数之和，instructions同理
+        long[] instructions = new long[n + 1];
+        for (int pc = 0; pc < n; pc++) {
+            long pcCycles = counts[pc] * costModel.getCost(program.opcodes[pc]) + taken[pc] * costModel.getTakenBranchPenalty();
+            cycles[pc + 1] = cycles[pc] + pcCycles;
+            instructions[pc + 1] = instructions[pc] + counts[pc];
+        }
+        totalInstructions = instructions[n];
+        totalCycles = cycles[n];
+        List<String> functionNames = program.getFunctionNames();
+        for (int i = 0; i < functionNames.size(); i++) {
+            int begin = program.getFunctionStart(i);
+            int end = i + 1 < functionNames.size() ? program.getFunctionStart(i + 1) : n;
+            functions.add(new FunctionProfile(functionNames.get(i), instructions[end] - instructions[begin], cycles[end] - cycles[begin]));
+        }
+        List<String> blockLabels = program.getBlockLabels();
+        int function = -1;
+        for (int i = 0; i < blockLabels.size(); i++) {
+            int begin = program.getBlockStart(i);
+            int end = i + 1 < blockLabels.size() ? program.getBlockStart(i + 1) : n;
+            while (function + 1 < functionNames.size() && program.getFunctionStart(function + 1) <= begin) {
+                function++;
+            }
+            blocks.add(new BlockProfile(blockLabels.get(i), function < 0 ? "" : functionNames.get(function),
+                    counts[begin], instructions[end] - instructions[begin], cycles[end] - cycles[begin]));
+        }
+    }
+
+    public List<FunctionProfile> getFunctions() {
+        return Collections.unmodifiableList(functions);
+    }
+
+    public List<BlockProfile> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /*周期数最多的count个基本块，从多到少排列，不包含没有执行过的基本块*/
+    public List<BlockProfile> getHottestBlocks(int count) {
+        return blocks.stream().filter(block -> block.cycles() > 0)
+                .sorted(Comparator.comparingLong(BlockProfile::cycles).reversed())
+                .limit(count).toList();
+    }
+
+    public long getTotalInstructions() {
+        return totalInstructions;
+    }
+
+    public long getTotalCycles() {
+        return totalCycles;
+    }
+
+    /*报告：各函数的指令数和周期数(按周期数从多到少)，以及周期数最多的topBlocks个基本块*/
+    public String format(int topBlocks) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("total: %d instructions, %d cycles, CPI %.2f\n", totalInstructions, totalCycles,
+                totalInstructions == 0 ? 0.0 : (double) totalCycles / totalInstructions));
+        sb.append(String.format("%-24s %14s %14s %7s\n", "function", "instructions", "cycles", "cycles%"));
+        functions.stream().filter(function -> function.instructions() > 0)
+                .sorted(Comparator.comparingLong(FunctionProfile::cycles).reversed())
+                .forEach(function -> sb.append(String.format("%-24s %14d %14d %6.2f%%\n", function.name(),
+                        function.instructions(), function.cycles(), percent(function.cycles()))));
+        sb.append(String.format("%-24s %-16s %12s %14s %14s %7s\n", "block", "function", "executions", "instructions", "cycles", "cycles%"));
+        for (BlockProfile block : getHottestBlocks(topBlocks)) {
+            sb.append(String.format("%-24s %-16s %12d %14d %14d %6.2f%%\n", block.label(), block.function(),
+                    block.executions(), block.instructions(), block.cycles(), percent(block.cycles())));
+        }
+        return sb.toString();
+    }
+
+    private double percent(long cycles) {
+        return totalCycles == 0 ? 0.0 : 100.0 * cycles / totalCycles;
+    }
+}
@@ -0,0 +1,661 @@
+package backend.simulator;
+
+import IR.BlockProfile;
+import IR.IRConst;
+import IR.IRInstruction.AllocateInstruction;
+import IR.IRInstruction.BranchInstruction;
+import IR.IRInstruction.CalculateInstruction;
+import IR.IRInstruction.CallInstruction;
+import IR.IRInstruction.CompareInstruction;
+import IR.IRInstruction.GetElementPointerInstruction;
+import IR.IRInstruction.IRInstruction;
+import IR.IRInstruction.LoadInstruction;
+import IR.IRInstruction.PhiInstruction;
+import IR.IRInstruction.ReturnInstruction;
+import IR.IRInstruction.StoreInstruction;
+import IR.IRInstruction.TypeTransferInstruction;
+import IR.IRInstruction.ZextInstruction;
+import IR.IRModule;
+import IR.IRType.IRArrayType;
+import IR.IRType.IRFloatType;
+import IR.IRType.IRPointerType;
+import IR.IRType.IRType;
+import IR.IRValueRef.IRArrayRef;
+import IR.IRValueRef.IRBaseBlockRef;
+import IR.IRValueRef.IRConstFloatRef;
+import IR.IRValueRef.IRConstIntRef;
+import IR.IRValueRef.IRFunctionBlockRef;
+import IR.IRValueRef.IRGlobalRegRef;
+import IR.IRValueRef.IRValueRef;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IR级别的解释器，直接执行IRModule，不需要llc和gcc，也不经过后端
+ * 与RISCVSimulator共用Memory和SysYRuntime：全局变量放在数据段，alloca按函数静态分配在栈上，
+ * 整数和浮点数占4字节，指针占8字节，地址计算与RISCVBuilder生成的代码相同
+ * 每条IR指令(包括phi和跳转)计为执行一条指令，sylib计时函数的时钟和SimulationResult的周期数都是已执行的IR指令数
+ * 执行后getBlockCounts给出每个基本块的执行次数，用于比较各个优化对动态指令数的影响(见TestIR -interp -passes)
+ * 构造时把每个函数翻译成便于执行的形式，之后模块被修改不影响已经构造的解释器
+ */
+public class IRInterpreter {
+    /*一个基本块执行的次数，instructions为执行次数乘以基本块中的指令数*/
+    public record BlockCount(String function, String label, long executions, long instructions) {
+    }
+
+    private enum Kind {
+        ALLOCA, LOAD, LOAD_POINTER, STORE, STORE_POINTER, GEP,
+        ADD, SUB, MUL, SDIV, SREM, XOR, FADD, FSUB, FMUL, FDIV,
+        ICMP, FCMP, SITOFP, FPTOSI, ZEXT, BR, COND_BR, RET, CALL, LIBCALL
+    }
+
+    //phi在某条边上没有对应的入口值时，phiMoves中的标记
+    private static final int MISSING = Integer.MIN_VALUE;
+    //没有操作数或结果时的标记
+    private static final int NONE = Integer.MIN_VALUE + 1;
+    //每次调用在栈上占用的字节数，递归过深时与真实的栈一样溢出
+    private static final int CALL_FRAME_SIZE = 16;
+
+    /*翻译后的一条指令，操作数>=0时是寄存器编号，<0时~operand是常量表中的下标*/
+    private static final class Op {
+        final Kind kind;
+        int res = NONE;
+        int a = NONE;
+        int b = NONE;
+        int type;/*比较类型或alloca在栈帧中的偏移*/
+        int[] args;/*call的参数或gep的索引*/
+        long[] scales;/*gep每个索引的字节数*/
+        boolean[] floatArgs;
+        boolean floatResult;
+        int target1, target2;
+        int[] phiMoves1, phiMoves2;/*跳到target时，目标基本块的各个phi依次取的值*/
+        Function callee;
+        SysYRuntime.Function library;
+
+        Op(Kind kind) {
+            this.kind = kind;
+        }
+    }
+
+    private static final class Block {
+        final String label;
+        Op[] ops;
+        int[] phiSlots;
+        int size;/*包括phi在内的指令数*/
+        long executions;
+
+        Block(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Function {
+        final String name;
+        Block[] blocks;
+        long[] constants;
+        int slotCount;
+        int[] paramSlots;
+        int frameSize;/*所有alloca占用的字节数*/
+
+        Function(String name) {
+            this.name = name;
+        }
+    }
+
+    /*一次调用的状态，sp为调用前的栈顶，返回时恢复*/
+    private static final class Frame {
+        final Function function;
+        final long[] registers;
+        final long sp;
+        final long frameBase;
+        Block block;
+        int pc;
+
+        Frame(Function function, long sp, long frameBase) {
+            this.function = function;
+            this.registers = new long[function.slotCount];
+            this.sp = sp;
+            this.frameBase = frameBase;
+        }
+    }
+
+    private final Map<IRFunctionBlockRef, Function> functions = new HashMap<>();
+    private final List<Function> functionList = new ArrayList<>();
+    private final Map<IRGlobalRegRef, Long> globalAddresses = new HashMap<>();
+    private final Function main;
+    private long profileCounters = -1;/*-fprofile-generate插入的计数器数组的地址*/
+    private final int[] data;/*数据段的初始内容，从DATA_BASE开始按4字节存放*/
+    private long maxInstructions = RISCVSimulator.DEFAULT_MAX_INSTRUCTIONS;
+    private int stackSize = RISCVSimulator.DEFAULT_STACK_SIZE;
+    private int maxPhis;
+
+    private Memory memory;
+    private SysYRuntime runtime;
+    private long instructionCount;
+    private long sp;
+    private final long[] x = new long[32];
+    private final int[] f = new int[32];
+
+    public IRInterpreter(IRModule module) {
+        long address = RISCVProgram.DATA_BASE;
+        for (IRGlobalRegRef global : module.getGlobalVariables().keySet()) {
+            globalAddresses.put(global, address);
+            if (global.getIdentity().equals(BlockProfile.COUNTERS)) {
+                profileCounters = address;
+            }
+            address = align(address + sizeOf(((IRPointerType) global.getType()).getBaseType()));
+        }
+        data = new int[(int) (address - RISCVProgram.DATA_BASE) / 4];
+        Memory image = new Memory((int) address);
+        for (Map.Entry<IRGlobalRegRef, IRValueRef> entry : module.getGlobalVariables().entrySet()) {
+            initializeGlobal(image, globalAddresses.get(entry.getKey()), entry.getValue());
+        }
+        for (int i = 0; i < data.length; i++) {
+            data[i] = image.loadInt(RISCVProgram.DATA_BASE + 4L * i);
+        }
+        for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+            Function translated = new Function(function.getFunctionName());
+            functions.put(function, translated);
+            functionList.add(translated);
+        }
+        for (IRFunctionBlockRef function : module.getFunctionBlocks()) {
+            translate(function, functions.get(function));
+        }
+        Function mainFunction = null;
+        for (Function function : functionList) {
+            if (function.name.equals("main")) {
+                mainFunction = function;
+            }
+        }
+        main = mainFunction;
+    }
+
+    public void setMaxInstructions(long maxInstructions) {
+        this.maxInstructions = maxInstructions;
+    }
+
+    public void setStackSize(int stackSize) {
+        this.stackSize = stackSize;
+    }
+
+    /*以input作为标准输入执行一次程序，每次执行都从新的内存和基本块计数开始*/
+    public SimulationResult run(byte[] input) {
+        int dataEnd = RISCVProgram.DATA_BASE + ((4 * data.length + 15) & ~15);
+        if ((long) dataEnd + stackSize > Integer.MAX_VALUE - 16) {
+            throw new IllegalArgumentException("data and stack do not fit in memory");
+        }
+        memory = new Memory(dataEnd + stackSize);
+        for (int i = 0; i < data.length; i++) {
+            memory.storeInt(RISCVProgram.DATA_BASE + 4L * i, data[i]);
+        }
+        for (Function function : functionList) {
+            for (Block block : function.blocks) {
+                block.executions = 0;
+            }
+        }
+        instructionCount = 0;
+        sp = memory.size();
+        runtime = new SysYRuntime(input, () -> instructionCount);
+        if (profileCounters >= 0) {
+            runtime.setProfileCounters(profileCounters);
+        }
+        int exitCode = 0;
+        String error = null;
+        if (main == null) {
+            error = "no main function";
+        } else {
+            try {
+                exitCode = (int) (execute(main, dataEnd) & 0xFF);
+                runtime.finish(memory);
+            } catch (SimulationException e) {
+                error = e.getMessage();
+            }
+        }
+        return new SimulationResult(exitCode, runtime.getOutput(), runtime.getErrorOutput(), instructionCount,
+                instructionCount, null, runtime.getTimerRegions(), runtime.getBlockProfile(), error);
+    }
+
+    /*上一次run中每个基本块的执行次数，按函数和基本块在模块中的顺序*/
+    public List<BlockCount> getBlockCounts() {
+        List<BlockCount> counts = new ArrayList<>();
+        for (Function function : functionList) {
+            for (Block block : function.blocks) {
+                counts.add(new BlockCount(function.name, block.label, block.executions, block.executions * block.size));
+            }
+        }
+        return counts;
+    }
+
+    /*执行指令数最多的count个基本块，从多到少排列*/
+    public String formatHottestBlocks(int count) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %-16s %12s %14s\n", "block", "function", "executions", "instructions"));
+        getBlockCounts().stream().filter(block -> block.instructions() > 0)
+                .sorted(Comparator.comparingLong(BlockCount::instructions).reversed()).limit(count)
+                .forEach(block -> sb.append(String.format("%-24s %-16s %12d %14d\n", block.label(), block.function(),
+                        block.executions(), block.instructions())));
+        return sb.toString();
+    }
+
+    private static long align(long address) {
+        return (address + 7) & ~7L;
+    }
+
+    private static int sizeOf(IRType type) {
+        if (type instanceof IRArrayType arrayType) {
+            return arrayType.getLength() * sizeOf(arrayType.getBaseType());
+        }
+        return type instanceof IRPointerType ? 8 : 4;
+    }
+
+    //与RISCVBuilder.generateGlobals相同：没有初始值的标量为0，数组按展开后的初始值依次存放
+    private static void initializeGlobal(Memory image, long address, IRValueRef initializer) {
+        if (initializer instanceof IRConstIntRef constInt) {
+            image.storeInt(address, constInt.getValue());
+        } else if (initializer instanceof IRConstFloatRef constFloat) {
+            image.storeInt(address, Float.floatToRawIntBits(constFloat.getValue()));
+        } else if (initializer instanceof IRArrayRef array && !array.isAllZero()) {
+            if (!array.getInitFloatValue().isEmpty()) {
+                List<Float> values = array.getInitFloatValue();
+                for (int i = 0; i < values.size(); i++) {
+                    image.storeInt(address + 4L * i, Float.floatToRawIntBits(values.get(i)));
+                }
+            } else {
+                List<Integer> values = array.getInitIntValue();
+                for (int i = 0; i < values.size(); i++) {
+                    image.storeInt(address + 4L * i, values.get(i));
+                }
+            }
+        }
+    }
+
+    /*把一个函数翻译成Function，寄存器和常量在翻译时编号*/
+    private void translate(IRFunctionBlockRef source, Function function) {
+        Map<IRValueRef, Integer> slots = new HashMap<>();
+        List<Long> constants = new ArrayList<>();
+        Map<Long, Integer> constantIndex = new HashMap<>();
+        Map<IRBaseBlockRef, Integer> blockIndex = new HashMap<>();
+        List<IRBaseBlockRef> sourceBlocks = source.getBaseBlocks();
+        function.blocks = new Block[sourceBlocks.size()];
+        for (int i = 0; i < sourceBlocks.size(); i++) {
+            blockIndex.put(sourceBlocks.get(i), i);
+            function.blocks[i] = new Block(sourceBlocks.get(i).getLabel());
+        }
+        Translator translator = new Translator(slots, constants, constantIndex);
+        function.paramSlots = new int[source.getParams().size()];
+        for (int i = 0; i < function.paramSlots.length; i++) {
+            function.paramSlots[i] = translator.slot(source.getParam(i));
+        }
+        //phi的结果先编号，跳转指令翻译时需要目标基本块的phi
+        List<List<PhiInstruction>> phis = new ArrayList<>();
+        for (int i = 0; i < sourceBlocks.size(); i++) {
+            List<PhiInstruction> blockPhis = new ArrayList<>();
+            for (IRInstruction instruction : sourceBlocks.get(i).getInstructionList()) {
+                if (instruction instanceof PhiInstruction phi) {
+                    blockPhis.add(phi);
+                }
+            }
+            phis.add(blockPhis);
+            Block block = function.blocks[i];
+            block.phiSlots = new int[blockPhis.size()];
+            for (int j = 0; j < blockPhis.size(); j++) {
+                block.phiSlots[j] = translator.slot(blockPhis.get(j).getOperands().get(0));
+            }
+            maxPhis = Math.max(maxPhis, blockPhis.size());
+        }
+        for (int i = 0; i < sourceBlocks.size(); i++) {
+            IRBaseBlockRef sourceBlock = sourceBlocks.get(i);
+            Block block = function.blocks[i];
+            List<Op> ops = new ArrayList<>();
+            for (IRInstruction instruction : sourceBlock.getInstructionList()) {
+                block.size++;
+                if (instruction instanceof PhiInstruction) {
+                    continue;
+                }
+                Op op = translator.translate(instruction, function);
+                if (instruction instanceof BranchInstruction branch) {
+                    op.target1 = blockIndex.get(branch.getBaseBlock1());
+                    op.phiMoves1 = translator.phiMoves(phis.get(op.target1), sourceBlock);
+                    if (op.kind == Kind.COND_BR) {
+                        op.target2 = blockIndex.get(branch.getBaseBlock2());
+                        op.phiMoves2 = translator.phiMoves(phis.get(op.target2), sourceBlock);
+                    }
+                }
+                ops.add(op);
+            }
+            block.ops = ops.toArray(new Op[0]);
+        }
+        function.slotCount = slots.size();
+        function.constants = constants.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private final class Translator {
+        private final Map<IRValueRef, Integer> slots;
+        private final List<Long> constants;
+        private final Map<Long, Integer> constantIndex;
+
+        Translator(Map<IRValueRef, Integer> slots, List<Long> constants, Map<Long, Integer> constantIndex) {
+            this.slots = slots;
+            this.constants = constants;
+            this.constantIndex = constantIndex;
+        }
+
+        int slot(IRValueRef value) {
+            return slots.computeIfAbsent(value, v -> slots.size());
+        }
+
+        int constant(long value) {
+            return ~constantIndex.computeIfAbsent(value, v -> {
+                constants.add(v);
+                return constants.size() - 1;
+            });
+        }
+
+        int operand(IRValueRef value) {
+            if (value == null) {
+                return NONE;
+            }
+            if (value instanceof IRConstIntRef constInt) {
+                return constant(constInt.getValue());
+            }
+            if (value instanceof IRConstFloatRef constFloat) {
+                return constant(Float.floatToRawIntBits(constFloat.getValue()));
+            }
+            if (value instanceof IRGlobalRegRef global) {
+                return constant(globalAddresses.get(global));
+            }
+            return slot(value);
+        }
+
+        int[] phiMoves(List<PhiInstruction> targetPhis, IRBaseBlockRef from) {
+            int[] moves = new int[targetPhis.size()];
+            for (int i = 0; i < moves.length; i++) {
+                Map<IRBaseBlockRef, IRValueRef> incoming = targetPhis.get(i).getIncomingValues();
+                moves[i] = incoming.containsKey(from) ? operand(incoming.get(from)) : MISSING;
+            }
+            return moves;
+        }
+
+        Op translate(IRInstruction instruction, Function function) {
+            List<IRValueRef> operands = instruction.getOperands();
+            Op op;
+            if (instruction instanceof AllocateInstruction allocate) {
+                op = new Op(Kind.ALLOCA);
+                op.type = function.frameSize;
+                function.frameSize = (int) align(function.frameSize + sizeOf(((IRPointerType) allocate.getType()).getBaseType()));
+            } else if (instruction instanceof LoadInstruction) {
+                op = new Op(operands.get(0).getType() instanceof IRPointerType ? Kind.LOAD_POINTER : Kind.LOAD);
+                op.a = operand(operands.get(1));
+            } else if (instruction instanceof StoreInstruction) {
+                op = new Op(operands.get(1).getType() instanceof IRPointerType ? Kind.STORE_POINTER : Kind.STORE);
+                op.a = operand(operands.get(1));
+                op.b = operand(operands.get(2));
+                return op;
+            } else if (instruction instanceof GetElementPointerInstruction gep) {
+                op = new Op(Kind.GEP);
+                op.a = operand(gep.getBase());
+                List<IRValueRef> index = gep.getIndex();
+                op.args = new int[index.size()];
+                op.scales = new long[index.size()];
+                IRType type = ((IRPointerType) gep.getBase().getType()).getBaseType();
+                for (int i = 0; i < index.size(); i++) {
+                    op.args[i] = operand(index.get(i));
+                    op.scales[i] = sizeOf(type);
+                    if (i + 1 < index.size()) {
+                        type = ((IRArrayType) type).getBaseType();
+                    }
+                }
+            } else if (instruction instanceof CalculateInstruction calculate) {
+                op = new Op(switch (calculate.getType()) {
+                    case "add" -> Kind.ADD;
+                    case "sub" -> Kind.SUB;
+                    case "mul" -> Kind.MUL;
+                    case "sdiv" -> Kind.SDIV;
+                    case "srem" -> Kind.SREM;
+                    case "xor" -> Kind.XOR;
+                    case "fadd" -> Kind.FADD;
+                    case "fsub" -> Kind.FSUB;
+                    case "fmul" -> Kind.FMUL;
+                    case "fdiv" -> Kind.FDIV;
+                    default -> throw new IllegalArgumentException("unsupported instruction " + calculate);
+                });
+                op.a = operand(operands.get(1));
+                op.b = operand(operands.get(2));
+            } else if (instruction instanceof CompareInstruction compare) {
+                op = new Op(operands.get(1).getType() instanceof IRFloatType ? Kind.FCMP : Kind.ICMP);
+                op.type = compare.getCompareType();
+                op.a = operand(operands.get(1));
+                op.b = operand(operands.get(2));
+            } else if (instruction instanceof TypeTransferInstruction transfer) {
+                op = new Op(transfer.getTransferType() == IRConst.IntToFloat ? Kind.SITOFP : Kind.FPTOSI);
+                op.a = operand(operands.get(1));
+            } else if (instruction instanceof ZextInstruction) {
+                op = new Op(Kind.ZEXT);
+                op.a = operand(operands.get(1));
+            } else if (instruction instanceof BranchInstruction branch) {
+                op = new Op(branch.getType() == BranchInstruction.SINGLE ? Kind.BR : Kind.COND_BR);
+                if (op.kind == Kind.COND_BR) {
+                    op.a = operand(operands.get(0));
+                }
+                return op;
+            } else if (instruction instanceof ReturnInstruction) {
+                op = new Op(Kind.RET);
+                op.a = operands.isEmpty() ? NONE : operand(operands.get(0));
+                return op;
+            } else if (instruction instanceof CallInstruction call) {
+                IRFunctionBlockRef callee = call.getFunction();
+                Function translated = functions.get(callee);
+                op = new Op(translated != null ? Kind.CALL : Kind.LIBCALL);
+                op.callee = translated;
+                if (translated == null) {
+                    op.library = SysYRuntime.Function.forName(callee.getFunctionName());
+                    if (op.library == null) {
+                        throw new IllegalArgumentException("call to undefined function " + callee.getFunctionName());
+                    }
+                }
+                List<IRValueRef> params = call.getParams();
+                op.args = new int[params.size()];
+                op.floatArgs = new boolean[params.size()];
+                for (int i = 0; i < params.size(); i++) {
+                    op.args[i] = operand(params.get(i));
+                    op.floatArgs[i] = params.get(i).getType() instanceof IRFloatType;
+                }
+                op.floatResult = call.getFunction().getRetType() instanceof IRFloatType;
+                if (call.isVoid()) {
+                    return op;
+                }
+            } else {
+                throw new IllegalArgumentException("unsupported instruction " + instruction);
+            }
+            op.res = slot(operands.get(0));
+            return op;
+        }
+    }
+
+    /*从function开始执行直到它返回，返回值为function的返回值；调用保存在显式的栈中，深递归不会耗尽Java的栈*/
+    private long execute(Function entry, long stackLimit) {
+        Deque<Frame> callers = new ArrayDeque<>();
+        long[] phiValues = new long[maxPhis];
+        Frame frame = enter(entry, stackLimit);
+        long[] registers = frame.registers;
+        long[] constants = entry.constants;
+        enterBlock(frame.function.blocks[0]);
+        frame.block = frame.function.blocks[0];
+        while (true) {
+            Op op = frame.block.ops[frame.pc++];
+            long a = op.a == NONE ? 0 : op.a >= 0 ? registers[op.a] : constants[~op.a];
+            long b = op.b == NONE ? 0 : op.b >= 0 ? registers[op.b] : constants[~op.b];
+            switch (op.kind) {
+                case ALLOCA -> registers[op.res] = frame.frameBase + op.type;
+                case LOAD -> registers[op.res] = memory.loadInt(a);
+                case LOAD_POINTER -> registers[op.res] = memory.loadLong(a);
+                case STORE -> memory.storeInt(b, (int) a);
+                case STORE_POINTER -> memory.storeLong(b, a);
+                case GEP -> {
+                    long address = a;
+                    for (int i = 0; i < op.args.length; i++) {
+                        int index = op.args[i];
+                        address += (int) (index >= 0 ? registers[index] : constants[~index]) * op.scales[i];
+                    }
+                    registers[op.res] = address;
+                }
+                case ADD -> registers[op.res] = (int) a + (int) b;
+                case SUB -> registers[op.res] = (int) a - (int) b;
+                case MUL -> registers[op.res] = (int) a * (int) b;
+                case SDIV -> {
+                    if ((int) b == 0) {
+                        throw new SimulationException("division by zero in " + frame.function.name);
+                    }
+                    registers[op.res] = (int) a / (int) b;
+                }
+                case SREM -> {
+                    if ((int) b == 0) {
+                        throw new SimulationException("division by zero in " + frame.function.name);
+                    }
+                    registers[op.res] = (int) a % (int) b;
+                }
+                case XOR -> registers[op.res] = a ^ b;
+                case FADD -> registers[op.res] = floatBits(toFloat(a) + toFloat(b));
+                case FSUB -> registers[op.res] = floatBits(toFloat(a) - toFloat(b));
+                case FMUL -> registers[op.res] = floatBits(toFloat(a) * toFloat(b));
+                case FDIV -> registers[op.res] = floatBits(toFloat(a) / toFloat(b));
+                case ICMP -> registers[op.res] = compare(op.type, Integer.compare((int) a, (int) b)) ? 1 : 0;
+                case FCMP -> {
+                    float lhs = toFloat(a), rhs = toFloat(b);
+                    //fcmp的比较都是无序的(ueq、une等)，有NaN时成立；不用Float.compare，它把-0.0和0.0当作不相等
+                    int order = lhs < rhs ? -1 : lhs > rhs ? 1 : 0;
+                    registers[op.res] = Float.isNaN(lhs) || Float.isNaN(rhs) || compare(op.type, order) ? 1 : 0;
+                }
+                case SITOFP -> registers[op.res] = floatBits((int) a);
+                case FPTOSI -> registers[op.res] = toInt(toFloat(a));
+                case ZEXT -> registers[op.res] = a & 1;
+                case BR -> jump(frame, op.target1, op.phiMoves1, phiValues, registers, constants);
+                case COND_BR -> {
+                    if ((a & 1) != 0) {
+                        jump(frame, op.target1, op.phiMoves1, phiValues, registers, constants);
+                    } else {
+                        jump(frame, op.target2, op.phiMoves2, phiValues, registers, constants);
+                    }
+                }
+                case CALL -> {
+                    Frame callee = enter(op.callee, stackLimit);
+                    for (int i = 0; i < op.args.length; i++) {
+                        int arg = op.args[i];
+                        callee.registers[op.callee.paramSlots[i]] = arg >= 0 ? registers[arg] : constants[~arg];
+                    }
+                    callers.push(frame);
+                    frame = callee;
+                    registers = frame.registers;
+                    constants = frame.function.constants;
+                    frame.block = frame.function.blocks[0];
+                    enterBlock(frame.block);
+                }
+                case LIBCALL -> {
+                    callLibrary(op, registers, constants);
+                    if (op.res != NONE) {
+                        registers[op.res] = op.floatResult ? f[10] : (int) x[10];
+                    }
+                }
+                case RET -> {
+                    sp = frame.sp;
+                    if (callers.isEmpty()) {
+                        return a;
+                    }
+                    frame = callers.pop();
+                    registers = frame.registers;
+                    constants = frame.function.constants;
+                    Op call = frame.block.ops[frame.pc - 1];
+                    if (call.res != NONE) {
+                        registers[call.res] = a;
+                    }
+                }
+            }
+        }
+    }
+
+    //为一次调用分配栈帧，栈顶越过数据段时报告栈溢出
+    private Frame enter(Function function, long stackLimit) {
+        long frameBase = (sp - CALL_FRAME_SIZE - function.frameSize) & ~15L;
+        if (frameBase < stackLimit) {
+            throw new SimulationException("stack overflow in " + function.name);
+        }
+        Frame frame = new Frame(function, sp, frameBase);
+        sp = frameBase;
+        return frame;
+    }
+
+    private void enterBlock(Block block) {
+        block.executions++;
+        instructionCount += block.size;
+        if (instructionCount > maxInstructions) {
+            throw new SimulationException("exceeded " + maxInstructions + " instructions");
+        }
+    }
+
+    //跳转到当前函数的target块，目标块的phi先全部读出再写入，与并行赋值的语义一致
+    private void jump(Frame frame, int target, int[] moves, long[] phiValues, long[] registers, long[] constants) {
+        Block block = frame.function.blocks[target];
+        for (int i = 0; i < moves.length; i++) {
+            int move = moves[i];
+            if (move == MISSING) {
+                throw new SimulationException("phi in " + block.label + " has no value for " + frame.block.label);
+            }
+            phiValues[i] = move == NONE ? 0 : move >= 0 ? registers[move] : constants[~move];
+        }
+        for (int i = 0; i < moves.length; i++) {
+            registers[block.phiSlots[i]] = phiValues[i];
+        }
+        frame.block = block;
+        frame.pc = 0;
+        enterBlock(block);
+    }
+
+    //按调用约定把参数放到a0-a7、fa0-fa7中，调用SysYRuntime；putf的可变参数中的浮点数按double放在整数寄存器中
+    private void callLibrary(Op op, long[] registers, long[] constants) {
+        int nextX = 10, nextF = 10;
+        for (int i = 0; i < op.args.length; i++) {
+            int arg = op.args[i];
+            long value = arg >= 0 ? registers[arg] : constants[~arg];
+            if (!op.floatArgs[i]) {
+                x[nextX++] = value;
+            } else if (op.library == SysYRuntime.Function.PUTF) {
+                x[nextX++] = Double.doubleToRawLongBits(toFloat(value));
+            } else {
+                f[nextF++] = (int) value;
+            }
+        }
+        runtime.call(op.library, x, f, memory);
+    }
+
+    //order为两个操作数比较的结果(<0、0、>0)，type为IRConst中的比较类型
+    private static boolean compare(int type, int order) {
+        return switch (type) {
+            case IRConst.IREQ -> order == 0;
+            case IRConst.IRNE -> order != 0;
+            case IRConst.IRSGT -> order > 0;
+            case IRConst.IRSGE -> order >= 0;
+            case IRConst.IRSLT -> order < 0;
+            case IRConst.IRSLE -> order <= 0;
+            default -> throw new SimulationException("unknown compare type " + type);
+        };
+    }
+
+    private static float toFloat(long bits) {
+        return Float.intBitsToFloat((int) bits);
+    }
+
+    private static long floatBits(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    //与RISCVSimulator相同：超出范围时取最大值或最小值，NaN转换为最大值
+    private static int toInt(float value) {
+        return Float.isNaN(value) ? Integer.MAX_VALUE : (int) value;
+    }
+}
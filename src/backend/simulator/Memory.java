@@ -0,0 +1,51 @@
+package backend.simulator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * 模拟器的内存，小端序，地址即数组下标
+ * [0, DATA_BASE)不可访问，用来捕获空指针；数据段之后是栈，栈顶在内存的最高地址处
+ */
+final class Memory {
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final byte[] bytes;
+
+    Memory(int size) {
+        bytes = new byte[size];
+    }
+
+    int size() {
+        return bytes.length;
+    }
+
+    private int check(long address, int width) {
+        if (address < RISCVProgram.DATA_BASE || address > bytes.length - width) {
+            throw new SimulationException(String.format("invalid %d-byte memory access at 0x%x", width, address));
+        }
+        return (int) address;
+    }
+
+    long loadLong(long address) {
+        return (long) LONG.get(bytes, check(address, 8));
+    }
+
+    int loadInt(long address) {
+        return (int) INT.get(bytes, check(address, 4));
+    }
+
+    byte loadByte(long address) {
+        return bytes[check(address, 1)];
+    }
+
+    void storeLong(long address, long value) {
+        LONG.set(bytes, check(address, 8), value);
+    }
+
+    void storeInt(long address, int value) {
+        INT.set(bytes, check(address, 4), value);
+    }
+}
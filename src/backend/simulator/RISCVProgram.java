@@ -0,0 +1,640 @@
+package backend.simulator;
+
+import backend.RISCVCode.RISCVCode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 解析RISCVBuilder输出的汇编代码，得到RISCVSimulator可以直接执行的程序
+ * 支持RV64IMF中RISCVBuilder会生成的指令和伪指令，以及.data/.bss/.text/.dword/.word/.space等伪操作
+ * 指令解码为操作码和寄存器编号、立即数数组，跳转目标解析为指令下标，调用库函数解析为SysYRuntime.Function
+ * 指令的地址为TEXT_BASE+4*下标，与数据地址不重叠；数据从DATA_BASE开始依次存放
+ */
+public class RISCVProgram {
+    public static final long TEXT_BASE = 0x100000000L;
+    public static final int DATA_BASE = 0x10000;
+
+    enum Opcode {
+        //整数运算，rd = rs1 op rs2 / imm
+        ADD, SUB, MUL, DIV, DIVU, REM, REMU, AND, OR, XOR, SLL, SRL, SRA, SLT, SLTU,
+        ADDW, SUBW, MULW, DIVW, DIVUW, REMW, REMUW, SLLW, SRLW, SRAW,
+        ADDI, ANDI, ORI, XORI, SLLI, SRLI, SRAI, SLTI, SLTIU, ADDIW, SLLIW, SRLIW, SRAIW,
+        LI, LUI, LA, MV, NEG, NEGW, NOT, SEQZ, SNEZ, SEXTW,
+        //访存，地址为rs1+imm
+        LD, LW, LWU, SD, SW, FLW, FSW,
+        //跳转，imm为目标指令下标
+        BEQZ, BNEZ, BEQ, BNE, BLT, BGE, BLTU, BGEU, J, JR, CALL, CALL_NATIVE, RET,
+        //单精度浮点
+        FADD, FSUB, FMUL, FDIV, FMIN, FMAX, FSQRT, FNEG, FABS, FMV, FMVWX, FMVXW, FEQ, FLT, FLE,
+        FCVTSW, FCVTWS, FCVTWS_RTZ
+    }
+
+    //以下数组以指令下标为索引
+    final Opcode[] opcodes;
+    final int[] rd;
+    final int[] rs1;
+    final int[] rs2;
+    final long[] imm;
+    final int[] sourceLines;/*指令在.s文件中的行号，用于报错*/
+
+    private final Map<String, Integer> textLabels;/*标签->指令下标*/
+    private final Map<String, Integer> dataLabels;/*全局变量->地址*/
+    private final List<String> functionNames;/*函数标签，按在代码中的顺序*/
+    private final int[] functionStarts;
+    private final List<String> blockLabels;/*基本块的标签，按在代码中的顺序*/
+    private final int[] blockStarts;
+    private final int dataEnd;/*数据段结束的地址*/
+    //数据段的初值：地址、字节数(4或8)、值
+    private final int[] initAddresses;
+    private final int[] initSizes;
+    private final long[] initValues;
+
+    private RISCVProgram(Parser parser) {
+        int n = parser.instructions.size();
+        opcodes = new Opcode[n];
+        rd = new int[n];
+        rs1 = new int[n];
+        rs2 = new int[n];
+        imm = new long[n];
+        sourceLines = new int[n];
+        for (int i = 0; i < n; i++) {
+            Parser.Instruction inst = parser.instructions.get(i);
+            opcodes[i] = inst.opcode;
+            rd[i] = inst.rd;
+            rs1[i] = inst.rs1;
+            rs2[i] = inst.rs2;
+            imm[i] = inst.imm;
+            sourceLines[i] = inst.line;
+        }
+        textLabels = parser.textLabels;
+        dataLabels = parser.dataLabels;
+        functionNames = parser.functionNames;
+        functionStarts = parser.functionStarts.stream().mapToInt(Integer::intValue).toArray();
+        blockLabels = parser.blockLabels;
+        blockStarts = parser.blockStarts.stream().mapToInt(Integer::intValue).toArray();
+        dataEnd = parser.dataPointer;
+        initAddresses = parser.initAddresses.stream().mapToInt(Integer::intValue).toArray();
+        initSizes = parser.initSizes.stream().mapToInt(Integer::intValue).toArray();
+        initValues = parser.initValues.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * 解析汇编代码，有无法识别的指令、未定义的标签时抛出IllegalArgumentException，消息中包含行号
+     */
+    public static RISCVProgram parse(String assembly) {
+        Parser parser = new Parser();
+        parser.parse(assembly);
+        return new RISCVProgram(parser);
+    }
+
+    /*直接从后端生成的RISCVCode得到程序，不经过文件*/
+    public static RISCVProgram fromCode(RISCVCode code) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            code.generateRISCVCode(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);//StringBuilder不会抛出IOException
+        }
+        return parse(sb.toString());
+    }
+
+    public int getInstructionCount() {
+        return opcodes.length;
+    }
+
+    public Integer getTextLabel(String label) {
+        return textLabels.get(label);
+    }
+
+    public Integer getDataLabel(String label) {
+        return dataLabels.get(label);
+    }
+
+    public List<String> getFunctionNames() {
+        return functionNames;
+    }
+
+    /*第i个函数第一条指令的下标*/
+    public int getFunctionStart(int i) {
+        return functionStarts[i];
+    }
+
+    /*
+     * 第i个函数的序言分配的栈帧大小(字节)，序言为addi sp, sp, -N或li s0, -N; add sp, sp, s0
+     * 第一条指令不是这两种形式时(不分配栈帧)返回0
+     */
+    public long getFrameSize(int i) {
+        int pc = functionStarts[i];
+        if (opcodes[pc] == Opcode.ADDI && rd[pc] == 2 && rs1[pc] == 2 && imm[pc] < 0) {
+            return -imm[pc];
+        }
+        if (opcodes[pc] == Opcode.LI && imm[pc] < 0 && pc + 1 < opcodes.length && opcodes[pc + 1] == Opcode.ADD
+                && rd[pc + 1] == 2 && rs1[pc + 1] == 2 && rs2[pc + 1] == rd[pc]) {
+            return -imm[pc];
+        }
+        return 0;
+    }
+
+    /*基本块从一个标签开始，到下一个标签之前结束*/
+    public List<String> getBlockLabels() {
+        return blockLabels;
+    }
+
+    /*第i个基本块第一条指令的下标*/
+    public int getBlockStart(int i) {
+        return blockStarts[i];
+    }
+
+    public int getDataEnd() {
+        return dataEnd;
+    }
+
+    void initializeData(Memory memory) {
+        for (int i = 0; i < initAddresses.length; i++) {
+            if (initSizes[i] == 8) {
+                memory.storeLong(initAddresses[i], initValues[i]);
+            } else {
+                memory.storeInt(initAddresses[i], (int) initValues[i]);
+            }
+        }
+    }
+
+    public int getSourceLine(int pc) {
+        return sourceLines[pc];
+    }
+
+    private static final class Parser {
+        private static final class Instruction {
+            Opcode opcode;
+            int rd;
+            int rs1;
+            int rs2;
+            long imm;
+            int line;
+            String target;/*还未解析的跳转目标或符号*/
+            String symbolPart;/*%hi/%lo引用符号时取哪一部分*/
+        }
+
+        private static final Map<String, Integer> intRegisters = new HashMap<>();
+        private static final Map<String, Integer> floatRegisters = new HashMap<>();
+
+        static {
+            String[] intNames = {"zero", "ra", "sp", "gp", "tp", "t0", "t1", "t2", "s0", "s1",
+                    "a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7",
+                    "s2", "s3", "s4", "s5", "s6", "s7", "s8", "s9", "s10", "s11", "t3", "t4", "t5", "t6"};
+            String[] floatNames = {"ft0", "ft1", "ft2", "ft3", "ft4", "ft5", "ft6", "ft7", "fs0", "fs1",
+                    "fa0", "fa1", "fa2", "fa3", "fa4", "fa5", "fa6", "fa7",
+                    "fs2", "fs3", "fs4", "fs5", "fs6", "fs7", "fs8", "fs9", "fs10", "fs11", "ft8", "ft9", "ft10", "ft11"};
+            for (int i = 0; i < 32; i++) {
+                intRegisters.put(intNames[i], i);
+                intRegisters.put("x" + i, i);
+                floatRegisters.put(floatNames[i], i);
+                floatRegisters.put("f" + i, i);
+            }
+            intRegisters.put("fp", 8);
+        }
+
+        private final List<Instruction> instructions = new ArrayList<>();
+        private final Map<String, Integer> textLabels = new LinkedHashMap<>();
+        private final Map<String, Integer> dataLabels = new HashMap<>();
+        private final List<String> functionNames = new ArrayList<>();
+        private final List<Integer> functionStarts = new ArrayList<>();
+        private final List<String> blockLabels = new ArrayList<>();
+        private final List<Integer> blockStarts = new ArrayList<>();
+        private final List<Integer> initAddresses = new ArrayList<>();
+        private final List<Integer> initSizes = new ArrayList<>();
+        private final List<Long> initValues = new ArrayList<>();
+        private int dataPointer = DATA_BASE;
+        private boolean inText = false;
+        private int lineNumber;
+
+        void parse(String assembly) {
+            List<String> pendingLabels = new ArrayList<>();
+            lineNumber = 0;
+            for (String rawLine : assembly.split("\n", -1)) {
+                lineNumber++;
+                String line = stripComment(rawLine).trim();
+                //一行中可以有多个标签，标签后面也可以紧跟指令(函数入口就是这样输出的)
+                int colon;
+                while ((colon = labelEnd(line)) >= 0) {
+                    pendingLabels.add(line.substring(0, colon).trim());
+                    line = line.substring(colon + 1).trim();
+                }
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith(".")) {
+                    directive(line, pendingLabels);
+                    continue;
+                }
+                if (!inText) {
+                    throw error("instruction outside .text: " + line);
+                }
+                for (String label : pendingLabels) {
+                    defineLabel(textLabels, label, instructions.size());
+                }
+                pendingLabels.clear();
+                instruction(line);
+            }
+            for (String label : pendingLabels) {
+                defineLabel(inText ? textLabels : dataLabels, label, inText ? instructions.size() : dataPointer);
+            }
+            resolve();
+        }
+
+        private static String stripComment(String line) {
+            int index = line.indexOf('#');
+            return index < 0 ? line : line.substring(0, index);
+        }
+
+        //行首标签的冒号位置，不是标签时返回-1
+        private static int labelEnd(String line) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < colon; i++) {
+                char c = line.charAt(i);
+                if (!(Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$')) {
+                    return -1;
+                }
+            }
+            return colon;
+        }
+
+        private void defineLabel(Map<String, Integer> labels, String label, int value) {
+            if (labels.put(label, value) != null) {
+                throw error("duplicate label " + label);
+            }
+        }
+
+        private void directive(String line, List<String> pendingLabels) {
+            String[] parts = line.split("\\s+", 2);
+            String name = parts[0];
+            String args = parts.length > 1 ? parts[1].trim() : "";
+            switch (name) {
+                case ".text" -> inText = true;
+                case ".data", ".bss", ".rodata", ".section" -> inText = name.equals(".section") && args.startsWith(".text");
+                case ".globl", ".global", ".type", ".size", ".file", ".option", ".attribute" -> {
+                }
+                case ".align", ".p2align", ".balign" -> {
+                    if (!inText) {
+                        int align = name.equals(".balign") ? Integer.parseInt(args) : 1 << Integer.parseInt(args);
+                        dataPointer = (dataPointer + align - 1) / align * align;
+                    }
+                }
+                case ".dword", ".quad", ".word", ".zero", ".space" -> {
+                    if (inText) {
+                        throw error("data directive in .text: " + line);
+                    }
+                    for (String label : pendingLabels) {
+                        defineLabel(dataLabels, label, dataPointer);
+                    }
+                    pendingLabels.clear();
+                    if (name.equals(".zero") || name.equals(".space")) {
+                        dataPointer += Integer.parseInt(args);
+                        return;
+                    }
+                    int size = name.equals(".word") ? 4 : 8;
+                    for (String value : args.split(",")) {
+                        initAddresses.add(dataPointer);
+                        initSizes.add(size);
+                        initValues.add(parseNumber(value.trim()));
+                        dataPointer += size;
+                    }
+                }
+                default -> throw error("unsupported directive " + name);
+            }
+        }
+
+        private void instruction(String line) {
+            String[] parts = line.split("\\s+", 2);
+            String mnemonic = parts[0];
+            String[] ops = parts.length > 1 ? parts[1].split(",") : new String[0];
+            for (int i = 0; i < ops.length; i++) {
+                ops[i] = ops[i].trim();
+            }
+            Instruction inst = new Instruction();
+            inst.line = lineNumber;
+            switch (mnemonic) {
+                case "add", "sub", "mul", "div", "divu", "rem", "remu", "and", "or", "xor", "sll", "srl", "sra", "slt", "sltu",
+                        "addw", "subw", "mulw", "divw", "divuw", "remw", "remuw", "sllw", "srlw", "sraw" -> {
+                    expect(ops, 3, mnemonic);
+                    if (!isIntRegister(ops[2])) {
+                        //寄存器和立即数运算写成了三寄存器的形式(如xor rd, rs, imm)，按对应的立即数指令处理
+                        immediateOp(inst, immediateForm(mnemonic), ops);
+                        break;
+                    }
+                    inst.opcode = Opcode.valueOf(mnemonic.toUpperCase());
+                    inst.rd = intRegister(ops[0]);
+                    inst.rs1 = intRegister(ops[1]);
+                    inst.rs2 = intRegister(ops[2]);
+                }
+                case "addi", "andi", "ori", "xori", "slli", "srli", "srai", "slti", "sltiu", "addiw", "slliw", "srliw", "sraiw" -> {
+                    expect(ops, 3, mnemonic);
+                    immediateOp(inst, Opcode.valueOf(mnemonic.toUpperCase()), ops);
+                }
+                case "li", "lui" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = mnemonic.equals("li") ? Opcode.LI : Opcode.LUI;
+                    inst.rd = intRegister(ops[0]);
+                    immediate(inst, ops[1]);
+                }
+                case "la", "lla" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = Opcode.LA;
+                    inst.rd = intRegister(ops[0]);
+                    inst.target = ops[1];
+                }
+                case "mv", "neg", "negw", "not", "seqz", "snez", "sext.w" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = Opcode.valueOf(mnemonic.replace(".", "").toUpperCase());
+                    inst.rd = intRegister(ops[0]);
+                    inst.rs1 = intRegister(ops[1]);
+                }
+                case "ld", "lw", "lwu", "sd", "sw", "flw", "fsw" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = Opcode.valueOf(mnemonic.toUpperCase());
+                    inst.rd = mnemonic.startsWith("f") ? floatRegister(ops[0]) : intRegister(ops[0]);
+                    int open = ops[1].indexOf('(');
+                    if (open < 0 || !ops[1].endsWith(")")) {
+                        throw error("bad memory operand " + ops[1]);
+                    }
+                    String offset = ops[1].substring(0, open).trim();
+                    immediate(inst, offset.isEmpty() ? "0" : offset);
+                    inst.rs1 = intRegister(ops[1].substring(open + 1, ops[1].length() - 1).trim());
+                }
+                case "beqz", "bnez" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = mnemonic.equals("beqz") ? Opcode.BEQZ : Opcode.BNEZ;
+                    inst.rs1 = intRegister(ops[0]);
+                    inst.target = ops[1];
+                }
+                case "beq", "bne", "blt", "bge", "bltu", "bgeu", "bgt", "ble", "bgtu", "bleu" -> {
+                    expect(ops, 3, mnemonic);
+                    //bgt/ble等交换两个操作数
+                    boolean swap = mnemonic.startsWith("bgt") || mnemonic.startsWith("ble");
+                    String base = switch (mnemonic) {
+                        case "bgt" -> "blt";
+                        case "ble" -> "bge";
+                        case "bgtu" -> "bltu";
+                        case "bleu" -> "bgeu";
+                        default -> mnemonic;
+                    };
+                    inst.opcode = Opcode.valueOf(base.toUpperCase());
+                    inst.rs1 = intRegister(ops[swap ? 1 : 0]);
+                    inst.rs2 = intRegister(ops[swap ? 0 : 1]);
+                    inst.target = ops[2];
+                }
+                case "j" -> {
+                    expect(ops, 1, mnemonic);
+                    inst.opcode = Opcode.J;
+                    inst.target = ops[0];
+                }
+                case "jr" -> {
+                    expect(ops, 1, mnemonic);
+                    inst.opcode = Opcode.JR;
+                    inst.rs1 = intRegister(ops[0]);
+                }
+                case "call" -> {
+                    expect(ops, 1, mnemonic);
+                    inst.opcode = Opcode.CALL;
+                    inst.target = ops[0];
+                }
+                case "ret" -> inst.opcode = Opcode.RET;
+                case "fadd.s", "fsub.s", "fmul.s", "fdiv.s", "fmin.s", "fmax.s" -> {
+                    expect(ops, 3, mnemonic);
+                    inst.opcode = Opcode.valueOf(mnemonic.substring(0, mnemonic.length() - 2).toUpperCase());
+                    inst.rd = floatRegister(ops[0]);
+                    inst.rs1 = floatRegister(ops[1]);
+                    inst.rs2 = floatRegister(ops[2]);
+                }
+                case "feq.s", "flt.s", "fle.s" -> {
+                    expect(ops, 3, mnemonic);
+                    inst.opcode = Opcode.valueOf(mnemonic.substring(0, mnemonic.length() - 2).toUpperCase());
+                    inst.rd = intRegister(ops[0]);
+                    inst.rs1 = floatRegister(ops[1]);
+                    inst.rs2 = floatRegister(ops[2]);
+                }
+                case "fsqrt.s", "fneg.s", "fabs.s", "fmv.s" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = Opcode.valueOf(mnemonic.substring(0, mnemonic.length() - 2).toUpperCase());
+                    inst.rd = floatRegister(ops[0]);
+                    inst.rs1 = floatRegister(ops[1]);
+                }
+                case "fmv.w.x" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = Opcode.FMVWX;
+                    inst.rd = floatRegister(ops[0]);
+                    inst.rs1 = intRegister(ops[1]);
+                }
+                case "fmv.x.w" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = Opcode.FMVXW;
+                    inst.rd = intRegister(ops[0]);
+                    inst.rs1 = floatRegister(ops[1]);
+                }
+                case "fcvt.s.w" -> {
+                    expect(ops, 2, mnemonic);
+                    inst.opcode = Opcode.FCVTSW;
+                    inst.rd = floatRegister(ops[0]);
+                    inst.rs1 = intRegister(ops[1]);
+                }
+                case "fcvt.w.s" -> {
+                    if (ops.length != 2 && ops.length != 3) {
+                        throw error("fcvt.w.s expects 2 or 3 operands");
+                    }
+                    //不给出舍入模式时使用默认的就近舍入
+                    inst.opcode = ops.length == 3 && ops[2].equals("rtz") ? Opcode.FCVTWS_RTZ : Opcode.FCVTWS;
+                    inst.rd = intRegister(ops[0]);
+                    inst.rs1 = floatRegister(ops[1]);
+                }
+                default -> throw error("unsupported instruction " + mnemonic);
+            }
+            instructions.add(inst);
+        }
+
+        private void immediateOp(Instruction inst, Opcode opcode, String[] ops) {
+            inst.opcode = opcode;
+            inst.rd = intRegister(ops[0]);
+            inst.rs1 = intRegister(ops[1]);
+            immediate(inst, ops[2]);
+        }
+
+        private Opcode immediateForm(String mnemonic) {
+            return switch (mnemonic) {
+                case "add" -> Opcode.ADDI;
+                case "and" -> Opcode.ANDI;
+                case "or" -> Opcode.ORI;
+                case "xor" -> Opcode.XORI;
+                case "sll" -> Opcode.SLLI;
+                case "srl" -> Opcode.SRLI;
+                case "sra" -> Opcode.SRAI;
+                case "slt" -> Opcode.SLTI;
+                case "sltu" -> Opcode.SLTIU;
+                case "addw" -> Opcode.ADDIW;
+                case "sllw" -> Opcode.SLLIW;
+                case "srlw" -> Opcode.SRLIW;
+                case "sraw" -> Opcode.SRAIW;
+                default -> throw error(mnemonic + " expects a register operand");
+            };
+        }
+
+        //立即数：十进制、十六进制，或者%hi(x)/%lo(x)，x可以是数值或符号
+        private void immediate(Instruction inst, String text) {
+            if (text.startsWith("%hi(") || text.startsWith("%lo(")) {
+                String inner = text.substring(4, text.length() - 1).trim();
+                boolean hi = text.startsWith("%hi");
+                if (isNumber(inner)) {
+                    long value = parseNumber(inner);
+                    inst.imm = hi ? hiPart(value) : loPart(value);
+                } else {
+                    inst.target = inner;
+                    inst.symbolPart = hi ? "hi" : "lo";
+                }
+                return;
+            }
+            inst.imm = parseNumber(text);
+        }
+
+        //lui装入的高20位，低12位按有符号数加回，所以低12位最高位为1时高位要进1
+        static long hiPart(long value) {
+            return ((value + 0x800) >> 12) & 0xFFFFF;
+        }
+
+        static long loPart(long value) {
+            return ((value & 0xFFF) ^ 0x800) - 0x800;
+        }
+
+        private static boolean isNumber(String text) {
+            return text.matches("[+-]?(0[xX][0-9a-fA-F]+|[0-9]+)");
+        }
+
+        private long parseNumber(String text) {
+            if (!isNumber(text)) {
+                throw error("bad number " + text);
+            }
+            boolean negative = text.startsWith("-");
+            String digits = text.startsWith("-") || text.startsWith("+") ? text.substring(1) : text;
+            long value = digits.startsWith("0x") || digits.startsWith("0X")
+                    ? Long.parseUnsignedLong(digits.substring(2), 16) : Long.parseLong(digits);
+            return negative ? -value : value;
+        }
+
+        private static boolean isIntRegister(String name) {
+            return intRegisters.containsKey(name);
+        }
+
+        private int intRegister(String name) {
+            Integer reg = intRegisters.get(name);
+            if (reg == null) {
+                throw error("bad integer register " + name);
+            }
+            return reg;
+        }
+
+        private int floatRegister(String name) {
+            Integer reg = floatRegisters.get(name);
+            if (reg == null) {
+                throw error("bad float register " + name);
+            }
+            return reg;
+        }
+
+        private void expect(String[] ops, int count, String mnemonic) {
+            if (ops.length != count) {
+                throw error(mnemonic + " expects " + count + " operands");
+            }
+        }
+
+        //所有标签都已知后解析跳转目标、调用目标和符号地址，并找出所有函数
+        private void resolve() {
+            for (Instruction inst : instructions) {
+                lineNumber = inst.line;
+                if (inst.target == null) {
+                    continue;
+                }
+                switch (inst.opcode) {
+                    case LA -> inst.imm = dataOrTextAddress(inst.target);
+                    case CALL -> {
+                        Integer target = textLabels.get(inst.target);
+                        if (target != null) {
+                            inst.imm = target;
+                        } else {
+                            SysYRuntime.Function function = SysYRuntime.Function.forName(inst.target);
+                            if (function == null) {
+                                throw error("undefined function " + inst.target);
+                            }
+                            inst.opcode = Opcode.CALL_NATIVE;
+                            inst.imm = function.ordinal();
+                        }
+                    }
+                    case LUI, ADDI, LD, LW, LWU, SD, SW, FLW, FSW -> {
+                        long address = dataOrTextAddress(inst.target);
+                        inst.imm = inst.symbolPart.equals("hi") ? hiPart(address) : loPart(address);
+                    }
+                    default -> {
+                        Integer target = textLabels.get(inst.target);
+                        if (target == null) {
+                            throw error("undefined label " + inst.target);
+                        }
+                        inst.imm = target;
+                    }
+                }
+            }
+            //每个标签开始一个基本块，同一位置有多个标签时取第一个
+            Map<Integer, String> labelsAt = new TreeMap<>();
+            for (Map.Entry<String, Integer> label : textLabels.entrySet()) {
+                labelsAt.putIfAbsent(label.getValue(), label.getKey());
+            }
+            labelsAt.remove(instructions.size());//.text末尾的标签不对应任何指令
+            if (!instructions.isEmpty() && !labelsAt.containsKey(0)) {
+                labelsAt.put(0, ".text");
+            }
+            for (Map.Entry<Integer, String> label : labelsAt.entrySet()) {
+                blockStarts.add(label.getKey());
+                blockLabels.add(label.getValue());
+            }
+            //main和被调用的标签都是函数入口
+            Set<Integer> entries = new TreeSet<>();
+            Integer main = textLabels.get("main");
+            if (main != null) {
+                entries.add(main);
+            }
+            for (Instruction inst : instructions) {
+                if (inst.opcode == Opcode.CALL) {
+                    entries.add((int) inst.imm);
+                }
+            }
+            for (int entry : entries) {
+                functionNames.add(labelsAt.get(entry));
+                functionStarts.add(entry);
+            }
+        }
+
+        private long dataOrTextAddress(String symbol) {
+            Integer address = dataLabels.get(symbol);
+            if (address != null) {
+                return address;
+            }
+            Integer pc = textLabels.get(symbol);
+            if (pc != null) {
+                return TEXT_BASE + 4L * pc;
+            }
+            throw error("undefined symbol " + symbol);
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("line " + lineNumber + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package backend.simulator;
+
+import IR.BlockProfile;
+import backend.simulator.RISCVProgram.Opcode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * RV64IMF的指令级模拟器，执行RISCVBuilder生成的汇编，不需要交叉编译工具链和qemu
+ * 从main开始执行，main返回时结束；sylib的库函数由SysYRuntime直接实现
+ * 执行时按CostModel累计估计的周期数，作为sylib计时函数的时钟；打开profiling时还统计每条指令的执行次数，生成ExecutionProfile
+ * 整数寄存器为64位，浮点寄存器只保存单精度数的位模式；除零、溢出、浮点转整数的结果与RISC-V规范一致
+ * 用法：java backend.simulator.RISCVSimulator test.s [-in test.in] [-out test.out] [-max-instructions n] [-stack-size MB]
+ *                                              [-cost-model cost.properties] [-profile n] [-profile-data test.profile]
+ * 程序的输出写到标准输出，计时信息、退出码、指令数和周期数写到标准错误；给出-out时与期望结果比较，不一致时以1退出
+ * -profile n在标准错误中输出各函数的周期数和周期数最多的n个基本块
+ * -profile-data把-fprofile-generate插桩的程序得到的基本块执行次数写成剖析文件，供-fprofile-use读取
+ */
+public class RISCVSimulator {
+    public static final long DEFAULT_MAX_INSTRUCTIONS = 10_000_000_000L;
+    public static final int DEFAULT_STACK_SIZE = 64 << 20;
+    //main的返回地址，ret跳到这里时程序结束
+    private static final long EXIT_ADDRESS = RISCVProgram.TEXT_BASE - 4;
+    private static final int RA = 1, SP = 2;
+
+    private final RISCVProgram program;
+    private long maxInstructions = DEFAULT_MAX_INSTRUCTIONS;
+    private int stackSize = DEFAULT_STACK_SIZE;
+    private CostModel costModel = CostModel.defaults();
+    private boolean profiling = false;
+
+    private final long[] x = new long[32];
+    private final int[] f = new int[32];
+    private Memory memory;
+    private SysYRuntime runtime;
+    private long instructionCount;
+    private long cycles;
+    private long[] counts;/*打开profiling时每条指令的执行次数*/
+    private long[] takenCounts;/*打开profiling时每条跳转指令实际跳转的次数*/
+
+    public RISCVSimulator(RISCVProgram program) {
+        this.program = program;
+    }
+
+    public void setMaxInstructions(long maxInstructions) {
+        this.maxInstructions = maxInstructions;
+    }
+
+    public void setStackSize(int stackSize) {
+        this.stackSize = stackSize;
+    }
+
+    public void setCostModel(CostModel costModel) {
+        this.costModel = costModel;
+    }
+
+    public void setProfiling(boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /*到目前为止估计的周期数，SysYRuntime用它作为计时函数的时钟*/
+    long getCycles() {
+        return cycles;
+    }
+
+    /*以input作为标准输入执行一次程序，每次执行都从新的内存和寄存器开始*/
+    public SimulationResult run(byte[] input) {
+        int dataEnd = (program.getDataEnd() + 15) & ~15;
+        if ((long) dataEnd + stackSize > Integer.MAX_VALUE - 16) {
+            throw new IllegalArgumentException("data and stack do not fit in memory");
+        }
+        memory = new Memory(dataEnd + stackSize);
+        program.initializeData(memory);
+        Arrays.fill(x, 0);
+        Arrays.fill(f, 0);
+        x[SP] = memory.size();
+        x[RA] = EXIT_ADDRESS;
+        instructionCount = 0;
+        cycles = 0;
+        counts = profiling ? new long[program.getInstructionCount()] : null;
+        takenCounts = profiling ? new long[program.getInstructionCount()] : null;
+        runtime = new SysYRuntime(input, this::getCycles);
+        Integer profileCounters = program.getDataLabel(BlockProfile.COUNTERS);
+        if (profileCounters != null) {
+            runtime.setProfileCounters(profileCounters);
+        }
+        String error = null;
+        Integer main = program.getTextLabel("main");
+        if (main == null) {
+            error = "no main function";
+        } else {
+            try {
+                execute(main);
+                runtime.finish(memory);
+            } catch (SimulationException e) {
+                error = e.getMessage();
+            }
+        }
+        ExecutionProfile profile = profiling ? new ExecutionProfile(program, counts, takenCounts, costModel) : null;
+        return new SimulationResult((int) (x[10] & 0xFF), runtime.getOutput(), runtime.getErrorOutput(),
+                instructionCount, cycles, profile, runtime.getTimerRegions(), runtime.getBlockProfile(), error);
+    }
+
+    private void execute(int entry) {
+        final Opcode[] opcodes = program.opcodes;
+        final int[] rd = program.rd, rs1 = program.rs1, rs2 = program.rs2;
+        final long[] imm = program.imm;
+        final long[] x = this.x;
+        final int[] f = this.f;
+        final Memory memory = this.memory;
+        final int n = opcodes.length;
+        final long[] costs = new long[n];
+        for (int i = 0; i < n; i++) {
+            costs[i] = costModel.getCost(opcodes[i]);
+        }
+        final long penalty = costModel.getTakenBranchPenalty();
+        final long[] counts = this.counts, takenCounts = this.takenCounts;
+        int pc = entry;
+        long count = 0;
+        long cycles = 0;
+        try {
+            while (true) {
+                if (pc < 0 || pc >= n) {
+                    throw new SimulationException("pc out of text section: " + pc);
+                }
+                if (++count > maxInstructions) {
+                    count--;
+                    throw new SimulationException("exceeded " + maxInstructions + " instructions");
+                }
+                cycles += costs[pc];
+                if (counts != null) {
+                    counts[pc]++;
+                }
+                int next = pc + 1;
+                switch (opcodes[pc]) {
+                    case ADD -> x[rd[pc]] = x[rs1[pc]] + x[rs2[pc]];
+                    case SUB -> x[rd[pc]] = x[rs1[pc]] - x[rs2[pc]];
+                    case MUL -> x[rd[pc]] = x[rs1[pc]] * x[rs2[pc]];
+                    case DIV -> x[rd[pc]] = x[rs2[pc]] == 0 ? -1 : x[rs1[pc]] / x[rs2[pc]];
+                    case DIVU -> x[rd[pc]] = x[rs2[pc]] == 0 ? -1 : Long.divideUnsigned(x[rs1[pc]], x[rs2[pc]]);
+                    case REM -> x[rd[pc]] = x[rs2[pc]] == 0 ? x[rs1[pc]] : x[rs1[pc]] % x[rs2[pc]];
+                    case REMU -> x[rd[pc]] = x[rs2[pc]] == 0 ? x[rs1[pc]] : Long.remainderUnsigned(x[rs1[pc]], x[rs2[pc]]);
+                    case AND -> x[rd[pc]] = x[rs1[pc]] & x[rs2[pc]];
+                    case OR -> x[rd[pc]] = x[rs1[pc]] | x[rs2[pc]];
+                    case XOR -> x[rd[pc]] = x[rs1[pc]] ^ x[rs2[pc]];
+                    case SLL -> x[rd[pc]] = x[rs1[pc]] << x[rs2[pc]];
+                    case SRL -> x[rd[pc]] = x[rs1[pc]] >>> x[rs2[pc]];
+                    case SRA -> x[rd[pc]] = x[rs1[pc]] >> x[rs2[pc]];
+                    case SLT -> x[rd[pc]] = x[rs1[pc]] < x[rs2[pc]] ? 1 : 0;
+                    case SLTU -> x[rd[pc]] = Long.compareUnsigned(x[rs1[pc]], x[rs2[pc]]) < 0 ? 1 : 0;
+                    case ADDW -> x[rd[pc]] = (int) (x[rs1[pc]] + x[rs2[pc]]);
+                    case SUBW -> x[rd[pc]] = (int) (x[rs1[pc]] - x[rs2[pc]]);
+                    case MULW -> x[rd[pc]] = (int) x[rs1[pc]] * (int) x[rs2[pc]];
+                    case DIVW -> x[rd[pc]] = (int) x[rs2[pc]] == 0 ? -1 : (int) x[rs1[pc]] / (int) x[rs2[pc]];
+                    case DIVUW -> x[rd[pc]] = (int) x[rs2[pc]] == 0 ? -1 : Integer.divideUnsigned((int) x[rs1[pc]], (int) x[rs2[pc]]);
+                    case REMW -> x[rd[pc]] = (int) x[rs2[pc]] == 0 ? (int) x[rs1[pc]] : (int) x[rs1[pc]] % (int) x[rs2[pc]];
+                    case REMUW -> x[rd[pc]] = (int) x[rs2[pc]] == 0 ? (int) x[rs1[pc]] : Integer.remainderUnsigned((int) x[rs1[pc]], (int) x[rs2[pc]]);
+                    case SLLW -> x[rd[pc]] = (int) x[rs1[pc]] << (int) x[rs2[pc]];
+                    case SRLW -> x[rd[pc]] = (int) x[rs1[pc]] >>> (int) x[rs2[pc]];
+                    case SRAW -> x[rd[pc]] = (int) x[rs1[pc]] >> (int) x[rs2[pc]];
+                    case ADDI -> x[rd[pc]] = x[rs1[pc]] + imm[pc];
+                    case ANDI -> x[rd[pc]] = x[rs1[pc]] & imm[pc];
+                    case ORI -> x[rd[pc]] = x[rs1[pc]] | imm[pc];
+                    case XORI -> x[rd[pc]] = x[rs1[pc]] ^ imm[pc];
+                    case SLLI -> x[rd[pc]] = x[rs1[pc]] << imm[pc];
+                    case SRLI -> x[rd[pc]] = x[rs1[pc]] >>> imm[pc];
+                    case SRAI -> x[rd[pc]] = x[rs1[pc]] >> imm[pc];
+                    case SLTI -> x[rd[pc]] = x[rs1[pc]] < imm[pc] ? 1 : 0;
+                    case SLTIU -> x[rd[pc]] = Long.compareUnsigned(x[rs1[pc]], imm[pc]) < 0 ? 1 : 0;
+                    case ADDIW -> x[rd[pc]] = (int) (x[rs1[pc]] + imm[pc]);
+                    case SLLIW -> x[rd[pc]] = (int) x[rs1[pc]] << imm[pc];
+                    case SRLIW -> x[rd[pc]] = (int) x[rs1[pc]] >>> imm[pc];
+                    case SRAIW -> x[rd[pc]] = (int) x[rs1[pc]] >> imm[pc];
+                    case LI, LA -> x[rd[pc]] = imm[pc];
+                    case LUI -> x[rd[pc]] = (int) (imm[pc] << 12);
+                    case MV -> x[rd[pc]] = x[rs1[pc]];
+                    case NEG -> x[rd[pc]] = -x[rs1[pc]];
+                    case NEGW -> x[rd[pc]] = -(int) x[rs1[pc]];
+                    case NOT -> x[rd[pc]] = ~x[rs1[pc]];
+                    case SEQZ -> x[rd[pc]] = x[rs1[pc]] == 0 ? 1 : 0;
+                    case SNEZ -> x[rd[pc]] = x[rs1[pc]] != 0 ? 1 : 0;
+                    case SEXTW -> x[rd[pc]] = (int) x[rs1[pc]];
+                    case LD -> x[rd[pc]] = memory.loadLong(x[rs1[pc]] + imm[pc]);
+                    case LW -> x[rd[pc]] = memory.loadInt(x[rs1[pc]] + imm[pc]);
+                    case LWU -> x[rd[pc]] = memory.loadInt(x[rs1[pc]] + imm[pc]) & 0xFFFFFFFFL;
+                    case SD -> memory.storeLong(x[rs1[pc]] + imm[pc], x[rd[pc]]);
+                    case SW -> memory.storeInt(x[rs1[pc]] + imm[pc], (int) x[rd[pc]]);
+                    case FLW -> f[rd[pc]] = memory.loadInt(x[rs1[pc]] + imm[pc]);
+                    case FSW -> memory.storeInt(x[rs1[pc]] + imm[pc], f[rd[pc]]);
+                    case BEQZ -> next = x[rs1[pc]] == 0 ? (int) imm[pc] : next;
+                    case BNEZ -> next = x[rs1[pc]] != 0 ? (int) imm[pc] : next;
+                    case BEQ -> next = x[rs1[pc]] == x[rs2[pc]] ? (int) imm[pc] : next;
+                    case BNE -> next = x[rs1[pc]] != x[rs2[pc]] ? (int) imm[pc] : next;
+                    case BLT -> next = x[rs1[pc]] < x[rs2[pc]] ? (int) imm[pc] : next;
+                    case BGE -> next = x[rs1[pc]] >= x[rs2[pc]] ? (int) imm[pc] : next;
+                    case BLTU -> next = Long.compareUnsigned(x[rs1[pc]], x[rs2[pc]]) < 0 ? (int) imm[pc] : next;
+                    case BGEU -> next = Long.compareUnsigned(x[rs1[pc]], x[rs2[pc]]) >= 0 ? (int) imm[pc] : next;
+                    case J -> next = (int) imm[pc];
+                    case CALL -> {
+                        x[RA] = RISCVProgram.TEXT_BASE + 4L * next;
+                        next = (int) imm[pc];
+                    }
+                    case CALL_NATIVE -> {
+                        instructionCount = count;
+                        this.cycles = cycles;
+                        runtime.call(SysYRuntime.Function.VALUES[(int) imm[pc]], x, f, memory);
+                    }
+                    case JR, RET -> {
+                        long target = x[opcodes[pc] == Opcode.RET ? RA : rs1[pc]];
+                        if (target == EXIT_ADDRESS) {
+                            next = -1;
+                            break;
+                        }
+                        long offset = target - RISCVProgram.TEXT_BASE;
+                        if (offset < 0 || (offset & 3) != 0 || offset / 4 >= n) {
+                            throw new SimulationException(String.format("jump to invalid address 0x%x", target));
+                        }
+                        next = (int) (offset / 4);
+                    }
+                    case FADD -> f[rd[pc]] = bits(fl(f[rs1[pc]]) + fl(f[rs2[pc]]));
+                    case FSUB -> f[rd[pc]] = bits(fl(f[rs1[pc]]) - fl(f[rs2[pc]]));
+                    case FMUL -> f[rd[pc]] = bits(fl(f[rs1[pc]]) * fl(f[rs2[pc]]));
+                    case FDIV -> f[rd[pc]] = bits(fl(f[rs1[pc]]) / fl(f[rs2[pc]]));
+                    case FMIN -> f[rd[pc]] = bits(minMax(fl(f[rs1[pc]]), fl(f[rs2[pc]]), true));
+                    case FMAX -> f[rd[pc]] = bits(minMax(fl(f[rs1[pc]]), fl(f[rs2[pc]]), false));
+                    case FSQRT -> f[rd[pc]] = bits((float) Math.sqrt(fl(f[rs1[pc]])));
+                    case FNEG -> f[rd[pc]] = f[rs1[pc]] ^ 0x80000000;
+                    case FABS -> f[rd[pc]] = f[rs1[pc]] & 0x7FFFFFFF;
+                    case FMV -> f[rd[pc]] = f[rs1[pc]];
+                    case FMVWX -> f[rd[pc]] = (int) x[rs1[pc]];
+                    case FMVXW -> x[rd[pc]] = f[rs1[pc]];
+                    case FEQ -> x[rd[pc]] = fl(f[rs1[pc]]) == fl(f[rs2[pc]]) ? 1 : 0;
+                    case FLT -> x[rd[pc]] = fl(f[rs1[pc]]) < fl(f[rs2[pc]]) ? 1 : 0;
+                    case FLE -> x[rd[pc]] = fl(f[rs1[pc]]) <= fl(f[rs2[pc]]) ? 1 : 0;
+                    case FCVTSW -> f[rd[pc]] = bits((float) (int) x[rs1[pc]]);
+                    case FCVTWS -> x[rd[pc]] = toInt((float) Math.rint(fl(f[rs1[pc]])));
+                    case FCVTWS_RTZ -> x[rd[pc]] = toInt(fl(f[rs1[pc]]));
+                }
+                x[0] = 0;
+                if (next != pc + 1) {
+                    cycles += penalty;
+                    if (takenCounts != null) {
+                        takenCounts[pc]++;
+                    }
+                    if (next < 0) {
+                        return;
+                    }
+                }
+                pc = next;
+            }
+        } catch (SimulationException e) {
+            if (pc < 0 || pc >= n) {
+                throw e;
+            }
+            throw new SimulationException(e.getMessage() + " (at line " + program.getSourceLine(pc) + ")");
+        } finally {
+            instructionCount = count;
+            this.cycles = cycles;
+        }
+    }
+
+    private static float fl(int bits) {
+        return Float.intBitsToFloat(bits);
+    }
+
+    //运算结果为NaN时使用规范的NaN(0x7fc00000)
+    private static int bits(float value) {
+        return Float.floatToIntBits(value);
+    }
+
+    //有一个操作数是NaN时返回另一个
+    private static float minMax(float a, float b, boolean min) {
+        if (Float.isNaN(a)) {
+            return b;
+        }
+        if (Float.isNaN(b)) {
+            return a;
+        }
+        return min ? Math.min(a, b) : Math.max(a, b);
+    }
+
+    //超出范围时取最大值或最小值，NaN转换为最大值
+    private static int toInt(float value) {
+        return Float.isNaN(value) ? Integer.MAX_VALUE : (int) value;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: RISCVSimulator <file.s> [-in file] [-out file] [-max-instructions n] [-stack-size MB]"
+                    + " [-cost-model file] [-profile n] [-profile-data file]");
+            System.exit(2);
+        }
+        String inputPath = null;
+        String expectedPath = null;
+        long maxInstructions = DEFAULT_MAX_INSTRUCTIONS;
+        int stackSize = DEFAULT_STACK_SIZE;
+        String costModelPath = null;
+        int profileBlocks = -1;
+        String profileDataPath = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-in" -> inputPath = args[i + 1];
+                case "-out" -> expectedPath = args[i + 1];
+                case "-max-instructions" -> maxInstructions = Long.parseLong(args[i + 1]);
+                case "-stack-size" -> stackSize = Integer.parseInt(args[i + 1]) << 20;
+                case "-cost-model" -> costModelPath = args[i + 1];
+                case "-profile" -> profileBlocks = Integer.parseInt(args[i + 1]);
+                case "-profile-data" -> profileDataPath = args[i + 1];
+                default -> System.err.println("Unknown option " + args[i]);
+            }
+        }
+        RISCVProgram program;
+        CostModel costModel;
+        try {
+            program = RISCVProgram.parse(Files.readString(new File(args[0]).toPath()));
+        } catch (IllegalArgumentException e) {
+            System.err.println(args[0] + ": " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        try {
+            costModel = costModelPath == null ? CostModel.defaults() : CostModel.load(Path.of(costModelPath));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        RISCVSimulator simulator = new RISCVSimulator(program);
+        simulator.setMaxInstructions(maxInstructions);
+        simulator.setStackSize(stackSize);
+        simulator.setCostModel(costModel);
+        simulator.setProfiling(profileBlocks >= 0);
+        byte[] input = inputPath == null ? new byte[0] : Files.readAllBytes(new File(inputPath).toPath());
+        SimulationResult result = simulator.run(input);
+        System.out.write(result.getOutputBytes());
+        System.out.flush();
+        System.err.print(result.getErrorOutput());
+        if (result.hasError()) {
+            System.err.println("Runtime error: " + result.getError());
+        }
+        System.err.println("exit code " + result.getExitCode() + ", " + result.getInstructionCount() + " instructions, "
+                + result.getCycles() + " cycles");
+        if (result.getProfile() != null) {
+            System.err.print(result.getProfile().format(profileBlocks));
+        }
+        if (profileDataPath != null) {
+            if (result.getBlockProfile() == null) {
+                System.err.println("Warning: no block profile (program was not compiled with -fprofile-generate)");
+            } else {
+                result.getBlockProfile().write(Path.of(profileDataPath));
+            }
+        }
+        if (expectedPath != null) {
+            boolean passed = result.matches(Files.readString(new File(expectedPath).toPath()));
+            System.err.println(passed ? "passed" : "failed");
+            System.exit(passed ? 0 : 1);
+        }
+        System.exit(result.hasError() ? 1 : 0);
+    }
+}
@@ -0,0 +1,12 @@
+package backend.simulator;
+
+/**
+ * 模拟执行时的运行时错误(非法访存、非法跳转、超过指令数上限等)，由RISCVSimulator捕获后记入SimulationResult
+ */
+class SimulationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    SimulationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,107 @@
+package backend.simulator;
+
+import IR.BlockProfile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 一次模拟执行的结果：退出码、标准输出、sylib计时函数的输出和各计时区间、动态执行的指令数和估计的周期数
+ * 打开profiling时还有各函数、各基本块的ExecutionProfile；程序用-fprofile-generate编译时还有读出的BlockProfile
+ * 出现运行时错误时error不为null，此时其余结果是出错之前的部分
+ */
+public class SimulationResult {
+    /*一对_sysy_starttime/_sysy_stoptime之间的区间，ticks为RISCVSimulator的时钟走过的时间*/
+    public record TimerRegion(int startLine, int stopLine, long ticks) {
+    }
+
+    private final int exitCode;
+    private final byte[] output;
+    private final String errorOutput;
+    private final long instructionCount;
+    private final long cycles;
+    private final ExecutionProfile profile;
+    private final List<TimerRegion> timerRegions;
+    private final BlockProfile blockProfile;
+    private final String error;
+
+    SimulationResult(int exitCode, byte[] output, String errorOutput, long instructionCount, long cycles,
+                     ExecutionProfile profile, List<TimerRegion> timerRegions, BlockProfile blockProfile, String error) {
+        this.exitCode = exitCode;
+        this.output = output;
+        this.errorOutput = errorOutput;
+        this.instructionCount = instructionCount;
+        this.cycles = cycles;
+        this.profile = profile;
+        this.timerRegions = List.copyOf(timerRegions);
+        this.blockProfile = blockProfile;
+        this.error = error;
+    }
+
+    /*main的返回值的低8位，与进程的退出码相同*/
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public byte[] getOutputBytes() {
+        return output.clone();
+    }
+
+    public String getOutput() {
+        return new String(output, StandardCharsets.ISO_8859_1);
+    }
+
+    public String getErrorOutput() {
+        return errorOutput;
+    }
+
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
+    /*按RISCVSimulator的CostModel估计的周期数*/
+    public long getCycles() {
+        return cycles;
+    }
+
+    /*没有打开profiling时为null*/
+    public ExecutionProfile getProfile() {
+        return profile;
+    }
+
+    public List<TimerRegion> getTimerRegions() {
+        return timerRegions;
+    }
+
+    /*程序没有插桩或没有正常结束时为null*/
+    public BlockProfile getBlockProfile() {
+        return blockProfile;
+    }
+
+    public boolean hasError() {
+        return error != null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /*
+     * 与测试用例的.out文件比较：最后一行是退出码，前面是程序的输出，两者都去掉首尾空白后比较
+     * 与TestRISCV在qemu上运行时的比较方式相同
+     */
+    public boolean matches(String expected) {
+        if (hasError()) {
+            return false;
+        }
+        String trimmed = expected.stripTrailing();
+        int index = trimmed.lastIndexOf('\n');
+        String expectedOutput = index < 0 ? "" : trimmed.substring(0, index);
+        try {
+            int expectedCode = Integer.parseInt(trimmed.substring(index + 1).trim());
+            return expectedCode == exitCode && expectedOutput.trim().equals(getOutput().trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
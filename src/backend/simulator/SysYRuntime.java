@@ -0,0 +1,268 @@
+package backend.simulator;
+
+import IR.BlockProfile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * 在模拟器中直接实现res/sylib.c中的库函数，行为与sylib(scanf/printf)一致
+ * 参数和返回值按调用约定通过a0-a7、fa0-fa7传递，输出写入缓冲区，由SimulationResult返回
+ * 计时函数用clock读取模拟的时间(RISCVSimulator估计的周期数)，按TICKS_PER_MICROSECOND折算成sylib的时分秒格式
+ * 程序用-fprofile-generate编译时，finish(相当于after_main)还读出基本块计数器，得到BlockProfile
+ */
+class SysYRuntime {
+    //时间单位：模拟的1GHz处理器，1000个时钟周期为1微秒
+    static final long TICKS_PER_MICROSECOND = 1000;
+
+    enum Function {
+        GETINT("getint"), GETCH("getch"), GETFLOAT("getfloat"), GETARRAY("getarray"), GETFARRAY("getfarray"),
+        PUTINT("putint"), PUTCH("putch"), PUTARRAY("putarray"), PUTFLOAT("putfloat"), PUTFARRAY("putfarray"),
+        PUTF("putf"), STARTTIME("_sysy_starttime"), STOPTIME("_sysy_stoptime"),
+        BEFORE_MAIN("before_main"), AFTER_MAIN("after_main");
+
+        private static final Map<String, Function> byName = new HashMap<>();
+
+        static {
+            for (Function function : values()) {
+                byName.put(function.symbol, function);
+            }
+        }
+
+        private final String symbol;
+
+        Function(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /*库函数名对应的Function，不是库函数时返回null*/
+        static Function forName(String symbol) {
+            return byName.get(symbol);
+        }
+
+        static final Function[] VALUES = values();
+    }
+
+    private static final int A0 = 10;
+
+    private final byte[] input;
+    private int inputPosition = 0;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final StringBuilder errorOutput = new StringBuilder();
+    private final LongSupplier clock;
+    private final List<SimulationResult.TimerRegion> timerRegions = new ArrayList<>();
+    private int startLine;
+    private long startTime;
+    private long profileCounters = -1;/*BlockProfile.COUNTERS数组的地址，程序没有插桩时为-1*/
+    private BlockProfile blockProfile;
+
+    SysYRuntime(byte[] input, LongSupplier clock) {
+        this.input = input;
+        this.clock = clock;
+    }
+
+    void call(Function function, long[] x, int[] f, Memory memory) {
+        switch (function) {
+            case GETINT -> x[A0] = readInt();
+            case GETCH -> x[A0] = inputPosition < input.length ? input[inputPosition++] : -1;
+            case GETFLOAT -> f[A0] = Float.floatToRawIntBits(readFloat());
+            case GETARRAY -> {
+                int n = readInt();
+                for (int i = 0; i < n; i++) {
+                    memory.storeInt(x[A0] + 4L * i, readInt());
+                }
+                x[A0] = n;
+            }
+            case GETFARRAY -> {
+                int n = readInt();
+                for (int i = 0; i < n; i++) {
+                    memory.storeInt(x[A0] + 4L * i, Float.floatToRawIntBits(readFloat()));
+                }
+                x[A0] = n;
+            }
+            case PUTINT -> print(Integer.toString((int) x[A0]));
+            case PUTCH -> output.write((int) x[A0]);
+            case PUTARRAY -> {
+                int n = (int) x[A0];
+                StringBuilder sb = new StringBuilder().append(n).append(':');
+                for (int i = 0; i < n; i++) {
+                    sb.append(' ').append(memory.loadInt(x[A0 + 1] + 4L * i));
+                }
+                print(sb.append('\n').toString());
+            }
+            case PUTFLOAT -> print(hexFloat(Float.intBitsToFloat(f[A0])));
+            case PUTFARRAY -> {
+                int n = (int) x[A0];
+                StringBuilder sb = new StringBuilder().append(n).append(':');
+                for (int i = 0; i < n; i++) {
+                    sb.append(' ').append(hexFloat(Float.intBitsToFloat(memory.loadInt(x[A0 + 1] + 4L * i))));
+                }
+                print(sb.append('\n').toString());
+            }
+            case PUTF -> putf(x, memory);
+            case STARTTIME -> {
+                startLine = (int) x[A0];
+                startTime = clock.getAsLong();
+            }
+            case STOPTIME -> timerRegions.add(new SimulationResult.TimerRegion(startLine, (int) x[A0], clock.getAsLong() - startTime));
+            case BEFORE_MAIN, AFTER_MAIN -> {
+            }
+        }
+    }
+
+    private void print(String s) {
+        output.writeBytes(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void skipSpaces() {
+        while (inputPosition < input.length && Character.isWhitespace(input[inputPosition])) {
+            inputPosition++;
+        }
+    }
+
+    //scanf("%d")，没有可读的整数时返回0
+    private int readInt() {
+        skipSpaces();
+        int begin = inputPosition;
+        int end = begin;
+        if (end < input.length && (input[end] == '-' || input[end] == '+')) {
+            end++;
+        }
+        int digits = end;
+        while (end < input.length && input[end] >= '0' && input[end] <= '9') {
+            end++;
+        }
+        if (end == digits) {
+            return 0;
+        }
+        inputPosition = end;
+        //与scanf一样，超出int范围时取低32位
+        return (int) Long.parseLong(new String(input, begin, Math.min(end - begin, 19), StandardCharsets.ISO_8859_1));
+    }
+
+    //scanf("%a")，接受十进制和十六进制浮点数，没有可读的浮点数时返回0
+    private float readFloat() {
+        skipSpaces();
+        int end = inputPosition;
+        while (end < input.length && "0123456789abcdefABCDEFxXpP.+-".indexOf(input[end]) >= 0) {
+            end++;
+        }
+        String token = new String(input, inputPosition, end - inputPosition, StandardCharsets.ISO_8859_1);
+        inputPosition = end;
+        String lower = token.toLowerCase();
+        if (lower.contains("0x") && !lower.contains("p")) {
+            token = token + "p0";//Java要求十六进制浮点数带有指数
+        }
+        try {
+            return Float.parseFloat(token);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    //printf("%a")的格式，float先提升为double
+    static String hexFloat(float value) {
+        if (Float.isNaN(value)) {
+            return "nan";
+        }
+        if (Float.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        String s = Double.toHexString(value);//如0x1.8p3、0x1.0p-2、0x0.0p0
+        int p = s.indexOf('p');
+        String mantissa = s.substring(0, p);
+        String exponent = s.substring(p + 1);
+        if (mantissa.endsWith(".0")) {
+            mantissa = mantissa.substring(0, mantissa.length() - 2);
+        }
+        return mantissa + "p" + (exponent.startsWith("-") ? exponent : "+" + exponent);
+    }
+
+    //putf(char a[], ...)：支持%d、%c、%f、%a和%%，可变参数依次取a1-a7(浮点数按double传递)
+    private void putf(long[] x, Memory memory) {
+        StringBuilder sb = new StringBuilder();
+        long address = x[A0];
+        int arg = A0 + 1;
+        for (byte c; (c = memory.loadByte(address)) != 0; address++) {
+            if (c != '%') {
+                sb.append((char) (c & 0xFF));
+                continue;
+            }
+            byte conversion = memory.loadByte(++address);
+            if (conversion == '%') {
+                sb.append('%');
+                continue;
+            }
+            if (arg > A0 + 7) {
+                throw new SimulationException("putf: too many arguments");
+            }
+            long value = x[arg++];
+            switch (conversion) {
+                case 'd' -> sb.append((int) value);
+                case 'c' -> sb.append((char) (value & 0xFF));
+                case 'f' -> sb.append(String.format("%f", Double.longBitsToDouble(value)));
+                case 'a' -> sb.append(hexFloat((float) Double.longBitsToDouble(value)));
+                default -> throw new SimulationException("putf: unsupported conversion %" + (char) conversion);
+            }
+        }
+        print(sb.toString());
+    }
+
+    void setProfileCounters(long address) {
+        profileCounters = address;
+    }
+
+    /*
+     * 程序结束时调用，与sylib的after_main一样向错误输出打印各计时区间和总时间
+     * 有基本块计数器时读出各计数器，计数器是32位的，按无符号数读取
+     */
+    void finish(Memory memory) {
+        if (profileCounters >= 0) {
+            int checksum = memory.loadInt(profileCounters);
+            long[] counts = new long[memory.loadInt(profileCounters + 4)];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = Integer.toUnsignedLong(memory.loadInt(profileCounters + 4L * (BlockProfile.HEADER_SIZE + i)));
+            }
+            blockProfile = new BlockProfile(checksum, counts);
+        }
+        long total = 0;
+        for (SimulationResult.TimerRegion region : timerRegions) {
+            errorOutput.append(String.format("Timer@%04d-%04d: %s\n", region.startLine(), region.stopLine(),
+                    formatTime(region.ticks())));
+            total += region.ticks();
+        }
+        errorOutput.append("TOTAL: ").append(formatTime(total)).append('\n');
+    }
+
+    private static String formatTime(long ticks) {
+        long us = ticks / TICKS_PER_MICROSECOND;
+        long s = us / 1000000;
+        long m = s / 60;
+        return String.format("%dH-%dM-%dS-%dus", m / 60, m % 60, s % 60, us % 1000000);
+    }
+
+    byte[] getOutput() {
+        return output.toByteArray();
+    }
+
+    String getErrorOutput() {
+        return errorOutput.toString();
+    }
+
+    List<SimulationResult.TimerRegion> getTimerRegions() {
+        return timerRegions;
+    }
+
+    BlockProfile getBlockProfile() {
+        return blockProfile;
+    }
+}